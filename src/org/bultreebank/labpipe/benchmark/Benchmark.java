@@ -0,0 +1,98 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+/**
+ * <code>Benchmark</code> is a single measured operation run by a 
+ * {@link BenchmarkRunner}. Every call of {@link #run()} processes the same 
+ * input and reports how many units (tokens, bytes, documents) it processed, 
+ * so that the throughput can be compared between releases.
+ *
+ * @author Aleksandar Savkov
+ */
+public abstract class Benchmark {
+
+    private final String NAME;
+    private final String UNIT;
+    private final double UNIT_SIZE;
+
+    /**
+     * Creates a benchmark reporting its throughput in <code>unit</code>s per 
+     * second.
+     * 
+     * @param   name    benchmark name
+     * @param   unit    unit name
+     */
+    public Benchmark(String name, String unit) {
+        this(name, unit, 1);
+    }
+
+    /**
+     * Creates a benchmark whose operation counts units of size 
+     * <code>1/unitSize</code>, e.g. bytes reported in MB.
+     * 
+     * @param   name    benchmark name
+     * @param   unit    unit name
+     * @param   unitSize    number of counted units in one reported unit
+     */
+    public Benchmark(String name, String unit, double unitSize) {
+        NAME = name;
+        UNIT = unit;
+        UNIT_SIZE = unitSize;
+    }
+
+    /**
+     * Gets the benchmark name
+     * 
+     * @return  String
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the name of the reported unit
+     * 
+     * @return  String
+     */
+    public String getUnit() {
+        return UNIT;
+    }
+
+    /**
+     * Gets the number of counted units in one reported unit
+     * 
+     * @return  double
+     */
+    public double getUnitSize() {
+        return UNIT_SIZE;
+    }
+
+    /**
+     * Runs the measured operation once. Results should be passed to 
+     * {@link BenchmarkRunner#consume(Object)}, so that the operation is not 
+     * optimized away.
+     * 
+     * @return  long    - number of counted units processed
+     * @throws Exception
+     */
+    public abstract long run() throws Exception;
+}
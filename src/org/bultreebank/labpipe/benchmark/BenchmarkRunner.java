@@ -0,0 +1,176 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <code>BenchmarkRunner</code> runs a list of {@link Benchmark}s. Each 
+ * benchmark is run in a number of warm-up iterations, which are not measured, 
+ * and a number of measured iterations, each of them calling the operation 
+ * until a minimum time has passed. The mean throughput and its standard 
+ * deviation over the measured iterations are printed as a tab separated 
+ * table, one line per benchmark. Benchmarks which fail are reported as 
+ * <code>n/a</code> with the exception and do not stop the run.
+ *
+ * @author Aleksandar Savkov
+ */
+public class BenchmarkRunner {
+
+    private static volatile int SINK = 0;
+    private final int WARMUP_ITERATIONS;
+    private final int ITERATIONS;
+    private final long ITERATION_NANOS;
+    private final List<Benchmark> BENCHMARKS = new ArrayList();
+
+    /**
+     * Creates a runner.
+     * 
+     * @param   warmupIterations    number of warm-up iterations
+     * @param   iterations  number of measured iterations
+     * @param   iterationMillis minimum duration of an iteration in milliseconds
+     */
+    public BenchmarkRunner(int warmupIterations, int iterations, long iterationMillis) {
+        WARMUP_ITERATIONS = warmupIterations;
+        ITERATIONS = Math.max(iterations, 1);
+        ITERATION_NANOS = iterationMillis * 1000000L;
+    }
+
+    /**
+     * Adds a benchmark to the run
+     * 
+     * @param   benchmark   benchmark
+     */
+    public void add(Benchmark benchmark) {
+        BENCHMARKS.add(benchmark);
+    }
+
+    /**
+     * Runs all benchmarks whose names match <code>filter</code> and prints 
+     * the results.
+     * 
+     * @param   out output stream
+     * @param   filter  regular expression matched against the benchmark 
+     *                  names, or <code>null</code> for all benchmarks
+     */
+    public void run(PrintStream out, String filter) {
+
+        Pattern pattern = (filter == null) ? null : Pattern.compile(filter);
+
+        out.println("benchmark\tunit\tmean/sec\tstdev\titerations");
+
+        for (Benchmark benchmark : BENCHMARKS) {
+            if (pattern != null && !pattern.matcher(benchmark.getName()).find()) {
+                continue;
+            }
+            out.println(run(benchmark));
+        }
+
+    }
+
+    /**
+     * Runs a single benchmark.
+     * 
+     * @param   benchmark   benchmark
+     * 
+     * @return  String  - result line
+     */
+    public String run(Benchmark benchmark) {
+
+        StringBuilder sb = new StringBuilder(benchmark.getName());
+        sb.append("\t");
+        sb.append(benchmark.getUnit());
+        sb.append("\t");
+
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                iterate(benchmark);
+            }
+
+            double[] results = new double[ITERATIONS];
+            double mean = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                results[i] = iterate(benchmark);
+                mean += results[i];
+            }
+            mean /= ITERATIONS;
+
+            double variance = 0;
+            for (double result : results) {
+                variance += (result - mean) * (result - mean);
+            }
+            double stdev = (ITERATIONS > 1) ? Math.sqrt(variance / (ITERATIONS - 1)) : 0;
+
+            sb.append(String.format("%.1f", mean));
+            sb.append("\t");
+            sb.append(String.format("%.1f", stdev));
+            sb.append("\t");
+            sb.append(ITERATIONS);
+        } catch (Exception ex) {
+            sb.append("n/a\tn/a\t");
+            sb.append(ex);
+        }
+
+        return sb.toString();
+
+    }
+
+    /*
+     * Runs the operation until the iteration time has passed and returns the 
+     * throughput in reported units per second.
+     */
+    private double iterate(Benchmark benchmark) throws Exception {
+
+        long units = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            units += benchmark.run();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+
+        return units / benchmark.getUnitSize() / (elapsed / 1e9);
+
+    }
+
+    /**
+     * Consumes the result of an operation, so that the JIT compiler cannot 
+     * remove the computation of an unused result.
+     * 
+     * @param   result  operation result
+     */
+    public static void consume(Object result) {
+        SINK ^= System.identityHashCode(result);
+    }
+
+    /**
+     * Consumes a numeric result of an operation.
+     * 
+     * @param   result  operation result
+     */
+    public static void consume(long result) {
+        SINK ^= (int) (result ^ (result >>> 32));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.ConllTokenReader;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
+import org.bultreebank.labpipe.utils.DataUtils;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>ConllBenchmark</code> measures the conversion of CoNLL data to the 
+ * Line format in tokens per second: token by token with 
+ * {@link DataUtils#conllLineAsMap}, token by token with 
+ * {@link ConllTokenReader}, and through a {@link Conll} object (loading and 
+ * {@link Conll#toLine(String, Properties)} separately).
+ * 
+ * Usage: <code>ConllBenchmark input.conll conllMapInv.properties [rounds]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConllBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 2) {
+            System.err.println("Usage: ConllBenchmark input.conll conllMapInv.properties [rounds]");
+            System.exit(1);
+        }
+
+        ArrayList<String> lines = new ArrayList();
+        StringBuilder text = new StringBuilder();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), ServiceConstants.PIPE_CHARACTER_ENCODING));
+        String line;
+        while ((line = br.readLine()) != null) {
+            lines.add(line);
+            text.append(line);
+            text.append("\n");
+        }
+        br.close();
+        byte[] data = text.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+
+        Properties iConllMap = new Properties();
+        FileInputStream mapStream = new FileInputStream(args[1]);
+        iConllMap.load(mapStream);
+        mapStream.close();
+
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        Conll conll = new Conll(new ByteArrayInputStream(data));
+        int tokens = conll.getTokenCount();
+
+        System.out.println("mode\ttokens\tseconds\ttokens/sec");
+
+        // Warm-up round
+        runMap(lines, iConllMap);
+        runReader(lines, iConllMap);
+        new Conll(new ByteArrayInputStream(data)).toLine("<eos>", iConllMap);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            runMap(lines, iConllMap);
+        }
+        print("conllLineAsMap", tokens * rounds, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            runReader(lines, iConllMap);
+        }
+        print("ConllTokenReader", tokens * rounds, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            conll = new Conll(new ByteArrayInputStream(data));
+        }
+        print("Conll load", tokens * rounds, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            conll.toLine("<eos>", iConllMap);
+        }
+        print("Conll.toLine", tokens * rounds, start);
+
+    }
+
+    private static void print(String mode, long tokens, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(mode + "\t" + tokens + "\t" + String.format("%.3f", seconds) + "\t" + String.format("%.0f", tokens / seconds));
+    }
+
+    private static String runMap(ArrayList<String> lines, Properties iConllMap) {
+        StringBuilder sb = new StringBuilder();
+        HashMap<Integer, String> map;
+        for (String line : lines) {
+            if (line.length() < 2 || !Character.isDigit(line.charAt(0))) {
+                sb.append("<eos>\n");
+                continue;
+            }
+            map = DataUtils.conllLineAsMap(line, iConllMap);
+            sb.append(map.get(Conll.TOKEN_FORM));
+            sb.append("\t");
+            sb.append(map.get(Conll.TOKEN_FULLTAG));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String runReader(ArrayList<String> lines, Properties iConllMap) {
+        StringBuilder sb = new StringBuilder();
+        ConllTokenReader reader = new ConllTokenReader();
+        ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
+        for (String line : lines) {
+            if (line.length() < 2 || !Character.isDigit(line.charAt(0))) {
+                sb.append("<eos>\n");
+                continue;
+            }
+            reader.reset(line);
+            reader.appendColumn(Conll.TOKEN_FORM, sb);
+            sb.append("\t");
+            sb.append(reader.getFullTag(index));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Properties;
+import org.bultreebank.labpipe.converters.ConverterRegistry;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>ConverterBenchmark</code> measures the throughput of every 
+ * source/target pair in a {@link ConverterRegistry} in MB of input per second. 
+ * The input in each data type is produced from a Line file through the 
+ * registry itself. Pairs which cannot be converted are reported as 
+ * <code>n/a</code>.
+ * 
+ * Usage: <code>ConverterBenchmark input.line conllMap.properties conllMapInv.properties [rounds]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConverterBenchmark {
+
+    private static final String[] NAMES = {"", "text", "line", "weblicht", "conll", "clark", "clark-tags", "gaze", "binary"};
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 3) {
+            System.err.println("Usage: ConverterBenchmark input.line conllMap.properties conllMapInv.properties [rounds]");
+            System.exit(1);
+        }
+
+        Properties conllMap = load(args[1]);
+        Properties iConllMap = load(args[2]);
+        int rounds = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+        ConverterRegistry registry = new ConverterRegistry("<eos>", conllMap, iConllMap);
+        int[] types = ConverterRegistry.getDataTypes();
+
+        FileInputStream fis = new FileInputStream(args[0]);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = fis.read(buffer)) != -1) {
+            baos.write(buffer, 0, n);
+        }
+        fis.close();
+        byte[] line = baos.toByteArray();
+
+        byte[][] inputs = new byte[NAMES.length][];
+        for (int type : types) {
+            try {
+                baos = new ByteArrayOutputStream();
+                registry.convert(new ByteArrayInputStream(line), baos, ServiceConstants.DATA_LINE, type);
+                inputs[type] = baos.toByteArray();
+            } catch (Exception ex) {
+                System.err.println(NAMES[type] + ": " + ex);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder("from\\to");
+        for (int out : types) {
+            sb.append("\t");
+            sb.append(NAMES[out]);
+        }
+        System.out.println(sb);
+
+        for (int in : types) {
+            sb = new StringBuilder(NAMES[in]);
+            for (int out : types) {
+                sb.append("\t");
+                sb.append(run(registry, inputs[in], in, out, rounds));
+            }
+            System.out.println(sb);
+        }
+
+    }
+
+    private static String run(ConverterRegistry registry, byte[] input, int in, int out, int rounds) {
+        if (input == null) {
+            return "n/a";
+        }
+        try {
+            // Warm-up round
+            registry.convert(new ByteArrayInputStream(input), new ByteArrayOutputStream(), in, out);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                registry.convert(new ByteArrayInputStream(input), new ByteArrayOutputStream(input.length), in, out);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return String.format("%.1f", input.length * (double) rounds / seconds / (1024 * 1024));
+        } catch (Exception ex) {
+            return "n/a";
+        }
+    }
+
+    private static Properties load(String path) throws Exception {
+        Properties properties = new Properties();
+        InputStream is = new FileInputStream(path);
+        properties.load(is);
+        is.close();
+        return properties;
+    }
+}
@@ -0,0 +1,543 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.TagDecomposer;
+
+/**
+ * <code>CorpusGenerator</code> generates synthetic Bulgarian-like corpora for 
+ * the benchmarks. Words are built from Cyrillic syllables and inflected with 
+ * BTB tagged paradigms, mixed with closed class words, abbreviations, numbers 
+ * and punctuation. Frequent words are picked more often than rare ones and 
+ * every sentence gets a dependency tree, so the corpus can be written in the 
+ * Text, Line and CoNLL formats together with the CoNLL maps and the 
+ * dictionaries needed by the tokenizer and the sentence detector. The same 
+ * seed always produces the same corpus.
+ * 
+ * Usage: <code>CorpusGenerator outputDir [sentences] [seed]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class CorpusGenerator {
+
+    public static final String TEXT_FILE = "corpus.txt";
+    public static final String LINE_FILE = "corpus.line";
+    public static final String CONLL_FILE = "corpus.conll";
+    public static final String CONLL_MAP_FILE = "conllMap.properties";
+    public static final String CONLL_MAP_INV_FILE = "conllMapInv.properties";
+    public static final String EXCEPTIONS_FILE = "exceptions.txt";
+    public static final String POSSIBLE_EOS_FILE = "possibleEos.txt";
+    public static final String NAMES_FILE = "names.txt";
+
+    private static final String[] CONSONANTS = {"б", "в", "г", "д", "ж", "з", "к", "л", "м", "н", "п", "р", "с", "т", "х", "ц", "ч", "ш"};
+    private static final String[] VOWELS = {"а", "е", "и", "о", "у", "ъ", "я"};
+    // Paradigms of the open classes: tag and ending, the first entry is the lemma
+    private static final String[][][] PARADIGMS = {
+        {{"Ncmsi", ""}, {"Ncmsh", "а"}, {"Ncmsf", "ът"}, {"Ncmpi", "ове"}, {"Ncmpd", "овете"}},
+        {{"Ncfsi", "а"}, {"Ncfsd", "ата"}, {"Ncfpi", "и"}, {"Ncfpd", "ите"}},
+        {{"Ncnsi", "о"}, {"Ncnsd", "ото"}, {"Ncnpi", "а"}, {"Ncnpd", "ата"}},
+        {{"Amsi", "ен"}, {"Afsi", "на"}, {"Ansi", "но"}, {"A-pi", "ни"}, {"Afsd", "ната"}, {"Amsh", "ния"}},
+        {{"Vpitf-r1s", "ам"}, {"Vpitf-r3s", "а"}, {"Vpitf-r3p", "ат"}, {"Vpitf-o3s", "аше"}, {"Vpitcar-smi", "ащ"}}
+    };
+    private static final double[] PARADIGM_WEIGHTS = {0.12, 0.12, 0.06, 0.14, 0.16};
+    private static final String[][] CLOSED = {
+        {"в", "R"}, {"на", "R"}, {"от", "R"}, {"за", "R"}, {"с", "R"}, {"по", "R"},
+        {"и", "Cp"}, {"или", "Cp"}, {"но", "Cc"}, {"че", "Cs"}, {"ако", "Cs"}, {"когато", "Cs"},
+        {"той", "Ppe-os3m"}, {"тя", "Ppe-os3f"}, {"те", "Ppe-op3"}, {"се", "Ppxta"},
+        {"не", "T"}, {"да", "Tx"}, {"е", "Vxitf-r3s"}, {"са", "Vxitf-r3p"},
+        {"бързо", "Dm"}, {"днес", "Dt"}, {"тук", "Dl"}
+    };
+    private static final String[][] ABBREVIATIONS = {{"г.", "Ncfsi"}, {"т.е.", "Cp"}, {"др.", "Pce-op"}, {"ул.", "Ncfsi"}};
+    private static final String[] PUNCT_TAG = {"punct"};
+    private static final String[] DEPRELS = {"subj", "obj", "mod", "prepcomp", "conj", "indobj", "xcomp"};
+    private final Random RANDOM;
+    private final String[][] STEMS;
+    private final String[] NAMES;
+    private final List<String[][]> SENTENCES = new ArrayList();
+    private int TOKENS = 0;
+
+    /**
+     * Creates a generator with a lexicon of <code>stems</code> stems for each 
+     * open class paradigm.
+     * 
+     * @param   seed    random seed
+     * @param   stems   number of stems in each open class
+     */
+    public CorpusGenerator(long seed, int stems) {
+
+        RANDOM = new Random(seed);
+        STEMS = new String[PARADIGMS.length][stems];
+        for (int i = 0; i < PARADIGMS.length; i++) {
+            for (int j = 0; j < stems; j++) {
+                STEMS[i][j] = stem(1 + RANDOM.nextInt(3));
+            }
+        }
+        NAMES = new String[Math.max(stems / 10, 1)];
+        for (int i = 0; i < NAMES.length; i++) {
+            NAMES[i] = capitalize(stem(2 + RANDOM.nextInt(2)));
+        }
+
+    }
+
+    /**
+     * Creates a generator with a lexicon of 2000 stems for each open class.
+     * 
+     * @param   seed    random seed
+     */
+    public CorpusGenerator(long seed) {
+        this(seed, 2000);
+    }
+
+    /**
+     * Generates <code>sentences</code> more sentences.
+     * 
+     * @param   sentences   number of sentences
+     * 
+     * @return  CorpusGenerator - this object
+     */
+    public CorpusGenerator generate(int sentences) {
+
+        for (int i = 0; i < sentences; i++) {
+            String[][] sentence = sentence(5 + RANDOM.nextInt(26));
+            SENTENCES.add(sentence);
+            TOKENS += sentence.length;
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Gets the number of generated sentences
+     * 
+     * @return  int
+     */
+    public int getSentenceCount() {
+        return SENTENCES.size();
+    }
+
+    /**
+     * Gets the number of generated tokens
+     * 
+     * @return  int
+     */
+    public int getTokenCount() {
+        return TOKENS;
+    }
+
+    /**
+     * Gets all generated tokens in order. Tokens are arrays of form, lemma, 
+     * BTB tag, head and dependency relation.
+     * 
+     * @return  List&lt;String[]&gt;
+     */
+    public List<String[]> getTokens() {
+        List<String[]> list = new ArrayList(TOKENS);
+        for (String[][] sentence : SENTENCES) {
+            for (String[] token : sentence) {
+                list.add(token);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Gets the corpus as raw text, five sentences per paragraph.
+     * 
+     * @return  String
+     */
+    public String getText() {
+
+        StringBuilder sb = new StringBuilder(TOKENS * 8);
+
+        for (int i = 0; i < SENTENCES.size(); i++) {
+            String[][] sentence = SENTENCES.get(i);
+            for (int j = 0; j < sentence.length; j++) {
+                if (j > 0 && !sentence[j][2].equals(PUNCT_TAG[0])) {
+                    sb.append(' ');
+                }
+                sb.append(sentence[j][0]);
+            }
+            sb.append((i % 5 == 4) ? '\n' : ' ');
+        }
+        sb.append('\n');
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Gets the corpus in the Line format (token, tag and lemma).
+     * 
+     * @param   eosToken    end of sentence token
+     * 
+     * @return  String
+     */
+    public String getLine(String eosToken) {
+
+        StringBuilder sb = new StringBuilder(TOKENS * 24);
+
+        for (String[][] sentence : SENTENCES) {
+            for (String[] token : sentence) {
+                sb.append(token[0]);
+                sb.append('\t');
+                sb.append(token[2]);
+                sb.append('\t');
+                sb.append(token[1]);
+                sb.append('\n');
+            }
+            sb.append(eosToken);
+            sb.append('\n');
+        }
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Gets the corpus in the CoNLL format.
+     * 
+     * @param   conllMap    CoNLL map (see {@link #getConllMap()})
+     * 
+     * @return  String
+     */
+    public String getConll(Properties conllMap) {
+
+        StringBuilder sb = new StringBuilder(TOKENS * 40);
+        TagDecomposer decomposer = TagDecomposer.getInstance(conllMap);
+
+        for (String[][] sentence : SENTENCES) {
+            for (int i = 0; i < sentence.length; i++) {
+                String[] token = sentence[i];
+                sb.append(i + 1);
+                sb.append('\t');
+                sb.append(token[0]);
+                sb.append('\t');
+                sb.append(token[1]);
+                sb.append('\t');
+                decomposer.appendColumns(token[2], sb);
+                sb.append('\t');
+                sb.append(token[3]);
+                sb.append('\t');
+                sb.append(token[4]);
+                sb.append("\t_\t_\n");
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Builds a CoNLL map (BTB tag to CoNLL features) of all tags used by the 
+     * generator.
+     * 
+     * @return  Properties
+     */
+    public Properties getConllMap() {
+
+        Properties map = new Properties();
+
+        for (String tag : getTags()) {
+            String features = features(tag);
+            if (features != null) {
+                map.setProperty(tag, features);
+            }
+        }
+
+        return map;
+
+    }
+
+    /**
+     * Builds an inverted CoNLL map (CoNLL POS tag and features to BTB tag) of 
+     * all tags used by the generator.
+     * 
+     * @return  Properties
+     */
+    public Properties getConllMapInv() {
+
+        Properties map = new Properties();
+        TagDecomposer decomposer = new TagDecomposer(getConllMap());
+
+        for (String tag : getTags()) {
+            if (features(tag) != null) {
+                map.setProperty(decomposer.getLongTag(tag) + decomposer.getFeatures(tag), tag);
+            }
+        }
+
+        return map;
+
+    }
+
+    /**
+     * Gets the abbreviations used by the generator, which make up the 
+     * tokenization exceptions and the possible end of sentence dictionary.
+     * 
+     * @return  List&lt;String&gt;
+     */
+    public List<String> getAbbreviations() {
+        List<String> list = new ArrayList();
+        for (String[] abbreviation : ABBREVIATIONS) {
+            list.add(abbreviation[0]);
+        }
+        return list;
+    }
+
+    /**
+     * Gets the proper names used by the generator.
+     * 
+     * @return  List&lt;String&gt;
+     */
+    public List<String> getNames() {
+        List<String> list = new ArrayList();
+        for (String name : NAMES) {
+            list.add(name);
+        }
+        return list;
+    }
+
+    /**
+     * Writes the corpus in all formats, the CoNLL maps and the dictionaries 
+     * into a directory.
+     * 
+     * @param   dir directory
+     * @param   eosToken    end of sentence token
+     * @throws IOException  
+     */
+    public void write(File dir, String eosToken) throws IOException {
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory: " + dir);
+        }
+
+        Properties conllMap = getConllMap();
+
+        writeFile(new File(dir, TEXT_FILE), getText());
+        writeFile(new File(dir, LINE_FILE), getLine(eosToken));
+        writeFile(new File(dir, CONLL_FILE), getConll(conllMap));
+        writeFile(new File(dir, EXCEPTIONS_FILE), join(getAbbreviations()));
+        writeFile(new File(dir, POSSIBLE_EOS_FILE), join(getAbbreviations()));
+        writeFile(new File(dir, NAMES_FILE), join(getNames()));
+        store(new File(dir, CONLL_MAP_FILE), conllMap);
+        store(new File(dir, CONLL_MAP_INV_FILE), getConllMapInv());
+
+    }
+
+    private static void writeFile(File file, String data) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), ServiceConstants.PIPE_CHARACTER_ENCODING);
+        try {
+            writer.write(data);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void store(File file, Properties properties) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            properties.store(os, null);
+        } finally {
+            os.close();
+        }
+    }
+
+    private static String join(List<String> list) {
+        StringBuilder sb = new StringBuilder();
+        for (String s : list) {
+            sb.append(s);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Generates a sentence of about length tokens. Tokens are arrays of form, 
+     * lemma, tag, head and dependency relation.
+     */
+    private String[][] sentence(int length) {
+
+        List<String[]> tokens = new ArrayList(length + 4);
+        int root = -1;
+
+        for (int i = 0; i < length; i++) {
+            if (i > 1 && i < length - 2 && RANDOM.nextDouble() < 0.08) {
+                tokens.add(new String[]{",", ",", PUNCT_TAG[0], null, null});
+            }
+            String[] token = word();
+            if (root < 0 && token[2].startsWith("Vpitf")) {
+                root = tokens.size();
+            }
+            tokens.add(token);
+        }
+
+        double end = RANDOM.nextDouble();
+        String stop = (end < 0.85) ? "." : (end < 0.95) ? "?" : "!";
+        tokens.add(new String[]{stop, stop, PUNCT_TAG[0], null, null});
+
+        String[] first = tokens.get(0);
+        first[0] = capitalize(first[0]);
+
+        if (root < 0) {
+            root = 0;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            String[] token = tokens.get(i);
+            if (i == root) {
+                token[3] = "0";
+                token[4] = "ROOT";
+            } else if (token[2].equals(PUNCT_TAG[0])) {
+                token[3] = String.valueOf(root + 1);
+                token[4] = "punct";
+            } else {
+                int head = (RANDOM.nextBoolean()) ? root : RANDOM.nextInt(tokens.size());
+                token[3] = String.valueOf(((head == i) ? root : head) + 1);
+                token[4] = DEPRELS[RANDOM.nextInt(DEPRELS.length)];
+            }
+        }
+
+        return tokens.toArray(new String[tokens.size()][]);
+
+    }
+
+    /*
+     * Generates a word: an inflected form of an open class stem, a closed 
+     * class word, a name, an abbreviation or a number.
+     */
+    private String[] word() {
+
+        double r = RANDOM.nextDouble();
+
+        for (int i = 0; i < PARADIGMS.length; i++) {
+            if (r < PARADIGM_WEIGHTS[i]) {
+                String stem = STEMS[i][zipf(STEMS[i].length)];
+                String[] form = PARADIGMS[i][RANDOM.nextInt(PARADIGMS[i].length)];
+                return new String[]{stem + form[1], stem + PARADIGMS[i][0][1], form[0], null, null};
+            }
+            r -= PARADIGM_WEIGHTS[i];
+        }
+
+        if (r < 0.30) {
+            String[] word = CLOSED[RANDOM.nextInt(CLOSED.length)];
+            return new String[]{word[0], word[0], word[1], null, null};
+        } else if (r < 0.35) {
+            String name = NAMES[zipf(NAMES.length)];
+            return new String[]{name, name, "Npmsi", null, null};
+        } else if (r < 0.37) {
+            String[] word = ABBREVIATIONS[RANDOM.nextInt(ABBREVIATIONS.length)];
+            return new String[]{word[0], word[0], word[1], null, null};
+        }
+
+        String number = String.valueOf(1 + RANDOM.nextInt(2100));
+        return new String[]{number, number, "Mc-pi", null, null};
+
+    }
+
+    /*
+     * Picks an index in [0, n) with frequent (low) indices picked more often.
+     */
+    private int zipf(int n) {
+        double r = RANDOM.nextDouble();
+        return (int) (n * r * r * r);
+    }
+
+    private String stem(int syllables) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            sb.append(CONSONANTS[RANDOM.nextInt(CONSONANTS.length)]);
+            sb.append(VOWELS[RANDOM.nextInt(VOWELS.length)]);
+        }
+        sb.append(CONSONANTS[RANDOM.nextInt(CONSONANTS.length)]);
+        return sb.toString();
+    }
+
+    private static String capitalize(String word) {
+        return (word.length() == 0) ? word : word.substring(0, 1).toUpperCase() + word.substring(1);
+    }
+
+    /*
+     * All tags used by the generator.
+     */
+    private static List<String> getTags() {
+        List<String> tags = new ArrayList();
+        for (String[][] paradigm : PARADIGMS) {
+            for (String[] form : paradigm) {
+                tags.add(form[0]);
+            }
+        }
+        for (String[] word : CLOSED) {
+            tags.add(word[1]);
+        }
+        for (String[] word : ABBREVIATIONS) {
+            tags.add(word[1]);
+        }
+        tags.add("Npmsi");
+        tags.add("Mc-pi");
+        return tags;
+    }
+
+    /*
+     * Features of a tag as pipe separated letters after the second one, or 
+     * null if the tag has no features.
+     */
+    private static String features(String tag) {
+        if (tag.length() <= 2) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 2; i < tag.length(); i++) {
+            if (i > 2) {
+                sb.append('|');
+            }
+            sb.append(tag.charAt(i));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator outputDir [sentences] [seed]");
+            System.exit(1);
+        }
+
+        int sentences = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+        CorpusGenerator generator = new CorpusGenerator(seed).generate(sentences);
+        generator.write(new File(args[0]), "<eos>");
+
+        System.out.println(generator.getSentenceCount() + " sentences, " + generator.getTokenCount() + " tokens written to " + args[0]);
+
+    }
+}
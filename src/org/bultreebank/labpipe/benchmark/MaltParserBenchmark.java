@@ -0,0 +1,76 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.FileInputStream;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.tools.MaltParserWrapper;
+import org.bultreebank.labpipe.utils.Configuration;
+
+/**
+ * <code>MaltParserBenchmark</code> measures the parsing throughput of 
+ * {@link MaltParserWrapper} in sentences per second with 1 to N parser 
+ * instances.
+ * 
+ * Usage: <code>MaltParserBenchmark conf.xml input.conll [maxThreads] [rounds]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class MaltParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 2) {
+            System.err.println("Usage: MaltParserBenchmark conf.xml input.conll [maxThreads] [rounds]");
+            System.exit(1);
+        }
+
+        Configuration conf = new Configuration();
+        conf.loadConfigFileFromFS(args[0], Configuration.XML);
+        Conll conll = new Conll(new FileInputStream(args[1]));
+        int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int rounds = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+
+        System.out.println("threads\tsentences\tseconds\tsentences/sec");
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+
+            conf.setProperty(Configuration.MALT_PARSER_THREADS, String.valueOf(threads));
+            MaltParserWrapper parser = new MaltParserWrapper(conf);
+
+            // Warm-up round
+            parser.parseConll(conll);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                parser.parseConll(conll);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            int sentences = conll.size() * rounds;
+
+            System.out.println(threads + "\t" + sentences + "\t" + String.format("%.3f", seconds) + "\t" + String.format("%.1f", sentences / seconds));
+
+            parser.terminate();
+
+        }
+
+    }
+}
@@ -0,0 +1,577 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import de.dspin.data.textcorpus.ObjectFactory;
+import de.dspin.data.textcorpus.Token;
+import de.dspin.data.textcorpus.Tokens;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.bultreebank.labpipe.converters.Converter;
+import org.bultreebank.labpipe.converters.ConverterRegistry;
+import org.bultreebank.labpipe.data.BinaryCorpus;
+import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.TokenStore;
+import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.data.WebLichtStreamReader;
+import org.bultreebank.labpipe.data.WebLichtStreamWriter;
+import org.bultreebank.labpipe.tools.RegExTokenizer;
+import org.bultreebank.labpipe.tools.SVMTagger;
+import org.bultreebank.labpipe.tools.SentenceDetector;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DataUtils;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.XmlUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * <code>PipelineBenchmark</code> runs the benchmark suite of the pipeline 
+ * stages which do not need external tools on a corpus made by 
+ * {@link CorpusGenerator}: {@link Converter} for every pair of data types
+ * (checked against the object conversions first), 
+ * {@link Conll} parsing and serialization, WebLicht (un)marshalling with JAXB 
+ * and with the stream reader and writer, {@link SentenceDetector}, 
+ * {@link RegExTokenizer} (with the exception trie and with the single regular 
+ * expression, on the generated and on a large exception dictionary, checked 
+ * against each other first), the 
+ * {@link DataUtils} token helpers and {@link SVMTagger} against a local 
+ * {@link SVMTStubServer}. The generated files are kept in a temporary directory for the duration of the run.
+ * 
+ * Usage: <code>PipelineBenchmark [sentences] [filter] [iterations] [iterationMillis]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class PipelineBenchmark {
+
+    private static final String EOS_TOKEN = "<eos>";
+    private static final String[] NAMES = {"", "text", "line", "weblicht", "conll", "clark", "clark-tags", "gaze", "binary"};
+    private static final double MB = 1024 * 1024;
+    private static final String LARGE_EXCEPTIONS_FILE = "exceptions-large.txt";
+    private static final int LARGE_EXCEPTIONS = 2000;
+    // Untagged tokens, tokens without lemmas, mixed separators and a last 
+    // sentence without an end of sentence token
+    private static final String EDGE_CASES = "Той\tPp\tтой\nказа Vpitf-o3s казвам\n,\tPunct\n\"\nче\tCs\tче\n" + EOS_TOKEN
+            + "\nДа\tTe\tда\nсамо\n" + EOS_TOKEN + "\nНе\tTn\tне\n!\tPunct\t!\n";
+    /* Exceptions with regular expression syntax and a text using them */
+    private static final String[] TOKENIZER_EXCEPTIONS = {"т\\д.", "[и]др.", "гр.-с.", "(ул.)", "$ок.", "^в.", "м+н.", "т.|ч."};
+    private static final String TOKENIZER_EDGE_CASES = "Вж. т\\д. и [и]др. от гр.-с. до (ул.) Наблюдава $ок. и ^в. с м+н. и т.|ч. Край.";
+
+    public static void main(String[] args) throws Exception {
+
+        int sentences = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        String filter = (args.length > 1 && !args[1].equals("all")) ? args[1] : null;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        long iterationMillis = (args.length > 3) ? Long.parseLong(args[3]) : 1000;
+
+        File dir = File.createTempFile("labpipe-bench", "");
+        dir.delete();
+
+        CorpusGenerator generator = new CorpusGenerator(1).generate(sentences);
+        generator.write(dir, EOS_TOKEN);
+        System.out.println("# " + generator.getSentenceCount() + " sentences, " + generator.getTokenCount() + " tokens");
+
+        SVMTStubServer server = new SVMTStubServer(0, 0).start();
+
+        try {
+            Configuration options = buildConfiguration(dir, server.getUrl());
+            BenchmarkRunner runner = new BenchmarkRunner(Math.max(iterations / 2, 1), iterations, iterationMillis);
+            addBenchmarks(runner, generator, options);
+            runner.run(System.out, filter);
+        } finally {
+            server.stop();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+
+    }
+
+    /**
+     * Builds a configuration pointing to the files written by 
+     * {@link CorpusGenerator#write(File, String)}.
+     * 
+     * @param   dir directory of the generated files
+     * @param   svmtUrl URL of the SVMTool server
+     * 
+     * @return  Configuration
+     */
+    public static Configuration buildConfiguration(File dir, String svmtUrl) {
+
+        Configuration options = new Configuration();
+        options.setProperty(Configuration.PIPE_HOME, dir.getAbsolutePath() + File.separator);
+        options.setProperty(Configuration.USE_PIPE_HOME, "true");
+        options.setProperty(Configuration.TMP_DIR, "");
+        options.setProperty(Configuration.EOS_TOKEN, EOS_TOKEN);
+        options.setProperty(Configuration.CONLL_MAP_PATH, CorpusGenerator.CONLL_MAP_FILE);
+        options.setProperty(Configuration.CONLL_MAP_INV_PATH, CorpusGenerator.CONLL_MAP_INV_FILE);
+        options.setProperty(Configuration.TOKENIZATION_EXCEPTIONS_LIST, CorpusGenerator.EXCEPTIONS_FILE);
+        options.setProperty(Configuration.TOKEN_PATTERN, "[\\p{L}\\p{N}]");
+        options.setProperty(Configuration.PUNCT_PATTERN, "\\p{P}");
+        options.setProperty(Configuration.SVMT_URL, svmtUrl);
+        options.setProperty("boundaryToken", EOS_TOKEN);
+        options.setProperty("boundarySigns", "[.!?]");
+        options.setProperty("possibleEOS", CorpusGenerator.POSSIBLE_EOS_FILE);
+        options.setProperty("namesDictionary", CorpusGenerator.NAMES_FILE);
+        options.setProperty("averageSentenceLength", "15");
+        options.buildDirsFS();
+
+        return options;
+
+    }
+
+    /**
+     * Adds the benchmarks of all stages to the runner.
+     * 
+     * @param   runner  benchmark runner
+     * @param   generator   generated corpus
+     * @param   options configuration built by 
+     *                  {@link #buildConfiguration(File, String)}
+     * @throws Exception
+     */
+    public static void addBenchmarks(BenchmarkRunner runner, CorpusGenerator generator, final Configuration options) throws Exception {
+
+        final int tokens = generator.getTokenCount();
+        final String text = generator.getText();
+        final String line = generator.getLine(EOS_TOKEN);
+        final Converter converter = new Converter(options);
+        final Properties conllMap = generator.getConllMap();
+        final Properties iConllMap = generator.getConllMapInv();
+
+        // Converters: input in every data type, produced from the Line corpus
+        final byte[][] inputs = convertLine(converter, line);
+        // The stream conversions must write what the object conversions do
+        checkConverters(converter, inputs);
+        checkConverters(converter, convertLine(converter, EDGE_CASES));
+        for (final int in : ConverterRegistry.getDataTypes()) {
+            for (final int out : ConverterRegistry.getDataTypes()) {
+                if (inputs[in] == null) {
+                    continue;
+                }
+                runner.add(new Benchmark("convert." + NAMES[in] + "." + NAMES[out], "MB", MB) {
+
+                    public long run() throws Exception {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream(inputs[in].length);
+                        converter.convert(new ByteArrayInputStream(inputs[in]), baos, in, out);
+                        BenchmarkRunner.consume(baos.size());
+                        return inputs[in].length;
+                    }
+                });
+            }
+        }
+
+        // CoNLL
+        final byte[] conllBytes = generator.getConll(conllMap).getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+        final Conll conll = new Conll(new ByteArrayInputStream(conllBytes));
+        runner.add(new Benchmark("conll.parse", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(new Conll(new ByteArrayInputStream(conllBytes)).getTokenCount());
+                return tokens;
+            }
+        });
+        runner.add(new Benchmark("conll.serialize", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(conll.toString());
+                return tokens;
+            }
+        });
+        runner.add(new Benchmark("conll.toLine", "tokens") {
+
+            public long run() throws Exception {
+                BenchmarkRunner.consume(conll.toLine(EOS_TOKEN, iConllMap));
+                return tokens;
+            }
+        });
+
+        // WebLicht
+        final byte[] tcf = inputs[ServiceConstants.DATA_WEBLICHT];
+        if (tcf != null) {
+            runner.add(new Benchmark("weblicht.unmarshal", "tokens") {
+
+                public long run() {
+                    BenchmarkRunner.consume(new WebLicht(new ByteArrayInputStream(tcf)));
+                    return tokens;
+                }
+            });
+            runner.add(new Benchmark("weblicht.marshal", "tokens") {
+
+                WebLicht doc = null;
+
+                public long run() {
+                    if (doc == null) {
+                        doc = new WebLicht(new ByteArrayInputStream(tcf));
+                    }
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream(tcf.length);
+                    doc.exportAsXML(baos);
+                    BenchmarkRunner.consume(baos.size());
+                    return tokens;
+                }
+            });
+            runner.add(new Benchmark("weblicht.streamRead", "tokens") {
+
+                public long run() throws Exception {
+                    BenchmarkRunner.consume(WebLichtStreamReader.read(new ByteArrayInputStream(tcf)));
+                    return tokens;
+                }
+            });
+            final TokenStore store = WebLichtStreamReader.read(new ByteArrayInputStream(tcf));
+            runner.add(new Benchmark("weblicht.streamWrite", "tokens") {
+
+                public long run() throws Exception {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream(tcf.length);
+                    WebLichtStreamWriter.write(store, baos);
+                    BenchmarkRunner.consume(baos.size());
+                    return tokens;
+                }
+            });
+        }
+
+        // Sentence detector: tokens built directly, without JAXB
+        ObjectFactory factory = new ObjectFactory();
+        final Tokens tokenList = factory.createTokens();
+        for (String[] token : generator.getTokens()) {
+            Token t = factory.createToken();
+            t.setID("tok" + tokenList.getToken().size());
+            t.setValue(token[0]);
+            tokenList.getToken().add(t);
+        }
+        final SentenceDetector detector = new SentenceDetector(options);
+        runner.add(new Benchmark("sentences.detect", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(detector.detectSentenceBoundaries(tokenList));
+                return tokens;
+            }
+        });
+
+        // Tokenizer
+        final RegExTokenizer tokenizer = new RegExTokenizer(options);
+        runner.add(new Benchmark("tokenizer.regex", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(tokenizer.tokenize(text));
+                return tokens;
+            }
+        });
+        options.setProperty(Configuration.REGEX_SCANNER, "false");
+        final RegExTokenizer patternTokenizer = new RegExTokenizer(options);
+        options.remove(Configuration.REGEX_SCANNER);
+        runner.add(new Benchmark("tokenizer.regex.pattern", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(patternTokenizer.tokenize(text));
+                return tokens;
+            }
+        });
+
+        // Tokenizer with a large exception dictionary: the abbreviations and
+        // the corpus forms followed by a full stop
+        Set<String> exceptions = new LinkedHashSet(generator.getAbbreviations());
+        exceptions.addAll(Arrays.asList(TOKENIZER_EXCEPTIONS));
+        for (String[] token : generator.getTokens()) {
+            if (exceptions.size() >= LARGE_EXCEPTIONS) {
+                break;
+            }
+            if (token[0].length() > 1 && Character.isLetter(token[0].charAt(0))) {
+                exceptions.add(token[0] + ".");
+            }
+        }
+        File exceptionsFile = new File(options.getStoreDirPath(), LARGE_EXCEPTIONS_FILE);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(exceptionsFile), ServiceConstants.PIPE_CHARACTER_ENCODING);
+        try {
+            for (String exception : exceptions) {
+                writer.write(exception);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        options.setProperty(Configuration.TOKENIZATION_EXCEPTIONS_LIST, LARGE_EXCEPTIONS_FILE);
+        final RegExTokenizer largeTokenizer = new RegExTokenizer(options);
+        options.setProperty(Configuration.REGEX_SCANNER, "false");
+        final RegExTokenizer largePatternTokenizer = new RegExTokenizer(options);
+        options.remove(Configuration.REGEX_SCANNER);
+        options.setProperty(Configuration.TOKENIZATION_EXCEPTIONS_LIST, CorpusGenerator.EXCEPTIONS_FILE);
+        // The exception trie must tokenize as the regular expression does
+        checkTokenizers("tokenizer.regex", tokenizer, patternTokenizer, text);
+        checkTokenizers("tokenizer.regex.large", largeTokenizer, largePatternTokenizer, text);
+        checkTokenizers("tokenizer.regex.large", largeTokenizer, largePatternTokenizer, TOKENIZER_EDGE_CASES);
+        runner.add(new Benchmark("tokenizer.regex.large", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(largeTokenizer.tokenize(text));
+                return tokens;
+            }
+        });
+        runner.add(new Benchmark("tokenizer.regex.large.pattern", "tokens") {
+
+            public long run() {
+                BenchmarkRunner.consume(largePatternTokenizer.tokenize(text));
+                return tokens;
+            }
+        });
+
+        // DataUtils
+        final List<String> lineTokens = new ArrayList();
+        final List<String> conllTokens = new ArrayList();
+        BufferedReader br = new BufferedReader(new StringReader(line));
+        String s;
+        while ((s = br.readLine()) != null) {
+            if (!s.equals(EOS_TOKEN)) {
+                lineTokens.add(s);
+            }
+        }
+        br = new BufferedReader(new StringReader(conll.toString()));
+        while ((s = br.readLine()) != null) {
+            if (s.length() > 0) {
+                conllTokens.add(s);
+            }
+        }
+        runner.add(new Benchmark("utils.lineTokenToConllToken", "tokens") {
+
+            public long run() {
+                int id = 1;
+                for (String token : lineTokens) {
+                    BenchmarkRunner.consume(DataUtils.lineTokenToConllToken(token, id++, conllMap));
+                }
+                return lineTokens.size();
+            }
+        });
+        runner.add(new Benchmark("utils.conllLineAsMap", "tokens") {
+
+            @SuppressWarnings("deprecation")
+            public long run() {
+                for (String token : conllTokens) {
+                    BenchmarkRunner.consume(DataUtils.conllLineAsMap(token, iConllMap));
+                }
+                return conllTokens.size();
+            }
+        });
+
+        // SVMTool against the stub server
+        final String svmtInput = forms(line);
+        runner.add(new Benchmark("svmt.tag", "tokens") {
+
+            public long run() throws Exception {
+                BenchmarkRunner.consume(SVMTagger.tagLinesString(svmtInput, options));
+                return tokens;
+            }
+        });
+
+    }
+
+    /*
+     * Converts Line data into every data type with the stream converters.
+     */
+    private static byte[][] convertLine(Converter converter, String line) throws IOException {
+        byte[] lineBytes = line.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+        byte[][] inputs = new byte[NAMES.length][];
+        for (int type : ConverterRegistry.getDataTypes()) {
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(lineBytes.length * 2);
+                converter.convert(new ByteArrayInputStream(lineBytes), baos, ServiceConstants.DATA_LINE, type);
+                inputs[type] = baos.toByteArray();
+            } catch (Exception ex) {
+                System.out.println("# no " + NAMES[type] + " input: " + ex);
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Checks that the stream conversion of every pair of data types writes 
+     * the same data as the object conversion whose result is exported the 
+     * way {@link org.bultreebank.labpipe.tools.ProcessingLine} exports it. 
+     * XML output is compared after it is read and printed again, so that 
+     * only the data and not the formatting is compared.
+     * 
+     * @param   converter   converter
+     * @param   inputs  input data indexed by data type
+     * @throws Exception    if the conversions of a pair differ
+     */
+    public static void checkConverters(Converter converter, byte[][] inputs) throws Exception {
+
+        for (int in : ConverterRegistry.getDataTypes()) {
+            if (inputs[in] == null) {
+                continue;
+            }
+            for (int out : ConverterRegistry.getDataTypes()) {
+
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(inputs[in].length);
+                converter.convert(new ByteArrayInputStream(inputs[in]), baos, in, out);
+                String expected = normalize(baos.toByteArray(), out);
+
+                Object data = converter.convert(importData(inputs[in], in), in, out);
+                String actual = (data == null) ? null : normalize(exportData(data), out);
+
+                if (!expected.equals(actual)) {
+                    throw new IllegalStateException("convert." + NAMES[in] + "." + NAMES[out]
+                            + ": stream and object conversions differ" + firstDifference(expected, actual));
+                }
+
+            }
+        }
+
+    }
+
+    /**
+     * Checks that two tokenizers (with the exception trie and with the 
+     * single regular expression) tokenize <code>text</code> in the same way.
+     * 
+     * @param   name    benchmark name
+     * @param   expected    tokenizer with the exception trie
+     * @param   actual  tokenizer with the regular expression
+     * @param   text    text
+     * @throws IllegalStateException    if the tokens differ
+     */
+    public static void checkTokenizers(String name, RegExTokenizer expected, RegExTokenizer actual, String text) {
+
+        String e = expected.tokenize(text);
+        String a = actual.tokenize(text);
+        if (!e.equals(a)) {
+            throw new IllegalStateException(name + ": exception trie and regular expression differ" + firstDifference(e, a));
+        }
+
+    }
+
+    /*
+     * Reads the input data object the way ProcessingLine imports it.
+     */
+    private static Object importData(byte[] input, int type) throws Exception {
+        switch (type) {
+            case ServiceConstants.DATA_CONLL:
+                return new Conll(new ByteArrayInputStream(input));
+            case ServiceConstants.DATA_CLARK_TOKENS:
+            case ServiceConstants.DATA_CLARK_TAGS:
+                return ClarkDocumentBuilder.buildClarkDocument(new ByteArrayInputStream(input));
+            case ServiceConstants.DATA_WEBLICHT:
+                return WebLichtStreamReader.read(new ByteArrayInputStream(input));
+            case ServiceConstants.DATA_BINARY:
+                return BinaryCorpus.read(new ByteArrayInputStream(input));
+            default:
+                return new String(input, ServiceConstants.PIPE_CHARACTER_ENCODING);
+        }
+    }
+
+    /*
+     * Writes the output data object the way ProcessingLine exports it.
+     */
+    private static byte[] exportData(Object data) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (data instanceof Document) {
+            XmlUtils.print((Document) data, baos);
+        } else if (data instanceof TokenStore) {
+            WebLichtStreamWriter.write((TokenStore) data, baos);
+        } else if (data instanceof WebLicht) {
+            ((WebLicht) data).exportAsXML(baos);
+        } else if (data instanceof BinaryCorpus) {
+            ((BinaryCorpus) data).writeTo(baos);
+        } else {
+            // Line and Gaze strings and Conll
+            return data.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+        }
+        return baos.toByteArray();
+    }
+
+    /*
+     * Reads and prints XML data again, other data is compared as it is.
+     */
+    private static String normalize(byte[] data, int type) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length);
+        if (type == ServiceConstants.DATA_CLARK_TOKENS || type == ServiceConstants.DATA_CLARK_TAGS) {
+            Document doc = ClarkDocumentBuilder.buildClarkDocument(new ByteArrayInputStream(data));
+            removeWhitespace(doc);
+            XmlUtils.print(doc, baos);
+        } else if (type == ServiceConstants.DATA_WEBLICHT) {
+            WebLichtStreamWriter.write(WebLichtStreamReader.read(new ByteArrayInputStream(data)), baos);
+        } else if (type == ServiceConstants.DATA_BINARY) {
+            // The bytes are compared, not the text
+            StringBuilder sb = new StringBuilder(data.length * 2);
+            for (byte b : data) {
+                sb.append(Integer.toHexString(b & 0xFF));
+                sb.append(' ');
+            }
+            return sb.toString();
+        } else {
+            return new String(data, ServiceConstants.PIPE_CHARACTER_ENCODING);
+        }
+        return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+    }
+
+    private static void removeWhitespace(Node node) {
+        Node child = node.getFirstChild();
+        while (child != null) {
+            Node next = child.getNextSibling();
+            if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().length() == 0) {
+                node.removeChild(child);
+            } else {
+                removeWhitespace(child);
+            }
+            child = next;
+        }
+    }
+
+    private static String firstDifference(String expected, String actual) {
+        if (actual == null) {
+            return ", the object conversion returned null";
+        }
+        String[] e = expected.split("\n", -1);
+        String[] a = actual.split("\n", -1);
+        for (int i = 0; i < Math.min(e.length, a.length); i++) {
+            if (!e[i].equals(a[i])) {
+                return " at line " + (i + 1) + ": '" + e[i] + "' vs '" + a[i] + "'";
+            }
+        }
+        return ": " + e.length + " vs " + a.length + " lines";
+    }
+
+    /*
+     * Keeps the token forms and end of sentence tokens of Line data.
+     */
+    private static String forms(String line) throws IOException {
+        StringBuilder sb = new StringBuilder(line.length() / 2);
+        BufferedReader br = new BufferedReader(new StringReader(line));
+        String s;
+        while ((s = br.readLine()) != null) {
+            int tab = s.indexOf('\t');
+            sb.append((tab < 0) ? s : s.substring(0, tab));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
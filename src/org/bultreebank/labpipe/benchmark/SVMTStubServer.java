@@ -0,0 +1,261 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>SVMTStubServer</code> is a minimal HTTP/1.1 server imitating the 
+ * SVMTool tagger server. It speaks both protocols of 
+ * {@link org.bultreebank.labpipe.tools.SVMTClient} and keeps connections 
+ * alive, so the client can be benchmarked offline. The tags are not real: 
+ * every word gets a tag guessed from its characters. An optional delay is 
+ * added to every request to imitate the tagging time and the network latency.
+ * 
+ * Usage: <code>SVMTStubServer [port] [delayMillis]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class SVMTStubServer implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(SVMTStubServer.class.getName());
+    private final ServerSocket SERVER;
+    private final long DELAY;
+    private final ExecutorService CONNECTIONS = Executors.newCachedThreadPool(new DaemonThreadFactory("svmt-stub"));
+
+    /**
+     * Creates a new server listening on <code>port</code>
+     * 
+     * @param   port    port (0 for any free port)
+     * @param   delay   delay added to every request in milliseconds
+     * @throws IOException  
+     */
+    public SVMTStubServer(int port, long delay) throws IOException {
+        SERVER = new ServerSocket(port);
+        DELAY = delay;
+    }
+
+    /**
+     * Gets the URL of the server
+     * 
+     * @return  String
+     */
+    public String getUrl() {
+        return "http://localhost:" + SERVER.getLocalPort() + "/svmt";
+    }
+
+    /**
+     * Starts the server in a daemon thread.
+     * 
+     * @return  {@link SVMTStubServer}  - this object
+     */
+    public SVMTStubServer start() {
+        Thread t = new Thread(this, "svmt-stub-acceptor");
+        t.setDaemon(true);
+        t.start();
+        return this;
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        try {
+            SERVER.close();
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+        }
+        CONNECTIONS.shutdownNow();
+    }
+
+    /**
+     * Accepts connections until the server is stopped.
+     */
+    public void run() {
+        while (!SERVER.isClosed()) {
+            try {
+                final Socket socket = SERVER.accept();
+                CONNECTIONS.execute(new Runnable() {
+
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (IOException ex) {
+                if (!SERVER.isClosed()) {
+                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves requests on a single (kept alive) connection.
+     */
+    private void serve(Socket socket) {
+        try {
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            OutputStream os = socket.getOutputStream();
+            String requestLine;
+            while ((requestLine = readLine(is)) != null) {
+
+                if (requestLine.length() == 0) {
+                    continue;
+                }
+
+                int contentLength = 0;
+                boolean close = false;
+                String header;
+                while ((header = readLine(is)) != null && header.length() > 0) {
+                    String name = header.substring(0, Math.max(0, header.indexOf(':'))).trim();
+                    String value = header.substring(header.indexOf(':') + 1).trim();
+                    if (name.equalsIgnoreCase("Content-Length")) {
+                        contentLength = Integer.parseInt(value);
+                    } else if (name.equalsIgnoreCase("Connection") && value.equalsIgnoreCase("close")) {
+                        close = true;
+                    }
+                }
+
+                byte[] body = new byte[contentLength];
+                int read = 0;
+                while (read < contentLength) {
+                    int r = is.read(body, read, contentLength - read);
+                    if (r < 0) {
+                        return;
+                    }
+                    read += r;
+                }
+
+                if (DELAY > 0) {
+                    Thread.sleep(DELAY);
+                }
+
+                String[] request = requestLine.split(" ");
+                StringBuilder response = new StringBuilder();
+                if (request[0].equals("GET")) {
+                    String query = request[1].substring(request[1].indexOf('?') + 1);
+                    String input = URLDecoder.decode(query.substring(query.indexOf('=') + 1), ServiceConstants.PIPE_CHARACTER_ENCODING);
+                    String[] words = input.split(" ");
+                    // The first word is the dummy word sent by the client
+                    response.append("HTTP/1.1 200 ");
+                    response.append(tagSentence(words, 1));
+                    response.append("\r\nContent-Length: 0\r\n\r\n");
+                    os.write(response.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+                } else {
+                    StringBuilder tags = new StringBuilder();
+                    for (String sentence : new String(body, ServiceConstants.PIPE_CHARACTER_ENCODING).split("\n")) {
+                        if (sentence.length() > 0) {
+                            tags.append(tagSentence(sentence.split(" "), 0));
+                            tags.append("\n");
+                        }
+                    }
+                    byte[] content = tags.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+                    response.append("HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Length: ");
+                    response.append(content.length);
+                    response.append("\r\n\r\n");
+                    os.write(response.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+                    os.write(content);
+                }
+                os.flush();
+
+                if (close) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            // connection closed by the client
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    /**
+     * Guesses a tag for each word starting from <code>offset</code>
+     */
+    private static String tagSentence(String[] words, int offset) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = offset; i < words.length; i++) {
+            if (i > offset) {
+                sb.append(' ');
+            }
+            String word = words[i];
+            if (Character.isDigit(word.charAt(0))) {
+                sb.append("Mc-si");
+            } else if (!Character.isLetter(word.charAt(0))) {
+                sb.append("punct");
+            } else if (Character.isUpperCase(word.charAt(0))) {
+                sb.append("Npmsi");
+            } else {
+                sb.append("Ncmsi");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a CRLF terminated line in ISO-8859-1
+     */
+    private static String readLine(InputStream is) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = is.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString("ISO-8859-1");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8088;
+        long delay = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+
+        SVMTStubServer server = new SVMTStubServer(port, delay);
+        System.out.println("SVMTool stub server listening at " + server.getUrl());
+        server.run();
+
+    }
+}
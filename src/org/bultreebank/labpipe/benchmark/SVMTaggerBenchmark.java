@@ -0,0 +1,89 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import java.util.Random;
+import org.bultreebank.labpipe.tools.SVMTagger;
+import org.bultreebank.labpipe.utils.Configuration;
+
+/**
+ * <code>SVMTaggerBenchmark</code> measures the throughput of 
+ * {@link SVMTagger} against a local {@link SVMTStubServer} with different 
+ * batch sizes and numbers of requests in flight.
+ * 
+ * Usage: <code>SVMTaggerBenchmark [sentences] [delayMillis]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class SVMTaggerBenchmark {
+
+    private static final String[] WORDS = new String[]{"Той", "каза", ",", "че", "ще", "дойде", "утре", "в", "София", "през", "2011", "г.", "и", "ние", "го", "чакаме"};
+
+    public static void main(String[] args) throws Exception {
+
+        int sentences = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        long delay = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+
+        SVMTStubServer server = new SVMTStubServer(0, delay).start();
+
+        String eos = "<eos>";
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < sentences; i++) {
+            int length = 5 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+                sb.append("\n");
+            }
+            sb.append(eos);
+            sb.append("\n");
+        }
+        String lines = sb.toString();
+
+        // batch size, requests in flight, POST (1) or GET (0)
+        int[][] settings = new int[][]{{0, 1, 0}, {0, 4, 0}, {50, 4, 0}, {50, 1, 1}, {50, 4, 1}, {200, 4, 1}};
+
+        System.out.println("batch\tin flight\tprotocol\tsentences\tseconds\tsentences/sec");
+
+        for (int[] setting : settings) {
+
+            Configuration conf = new Configuration();
+            conf.setProperty(Configuration.SVMT_URL, server.getUrl());
+            conf.setProperty(Configuration.EOS_TOKEN, eos);
+            conf.setProperty(Configuration.SVMT_BATCH_SIZE, String.valueOf(setting[0]));
+            conf.setProperty(Configuration.SVMT_MAX_REQUESTS, String.valueOf(setting[1]));
+            conf.setProperty(Configuration.SVMT_POST, String.valueOf(setting[2] == 1));
+
+            // Warm-up round
+            SVMTagger.tagLinesString(lines, conf);
+
+            long start = System.nanoTime();
+            SVMTagger.tagLinesString(lines, conf);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(setting[0] + "\t" + setting[1] + "\t" + ((setting[2] == 1) ? "POST" : "GET") + "\t" + sentences + "\t" + String.format("%.3f", seconds) + "\t" + String.format("%.1f", sentences / seconds));
+
+        }
+
+        server.stop();
+
+    }
+}
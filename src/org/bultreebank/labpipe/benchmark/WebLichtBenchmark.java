@@ -0,0 +1,101 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.benchmark;
+
+import de.dspin.data.DSpin;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import org.bultreebank.labpipe.data.WebLicht;
+
+/**
+ * <code>WebLichtBenchmark</code> measures the WebLicht (de)serialization 
+ * throughput in documents per second: once creating a new JAXB context for 
+ * every document, as it used to be done, and once with the shared context and
+ * the per-thread (un)marshallers of {@link WebLicht}.
+ * 
+ * Usage: <code>WebLichtBenchmark input.xml [documents]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class WebLichtBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+            System.err.println("Usage: WebLichtBenchmark input.xml [documents]");
+            System.exit(1);
+        }
+
+        File file = new File(args[0]);
+        byte[] data = new byte[(int) file.length()];
+        InputStream is = new FileInputStream(file);
+        int read = 0;
+        while (read < data.length) {
+            int n = is.read(data, read, data.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        is.close();
+        int documents = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+
+        System.out.println("mode\tdocuments\tseconds\tdocuments/sec");
+
+        // Warm-up round
+        runPerDocument(data, documents / 10 + 1);
+        runShared(data, documents / 10 + 1);
+
+        long start = System.nanoTime();
+        runPerDocument(data, documents);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("per-document\t" + documents + "\t" + String.format("%.3f", seconds) + "\t" + String.format("%.1f", documents / seconds));
+
+        start = System.nanoTime();
+        runShared(data, documents);
+        seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("shared\t" + documents + "\t" + String.format("%.3f", seconds) + "\t" + String.format("%.1f", documents / seconds));
+
+    }
+
+    private static void runPerDocument(byte[] data, int documents) throws Exception {
+        for (int i = 0; i < documents; i++) {
+            JAXBContext context = JAXBContext.newInstance("de.dspin.data");
+            WebLicht doc = new WebLicht((DSpin) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(data)));
+            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
+            Marshaller m = jc.createMarshaller();
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            m.marshal(doc, new ByteArrayOutputStream(data.length));
+        }
+    }
+
+    private static void runShared(byte[] data, int documents) throws Exception {
+        for (int i = 0; i < documents; i++) {
+            WebLicht doc = new WebLicht(new ByteArrayInputStream(data));
+            doc.exportAsXML(new ByteArrayOutputStream(data.length));
+        }
+    }
+}
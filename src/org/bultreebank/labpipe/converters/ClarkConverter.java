@@ -21,18 +21,22 @@
 
 package org.bultreebank.labpipe.converters;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
+import org.bultreebank.labpipe.data.ClarkStreamReader;
 import org.bultreebank.labpipe.data.Conll;
 import org.bultreebank.labpipe.utils.Misc;
 import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.TagDecomposer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -50,9 +54,10 @@ public class ClarkConverter {
     private static final Logger logger = Logger.getLogger(ClarkConverter.class.getName());
 
     /**
-     * Reads in a CLaRK document from the <code>InputStream</code> into, converts
-     * it to {@link Conll} object and writes its <code>String</code> 
-     * representation into the <code>OutputStream</code>.
+     * Reads in a CLaRK document from the <code>InputStream</code>, converts it 
+     * to CoNLL and writes it into the <code>OutputStream</code>. The document 
+     * is streamed sentence by sentence with a {@link ClarkStreamReader}, so 
+     * neither a DOM nor a {@link Conll} object is built.
      * 
      * @param   is  <code>InputStream</code> reading a String representation 
      *              of a CLaRK document.
@@ -64,7 +69,33 @@ public class ClarkConverter {
     public static void toConll(InputStream is, OutputStream os, Properties conllMap) {
         
         try {
-            os.write(toConll(ClarkDocumentBuilder.buildClarkDocument(is), conllMap).toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+            ClarkStreamReader reader = new ClarkStreamReader(is);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING));
+            TagDecomposer decomposer = TagDecomposer.getInstance(conllMap);
+            String tag;
+            String lemma;
+
+            while (reader.nextSentence()) {
+                for (int i = 0; i < reader.getTokenCount(); i++) {
+                    tag = reader.getTag(i);
+                    if (tag == null) {
+                        continue;
+                    }
+                    lemma = reader.getLemma(i);
+                    writer.write(String.valueOf(i + 1));
+                    writer.write('\t');
+                    writer.write(reader.getForm(i));
+                    writer.write('\t');
+                    writer.write((lemma == null) ? "_" : lemma);
+                    writer.write('\t');
+                    writer.write(decomposer.getColumns(tag));
+                    writer.write('\n');
+                }
+                writer.write('\n');
+            }
+
+            reader.close();
+            writer.flush();
         } catch (UnsupportedEncodingException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
         } catch (IOException ex) {
@@ -85,6 +116,7 @@ public class ClarkConverter {
     public static Conll toConll(Document doc, Properties conllMap) {
         
         Conll conll = new Conll();
+        TagDecomposer decomposer = TagDecomposer.getInstance(conllMap);
         ArrayList<String> sentence;
         ArrayList<String> line;
 
@@ -93,7 +125,6 @@ public class ClarkConverter {
         for (int i = 0; i < sentences.getLength(); i++) {
             NodeList tokens = ((Element) sentences.item(i)).getElementsByTagName("tok");
             sentence = new ArrayList(100);
-            conll.add(sentence);
 
             for (int j = 0; j < tokens.getLength(); j++) {
                 line = new ArrayList(10);
@@ -122,46 +153,16 @@ public class ClarkConverter {
                     continue;
                 }
 
-                // Short tag (BTB first letter)
-                if (tag.contains("punct")) {
-                    line.add("Punct");
-                } else {
-                    line.add(String.valueOf(tag.charAt(0)));
-                }
-
-                // Long tag
-                if (tag.contains("punct") || tag.contains("Punct")) {
-                    line.add("Punct");
-                } else if (tag.length() > 2 && tag.charAt(1) != '-') {
-                    line.add(tag.substring(0, 2));
-                } else if (tag.length() > 2 && tag.charAt(1) == '-') {
-                    line.add(String.valueOf(tag.charAt(0)));
-                } else {
-                    line.add(tag);
-                }
-
-                // Features (rest of the tag separated with pipe signs)
-                if (conllMap.containsKey(tag)) { // using the map configuration
-
-                    line.add(conllMap.getProperty(tag));
-
-                } else { // tags not listed in the map -- failsafe
-
-                    if (tag.length() > 2 && !tag.contains("unct")) {
+                // Short tag, long tag and features
+                line.add(decomposer.getColumns(tag));
 
-                        line.add(Misc.join(tag.substring(2).split(""), "|").substring(1));
-
-                    } else {
-
-                        line.add("_");
-
-                    }
-
-                }
                 sentence.add(Misc.join(line, "\t"));
 
             }
 
+            // the sentence is added once complete since Conll copies its lines
+            conll.add(sentence);
+
         }
 
         return conll;
@@ -220,9 +221,10 @@ public class ClarkConverter {
     
     
     /**
-     * Reads in a CLaRK document from the <code>InputStream</code> into, 
-     * converts it to {@link String} in Line data format and writes it into the 
-     * <code>OutputStream</code>.
+     * Reads in a CLaRK document from the <code>InputStream</code>, converts it 
+     * to the Line data format and writes it into the <code>OutputStream</code>. 
+     * The document is streamed sentence by sentence with a 
+     * {@link ClarkStreamReader}.
      * 
      * @param   is  <code>InputStream</code> reading a String representation 
      *              of a CLaRK document.
@@ -233,7 +235,28 @@ public class ClarkConverter {
     public static void toLine(InputStream is, OutputStream os, String eosToken) {
         
         try {
-            os.write(toLine(ClarkDocumentBuilder.buildClarkDocument(is), eosToken).getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+            ClarkStreamReader reader = new ClarkStreamReader(is);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING));
+
+            while (reader.nextSentence()) {
+                for (int i = 0; i < reader.getTokenCount(); i++) {
+                    writer.write(reader.getForm(i));
+                    if (reader.getTag(i) != null) {
+                        writer.write(' ');
+                        writer.write(reader.getTag(i));
+                    }
+                    if (reader.getLemma(i) != null) {
+                        writer.write(' ');
+                        writer.write(reader.getLemma(i));
+                    }
+                    writer.write('\n');
+                }
+                writer.write(eosToken);
+                writer.write('\n');
+            }
+
+            reader.close();
+            writer.flush();
         } catch (UnsupportedEncodingException ex) {
             logger.severe(ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING);
         } catch (IOException ex) {
@@ -24,15 +24,21 @@ import java.io.*;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.bultreebank.labpipe.data.BinaryCorpus;
+import org.bultreebank.labpipe.data.BinaryCorpusWriter;
 import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
 import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.TokenStore;
 import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.data.WebLichtStreamReader;
 import org.bultreebank.labpipe.exceptions.IncorrectInputException;
 import org.bultreebank.labpipe.exceptions.IncorrectOutputException;
 import org.bultreebank.labpipe.exceptions.MissingContentException;
 import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
 import org.bultreebank.labpipe.utils.Misc;
 import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.TagDecomposer;
 import org.bultreebank.labpipe.utils.XmlUtils;
 import org.w3c.dom.Document;
 
@@ -49,6 +55,7 @@ public class Converter {
     private String EOS_TOKEN;
     private Properties CONLL_MAP = new Properties();
     private Properties CONLL_MAP_INV = new Properties();
+    private ConverterRegistry REGISTRY;
 
     /**
      * Creates a new object based on the provided configuration.
@@ -61,6 +68,9 @@ public class Converter {
         EOS_TOKEN = OPTIONS.getProperty(Configuration.EOS_TOKEN);
         CONLL_MAP.load(new FileInputStream(OPTIONS.getConllMapPath()));
         CONLL_MAP_INV.load(new FileInputStream(OPTIONS.getConllMapInvPath()));
+        TagDecomposer.getInstance(CONLL_MAP);
+        ConllTagIndex.getInstance(CONLL_MAP_INV);
+        REGISTRY = new ConverterRegistry(EOS_TOKEN, CONLL_MAP, CONLL_MAP_INV);
     }
 
     /**
@@ -78,83 +88,21 @@ public class Converter {
      */
     public void convert(InputStream is, OutputStream os, int inputType, int outputType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
 
-        if (inputType == outputType) {
-            Misc.writeStream(is, os);
+        try {
+            REGISTRY.convert(is, os, inputType, outputType);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
         }
 
-        if (inputType == ServiceConstants.DATA_LINE) {
-
-            if (outputType == ServiceConstants.DATA_GAZE) {
-                Converter.line2gaze(is, os, EOS_TOKEN);
-            } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
-                Converter.line2clark(is, os, EOS_TOKEN);
-            } else if (outputType == ServiceConstants.DATA_CONLL) {
-                Converter.line2conll(is, os, EOS_TOKEN, CONLL_MAP);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                LineConverter.toWebLicht(is, EOS_TOKEN).exportAsXML(os);
-            } else {
-                throw new IncorrectOutputException("Converter unable to convert LINE into assigned output data format: ".concat(String.valueOf(outputType)));
-            }
-
-        } else if (inputType == ServiceConstants.DATA_CLARK_TOKENS || inputType == ServiceConstants.DATA_CLARK_TAGS) {
-
-            if (outputType == ServiceConstants.DATA_LINE) {
-                Converter.clark2line(is, os, EOS_TOKEN);
-            } else if (outputType == ServiceConstants.DATA_GAZE && inputType == ServiceConstants.DATA_CLARK_TAGS) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-                Converter.clark2line(is, baos, EOS_TOKEN);
-                Converter.line2gaze(new ByteArrayInputStream(baos.toByteArray()), os, EOS_TOKEN);
-            } else if (outputType == ServiceConstants.DATA_CONLL) {
-                Converter.clark2conll(is, os, CONLL_MAP);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                WebLicht doc = new WebLicht(ClarkDocumentBuilder.buildClarkDocument(is));
-                doc.exportAsXML(os);
-            } else {
-                throw new IncorrectOutputException("Converter unable to convert CLARK_TOKENS/CLARK_TAGS into assigned output data format: ".concat(String.valueOf(outputType)));
-            }
-
-        } else if (inputType == ServiceConstants.DATA_CONLL) {// This does not work yet. Needs a bidirectional tag-features map.
-
-            if (outputType == ServiceConstants.DATA_LINE) {
-                Converter.conll2line(is, os, EOS_TOKEN, CONLL_MAP_INV);
-            } else if (outputType == ServiceConstants.DATA_GAZE) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-                Converter.conll2line(is, baos, EOS_TOKEN, CONLL_MAP_INV);
-                Converter.line2gaze(new ByteArrayInputStream(baos.toByteArray()), os, EOS_TOKEN);
-            } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
-                Converter.conll2clark(is, os, CONLL_MAP_INV);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                Conll conll = new Conll(is);
-                conll.toWebLicht(conll, CONLL_MAP_INV).exportAsXML(os);
-            } else {
-                throw new IncorrectOutputException("Converter unable to convert CONLL into assigned output data format: ".concat(String.valueOf(outputType)));
-            }
-
-        } else if (inputType == ServiceConstants.DATA_WEBLICHT) {
-
-            WebLicht doc = new WebLicht(is);
-            if (outputType == ServiceConstants.DATA_LINE) {
-                doc.toLines(os, EOS_TOKEN, false);
-            } else if (outputType == ServiceConstants.DATA_GAZE) {
-                doc.toLines(os, EOS_TOKEN, true);
-            } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
-                XmlUtils.print(doc.toClark(), os);
-            } else if (outputType == ServiceConstants.DATA_CONLL) {
-                try {
-                    os.write(doc.toConll(CONLL_MAP).toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
-                } catch (UnsupportedEncodingException ex) {
-                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
-                } catch (IOException ex) {
-                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
-                }
-            } else {
-                throw new IncorrectOutputException("Converter unable to convert WEBLICHT into assigned output data format: ".concat(String.valueOf(outputType)));
-            }
-
-        } else {
-            throw new IncorrectInputException("Converter unable to convert input data: ".concat(String.valueOf(inputType)));
-        }
+    }
 
+    /**
+     * Gets the {@link ConverterRegistry} used for stream conversions.
+     * 
+     * @return  {@link ConverterRegistry}
+     */
+    public ConverterRegistry getRegistry() {
+        return REGISTRY;
     }
 
     
@@ -172,10 +120,30 @@ public class Converter {
      */
     public Object convert(Object input, int inputType, int outputType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
 
-        if (inputType == outputType) {
+        if (inputType == outputType || (isClark(inputType) && isClark(outputType))) {
             return input;
         }
 
+        try {
+
+            // WebLicht and binary data are built from a TokenStore, and Gaze 
+            // and binary input have no object converters of their own
+            if (outputType == ServiceConstants.DATA_WEBLICHT) {
+                return new WebLicht(toTokenStore(input, inputType));
+            } else if (outputType == ServiceConstants.DATA_BINARY) {
+                BinaryCorpusWriter writer = new BinaryCorpusWriter();
+                writer.add(toTokenStore(input, inputType));
+                return writer.toCorpus();
+            } else if (inputType == ServiceConstants.DATA_BINARY || inputType == ServiceConstants.DATA_GAZE) {
+                checkOutputType(inputType, outputType);
+                return fromTokenStore(toTokenStore(input, inputType), outputType);
+            }
+
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+            return null;
+        }
+
         if (inputType == ServiceConstants.DATA_LINE) {
 
             if (outputType == ServiceConstants.DATA_GAZE) {
@@ -184,12 +152,6 @@ public class Converter {
                 return Converter.line2clark((String) input, EOS_TOKEN);
             } else if (outputType == ServiceConstants.DATA_CONLL) {
                 return Converter.line2conll((String) input, EOS_TOKEN, CONLL_MAP);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                try {
-                    return LineConverter.toWebLicht(new ByteArrayInputStream(((String)input).getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING)), EOS_TOKEN);
-                } catch (UnsupportedEncodingException ex) {
-                    logger.severe(ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING);
-                }
             } else {
                 throw new IncorrectOutputException("Converter unable to convert LINE into assigned output data format: ".concat(String.valueOf(outputType)));
             }
@@ -202,8 +164,6 @@ public class Converter {
                 return Converter.line2gaze(Converter.clark2line((Document) input, EOS_TOKEN), EOS_TOKEN);
             } else if (outputType == ServiceConstants.DATA_CONLL) {
                 return Converter.clark2conll((Document) input, CONLL_MAP);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                return new WebLicht(ClarkDocumentBuilder.buildClarkDocument((String)input));
             } else {
                 throw new IncorrectOutputException("Converter unable to convert CLARK_TOKENS/CLARK_TAGS into assigned output data format: ".concat(String.valueOf(outputType)));
             }
@@ -211,37 +171,23 @@ public class Converter {
         } else if (inputType == ServiceConstants.DATA_CONLL) {// This does not work yet. Needs a bidirectional tag-features map.
 
             if (outputType == ServiceConstants.DATA_LINE) {
-                Converter.conll2line((Conll) input, EOS_TOKEN, CONLL_MAP_INV);
+                return Converter.conll2line((Conll) input, EOS_TOKEN, CONLL_MAP_INV);
             } else if (outputType == ServiceConstants.DATA_GAZE) {
-                Converter.line2gaze(Converter.conll2line((Conll) input, EOS_TOKEN, CONLL_MAP_INV), EOS_TOKEN);
+                return Converter.line2gaze(Converter.conll2line((Conll) input, EOS_TOKEN, CONLL_MAP_INV), EOS_TOKEN);
             } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
                 return Converter.conll2clark((Conll) input, CONLL_MAP_INV);
-            } else if (outputType == ServiceConstants.DATA_WEBLICHT) {
-                return ((Conll)input).toWebLicht(CONLL_MAP_INV);
             } else {
                 throw new IncorrectOutputException("Converter unable to convert CONLL into assigned output data format: ".concat(String.valueOf(outputType)));
             }
 
         } else if (inputType == ServiceConstants.DATA_WEBLICHT) {
 
-            WebLicht doc = new WebLicht((String)input);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            checkOutputType(inputType, outputType);
+
             try {
-                if (outputType == ServiceConstants.DATA_LINE) {
-                    doc.toLines(baos, EOS_TOKEN, false);
-                    return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
-                } else if (outputType == ServiceConstants.DATA_GAZE) {
-                    doc.toLines(baos, EOS_TOKEN, true);
-                    Converter.line2gaze(baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING), EOS_TOKEN);
-                } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
-                    return doc.toClark();
-                } else if (outputType == ServiceConstants.DATA_CONLL) {
-                    return doc.toConll(CONLL_MAP);
-                } else {
-                    throw new IncorrectOutputException("Converter unable to convert WEBLICHT into assigned output data format: ".concat(String.valueOf(outputType)));
-                }
-            } catch (UnsupportedEncodingException ex) {
-                logger.severe(ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING);
+                return fromTokenStore(asTokenStore(input), outputType);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
             }
 
         } else {
@@ -252,6 +198,123 @@ public class Converter {
 
     }
 
+    /**
+     * Gets a WebLicht document kept as a {@link WebLicht} object, XML 
+     * <code>String</code> or bytes as a {@link TokenStore}.
+     */
+    private static TokenStore asTokenStore(Object input) throws IOException, MissingContentException {
+
+        if (input instanceof WebLicht) {
+            return ((WebLicht) input).toTokenStore();
+        } else if (input instanceof String) {
+            input = ((String) input).getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+        }
+        if (input instanceof byte[]) {
+            input = WebLichtStreamReader.read(new ByteArrayInputStream((byte[]) input));
+        }
+        return (TokenStore) input;
+
+    }
+
+    private static boolean isClark(int dataType) {
+        return dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS;
+    }
+
+    /**
+     * Checks that the output type can be produced by 
+     * {@link #fromTokenStore(TokenStore, int)}.
+     */
+    private static void checkOutputType(int inputType, int outputType) throws IncorrectOutputException {
+
+        if (outputType != ServiceConstants.DATA_LINE
+                && outputType != ServiceConstants.DATA_GAZE
+                && outputType != ServiceConstants.DATA_CONLL
+                && outputType != ServiceConstants.DATA_CLARK_TOKENS
+                && outputType != ServiceConstants.DATA_CLARK_TAGS) {
+            throw new IncorrectOutputException("Converter unable to convert " + inputType + " into assigned output data format: " + outputType);
+        }
+
+    }
+
+    /**
+     * Reads a data object of the given type into a {@link TokenStore}. WebLicht 
+     * data can be given as a {@link WebLicht} object, XML <code>String</code>, 
+     * bytes or a {@link TokenStore}, which is returned as it is.
+     * 
+     * @param   input   input data object
+     * @param   inputType   input data type
+     * 
+     * @return  {@link TokenStore}
+     * @throws IOException
+     * @throws MissingContentException
+     * @throws IncorrectInputException  
+     */
+    public TokenStore toTokenStore(Object input, int inputType) throws IOException, MissingContentException, IncorrectInputException {
+
+        if (inputType == ServiceConstants.DATA_WEBLICHT) {
+            return asTokenStore(input);
+        } else if (inputType == ServiceConstants.DATA_BINARY) {
+            return ((BinaryCorpus) input).toTokenStore();
+        } else if (inputType == ServiceConstants.DATA_CONLL) {
+            return Converter.conll2weblicht((Conll) input, CONLL_MAP_INV);
+        } else if (inputType == ServiceConstants.DATA_LINE || inputType == ServiceConstants.DATA_GAZE) {
+            return toTokenStore(new ByteArrayInputStream(((String) input).getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING)), inputType);
+        } else if (isClark(inputType)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            XmlUtils.print((Document) input, baos);
+            return toTokenStore(new ByteArrayInputStream(baos.toByteArray()), inputType);
+        }
+
+        throw new IncorrectInputException("Converter unable to convert input data: ".concat(String.valueOf(inputType)));
+
+    }
+
+    /**
+     * Reads data of the given type into a {@link TokenStore}.
+     */
+    private TokenStore toTokenStore(InputStream is, int inputType) throws IOException, MissingContentException, IncorrectInputException {
+
+        TokenStore store = new TokenStore();
+        TokenWriter writer = new TokenWriters.StoreWriter(store);
+        REGISTRY.newReader(inputType).read(is, writer);
+        writer.close();
+        store.trimToSize();
+
+        return store;
+
+    }
+
+    /**
+     * Converts a {@link TokenStore} into the data object of the given type: 
+     * <code>String</code> for Line and Gaze, {@link Conll} and CLaRK 
+     * <code>Document</code>. The objects are filled by their token writers 
+     * without writing and parsing the data.
+     */
+    private Object fromTokenStore(TokenStore store, int outputType) throws IOException {
+
+        if (outputType == ServiceConstants.DATA_CONLL) {
+            Conll conll = new Conll();
+            TokenWriter writer = new TokenWriters.ConllWriter(conll, CONLL_MAP);
+            TokenReaders.read(store, writer);
+            writer.close();
+            return conll;
+        } else if (outputType == ServiceConstants.DATA_CLARK_TOKENS || outputType == ServiceConstants.DATA_CLARK_TAGS) {
+            Document doc = ClarkDocumentBuilder.buildClarkDocument();
+            TokenWriter writer = new TokenWriters.ClarkWriter(doc);
+            TokenReaders.read(store, writer);
+            writer.close();
+            return doc;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TokenWriter writer = REGISTRY.newWriter(outputType, baos);
+        TokenReaders.read(store, writer);
+        writer.close();
+
+        return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+
+    }
+
     /**
      * Converts Line encoded data stream into CoNLL encoded data stram.
      * 
@@ -348,8 +411,10 @@ public class Converter {
      * @param   eosToken    end of sentence token
      * @param   iConllMap   <code>Map</code> containing connections between tags
      * in CoNLL representation and heir original forms
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public static void conll2line(InputStream is, OutputStream os, String eosToken, Properties iConllMap) {
+    public static void conll2line(InputStream is, OutputStream os, String eosToken, Properties iConllMap) throws IncorrectInputException {
         
         Conll conll = new Conll(is);
         conll.toLine(os, eosToken, iConllMap);
@@ -365,8 +430,10 @@ public class Converter {
      * in CoNLL representation and heir original forms
      * 
      * @return {@link String} - Line encoded data
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public static String conll2line(Conll conll, String eosToken, Properties iConllMap) {
+    public static String conll2line(Conll conll, String eosToken, Properties iConllMap) throws IncorrectInputException {
         return conll.toLine(eosToken, iConllMap);
 
     }
@@ -379,8 +446,10 @@ public class Converter {
      * @param   os   <code>OutputStream</code> containing CLaRK document
      * @param   iConllMap   <code>Map</code> containing connections between tags
      * in CoNLL representation and heir original forms
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public static void conll2clark(InputStream is, OutputStream os, Properties iConllMap) {
+    public static void conll2clark(InputStream is, OutputStream os, Properties iConllMap) throws IncorrectInputException {
         Conll conll = new Conll(is);
         conll.toClark(os, iConllMap);
         
@@ -394,13 +463,50 @@ public class Converter {
      * in CoNLL representation and heir original forms
      * 
      * @return {@link org.w3c.dom.Document} - CLaRK document
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public static Document conll2clark(Conll conll, Properties iConllMap) {
+    public static Document conll2clark(Conll conll, Properties iConllMap) throws IncorrectInputException {
 
         return conll.toClark(iConllMap);
 
     }
 
+    /**
+     * Converts {@link Conll} object into the {@link TokenStore} representation 
+     * of a WebLicht document.
+     * 
+     * @param   conll   {@link Conll} object
+     * @param   iConllMap   <code>Map</code> connecting the CoNLL versions of 
+     *                      tags to their original BTB versions.
+     * @return  {@link TokenStore}
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
+     */
+    public static TokenStore conll2weblicht(Conll conll, Properties iConllMap) throws IncorrectInputException {
+
+        TokenStore store = new TokenStore(conll.getTokenCount());
+        ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
+
+        for (int s = 0; s < conll.size(); s++) {
+            for (int t = conll.getSentenceStart(s); t < conll.getSentenceEnd(s); t++) {
+                String deprel = conll.getColumn(t, Conll.TOKEN_DEPREL);
+                String lemma = conll.getColumn(t, Conll.TOKEN_LEMMA);
+                boolean dependency = deprel != null && !deprel.equals("_") && conll.getHead(t) >= 0;
+                store.addToken(
+                        conll.getColumn(t, Conll.TOKEN_FORM),
+                        conll.getMappedTag(t, index),
+                        (lemma == null || lemma.equals("_")) ? null : lemma,
+                        dependency ? conll.getHead(t) : -1,
+                        dependency ? deprel : null);
+            }
+            store.endSentence();
+        }
+
+        return store;
+
+    }
+
     /**
      * Converts {@link Conll} object read from the <code>InputStream</code> into
      * CLaRK document and prints it to the <code>OutputStream</code>.
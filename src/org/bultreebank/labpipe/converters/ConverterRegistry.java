@@ -0,0 +1,293 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Properties;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.exceptions.IncorrectOutputException;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>ConverterRegistry</code> keeps a {@link StreamConverter} for every 
+ * pair of the data formats that can be converted without processing 
+ * (<code>DATA_LINE</code>, <code>DATA_WEBLICHT</code>, <code>DATA_CONLL</code>,
+ * <code>DATA_CLARK_TOKENS</code>, <code>DATA_CLARK_TAGS</code>, 
+ * <code>DATA_GAZE</code> and <code>DATA_BINARY</code>). Each default converter connects the 
+ * {@link TokenReader} of the input format directly to the {@link TokenWriter}
+ * of the output format, so a document is converted in a single pass with no 
+ * intermediate document in another format. Converters for single pairs can 
+ * be replaced with {@link #register(int, int, StreamConverter)}.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConverterRegistry {
+
+    private static final int[] DATA_TYPES = {
+        ServiceConstants.DATA_LINE,
+        ServiceConstants.DATA_WEBLICHT,
+        ServiceConstants.DATA_CONLL,
+        ServiceConstants.DATA_CLARK_TOKENS,
+        ServiceConstants.DATA_CLARK_TAGS,
+        ServiceConstants.DATA_GAZE,
+        ServiceConstants.DATA_BINARY
+    };
+    private final String EOS_TOKEN;
+    private final Properties CONLL_MAP;
+    private final Properties CONLL_MAP_INV;
+    private final HashMap<Integer, StreamConverter> CONVERTERS = new HashMap();
+
+    /**
+     * Creates a registry containing the default converters.
+     * 
+     * @param   eosToken    end of sentence token of the Line data format
+     * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+     *                      representation forms (features)
+     * @param   iConllMap   <code>Map</code> containing back connections between
+     *                      POS tags in CoNLL representation and their original 
+     *                      BTB forms.
+     */
+    public ConverterRegistry(String eosToken, Properties conllMap, Properties iConllMap) {
+
+        EOS_TOKEN = eosToken;
+        CONLL_MAP = conllMap;
+        CONLL_MAP_INV = iConllMap;
+
+        for (int inputType : DATA_TYPES) {
+            for (int outputType : DATA_TYPES) {
+                if (inputType == outputType || (isClark(inputType) && isClark(outputType))) {
+                    register(inputType, outputType, new CopyConverter());
+                } else {
+                    register(inputType, outputType, new TokenStreamConverter(inputType, outputType));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Gets the data types supported by the default converters.
+     * 
+     * @return  int[]
+     */
+    public static int[] getDataTypes() {
+        return DATA_TYPES.clone();
+    }
+
+    /**
+     * Registers a converter for a pair of data types, replacing the previous 
+     * one.
+     * 
+     * @param   inputType   input data type
+     * @param   outputType  output data type
+     * @param   converter   {@link StreamConverter}
+     */
+    public synchronized void register(int inputType, int outputType, StreamConverter converter) {
+        CONVERTERS.put(key(inputType, outputType), converter);
+    }
+
+    /**
+     * Gets the converter for a pair of data types.
+     * 
+     * @param   inputType   input data type
+     * @param   outputType  output data type
+     * 
+     * @return  {@link StreamConverter} or <code>null</code> if the pair is 
+     *          not supported
+     */
+    public synchronized StreamConverter get(int inputType, int outputType) {
+        return CONVERTERS.get(key(inputType, outputType));
+    }
+
+    /**
+     * Converts data read from the <code>InputStream</code> into another data 
+     * type and writes it into the <code>OutputStream</code>.
+     * 
+     * @param   is  input data <code>InputStream</code>
+     * @param   os  converted data <code>OutputStream</code>
+     * @param   inputType   input data type
+     * @param   outputType  output data type
+     * @throws IOException 
+     * @throws MissingContentException 
+     * @throws IncorrectInputException 
+     * @throws IncorrectOutputException  
+     */
+    public void convert(InputStream is, OutputStream os, int inputType, int outputType)
+            throws IOException, MissingContentException, IncorrectInputException, IncorrectOutputException {
+
+        StreamConverter converter = get(inputType, outputType);
+
+        if (converter == null) {
+            if (newReader(inputType) == null) {
+                throw new IncorrectInputException("Converter unable to convert input data: ".concat(String.valueOf(inputType)));
+            }
+            throw new IncorrectOutputException("Converter unable to convert " + inputType + " into assigned output data format: " + outputType);
+        }
+
+        converter.convert(is, os);
+
+    }
+
+    /**
+     * Creates a {@link TokenReader} for a data type.
+     * 
+     * @param   dataType    input data type
+     * 
+     * @return  {@link TokenReader} or <code>null</code> if the data type is 
+     *          not supported
+     */
+    public TokenReader newReader(int dataType) {
+
+        switch (dataType) {
+            case ServiceConstants.DATA_LINE:
+                return new TokenReaders.LineReader(EOS_TOKEN);
+            case ServiceConstants.DATA_GAZE:
+                return new TokenReaders.GazeReader();
+            case ServiceConstants.DATA_CONLL:
+                return new TokenReaders.ConllReader(CONLL_MAP_INV);
+            case ServiceConstants.DATA_CLARK_TOKENS:
+            case ServiceConstants.DATA_CLARK_TAGS:
+                return new TokenReaders.ClarkReader();
+            case ServiceConstants.DATA_WEBLICHT:
+                return new TokenReaders.WebLichtReader();
+            case ServiceConstants.DATA_BINARY:
+                return new TokenReaders.BinaryReader();
+            default:
+                return null;
+        }
+
+    }
+
+    /**
+     * Creates a {@link TokenWriter} for a data type.
+     * 
+     * @param   dataType    output data type
+     * @param   os  output data <code>OutputStream</code>
+     * 
+     * @return  {@link TokenWriter} or <code>null</code> if the data type is 
+     *          not supported
+     * @throws IOException 
+     */
+    public TokenWriter newWriter(int dataType, OutputStream os) throws IOException {
+
+        switch (dataType) {
+            case ServiceConstants.DATA_LINE:
+                return new TokenWriters.LineWriter(os, EOS_TOKEN);
+            case ServiceConstants.DATA_GAZE:
+                return new TokenWriters.GazeWriter(os);
+            case ServiceConstants.DATA_CONLL:
+                return new TokenWriters.ConllWriter(os, CONLL_MAP);
+            case ServiceConstants.DATA_CLARK_TOKENS:
+            case ServiceConstants.DATA_CLARK_TAGS:
+                return new TokenWriters.ClarkWriter(os);
+            case ServiceConstants.DATA_WEBLICHT:
+                return new TokenWriters.WebLichtWriter(os);
+            case ServiceConstants.DATA_BINARY:
+                return new TokenWriters.BinaryWriter(os);
+            default:
+                return null;
+        }
+
+    }
+
+    /*
+     * Creates the reader of a pair. Line data keeps its single field lines 
+     * for the formats whose object converters keep them.
+     */
+    private TokenReader newReader(int inputType, int outputType) {
+
+        if (inputType == ServiceConstants.DATA_LINE
+                && (isClark(outputType) || outputType == ServiceConstants.DATA_GAZE)) {
+            return new TokenReaders.LineReader(EOS_TOKEN, true);
+        }
+
+        return newReader(inputType);
+
+    }
+
+    /*
+     * Creates the writer of a pair. Line and CoNLL data are written the same 
+     * way as by the object converters of the input format.
+     */
+    private TokenWriter newWriter(int inputType, int outputType, OutputStream os) throws IOException {
+
+        if (outputType == ServiceConstants.DATA_LINE) {
+            if (isClark(inputType)) {
+                return new TokenWriters.LineWriter(os, EOS_TOKEN, ' ', true);
+            } else if (inputType == ServiceConstants.DATA_CONLL) {
+                return new TokenWriters.LineWriter(os, EOS_TOKEN, '\t', false);
+            }
+        } else if (outputType == ServiceConstants.DATA_CONLL && isClark(inputType)) {
+            return new TokenWriters.ConllWriter(os, CONLL_MAP, false);
+        }
+
+        return newWriter(outputType, os);
+
+    }
+
+    private static boolean isClark(int dataType) {
+        return dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS;
+    }
+
+    private static Integer key(int inputType, int outputType) {
+        return (inputType << 16) | outputType;
+    }
+
+    /*
+     * Passes the reader of the input format straight to the writer of the 
+     * output format.
+     */
+    private class TokenStreamConverter implements StreamConverter {
+
+        private final int INPUT_TYPE;
+        private final int OUTPUT_TYPE;
+
+        TokenStreamConverter(int inputType, int outputType) {
+            INPUT_TYPE = inputType;
+            OUTPUT_TYPE = outputType;
+        }
+
+        public void convert(InputStream is, OutputStream os) throws IOException, MissingContentException, IncorrectInputException {
+            TokenWriter writer = newWriter(INPUT_TYPE, OUTPUT_TYPE, os);
+            newReader(INPUT_TYPE, OUTPUT_TYPE).read(is, writer);
+            writer.close();
+        }
+    }
+
+    /*
+     * Copies the input when the input and the output data types are the same.
+     */
+    private static class CopyConverter implements StreamConverter {
+
+        public void convert(InputStream is, OutputStream os) throws IOException {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+            }
+            os.flush();
+        }
+    }
+}
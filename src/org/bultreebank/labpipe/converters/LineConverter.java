@@ -49,7 +49,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.apache.commons.lang.StringUtils;
 import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
 import org.bultreebank.labpipe.data.Conll;
 import org.bultreebank.labpipe.data.WebLicht;
@@ -116,6 +115,7 @@ public class LineConverter {
                 conllLine.append("\n");
                 conllSentence.add(conllLine.toString());
                 conll.add(conllSentence);
+                conllSentence = new ArrayList();
 
             }
 
@@ -241,70 +241,7 @@ public class LineConverter {
     public static String lineTokenToConllToken(String line, int id, Properties conllMap)
             throws ArrayIndexOutOfBoundsException {
 
-        ArrayList<String> conll = new ArrayList(10);
-
-        line = line.replaceAll(" ", "\t");
-
-        String[] columns = line.split("\t");
-
-        String token = columns[0];
-        String tag = columns[1];
-        String lemma = null;
-        if (columns.length > 2) {
-            lemma = columns[2];
-        }
-
-        // ID number
-        conll.add(String.valueOf(id));
-
-        // Token
-        conll.add(token);
-
-        // Lemma
-        if (lemma != null) {
-            conll.add(lemma);
-        } else {
-            conll.add("_");
-        }
-
-        // Short tag (BTB first letter)
-        if (tag.contains("punct")) {
-            conll.add("Punct");
-        } else {
-            conll.add(String.valueOf(tag.charAt(0)));
-        }
-
-        // Long tag
-        if (tag.contains("punct") || tag.contains("Punct")) {
-            conll.add("Punct");
-        } else if (tag.length() > 2 && tag.charAt(1) != '-') {
-            conll.add(tag.substring(0, 2));
-        } else if (tag.length() > 2 && tag.charAt(1) == '-') {
-            conll.add(String.valueOf(tag.charAt(0)));
-        } else {
-            conll.add(tag);
-        }
-
-        // Features (rest of the tag separated with pipe signs)
-        if (conllMap.containsKey(tag)) { // using the map configuration
-
-            conll.add(conllMap.getProperty(tag));
-
-        } else { // tags not listed in the map -- failsafe
-
-            if (tag.length() > 2 && !tag.contains("unct")) {
-
-                conll.add(Misc.join(tag.substring(2).split(""), "|").substring(1));
-
-            } else {
-
-                conll.add("_");
-
-            }
-
-        }
-
-        return Misc.join(conll, "\t");
+        return DataUtils.lineTokenToConllToken(line, id, conllMap);
 
     }
     
@@ -315,75 +252,7 @@ public class LineConverter {
     public static String toConllLine(String line, int id, Properties conllMap)
             throws ArrayIndexOutOfBoundsException {
 
-        StringBuilder conll = new StringBuilder();
-
-        line = line.replaceAll(" ", "\t");
-
-        String[] columns = line.split("\t");
-
-        String token = columns[0];
-        String tag = columns[1];
-        String lemma = null;
-        if (columns.length > 2) {
-            lemma = columns[2];
-        }
-
-        // ID number
-        conll.append(id);
-        conll.append("\t");
-
-        // Token
-        conll.append(token);
-        conll.append("\t");
-
-        // Lemma
-        if (lemma != null) {
-            conll.append(lemma);
-        } else {
-            conll.append("_");
-        }
-        conll.append("\t");
-
-        // Short tag (BTB first letter)
-        if (tag.contains("punct")) {
-            conll.append("Punct");
-        } else {
-            conll.append(tag.charAt(0));
-        }
-        conll.append("\t");
-
-        // Long tag
-        if (tag.contains("punct") || tag.contains("Punct")) {
-            conll.append("Punct");
-        } else if (tag.length() > 2 && tag.charAt(1) != '-') {
-            conll.append(tag.substring(0, 2));
-        } else if (tag.length() > 2 && tag.charAt(1) == '-') {
-            conll.append(tag.charAt(0));
-        } else {
-            conll.append(tag);
-        }
-        conll.append("\t");
-
-        // Features (rest of the tag separated with pipe signs)
-        if (conllMap.containsKey(tag)) { // using the map configuration
-
-            conll.append(conllMap.getProperty(tag));
-
-        } else { // tags not listed in the map -- failsafe
-
-            if (tag.length() > 2 && !tag.contains("unct")) {
-
-                conll.append(StringUtils.join(tag.substring(2).split(""), "|").substring(1));
-
-            } else {
-
-                conll.append("_");
-
-            }
-
-        }
-
-        return conll.toString();
+        return DataUtils.lineTokenToConllToken(line, id, conllMap);
 
     }
     
@@ -418,6 +287,7 @@ public class LineConverter {
     public static String toGaze(String lines, String eosToken) {
         String[] linesAr = lines.split("\n");
         StringBuilder sb = new StringBuilder();
+        boolean pending = false;
 
         for (String line : linesAr) {
             line = line.replace("\t", " ");
@@ -425,6 +295,7 @@ public class LineConverter {
             if (lineItems.length < 2 || lines.equals(eosToken)) {
                 sb.append(ServiceConstants.GAZE_EOS_TOKEN);
                 sb.append("\n");
+                pending = false;
                 continue;
             }
             sb.append(lineItems[0]);
@@ -433,6 +304,13 @@ public class LineConverter {
             sb.append("\t");
             sb.append("O");
             sb.append("\n");
+            pending = true;
+        }
+
+        // the last sentence may not be followed by an end of sentence token
+        if (pending) {
+            sb.append(ServiceConstants.GAZE_EOS_TOKEN);
+            sb.append("\n");
         }
 
         return sb.toString();
@@ -486,6 +364,11 @@ public class LineConverter {
 
             }
 
+            // the last sentence may not be followed by an end of sentence token
+            if (sentence.hasChildNodes()) {
+                root.appendChild(sentence);
+            }
+
             return clarkDoc;
 
         } catch (IOException ex) {
@@ -0,0 +1,49 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+
+/**
+ * <code>StreamConverter</code> converts data between two of the 
+ * <code>LABPipe</code> data formats. Converters are looked up by their input 
+ * and output data types in a {@link ConverterRegistry}.
+ *
+ * @author Aleksandar Savkov
+ */
+public interface StreamConverter {
+
+    /**
+     * Converts the data read from the <code>InputStream</code> and writes it 
+     * into the <code>OutputStream</code>. Neither of the streams is closed.
+     * 
+     * @param   is  input data <code>InputStream</code>
+     * @param   os  converted data <code>OutputStream</code>
+     * @throws IOException
+     * @throws MissingContentException  
+     * @throws IncorrectInputException 
+     */
+    void convert(InputStream is, OutputStream os) throws IOException, MissingContentException, IncorrectInputException;
+}
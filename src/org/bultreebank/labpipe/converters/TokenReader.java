@@ -0,0 +1,49 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+
+/**
+ * <code>TokenReader</code> reads a document in one of the <code>LABPipe</code>
+ * data formats and passes its tokens and sentence ends to a 
+ * {@link TokenWriter}.
+ *
+ * @author Aleksandar Savkov
+ */
+public interface TokenReader {
+
+    /**
+     * Reads the document from the <code>InputStream</code> into the 
+     * {@link TokenWriter}. The writer is not closed.
+     * 
+     * @param   is  input data <code>InputStream</code>
+     * @param   writer  {@link TokenWriter} receiving the tokens
+     * @throws IOException
+     * @throws MissingContentException  
+     * @throws IncorrectInputException if the input cannot be converted, e.g. 
+     *                  a CoNLL tag is missing from the CoNLL map
+     */
+    void read(InputStream is, TokenWriter writer) throws IOException, MissingContentException, IncorrectInputException;
+}
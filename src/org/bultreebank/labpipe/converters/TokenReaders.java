@@ -0,0 +1,343 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.data.BinaryCorpus;
+import org.bultreebank.labpipe.data.ClarkStreamReader;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.ConllTokenReader;
+import org.bultreebank.labpipe.data.TokenStore;
+import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.data.WebLichtStreamReader;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>TokenReaders</code> contains the {@link TokenReader} implementations 
+ * for the <code>LABPipe</code> data formats.
+ *
+ * @author Aleksandar Savkov
+ */
+public class TokenReaders {
+
+    private static final Logger logger = Logger.getLogger(TokenReaders.class.getName());
+
+    private TokenReaders() {
+    }
+
+    /**
+     * Reads Line encoded data: one token per line (word form, tag and lemma 
+     * separated with spaces or tabs) and end of sentence tokens between the 
+     * sentences. Lines with a single field are skipped like in 
+     * {@link LineConverter#toConll(String, String, Properties)}, unless they 
+     * are kept as tokens without a tag for the CLaRK and Gaze formats.
+     */
+    public static class LineReader implements TokenReader {
+
+        private final String EOS_TOKEN;
+        private final boolean UNTAGGED;
+
+        /**
+         * @param   eosToken    end of sentence token
+         */
+        public LineReader(String eosToken) {
+            this(eosToken, false);
+        }
+
+        /**
+         * @param   eosToken    end of sentence token
+         * @param   untagged    whether single field lines are read as tokens 
+         *                      without a tag
+         */
+        public LineReader(String eosToken, boolean untagged) {
+            EOS_TOKEN = eosToken;
+            UNTAGGED = untagged;
+        }
+
+        public void read(InputStream is, TokenWriter writer) throws IOException {
+
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, ServiceConstants.PIPE_CHARACTER_ENCODING));
+            String[] fields = new String[3];
+            boolean pending = false;
+            String line;
+
+            while ((line = br.readLine()) != null) {
+
+                line = line.trim();
+
+                if (line.startsWith("##")) {
+                    continue;
+                }
+
+                if (line.contains(EOS_TOKEN)) {
+                    writer.endSentence();
+                    pending = false;
+                    continue;
+                }
+
+                int count = split(line, fields);
+                if (count == 0 || (count == 1 && !UNTAGGED)) {
+                    continue;
+                }
+
+                writer.writeToken(fields[0], fields[1], fields[2], -1, null);
+                pending = true;
+
+            }
+
+            if (pending) {
+                writer.endSentence();
+            }
+
+        }
+    }
+
+    /**
+     * Reads Gaze data: word form, tag and named entity tag separated with 
+     * tabs, and <code>##sb</code> after every sentence.
+     */
+    public static class GazeReader implements TokenReader {
+
+        public void read(InputStream is, TokenWriter writer) throws IOException {
+
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, ServiceConstants.PIPE_CHARACTER_ENCODING));
+            String[] fields = new String[2];
+            boolean pending = false;
+            String line;
+
+            while ((line = br.readLine()) != null) {
+
+                if (line.startsWith(ServiceConstants.GAZE_EOS_TOKEN)) {
+                    writer.endSentence();
+                    pending = false;
+                } else if (split(line, fields) > 0) {
+                    writer.writeToken(fields[0], fields[1], null, -1, null);
+                    pending = true;
+                }
+
+            }
+
+            if (pending) {
+                writer.endSentence();
+            }
+
+        }
+    }
+
+    /**
+     * Reads CoNLL data. The BTB tags are restored with the inverted CoNLL map; 
+     * a tag missing from the map fails the conversion.
+     */
+    public static class ConllReader implements TokenReader {
+
+        private final ConllTagIndex INDEX;
+
+        /**
+         * @param   iConllMap   <code>Map</code> containing back connections between
+         *                      POS tags in CoNLL representation and their original 
+         *                      BTB forms.
+         */
+        public ConllReader(Properties iConllMap) {
+            INDEX = ConllTagIndex.getInstance(iConllMap);
+        }
+
+        public void read(InputStream is, TokenWriter writer) throws IOException, IncorrectInputException {
+
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, ServiceConstants.PIPE_CHARACTER_ENCODING));
+            ConllTokenReader reader = new ConllTokenReader();
+            boolean pending = false;
+            String line;
+
+            while ((line = br.readLine()) != null) {
+
+                // same sentence boundaries as in Conll
+                if (line.length() < 2 || !Character.isDigit(line.charAt(0))) {
+                    if (pending) {
+                        writer.endSentence();
+                        pending = false;
+                    }
+                    continue;
+                }
+
+                reader.reset(line);
+
+                int head = -1;
+                if (reader.hasValue(Conll.TOKEN_HEAD)) {
+                    try {
+                        head = reader.getInt(Conll.TOKEN_HEAD);
+                    } catch (NumberFormatException ex) {
+                        head = -1;
+                    }
+                }
+
+                String tag = reader.getFullTag(INDEX);
+                if (tag == null) {
+                    String message = "The CoNLL tag of the line cannot be mapped to a BTB tag: " + line;
+                    logger.log(Level.SEVERE, message);
+                    throw new IncorrectInputException(message);
+                }
+
+                writer.writeToken(
+                        reader.getString(Conll.TOKEN_FORM),
+                        tag,
+                        reader.hasValue(Conll.TOKEN_LEMMA) ? reader.getString(Conll.TOKEN_LEMMA) : null,
+                        head,
+                        reader.hasValue(Conll.TOKEN_DEPREL) ? reader.getString(Conll.TOKEN_DEPREL) : null);
+                pending = true;
+
+            }
+
+            if (pending) {
+                writer.endSentence();
+            }
+
+        }
+    }
+
+    /**
+     * Reads CLaRK documents (<code>s</code> and <code>tok</code> elements). 
+     * The tag is taken from the <code>ana</code> attribute or, if it is 
+     * missing, from the <code>svm</code> attribute. The document is streamed 
+     * sentence by sentence with a {@link ClarkStreamReader}.
+     */
+    public static class ClarkReader implements TokenReader {
+
+        public void read(InputStream is, TokenWriter writer) throws IOException, MissingContentException {
+
+            ClarkStreamReader reader = new ClarkStreamReader(is);
+
+            while (reader.nextSentence()) {
+
+                for (int i = 0; i < reader.getTokenCount(); i++) {
+                    writer.writeToken(reader.getForm(i), reader.getTag(i), reader.getLemma(i), -1, null);
+                }
+
+                writer.endSentence();
+
+            }
+
+            reader.close();
+
+        }
+    }
+
+    /**
+     * Reads binary corpora (see {@link BinaryCorpus}) sentence by sentence. 
+     * File streams are mapped in the memory instead of read.
+     */
+    public static class BinaryReader implements TokenReader {
+
+        public void read(InputStream is, TokenWriter writer) throws IOException {
+
+            BinaryCorpus corpus = BinaryCorpus.read(is);
+
+            for (int s = 0; s < corpus.getSentenceCount(); s++) {
+                TokenStore sentence = new TokenStore(corpus.getSentenceLength(s));
+                corpus.readSentence(s, sentence);
+                TokenReaders.read(sentence, writer);
+            }
+
+        }
+    }
+
+    /**
+     * Reads {@link WebLicht} documents into a {@link TokenStore} with a 
+     * {@link WebLichtStreamReader} and passes on its tokens sentence by 
+     * sentence.
+     */
+    public static class WebLichtReader implements TokenReader {
+
+        public void read(InputStream is, TokenWriter writer) throws IOException, MissingContentException {
+            TokenReaders.read(WebLichtStreamReader.read(is), writer);
+        }
+    }
+
+    /**
+     * Passes the tokens of a {@link TokenStore} to a {@link TokenWriter} 
+     * sentence by sentence. Empty lemmas are left out and spaces in lemmas are 
+     * replaced with underscores.
+     * 
+     * @param   store   {@link TokenStore}
+     * @param   writer  {@link TokenWriter} receiving the tokens
+     * @throws IOException 
+     */
+    public static void read(TokenStore store, TokenWriter writer) throws IOException {
+
+        for (int s = 0; s < store.getSentenceCount(); s++) {
+
+            for (int t = store.getSentenceStart(s); t < store.getSentenceEnd(s); t++) {
+                String lemma = store.getLemma(t);
+                writer.writeToken(
+                        store.getForm(t),
+                        store.getTag(t),
+                        (lemma == null || lemma.length() == 0) ? null : lemma.replace(' ', '_'),
+                        store.getHead(t),
+                        store.getDeprel(t));
+            }
+
+            writer.endSentence();
+
+        }
+
+    }
+
+    /*
+     * Splits a line into fields separated with spaces or tabs. Missing fields 
+     * are set to null and extra fields are ignored. Returns the number of 
+     * fields found.
+     */
+    private static int split(String line, String[] fields) {
+
+        int count = 0;
+        int length = line.length();
+        int i = 0;
+
+        while (count < fields.length) {
+            while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '\t') {
+                i++;
+            }
+            fields[count++] = line.substring(start, i);
+        }
+
+        for (int f = count; f < fields.length; f++) {
+            fields[f] = null;
+        }
+
+        return count;
+
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.IOException;
+
+/**
+ * <code>TokenWriter</code> receives a document token by token and writes it 
+ * in one of the <code>LABPipe</code> data formats. Together with a 
+ * {@link TokenReader} it converts a document in a single pass, without 
+ * building an intermediate document.
+ *
+ * @author Aleksandar Savkov
+ */
+public interface TokenWriter {
+
+    /**
+     * Writes a token of the current sentence.
+     * 
+     * @param   form    word form
+     * @param   tag     BTB tag or <code>null</code>
+     * @param   lemma   lemma or <code>null</code>
+     * @param   head    ID of the dependency head in the sentence, 0 for the 
+     *                  root or -1 if the token has no dependency
+     * @param   deprel  dependency relation or <code>null</code>
+     * @throws IOException 
+     */
+    void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException;
+
+    /**
+     * Ends the current sentence.
+     * 
+     * @throws IOException 
+     */
+    void endSentence() throws IOException;
+
+    /**
+     * Ends the document and flushes the output. The underlying 
+     * <code>OutputStream</code> is not closed.
+     * 
+     * @throws IOException 
+     */
+    void close() throws IOException;
+}
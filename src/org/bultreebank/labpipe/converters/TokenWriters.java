@@ -0,0 +1,406 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.converters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Properties;
+import org.bultreebank.labpipe.data.BinaryCorpus;
+import org.bultreebank.labpipe.data.BinaryCorpusWriter;
+import org.bultreebank.labpipe.data.ClarkStreamWriter;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.TokenStore;
+import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.data.WebLichtStreamWriter;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.TagDecomposer;
+import org.w3c.dom.Document;
+
+/**
+ * <code>TokenWriters</code> contains the {@link TokenWriter} implementations 
+ * for the <code>LABPipe</code> data formats.
+ *
+ * @author Aleksandar Savkov
+ */
+public class TokenWriters {
+
+    private TokenWriters() {
+    }
+
+    /**
+     * Writes Line encoded data: word form, tag and lemma separated with tabs 
+     * and the end of sentence token after every sentence. The separator and 
+     * the lemmas can be changed to match the Line data written by 
+     * {@link ClarkConverter} (spaces) and {@link org.bultreebank.labpipe.data.Conll}
+     * (no lemmas).
+     */
+    public static class LineWriter implements TokenWriter {
+
+        private final Writer OUT;
+        private final String EOS_TOKEN;
+        private final char SEPARATOR;
+        private final boolean LEMMAS;
+
+        /**
+         * @param   os  Line encoded data <code>OutputStream</code>
+         * @param   eosToken    end of sentence token
+         * @throws IOException 
+         */
+        public LineWriter(OutputStream os, String eosToken) throws IOException {
+            this(os, eosToken, '\t', true);
+        }
+
+        /**
+         * @param   os  Line encoded data <code>OutputStream</code>
+         * @param   eosToken    end of sentence token
+         * @param   separator   field separator
+         * @param   lemmas  whether lemmas are written
+         * @throws IOException 
+         */
+        public LineWriter(OutputStream os, String eosToken, char separator, boolean lemmas) throws IOException {
+            OUT = newWriter(os);
+            EOS_TOKEN = eosToken;
+            SEPARATOR = separator;
+            LEMMAS = lemmas;
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            OUT.write(form);
+            if (tag != null) {
+                OUT.write(SEPARATOR);
+                OUT.write(tag);
+            }
+            if (LEMMAS && lemma != null) {
+                if (tag == null && SEPARATOR == '\t') {
+                    OUT.write("\t_");
+                }
+                OUT.write(SEPARATOR);
+                OUT.write(lemma);
+            }
+            OUT.write('\n');
+        }
+
+        public void endSentence() throws IOException {
+            OUT.write(EOS_TOKEN);
+            OUT.write('\n');
+        }
+
+        public void close() throws IOException {
+            OUT.flush();
+        }
+    }
+
+    /**
+     * Writes Gaze data: word form, tag and an empty named entity tag 
+     * (<code>O</code>) separated with tabs and <code>##sb</code> after every 
+     * sentence. Like {@link LineConverter#toGaze(String, String)}, the writer 
+     * puts <code>##sb</code> in place of tokens without a tag.
+     */
+    public static class GazeWriter implements TokenWriter {
+
+        private final Writer OUT;
+
+        /**
+         * @param   os  Gaze data <code>OutputStream</code>
+         * @throws IOException 
+         */
+        public GazeWriter(OutputStream os) throws IOException {
+            OUT = newWriter(os);
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            if (tag == null) {
+                OUT.write(ServiceConstants.GAZE_EOS_TOKEN);
+            } else {
+                OUT.write(form);
+                OUT.write('\t');
+                OUT.write(tag);
+                OUT.write("\tO");
+            }
+            OUT.write('\n');
+        }
+
+        public void endSentence() throws IOException {
+            OUT.write(ServiceConstants.GAZE_EOS_TOKEN);
+            OUT.write('\n');
+        }
+
+        public void close() throws IOException {
+            OUT.flush();
+        }
+    }
+
+    /**
+     * Writes CoNLL data. The tag columns are produced by {@link TagDecomposer}
+     * and the HEAD and DEPREL columns are only written for tokens with a 
+     * dependency.
+     */
+    public static class ConllWriter implements TokenWriter {
+
+        private final Writer OUT;
+        private final Conll CONLL;
+        private final StringBuilder LINE;
+        private final TagDecomposer DECOMPOSER;
+        private final boolean UNTAGGED;
+        private int ID = 1;
+
+        /**
+         * @param   os  CoNLL data <code>OutputStream</code>
+         * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+         *                      representation forms (features)
+         * @throws IOException 
+         */
+        public ConllWriter(OutputStream os, Properties conllMap) throws IOException {
+            this(os, conllMap, true);
+        }
+
+        /**
+         * @param   os  CoNLL data <code>OutputStream</code>
+         * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+         *                      representation forms (features)
+         * @param   untagged    whether tokens without a tag are written; if 
+         *                      not, they still take up their ID like in 
+         *                      {@link ClarkConverter#toConll(InputStream, OutputStream, Properties)}
+         * @throws IOException 
+         */
+        public ConllWriter(OutputStream os, Properties conllMap, boolean untagged) throws IOException {
+            OUT = newWriter(os);
+            CONLL = null;
+            LINE = null;
+            DECOMPOSER = TagDecomposer.getInstance(conllMap);
+            UNTAGGED = untagged;
+        }
+
+        /**
+         * Adds the lines to a {@link Conll} object instead of writing them, 
+         * so that the object is built without parsing CoNLL data.
+         * 
+         * @param   conll   {@link Conll} receiving the sentences
+         * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+         *                      representation forms (features)
+         */
+        public ConllWriter(Conll conll, Properties conllMap) {
+            OUT = null;
+            CONLL = conll;
+            LINE = new StringBuilder();
+            DECOMPOSER = TagDecomposer.getInstance(conllMap);
+            UNTAGGED = true;
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            if (tag == null && !UNTAGGED) {
+                ID++;
+                return;
+            }
+            if (CONLL != null) {
+                LINE.setLength(0);
+                appendToken(LINE, form, tag, lemma, head, deprel);
+                CONLL.addLine(LINE.toString());
+            } else {
+                appendToken(OUT, form, tag, lemma, head, deprel);
+                OUT.write('\n');
+            }
+        }
+
+        public void endSentence() throws IOException {
+            if (CONLL != null) {
+                CONLL.closeSentence();
+            } else {
+                OUT.write('\n');
+            }
+            ID = 1;
+        }
+
+        /**
+         * Flushes the output. A sentence left open in a {@link Conll} object 
+         * is closed, as it is when CoNLL data ends without an empty line.
+         */
+        public void close() throws IOException {
+            if (CONLL != null) {
+                if (ID > 1) {
+                    CONLL.closeSentence();
+                    ID = 1;
+                }
+            } else {
+                OUT.flush();
+            }
+        }
+
+        private void appendToken(Appendable out, String form, String tag, String lemma, int head, String deprel) throws IOException {
+            out.append(String.valueOf(ID++));
+            out.append('\t');
+            out.append(form);
+            out.append('\t');
+            out.append((lemma == null) ? "_" : lemma);
+            out.append('\t');
+            out.append((tag == null) ? "_\t_\t_" : DECOMPOSER.getColumns(tag));
+            if (head >= 0) {
+                out.append('\t');
+                out.append(String.valueOf(head));
+                out.append('\t');
+                out.append((deprel == null) ? "_" : deprel);
+            }
+        }
+    }
+
+    /**
+     * Writes CLaRK documents: <code>s</code> elements containing 
+     * <code>tok</code> elements with the tag in the <code>svm</code> attribute 
+     * and the lemma in the <code>lm</code> attribute.
+     */
+    public static class ClarkWriter implements TokenWriter {
+
+        private final ClarkStreamWriter OUT;
+
+        /**
+         * @param   os  CLaRK document <code>OutputStream</code>
+         * @throws IOException 
+         */
+        public ClarkWriter(OutputStream os) throws IOException {
+            OUT = new ClarkStreamWriter(os);
+        }
+
+        /**
+         * @param   doc empty <code>Document</code> receiving the CLaRK elements
+         * @throws IOException 
+         */
+        public ClarkWriter(Document doc) throws IOException {
+            OUT = new ClarkStreamWriter(doc);
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            OUT.writeToken(form, tag, lemma);
+        }
+
+        public void endSentence() throws IOException {
+            OUT.endSentence();
+        }
+
+        public void close() throws IOException {
+            OUT.close();
+        }
+    }
+
+    /**
+     * Collects the tokens into a {@link TokenStore}.
+     */
+    public static class StoreWriter implements TokenWriter {
+
+        private final TokenStore STORE;
+        private int SENTENCE_START = 0;
+
+        /**
+         * @param   store   {@link TokenStore} receiving the tokens
+         */
+        public StoreWriter(TokenStore store) {
+            STORE = store;
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            boolean dependency = head >= 0 && deprel != null && !deprel.equals("_");
+            STORE.addToken(form, tag, lemma, dependency ? head : -1, dependency ? deprel : null);
+        }
+
+        public void endSentence() throws IOException {
+            STORE.endSentence();
+            SENTENCE_START = STORE.getTokenCount();
+        }
+
+        public void close() throws IOException {
+            if (STORE.getTokenCount() > SENTENCE_START) {
+                endSentence();
+            }
+        }
+    }
+
+    /**
+     * Collects the tokens into a {@link TokenStore} and writes it as a 
+     * {@link WebLicht} document with a {@link WebLichtStreamWriter} when the 
+     * writer is closed. The text of the document is restored from the tokens 
+     * the same way {@link org.bultreebank.labpipe.data.Conll#toWebLicht} does 
+     * it.
+     */
+    public static class WebLichtWriter extends StoreWriter {
+
+        private final OutputStream OUT;
+        private final TokenStore STORE;
+
+        /**
+         * @param   os  {@link WebLicht} document <code>OutputStream</code>
+         */
+        public WebLichtWriter(OutputStream os) {
+            this(os, new TokenStore());
+        }
+
+        private WebLichtWriter(OutputStream os, TokenStore store) {
+            super(store);
+            OUT = os;
+            STORE = store;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            WebLichtStreamWriter.write(STORE, OUT);
+            OUT.flush();
+        }
+    }
+
+    /**
+     * Writes binary corpora (see {@link BinaryCorpus}). The sentences are 
+     * encoded as they come and the corpus is written when the writer is 
+     * closed.
+     */
+    public static class BinaryWriter implements TokenWriter {
+
+        private final OutputStream OUT;
+        private final BinaryCorpusWriter CORPUS = new BinaryCorpusWriter();
+
+        /**
+         * @param   os  binary corpus <code>OutputStream</code>
+         */
+        public BinaryWriter(OutputStream os) {
+            OUT = os;
+        }
+
+        public void writeToken(String form, String tag, String lemma, int head, String deprel) throws IOException {
+            boolean dependency = head >= 0 && deprel != null && !deprel.equals("_");
+            CORPUS.addToken(form, tag, lemma, dependency ? head : -1, dependency ? deprel : null);
+        }
+
+        public void endSentence() throws IOException {
+            CORPUS.endSentence();
+        }
+
+        public void close() throws IOException {
+            CORPUS.writeTo(OUT);
+            OUT.flush();
+        }
+    }
+
+    private static Writer newWriter(OutputStream os) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING));
+    }
+}
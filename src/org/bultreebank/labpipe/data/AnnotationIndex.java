@@ -0,0 +1,153 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import de.dspin.data.textcorpus.Dependency;
+import de.dspin.data.textcorpus.Depparsing;
+import de.dspin.data.textcorpus.Lemma;
+import de.dspin.data.textcorpus.Lemmas;
+import de.dspin.data.textcorpus.POStags;
+import de.dspin.data.textcorpus.Tag;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.bultreebank.labpipe.utils.ClassMap;
+
+/**
+ * <code>AnnotationIndex</code> links the tokens of a WebLicht document to the
+ * annotations referencing them: lemmas, POS tags, dependencies and dependency
+ * parses. The index is built with a single pass over the annotation layers and
+ * replaces the linear {@link org.bultreebank.labpipe.utils.DataUtils#getBackRef(List, Object)}
+ * scans in the conversions of whole documents.
+ * 
+ * Tokens are compared by identity, as they are in the references of the 
+ * document. When several annotations reference the same token the first one 
+ * is kept, the same one <code>getBackRef</code> finds. The index is not 
+ * updated when the document changes, so it should be built for every 
+ * conversion.
+ *
+ * @author Aleksandar Savkov
+ */
+public class AnnotationIndex {
+
+    private IdentityHashMap<Object, Lemma> LEMMAS;
+    private IdentityHashMap<Object, Tag> TAGS;
+    private IdentityHashMap<Object, Dependency> DEPENDENCIES;
+    private IdentityHashMap<Object, Depparsing.Parse> PARSES;
+
+    /**
+     * Creates an index of the annotation layers of <code>doc</code>
+     * 
+     * @param   doc WebLicht document
+     */
+    public AnnotationIndex(WebLicht doc) {
+        this(new ClassMap(doc.getTextCorpus().getTextOrTokensOrSentences()));
+    }
+
+    /**
+     * Creates an index of the annotation layers in <code>cm</code>
+     * 
+     * @param   cm  {@link ClassMap} of the text corpus elements
+     */
+    public AnnotationIndex(ClassMap cm) {
+
+        Lemmas lemmas = (Lemmas) cm.get(Lemmas.class);
+        List<Lemma> lemmaList = (lemmas != null) ? lemmas.getLemma() : null;
+        LEMMAS = new IdentityHashMap((lemmaList != null) ? lemmaList.size() : 0);
+        if (lemmaList != null) {
+            for (Lemma lemma : lemmaList) {
+                if (lemma != null && lemma.getTokID() != null && !LEMMAS.containsKey(lemma.getTokID())) {
+                    LEMMAS.put(lemma.getTokID(), lemma);
+                }
+            }
+        }
+
+        POStags tags = (POStags) cm.get(POStags.class);
+        List<Tag> tagList = (tags != null) ? tags.getTag() : null;
+        TAGS = new IdentityHashMap((tagList != null) ? tagList.size() : 0);
+        if (tagList != null) {
+            for (Tag tag : tagList) {
+                if (tag != null && tag.getTokID() != null && !TAGS.containsKey(tag.getTokID())) {
+                    TAGS.put(tag.getTokID(), tag);
+                }
+            }
+        }
+
+        DEPENDENCIES = new IdentityHashMap();
+        PARSES = new IdentityHashMap();
+        Depparsing depparsing = (Depparsing) cm.get(Depparsing.class);
+        if (depparsing != null) {
+            for (Depparsing.Parse parse : depparsing.getParse()) {
+                for (Dependency dep : parse.getDependency()) {
+                    if (dep != null && dep.getDepID() != null && !PARSES.containsKey(dep.getDepID())) {
+                        PARSES.put(dep.getDepID(), parse);
+                        DEPENDENCIES.put(dep.getDepID(), dep);
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Gets the lemma of <code>token</code>
+     * 
+     * @param   token   WebLicht token
+     * 
+     * @return  Lemma   - lemma or <code>null</code>
+     */
+    public Lemma getLemma(Object token) {
+        return LEMMAS.get(token);
+    }
+
+    /**
+     * Gets the POS tag of <code>token</code>
+     * 
+     * @param   token   WebLicht token
+     * 
+     * @return  Tag - POS tag or <code>null</code>
+     */
+    public Tag getTag(Object token) {
+        return TAGS.get(token);
+    }
+
+    /**
+     * Gets the dependency of <code>token</code>
+     * 
+     * @param   token   WebLicht token
+     * 
+     * @return  Dependency  - dependency or <code>null</code>
+     */
+    public Dependency getDependency(Object token) {
+        return DEPENDENCIES.get(token);
+    }
+
+    /**
+     * Gets the dependency parse containing <code>token</code>
+     * 
+     * @param   token   WebLicht token
+     * 
+     * @return  Depparsing.Parse    - parse or <code>null</code>
+     */
+    public Depparsing.Parse getParse(Object token) {
+        return PARSES.get(token);
+    }
+
+}
@@ -0,0 +1,356 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>BinaryCorpus</code> reads the binary annotated corpus format of 
+ * LABPipe. The format keeps the same annotation as a {@link TokenStore} (word 
+ * form, tag, lemma, head and dependency relation of every token), so a 
+ * document stored in it is loaded without parsing any text. Sentences can be 
+ * read in any order, and a corpus stored in a file is mapped in the memory 
+ * rather than read (see {@link #map(File)}).
+ * <p>
+ * Layout (all fixed size numbers are big-endian <code>int</code>s):
+ * <pre>
+ * header      magic "LPBC", version, sentence count, token count, 
+ *             dictionary size, dictionary offset, index offset
+ * sentences   for every sentence the columns of its tokens: forms, tags, 
+ *             lemmas, heads, relations, each value a varint
+ * dictionary  for every string its UTF-8 length as a varint and its bytes
+ * index       for every sentence and once more at the end: the offset of 
+ *             the sentence and the index of its first token
+ * </pre>
+ * Strings are stored as their dictionary index plus one and heads as the head 
+ * plus one, so that <code>0</code> stands for <code>null</code> and for 
+ * tokens without a dependency. The corpus is written by 
+ * {@link BinaryCorpusWriter}.
+ * <p>
+ * As all offsets are <code>int</code>s, a corpus is at most 
+ * {@link #MAX_SIZE} bytes (2 GB) long. Larger documents have to be split into 
+ * several corpora.
+ *
+ * @author Aleksandar Savkov
+ */
+public class BinaryCorpus {
+
+    /**
+     * Magic number at the start of the format ("LPBC")
+     */
+    public static final int MAGIC = 0x4C504243;
+    /**
+     * Version of the format
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 28;
+    /**
+     * Maximum size of a corpus in bytes
+     */
+    public static final long MAX_SIZE = Integer.MAX_VALUE;
+    private static final Charset UTF8 = Charset.forName(ServiceConstants.PIPE_CHARACTER_ENCODING);
+    private final ByteBuffer BUFFER;
+    private final int SENTENCE_COUNT;
+    private final int TOKEN_COUNT;
+    private final int INDEX_OFFSET;
+    private final int DICTIONARY_OFFSET;
+    private final String[] STRINGS;
+    private volatile int[] STRING_OFFSETS = null;
+
+    /**
+     * Opens a corpus stored in <code>buffer</code>, from its position to its 
+     * limit. Only the header is read; the dictionary is scanned when a string 
+     * is first needed and the strings are decoded one by one as they are used.
+     * 
+     * @param   buffer  binary corpus
+     * @throws IOException if the buffer does not contain a binary corpus
+     */
+    public BinaryCorpus(ByteBuffer buffer) throws IOException {
+
+        BUFFER = buffer.slice();
+        if (BUFFER.remaining() < HEADER_SIZE || BUFFER.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary corpus.");
+        }
+        if (BUFFER.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary corpus version: " + BUFFER.getInt(4));
+        }
+
+        SENTENCE_COUNT = BUFFER.getInt(8);
+        TOKEN_COUNT = BUFFER.getInt(12);
+        int dictionarySize = BUFFER.getInt(16);
+        DICTIONARY_OFFSET = BUFFER.getInt(20);
+        INDEX_OFFSET = BUFFER.getInt(24);
+        if (SENTENCE_COUNT < 0 || TOKEN_COUNT < 0 || dictionarySize < 0
+                || DICTIONARY_OFFSET < HEADER_SIZE || DICTIONARY_OFFSET > INDEX_OFFSET
+                || INDEX_OFFSET + 8L * (SENTENCE_COUNT + 1) > BUFFER.limit()) {
+            throw new IOException("Corrupt binary corpus header.");
+        }
+
+        STRINGS = new String[dictionarySize];
+
+    }
+
+    /**
+     * Maps a corpus file in the memory
+     * 
+     * @param   file    binary corpus file
+     * 
+     * @return  BinaryCorpus
+     * @throws IOException 
+     */
+    public static BinaryCorpus map(File file) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            checkSize(channel.size(), file.getPath());
+            return new BinaryCorpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            // The mapping stays valid after the channel is closed
+            raf.close();
+        }
+
+    }
+
+    /**
+     * Reads a corpus from an <code>InputStream</code>. The rest of a file 
+     * stream is mapped in the memory, other streams are read.
+     * 
+     * @param   is  binary corpus <code>InputStream</code>
+     * 
+     * @return  BinaryCorpus
+     * @throws IOException 
+     */
+    public static BinaryCorpus read(InputStream is) throws IOException {
+
+        if (is instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) is).getChannel();
+            long position = channel.position();
+            checkSize(channel.size() - position, "input stream");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+            channel.position(channel.size());
+            return new BinaryCorpus(buffer);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            baos.write(buffer, 0, read);
+            checkSize(baos.size(), "input stream");
+        }
+        return new BinaryCorpus(ByteBuffer.wrap(baos.toByteArray()));
+
+    }
+
+    public int getSentenceCount() {
+        return SENTENCE_COUNT;
+    }
+
+    public int getTokenCount() {
+        return TOKEN_COUNT;
+    }
+
+    /**
+     * Gets the size of the corpus in bytes
+     * 
+     * @return  int
+     */
+    public int getByteSize() {
+        return BUFFER.limit();
+    }
+
+    /**
+     * Gets the number of tokens in sentence <code>s</code>
+     * 
+     * @param   s   sentence index
+     * 
+     * @return  int
+     */
+    public int getSentenceLength(int s) {
+        checkSentence(s);
+        return BUFFER.getInt(INDEX_OFFSET + 8 * (s + 1) + 4) - BUFFER.getInt(INDEX_OFFSET + 8 * s + 4);
+    }
+
+    /**
+     * Appends sentence <code>s</code> to <code>store</code> as a new sentence
+     * 
+     * @param   s   sentence index
+     * @param   store   {@link TokenStore} receiving the tokens
+     */
+    public void readSentence(int s, TokenStore store) {
+
+        int length = getSentenceLength(s);
+        int[] position = {BUFFER.getInt(INDEX_OFFSET + 8 * s)};
+        int[] forms = readColumn(position, length);
+        int[] tags = readColumn(position, length);
+        int[] lemmas = readColumn(position, length);
+        int[] heads = readColumn(position, length);
+        int[] deprels = readColumn(position, length);
+
+        for (int t = 0; t < length; t++) {
+            store.addToken(getString(forms[t]), getString(tags[t]), getString(lemmas[t]), heads[t] - 1, getString(deprels[t]));
+        }
+        store.endSentence();
+
+    }
+
+    /**
+     * Reads the whole corpus into a {@link TokenStore}
+     * 
+     * @return  TokenStore
+     */
+    public TokenStore toTokenStore() {
+
+        TokenStore store = new TokenStore(TOKEN_COUNT);
+        for (int s = 0; s < SENTENCE_COUNT; s++) {
+            readSentence(s, store);
+        }
+        return store;
+
+    }
+
+    /**
+     * Writes the corpus into an <code>OutputStream</code>
+     * 
+     * @param   os  output stream
+     * @throws IOException 
+     */
+    public void writeTo(OutputStream os) throws IOException {
+
+        ByteBuffer buffer = BUFFER.duplicate();
+        buffer.clear();
+        if (buffer.hasArray()) {
+            os.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+            return;
+        }
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            os.write(chunk, 0, length);
+        }
+
+    }
+
+    /*
+     * Gets a dictionary string by its stored code (index plus one).
+     */
+    private String getString(int code) {
+
+        if (code == 0) {
+            return null;
+        }
+        String s = STRINGS[code - 1];
+        if (s == null) {
+            int[] position = {getStringOffsets()[code - 1]};
+            int length = readVarint(position);
+            ByteBuffer bytes = BUFFER.duplicate();
+            bytes.limit(position[0] + length);
+            bytes.position(position[0]);
+            s = UTF8.decode(bytes).toString();
+            STRINGS[code - 1] = s;
+        }
+        return s;
+
+    }
+
+    /*
+     * Gets the offsets of the dictionary strings, scanning the dictionary on 
+     * the first call.
+     */
+    private int[] getStringOffsets() {
+
+        int[] offsets = STRING_OFFSETS;
+        if (offsets == null) {
+            synchronized (this) {
+                offsets = STRING_OFFSETS;
+                if (offsets == null) {
+                    offsets = new int[STRINGS.length];
+                    int[] position = {DICTIONARY_OFFSET};
+                    for (int i = 0; i < offsets.length; i++) {
+                        offsets[i] = position[0];
+                        int length = readVarint(position);
+                        position[0] += length;
+                    }
+                    STRING_OFFSETS = offsets;
+                }
+            }
+        }
+        return offsets;
+
+    }
+
+    private int[] readColumn(int[] position, int length) {
+        int[] column = new int[length];
+        for (int i = 0; i < length; i++) {
+            column[i] = readVarint(position);
+        }
+        return column;
+    }
+
+    /*
+     * Reads an unsigned LEB128 varint at position[0] and moves the position 
+     * after it.
+     */
+    private int readVarint(int[] position) {
+
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = BUFFER.get(position[0]++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+
+    }
+
+    /*
+     * Fails with a clear message for corpora beyond the 2 GB limit.
+     */
+    private static void checkSize(long size, String source) throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException("Binary corpus too large: " + source + " has " + size 
+                    + " bytes, but the format is limited to " + MAX_SIZE + " bytes (2 GB).");
+        }
+    }
+
+    private void checkSentence(int s) {
+        if (s < 0 || s >= SENTENCE_COUNT) {
+            throw new IndexOutOfBoundsException("Sentence: " + s + ", sentences: " + SENTENCE_COUNT);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>BinaryCorpusWriter</code> builds a document in the binary annotated 
+ * corpus format read by {@link BinaryCorpus}. Tokens are added sentence by 
+ * sentence and encoded as they come; the dictionary and the sentence index 
+ * are written after the sentences by {@link #writeTo(OutputStream)}. A 
+ * document may take at most {@link BinaryCorpus#MAX_SIZE} bytes (2 GB) in 
+ * the format.
+ *
+ * @author Aleksandar Savkov
+ */
+public class BinaryCorpusWriter {
+
+    private final HashMap<String, Integer> CODES = new HashMap();
+    private final ByteArrayOutputStream DICTIONARY = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream SENTENCES = new ByteArrayOutputStream();
+    private int DICTIONARY_SIZE = 0;
+    // Columns of the current sentence
+    private int[] FORMS = new int[64];
+    private int[] TAGS = new int[64];
+    private int[] LEMMAS = new int[64];
+    private int[] HEADS = new int[64];
+    private int[] DEPRELS = new int[64];
+    private int LENGTH = 0;
+    // Index: offset and first token of every sentence
+    private int[] OFFSETS = new int[64];
+    private int[] FIRST_TOKENS = new int[64];
+    private int SENTENCE_COUNT = 0;
+    private int TOKEN_COUNT = 0;
+
+    /**
+     * Adds a token to the current sentence.
+     * 
+     * @param   form    word form
+     * @param   tag     tag or <code>null</code>
+     * @param   lemma   lemma or <code>null</code>
+     * @param   head    head index within the sentence, <code>0</code> for the 
+     *                  root or <code>-1</code> if there is no dependency
+     * @param   deprel  dependency relation or <code>null</code>
+     */
+    public void addToken(String form, String tag, String lemma, int head, String deprel) {
+
+        if (LENGTH == FORMS.length) {
+            int capacity = FORMS.length * 2;
+            FORMS = copy(FORMS, capacity);
+            TAGS = copy(TAGS, capacity);
+            LEMMAS = copy(LEMMAS, capacity);
+            HEADS = copy(HEADS, capacity);
+            DEPRELS = copy(DEPRELS, capacity);
+        }
+
+        FORMS[LENGTH] = code(form);
+        TAGS[LENGTH] = code(tag);
+        LEMMAS[LENGTH] = code(lemma);
+        HEADS[LENGTH] = Math.max(head, -1) + 1;
+        DEPRELS[LENGTH] = code(deprel);
+        LENGTH++;
+
+    }
+
+    /**
+     * Closes the current sentence. Sentences without tokens are kept.
+     * 
+     * @throws IllegalStateException if the sentences exceed the size limit 
+     *                  of the format
+     */
+    public void endSentence() {
+
+        if (BinaryCorpus.HEADER_SIZE + (long) SENTENCES.size() > BinaryCorpus.MAX_SIZE) {
+            throw new IllegalStateException(tooLarge(BinaryCorpus.HEADER_SIZE + (long) SENTENCES.size()));
+        }
+        if (SENTENCE_COUNT == OFFSETS.length) {
+            OFFSETS = copy(OFFSETS, OFFSETS.length * 2);
+            FIRST_TOKENS = copy(FIRST_TOKENS, FIRST_TOKENS.length * 2);
+        }
+        OFFSETS[SENTENCE_COUNT] = BinaryCorpus.HEADER_SIZE + SENTENCES.size();
+        FIRST_TOKENS[SENTENCE_COUNT] = TOKEN_COUNT;
+        SENTENCE_COUNT++;
+
+        writeColumn(FORMS);
+        writeColumn(TAGS);
+        writeColumn(LEMMAS);
+        writeColumn(HEADS);
+        writeColumn(DEPRELS);
+
+        TOKEN_COUNT += LENGTH;
+        LENGTH = 0;
+
+    }
+
+    /**
+     * Adds all sentences of a {@link TokenStore}
+     * 
+     * @param   store   token store
+     */
+    public void add(TokenStore store) {
+
+        for (int s = 0; s < store.getSentenceCount(); s++) {
+            for (int t = store.getSentenceStart(s); t < store.getSentenceEnd(s); t++) {
+                addToken(store.getForm(t), store.getTag(t), store.getLemma(t), store.getHead(t), store.getDeprel(t));
+            }
+            endSentence();
+        }
+
+    }
+
+    public int getSentenceCount() {
+        return SENTENCE_COUNT;
+    }
+
+    public int getTokenCount() {
+        return TOKEN_COUNT;
+    }
+
+    /**
+     * Writes the corpus into an <code>OutputStream</code>. A sentence which is
+     * not closed yet is closed first. The stream is not closed.
+     * 
+     * @param   os  output stream
+     * @throws IOException 
+     */
+    public void writeTo(OutputStream os) throws IOException {
+
+        if (LENGTH > 0) {
+            endSentence();
+        }
+
+        long dictionaryOffset = (long) BinaryCorpus.HEADER_SIZE + SENTENCES.size();
+        long indexOffset = dictionaryOffset + DICTIONARY.size();
+        if (indexOffset + 8L * (SENTENCE_COUNT + 1) > BinaryCorpus.MAX_SIZE) {
+            throw new IOException(tooLarge(indexOffset + 8L * (SENTENCE_COUNT + 1)));
+        }
+
+        DataOutputStream dos = new DataOutputStream(os);
+        dos.writeInt(BinaryCorpus.MAGIC);
+        dos.writeInt(BinaryCorpus.VERSION);
+        dos.writeInt(SENTENCE_COUNT);
+        dos.writeInt(TOKEN_COUNT);
+        dos.writeInt(DICTIONARY_SIZE);
+        dos.writeInt((int) dictionaryOffset);
+        dos.writeInt((int) indexOffset);
+        SENTENCES.writeTo(dos);
+        DICTIONARY.writeTo(dos);
+        for (int s = 0; s < SENTENCE_COUNT; s++) {
+            dos.writeInt(OFFSETS[s]);
+            dos.writeInt(FIRST_TOKENS[s]);
+        }
+        dos.writeInt((int) dictionaryOffset);
+        dos.writeInt(TOKEN_COUNT);
+        dos.flush();
+
+    }
+
+    /**
+     * Builds a {@link BinaryCorpus} in the memory
+     * 
+     * @return  BinaryCorpus
+     * @throws IOException 
+     */
+    public BinaryCorpus toCorpus() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(BinaryCorpus.HEADER_SIZE + SENTENCES.size() + DICTIONARY.size() + 8 * (SENTENCE_COUNT + 1));
+        writeTo(baos);
+        return new BinaryCorpus(ByteBuffer.wrap(baos.toByteArray()));
+    }
+
+    /*
+     * Gets the stored code of a string (dictionary index plus one, 0 for 
+     * null), adding the string to the dictionary if it is new.
+     */
+    private int code(String s) {
+
+        if (s == null) {
+            return 0;
+        }
+        Integer code = CODES.get(s);
+        if (code == null) {
+            byte[] bytes;
+            try {
+                bytes = s.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+            } catch (UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);
+            }
+            writeVarint(DICTIONARY, bytes.length);
+            DICTIONARY.write(bytes, 0, bytes.length);
+            code = ++DICTIONARY_SIZE;
+            CODES.put(s, code);
+        }
+        return code;
+
+    }
+
+    private static String tooLarge(long size) {
+        return "Document too large for the binary corpus format: " + size 
+                + " bytes, but the format is limited to " + BinaryCorpus.MAX_SIZE + " bytes (2 GB).";
+    }
+
+    private void writeColumn(int[] column) {
+        for (int i = 0; i < LENGTH; i++) {
+            writeVarint(SENTENCES, column[i]);
+        }
+    }
+
+    /*
+     * Writes an unsigned LEB128 varint.
+     */
+    private static void writeVarint(ByteArrayOutputStream os, int value) {
+        while ((value & ~0x7F) != 0) {
+            os.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        os.write(value);
+    }
+
+    private static int[] copy(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, capacity));
+        return copy;
+    }
+}
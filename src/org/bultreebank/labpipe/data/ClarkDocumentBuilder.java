@@ -43,15 +43,21 @@ public class ClarkDocumentBuilder {
 
     private static final Logger logger = Logger.getLogger(ClarkDocumentBuilder.class.getName());
     private static DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    private static DocumentBuilder db;
+    /* DocumentBuilder is not thread-safe, hence each thread keeps its own */
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+
+        @Override
+        protected DocumentBuilder initialValue() {
+            return iniDocFactory();
+        }
+    };
 
     /**
      * Builds an empty org.xml.dom.Document object.
      * @return Document
      */
     public static Document buildClarkDocument() {
-        iniDocFactory();
-        return db.newDocument();
+        return DOCUMENT_BUILDER.get().newDocument();
     }
 
     /**
@@ -69,8 +75,7 @@ public class ClarkDocumentBuilder {
         }
         
         try {
-            iniDocFactory();
-            return db.parse(new ByteArrayInputStream(doc.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING)));
+            return DOCUMENT_BUILDER.get().parse(new ByteArrayInputStream(doc.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING)));
         } catch (SAXException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_SAX_PARSER, ex);
         } catch (IOException ex) {
@@ -89,8 +94,7 @@ public class ClarkDocumentBuilder {
      */
     public static Document buildClarkDocument(InputStream is) {
         try {
-            iniDocFactory();
-            return db.parse(is);
+            return DOCUMENT_BUILDER.get().parse(is);
         } catch (SAXException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_SAX_PARSER, ex);
         } catch (IOException ex) {
@@ -105,18 +109,22 @@ public class ClarkDocumentBuilder {
      * 
      * Initializes <code>DocumentBuilder</code>
      * 
+     * @return  DocumentBuilder
      */
-    private static void iniDocFactory() {
-        try {
-            dbf.setValidating(false);
-            dbf.setFeature("http://xml.org/sax/features/namespaces", false);
-            dbf.setFeature("http://xml.org/sax/features/validation", false);
-            dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-            dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-            db = dbf.newDocumentBuilder();
-        } catch (ParserConfigurationException ex) {
-            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_PARSER_CONFIGURATION, ex);
+    private static DocumentBuilder iniDocFactory() {
+        synchronized (dbf) {
+            try {
+                dbf.setValidating(false);
+                dbf.setFeature("http://xml.org/sax/features/namespaces", false);
+                dbf.setFeature("http://xml.org/sax/features/validation", false);
+                dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
+                dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+                return dbf.newDocumentBuilder();
+            } catch (ParserConfigurationException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_PARSER_CONFIGURATION, ex);
+            }
         }
+        return null;
     }
     
     
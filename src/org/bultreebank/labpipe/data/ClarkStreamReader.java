@@ -0,0 +1,239 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>ClarkStreamReader</code> reads the sentences (<code>s</code>) and 
+ * tokens (<code>tok</code>) of a CLaRK document one sentence at a time 
+ * without building a DOM. Only the current sentence is kept in memory and its 
+ * buffers are reused for the next one, so the memory needed does not depend on 
+ * the size of the document.
+ * 
+ * The reader exposes the same information the DOM based conversions use: the 
+ * text content of a token with spaces replaced by underscores, its tag 
+ * (<code>ana</code>, otherwise <code>svm</code>) and its lemma 
+ * (<code>lm</code>). Tokens outside sentences are ignored.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ClarkStreamReader {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+    
+    private final XMLStreamReader READER;
+    private final StringBuilder TEXT = new StringBuilder();
+    private String[] FORMS = new String[100];
+    private String[] TAGS = new String[100];
+    private String[] LEMMAS = new String[100];
+    private int TOKEN_COUNT = 0;
+
+    /**
+     * @param   is  <code>InputStream</code> reading a CLaRK document
+     * @throws IOException 
+     */
+    public ClarkStreamReader(InputStream is) throws IOException {
+        try {
+            READER = FACTORY.createXMLStreamReader(is);
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    /**
+     * Reads the next sentence of the document.
+     * 
+     * @return  <code>true</code> if a sentence was read, <code>false</code> at 
+     *          the end of the document
+     * @throws IOException 
+     */
+    public boolean nextSentence() throws IOException {
+
+        TOKEN_COUNT = 0;
+
+        try {
+            while (READER.hasNext()) {
+                if (READER.next() == XMLStreamConstants.START_ELEMENT && READER.getLocalName().equals("s")) {
+                    readSentence();
+                    return true;
+                }
+            }
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Reads the tokens of the current sentence up to its end tag. Tokens 
+     * nested deeper in the sentence are read as well.
+     */
+    private void readSentence() throws XMLStreamException {
+
+        int depth = 1;
+
+        while (depth > 0) {
+            switch (READER.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (READER.getLocalName().equals("tok")) {
+                        readToken();
+                    } else {
+                        depth++;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    return;
+            }
+        }
+
+    }
+
+    /**
+     * Reads a token from its start tag up to its end tag.
+     */
+    private void readToken() throws XMLStreamException {
+
+        if (TOKEN_COUNT == FORMS.length) {
+            FORMS = grow(FORMS);
+            TAGS = grow(TAGS);
+            LEMMAS = grow(LEMMAS);
+        }
+
+        String tag = READER.getAttributeValue(null, "ana");
+        if (tag == null) {
+            tag = READER.getAttributeValue(null, "svm");
+        }
+        String lemma = READER.getAttributeValue(null, "lm");
+
+        TEXT.setLength(0);
+        int depth = 1;
+        while (depth > 0) {
+            switch (READER.next()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    TEXT.append(READER.getTextCharacters(), READER.getTextStart(), READER.getTextLength());
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    depth = 0;
+                    break;
+            }
+        }
+
+        FORMS[TOKEN_COUNT] = TEXT.toString().replace(' ', '_');
+        TAGS[TOKEN_COUNT] = tag;
+        LEMMAS[TOKEN_COUNT] = (lemma == null) ? null : lemma.replace(' ', '_');
+        TOKEN_COUNT++;
+
+    }
+
+    /**
+     * Returns the number of tokens in the current sentence.
+     * 
+     * @return  int
+     */
+    public int getTokenCount() {
+        return TOKEN_COUNT;
+    }
+
+    /**
+     * Returns the word form of a token in the current sentence.
+     * 
+     * @param   token   token index in the sentence
+     * @return  String
+     */
+    public String getForm(int token) {
+        return FORMS[token];
+    }
+
+    /**
+     * Returns the tag of a token in the current sentence, or 
+     * <code>null</code> if the token has no tag.
+     * 
+     * @param   token   token index in the sentence
+     * @return  String
+     */
+    public String getTag(int token) {
+        return TAGS[token];
+    }
+
+    /**
+     * Returns the lemma of a token in the current sentence, or 
+     * <code>null</code> if the token has no lemma.
+     * 
+     * @param   token   token index in the sentence
+     * @return  String
+     */
+    public String getLemma(int token) {
+        return LEMMAS[token];
+    }
+
+    /**
+     * Releases the underlying XML reader. The <code>InputStream</code> is 
+     * not closed.
+     * 
+     * @throws IOException 
+     */
+    public void close() throws IOException {
+        try {
+            READER.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    private static String[] grow(String[] array) {
+        String[] grown = new String[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Creates the factory shared by all readers. Like the DOM builder, the 
+     * factory neither validates nor loads external DTDs.
+     */
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.w3c.dom.Document;
+
+/**
+ * <code>ClarkStreamWriter</code> writes a CLaRK document token by token 
+ * without building a DOM. The output has the same layout as the one produced 
+ * by {@link Conll#toClark(java.io.OutputStream, java.util.Properties)}: a 
+ * <code>root</code> element containing <code>s</code> elements with one 
+ * <code>tok</code> element per token. Text and attribute values are escaped. 
+ * The elements can also be added straight to a DOM document instead.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ClarkStreamWriter {
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+    
+    private final XMLStreamWriter WRITER;
+    private final Document DOCUMENT;
+    private boolean SENTENCE_OPEN = false;
+
+    /**
+     * Writes the XML declaration and the start of the <code>root</code> 
+     * element.
+     * 
+     * @param   os  CLaRK document <code>OutputStream</code>
+     * @throws IOException 
+     */
+    public ClarkStreamWriter(OutputStream os) throws IOException {
+        try {
+            DOCUMENT = null;
+            WRITER = FACTORY.createXMLStreamWriter(new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING)));
+            WRITER.writeStartDocument(ServiceConstants.PIPE_CHARACTER_ENCODING, "1.0");
+            WRITER.writeCharacters("\n");
+            WRITER.writeStartElement("root");
+            WRITER.writeCharacters("\n");
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    /**
+     * Builds the elements in <code>doc</code> instead of writing them, 
+     * starting with the <code>root</code> element.
+     * 
+     * @param   doc empty CLaRK <code>Document</code>
+     * @throws IOException 
+     */
+    public ClarkStreamWriter(Document doc) throws IOException {
+        try {
+            DOCUMENT = doc;
+            WRITER = FACTORY.createXMLStreamWriter(new DOMResult(doc));
+            WRITER.writeStartElement("root");
+            WRITER.writeCharacters("\n");
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    /**
+     * Writes a token into the current sentence, opening a new sentence if 
+     * necessary. Tags and lemmas which are <code>null</code> or 
+     * <code>_</code> are omitted.
+     * 
+     * @param   form    word form
+     * @param   tag     BTB tag, written as <code>svm</code> attribute
+     * @param   lemma   lemma, written as <code>lm</code> attribute
+     * @throws IOException 
+     */
+    public void writeToken(String form, String tag, String lemma) throws IOException {
+        try {
+            if (!SENTENCE_OPEN) {
+                startSentence();
+            }
+            WRITER.writeCharacters("\t\t");
+            WRITER.writeStartElement("tok");
+            if (lemma != null && !lemma.equals("_")) {
+                WRITER.writeAttribute("lm", lemma);
+            }
+            if (tag != null && !tag.equals("_")) {
+                WRITER.writeAttribute("svm", tag);
+            }
+            if (form != null) {
+                WRITER.writeCharacters(form);
+            }
+            WRITER.writeEndElement();
+            WRITER.writeCharacters("\n");
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    /**
+     * Closes the current sentence. An empty sentence is written if no token 
+     * was written since the last one.
+     * 
+     * @throws IOException 
+     */
+    public void endSentence() throws IOException {
+        try {
+            if (!SENTENCE_OPEN) {
+                startSentence();
+            }
+            WRITER.writeCharacters("\t");
+            WRITER.writeEndElement();
+            WRITER.writeCharacters("\n");
+            SENTENCE_OPEN = false;
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+    }
+
+    /**
+     * Closes any open sentence and the <code>root</code> element and flushes 
+     * the output. The <code>OutputStream</code> is not closed. The whitespace 
+     * of a DOM document is joined into single text nodes, as in a parsed one.
+     * 
+     * @throws IOException 
+     */
+    public void close() throws IOException {
+        if (SENTENCE_OPEN) {
+            endSentence();
+        }
+        try {
+            WRITER.writeEndElement();
+            WRITER.writeEndDocument();
+            WRITER.flush();
+            WRITER.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+        if (DOCUMENT != null) {
+            DOCUMENT.normalize();
+        }
+    }
+
+    private void startSentence() throws XMLStreamException {
+        WRITER.writeCharacters("\t");
+        WRITER.writeStartElement("s");
+        WRITER.writeCharacters("\n");
+        SENTENCE_OPEN = true;
+    }
+}
@@ -43,26 +43,40 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.RandomAccess;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
 import org.bultreebank.labpipe.utils.DataUtils;
 import org.bultreebank.labpipe.utils.ServiceConstants;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
- * <code>Conll</code> represents the CoNLL data format used in LABPipe. It extends 
- * ArrayList&lt;ArrayList&lt;String&gt;&gt; placing each sentence in a separate 
- * ArrayList&lt;String&gt; object each token (and its properties) being an item 
- * in it.
+ * <code>Conll</code> represents the CoNLL data format used in LABPipe. It is a 
+ * list of sentences, each sentence being an ArrayList&lt;String&gt; object 
+ * with each token (and its properties) as an item in it.
+ * <p>
+ * The tokens are not kept as lines, but in columns: the ID and HEAD columns 
+ * are stored as <code>int</code> arrays and the rest of the columns as codes 
+ * in a dictionary of the distinct values in the document. Lines that cannot 
+ * be represented in this way (e.g. lines with non-numeric IDs or more than ten 
+ * columns) are kept as they are. The sentences returned by {@link #get(int)} 
+ * are built on request, so changing them does not change the document and 
+ * sentences should be complete when they are added. Converters should use the 
+ * column accessors ({@link #getColumn(int, int)}, {@link #getId(int)}, 
+ * {@link #getHead(int)}) instead.
  *
  * @author Aleksandar Savkov
  */
-public class Conll extends ArrayList<ArrayList<String>> {
+public class Conll extends AbstractList<ArrayList<String>> implements RandomAccess {
 
     private static final Logger logger = Logger.getLogger(Conll.class.getName());
     /**
@@ -112,6 +126,32 @@ public class Conll extends ArrayList<ArrayList<String>> {
      * Token BTB full-tag index used in <code>Map</code> objects produced by {@link DataUtils#conllLineAsMap}
      */
     public static final int TOKEN_FULLTAG = 10;
+    
+    /*
+     * Number of columns in a CoNLL line
+     */
+    private static final int COLUMN_COUNT = 10;
+    
+    /*
+     * Values of the HEAD column which are not numbers
+     */
+    private static final int HEAD_UNDERSCORE = -1;
+    private static final int HEAD_EMPTY = -2;
+    
+    private int SENTENCE_COUNT = 0;
+    // SENTENCES[i] is the first token of sentence i
+    private int[] SENTENCES = new int[16];
+    private int TOKEN_COUNT = 0;
+    private int TOKEN_CAPACITY = 0;
+    // Number of columns of each token (0 for raw lines)
+    private byte[] WIDTHS = new byte[0];
+    private int[][] COLUMNS = new int[COLUMN_COUNT][];
+    private HashMap<Integer, String> RAW = new HashMap();
+    private String[] VALUES = new String[64];
+    private int VALUE_COUNT = 0;
+    // Open addressing table of dictionary codes (code + 1, 0 for free slots)
+    private int[] SLOTS = new int[128];
+    private final ConllTokenReader READER = new ConllTokenReader();
 
     /**
      * Creates empty <code>Conll</code> object.
@@ -153,28 +193,22 @@ public class Conll extends ArrayList<ArrayList<String>> {
     private void loadConll(InputStream is) {
         try {
             BufferedReader br = new BufferedReader(new InputStreamReader(is, ServiceConstants.PIPE_CHARACTER_ENCODING));
-            ArrayList<String> sentence = new ArrayList(100);
 
             String line;
-            int id = 1;
 
             while ((line = br.readLine()) != null) {
 
-                if (!line.matches("^[0-9]+.+")) {
-                    this.add(sentence);
-                    sentence = new ArrayList(100);
-                    id = 1;
+                // same as line.matches("^[0-9]+.+")
+                if (line.length() < 2 || !Character.isDigit(line.charAt(0))) {
+                    this.closeSentence();
                 } else {
-                    sentence.add(line);
-                    id++;
+                    this.addLine(line);
                 }
 
             }
 
-            sentence.trimToSize();
-
-            if (sentence.size() > 0) {
-                this.add(sentence);
+            if (TOKEN_COUNT > SENTENCES[SENTENCE_COUNT]) {
+                this.closeSentence();
             }
 
         } catch (IOException ex) {
@@ -182,6 +216,514 @@ public class Conll extends ArrayList<ArrayList<String>> {
         }
     }
 
+    /**
+     * Gets the number of sentences in this object.
+     * 
+     * @return  int
+     */
+    @Override
+    public int size() {
+        return SENTENCE_COUNT;
+    }
+
+    /**
+     * Builds the CoNLL lines of a sentence. Changes in the returned 
+     * <code>ArrayList</code> are not reflected in this object.
+     * 
+     * @param   index   sentence index
+     * 
+     * @return  ArrayList&lt;String&gt;
+     */
+    @Override
+    public ArrayList<String> get(int index) {
+
+        checkSentence(index);
+
+        int start = SENTENCES[index];
+        int end = SENTENCES[index + 1];
+        ArrayList<String> sentence = new ArrayList(end - start);
+        StringBuilder line = new StringBuilder();
+
+        for (int t = start; t < end; t++) {
+            line.setLength(0);
+            appendLine(line, t);
+            sentence.add(line.toString());
+        }
+
+        return sentence;
+
+    }
+
+    /**
+     * Appends a sentence to this object. Sentences can only be added at the 
+     * end of the document.
+     * 
+     * @param   index   sentence index (must be equal to {@link #size()})
+     * @param   sentence    CoNLL lines of the sentence
+     */
+    @Override
+    public void add(int index, ArrayList<String> sentence) {
+
+        if (index != SENTENCE_COUNT) {
+            throw new UnsupportedOperationException("Sentences can only be added at the end of a Conll object.");
+        }
+
+        ensureTokenCapacity(TOKEN_COUNT + sentence.size());
+        for (String line : sentence) {
+            addLine(line);
+        }
+        closeSentence();
+
+    }
+
+    /**
+     * Removes all sentences from this object.
+     */
+    @Override
+    public void clear() {
+        SENTENCE_COUNT = 0;
+        SENTENCES[0] = 0;
+        TOKEN_COUNT = 0;
+        RAW.clear();
+        Arrays.fill(VALUES, 0, VALUE_COUNT, null);
+        VALUE_COUNT = 0;
+        Arrays.fill(SLOTS, 0);
+        modCount++;
+    }
+
+    /**
+     * Trims the capacity of the internal arrays to the current size of the 
+     * document.
+     */
+    public void trimToSize() {
+
+        SENTENCES = Arrays.copyOf(SENTENCES, SENTENCE_COUNT + 1);
+        WIDTHS = Arrays.copyOf(WIDTHS, TOKEN_COUNT);
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            if (COLUMNS[c] != null) {
+                COLUMNS[c] = Arrays.copyOf(COLUMNS[c], TOKEN_COUNT);
+            }
+        }
+        TOKEN_CAPACITY = TOKEN_COUNT;
+        VALUES = Arrays.copyOf(VALUES, Math.max(VALUE_COUNT, 1));
+
+    }
+
+    /**
+     * Gets the number of tokens in this object.
+     * 
+     * @return  int
+     */
+    public int getTokenCount() {
+        return TOKEN_COUNT;
+    }
+
+    /**
+     * Gets the index of the first token of a sentence.
+     * 
+     * @param   sentence    sentence index
+     * 
+     * @return  int
+     */
+    public int getSentenceStart(int sentence) {
+        checkSentence(sentence);
+        return SENTENCES[sentence];
+    }
+
+    /**
+     * Gets the index following the last token of a sentence.
+     * 
+     * @param   sentence    sentence index
+     * 
+     * @return  int
+     */
+    public int getSentenceEnd(int sentence) {
+        checkSentence(sentence);
+        return SENTENCES[sentence + 1];
+    }
+
+    /**
+     * Gets a column value of a token. Missing and empty columns are returned 
+     * as <code>null</code>.
+     * 
+     * @param   token   token index in the document (see {@link #getSentenceStart(int)})
+     * @param   column  column index (<code>TOKEN_INDEX</code> to <code>TOKEN_PDEPREL</code>)
+     * 
+     * @return  String
+     */
+    public String getColumn(int token, int column) {
+
+        checkToken(token);
+
+        int width = WIDTHS[token];
+
+        if (width == 0) {
+            ConllTokenReader reader = new ConllTokenReader().reset(RAW.get(token));
+            if (column >= reader.getColumnCount() || reader.getEnd(column) == reader.getStart(column)) {
+                return null;
+            }
+            return reader.getString(column);
+        }
+
+        if (column >= width) {
+            return null;
+        }
+
+        int value = COLUMNS[column][token];
+
+        if (column == TOKEN_INDEX) {
+            return String.valueOf(value);
+        } else if (column == TOKEN_HEAD) {
+            if (value == HEAD_UNDERSCORE) {
+                return "_";
+            }
+            return (value == HEAD_EMPTY) ? null : String.valueOf(value);
+        }
+
+        return (VALUES[value].length() > 0) ? VALUES[value] : null;
+
+    }
+
+    /**
+     * Gets the ID of a token.
+     * 
+     * @param   token   token index in the document
+     * 
+     * @return  int
+     * @throws NumberFormatException    if the ID is not a number
+     */
+    public int getId(int token) {
+
+        checkToken(token);
+
+        if (WIDTHS[token] > 0) {
+            return COLUMNS[TOKEN_INDEX][token];
+        }
+
+        return Integer.parseInt(getColumn(token, TOKEN_INDEX));
+
+    }
+
+    /**
+     * Gets the dependency head of a token.
+     * 
+     * @param   token   token index in the document
+     * 
+     * @return  int - head ID or -1 if the token has no numeric head
+     */
+    public int getHead(int token) {
+
+        checkToken(token);
+
+        int width = WIDTHS[token];
+
+        if (width > TOKEN_HEAD) {
+            return Math.max(COLUMNS[TOKEN_HEAD][token], -1);
+        } else if (width > 0) {
+            return -1;
+        }
+
+        try {
+            String head = getColumn(token, TOKEN_HEAD);
+            return (head == null) ? -1 : Integer.parseInt(head);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+
+    }
+
+    /**
+     * Gets the original BTB tag of a token.
+     * 
+     * @param   token   token index in the document
+     * @param   iConllMap   <code>Map</code> containing back connections between
+     *                      POS tags in CoNLL representation and their original 
+     *                      BTB forms.
+     * 
+     * @return  String
+     */
+    public String getFullTag(int token, Properties iConllMap) {
+        return getFullTag(token, ConllTagIndex.getInstance(iConllMap));
+    }
+
+    /**
+     * Gets the original BTB tag of a token.
+     * 
+     * @param   token   token index in the document
+     * @param   index   index of the inverted CoNLL map
+     * 
+     * @return  String
+     */
+    public String getFullTag(int token, ConllTagIndex index) {
+        return index.getFullTag(getColumn(token, TOKEN_POSTAG), getColumn(token, TOKEN_FEATS));
+    }
+
+    /**
+     * Gets the original BTB tag of a token like 
+     * {@link #getFullTag(int, ConllTagIndex)}, failing if the tag cannot be 
+     * mapped.
+     * 
+     * @param   token   token index in the document
+     * @param   index   index of the inverted CoNLL map
+     * 
+     * @return  String
+     * @throws IncorrectInputException if the tag is missing from the CoNLL map
+     */
+    public String getMappedTag(int token, ConllTagIndex index) throws IncorrectInputException {
+
+        String tag = getFullTag(token, index);
+
+        if (tag == null) {
+            String message = "The CoNLL tag of the line cannot be mapped to a BTB tag: " + getLine(token);
+            logger.log(Level.SEVERE, message);
+            throw new IncorrectInputException(message);
+        }
+
+        return tag;
+
+    }
+
+    /**
+     * Gets the CoNLL line of a token.
+     * 
+     * @param   token   token index in the document
+     * 
+     * @return  String
+     */
+    public String getLine(int token) {
+
+        checkToken(token);
+
+        StringBuilder line = new StringBuilder();
+        appendLine(line, token);
+
+        return line.toString();
+
+    }
+
+    /*
+     * Appends the CoNLL line of a token to the StringBuilder.
+     */
+    private void appendLine(StringBuilder sb, int token) {
+
+        int width = WIDTHS[token];
+
+        if (width == 0) {
+            sb.append(RAW.get(token));
+            return;
+        }
+
+        for (int c = 0; c < width; c++) {
+            if (c > 0) {
+                sb.append('\t');
+            }
+            int value = COLUMNS[c][token];
+            if (c == TOKEN_INDEX) {
+                sb.append(value);
+            } else if (c == TOKEN_HEAD) {
+                if (value >= 0) {
+                    sb.append(value);
+                } else if (value == HEAD_UNDERSCORE) {
+                    sb.append('_');
+                }
+            } else {
+                sb.append(VALUES[value]);
+            }
+        }
+
+    }
+
+    /**
+     * Adds a CoNLL token line to the current sentence, which is kept open 
+     * until {@link #closeSentence()} is called. This lets converters fill 
+     * the object token by token.
+     * 
+     * @param   line    CoNLL line without the line break
+     */
+    public void addLine(String line) {
+
+        int token = TOKEN_COUNT;
+        ensureTokenCapacity(token + 1);
+
+        ConllTokenReader reader = READER.reset(line);
+        int width = reader.getFieldCount();
+        boolean columnar = reader.getSeparator() == '\t' && width <= COLUMN_COUNT;
+
+        for (int c = 0; columnar && c < width; c++) {
+
+            int start = reader.getStart(c);
+            int end = reader.getEnd(c);
+
+            if (c == TOKEN_INDEX) {
+                int id = parseNumber(line, start, end);
+                columnar = id >= 0;
+                column(TOKEN_INDEX)[token] = id;
+            } else if (c == TOKEN_HEAD) {
+                int head;
+                if (end == start) {
+                    head = HEAD_EMPTY;
+                } else if (end - start == 1 && line.charAt(start) == '_') {
+                    head = HEAD_UNDERSCORE;
+                } else {
+                    head = parseNumber(line, start, end);
+                    columnar = head >= 0;
+                }
+                column(TOKEN_HEAD)[token] = head;
+            } else {
+                column(c)[token] = code(line, start, end);
+            }
+
+        }
+
+        if (columnar) {
+            WIDTHS[token] = (byte) width;
+        } else {
+            WIDTHS[token] = 0;
+            RAW.put(token, line);
+        }
+
+        TOKEN_COUNT++;
+
+    }
+
+    /**
+     * Closes the current sentence. An empty sentence is added if no line was 
+     * added since the last one, as for an empty line in CoNLL data.
+     */
+    public void closeSentence() {
+
+        SENTENCE_COUNT++;
+        if (SENTENCE_COUNT + 1 > SENTENCES.length) {
+            SENTENCES = Arrays.copyOf(SENTENCES, SENTENCES.length * 2);
+        }
+        SENTENCES[SENTENCE_COUNT] = TOKEN_COUNT;
+        modCount++;
+
+    }
+
+    /*
+     * Parses a non-negative number written without leading zeros. Returns -1 
+     * if the characters cannot be restored from the number.
+     */
+    private static int parseNumber(String s, int start, int end) {
+
+        if (end == start || end - start > 9 || (s.charAt(start) == '0' && end - start > 1)) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+
+    }
+
+    /*
+     * Gets the dictionary code of a part of a line. A new String is only 
+     * created for values which are not in the dictionary yet.
+     */
+    private int code(String line, int start, int end) {
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+
+        int mask = SLOTS.length - 1;
+        int slot = mix(hash) & mask;
+
+        while (SLOTS[slot] != 0) {
+            String value = VALUES[SLOTS[slot] - 1];
+            if (value.length() == end - start && line.regionMatches(start, value, 0, end - start)) {
+                return SLOTS[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (VALUE_COUNT == VALUES.length) {
+            VALUES = Arrays.copyOf(VALUES, VALUES.length * 2);
+        }
+        int code = VALUE_COUNT++;
+        VALUES[code] = line.substring(start, end);
+        SLOTS[slot] = code + 1;
+
+        if (VALUE_COUNT * 2 > SLOTS.length) {
+            rehash();
+        }
+
+        return code;
+
+    }
+
+    /*
+     * Doubles the dictionary table.
+     */
+    private void rehash() {
+
+        SLOTS = new int[SLOTS.length * 2];
+        int mask = SLOTS.length - 1;
+
+        for (int code = 0; code < VALUE_COUNT; code++) {
+            int slot = mix(VALUES[code].hashCode()) & mask;
+            while (SLOTS[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            SLOTS[slot] = code + 1;
+        }
+
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * Gets a column array, allocating it on first use.
+     */
+    private int[] column(int column) {
+        if (COLUMNS[column] == null) {
+            COLUMNS[column] = new int[TOKEN_CAPACITY];
+        }
+        return COLUMNS[column];
+    }
+
+    /*
+     * Grows the token arrays to fit at least the given number of tokens.
+     */
+    private void ensureTokenCapacity(int capacity) {
+
+        if (capacity <= TOKEN_CAPACITY) {
+            return;
+        }
+
+        TOKEN_CAPACITY = Math.max(capacity, TOKEN_CAPACITY + (TOKEN_CAPACITY >> 1) + 16);
+        WIDTHS = Arrays.copyOf(WIDTHS, TOKEN_CAPACITY);
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            if (COLUMNS[c] != null) {
+                COLUMNS[c] = Arrays.copyOf(COLUMNS[c], TOKEN_CAPACITY);
+            }
+        }
+
+    }
+
+    private void checkSentence(int sentence) {
+        if (sentence < 0 || sentence >= SENTENCE_COUNT) {
+            throw new IndexOutOfBoundsException("Sentence: " + sentence + ", Size: " + SENTENCE_COUNT);
+        }
+    }
+
+    private void checkToken(int token) {
+        if (token < 0 || token >= TOKEN_COUNT) {
+            throw new IndexOutOfBoundsException("Token: " + token + ", Tokens: " + TOKEN_COUNT);
+        }
+    }
+
     /**
      * Converts this object into a <code>String</code> using the CoNLL data encoding format.
      * 
@@ -190,9 +732,9 @@ public class Conll extends ArrayList<ArrayList<String>> {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (ArrayList<String> s : this) {
-            for (String l : s) {
-                sb.append(l);
+        for (int s = 0; s < SENTENCE_COUNT; s++) {
+            for (int t = SENTENCES[s]; t < SENTENCES[s + 1]; t++) {
+                appendLine(sb, t);
                 sb.append("\n");
             }
             sb.append("\n");
@@ -208,8 +750,10 @@ public class Conll extends ArrayList<ArrayList<String>> {
      * @param   iConllMap   <code>Map</code> containing back connections between
      *                      POS tags in CoNLL representation and their original 
      *                      BTB forms.
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public void toLine(OutputStream os, String eosToken, Properties iConllMap) {
+    public void toLine(OutputStream os, String eosToken, Properties iConllMap) throws IncorrectInputException {
 
         try {
 
@@ -231,20 +775,21 @@ public class Conll extends ArrayList<ArrayList<String>> {
      *                      POS tags in CoNLL representation and their original 
      *                      BTB forms.
      * @return  String
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public String toLine(String eosToken, Properties iConllMap) {
+    public String toLine(String eosToken, Properties iConllMap) throws IncorrectInputException {
 
         StringBuilder lines = new StringBuilder();
-        HashMap map;
+        ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
 
-        for (ArrayList<String> sentence : this) {
+        for (int s = 0; s < SENTENCE_COUNT; s++) {
 
-            for (String line : sentence) {
+            for (int t = SENTENCES[s]; t < SENTENCES[s + 1]; t++) {
 
-                map = DataUtils.conllLineAsMap(line, iConllMap);
-                lines.append(map.get(Conll.TOKEN_FORM));
+                lines.append(this.getColumn(t, Conll.TOKEN_FORM));
                 lines.append("\t");
-                lines.append(map.get(Conll.TOKEN_FULLTAG));
+                lines.append(getMappedTag(t, index));
                 lines.append("\n");
 
             }
@@ -265,54 +810,24 @@ public class Conll extends ArrayList<ArrayList<String>> {
      * @param   iConllMap   <code>Map</code> containing back connections between
      *                      POS tags in CoNLL representation and their original 
      *                      BTB forms.
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public void toClark(OutputStream os, Properties iConllMap) {
+    public void toClark(OutputStream os, Properties iConllMap) throws IncorrectInputException {
 
         try {
-            StringBuilder doc = new StringBuilder();
-
-            doc.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-            doc.append("<root>\n");
-            
-            HashMap<Integer,String> map;
-            
-            String word;
-            String lemma;
-            String svm;
-
-            for (ArrayList<String> sentence : this) {
-                doc.append("\t<s>\n");
-                for (String line : sentence) {
-                    map = DataUtils.conllLineAsMap(line, iConllMap);
-
-                    word = map.get(Conll.TOKEN_FORM);
-                    lemma = map.get(Conll.TOKEN_LEMMA);
-                    svm = map.get(Conll.TOKEN_FULLTAG);
-                    
-                    doc.append("\t\t<tok");
-                    if (lemma != null && !lemma.equals("_")) {
-                        doc.append(" lm=\"");
-                        doc.append(lemma);
-                        doc.append("\"");
-                    }
-                    if (svm != null && !svm.equals("_")) {
-                        doc.append(" svm=\"");
-                        doc.append(svm);
-                        doc.append("\"");
-                    }
-                    doc.append(">");
-                    doc.append(word);
-                    doc.append("</tok>\n");
+            ClarkStreamWriter writer = new ClarkStreamWriter(os);
+            ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
+
+            for (int s = 0; s < SENTENCE_COUNT; s++) {
+                for (int t = SENTENCES[s]; t < SENTENCES[s + 1]; t++) {
+                    writer.writeToken(this.getColumn(t, Conll.TOKEN_FORM), getMappedTag(t, index), this.getColumn(t, Conll.TOKEN_LEMMA));
                 }
-                doc.append("\t</s>\n");
+                writer.endSentence();
             }
 
-            doc.append("</root>");
-
-            os.write(doc.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+            writer.close();
             os.close();
-        } catch (UnsupportedEncodingException ex) {
-            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
         } catch (IOException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
         }
@@ -326,8 +841,10 @@ public class Conll extends ArrayList<ArrayList<String>> {
      *                      POS tags in CoNLL representation and their original 
      *                      BTB forms.
      * @return Document - CLaRK document
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public Document toClark(Properties iConllMap) {
+    public Document toClark(Properties iConllMap) throws IncorrectInputException {
 
         Document clarkDoc = ClarkDocumentBuilder.buildClarkDocument();
 
@@ -336,20 +853,25 @@ public class Conll extends ArrayList<ArrayList<String>> {
         Element sentence;
         Element token;
 
-        for (ArrayList<String> s : this) {
+        ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
+        String tag;
+        String lemma;
+
+        for (int s = 0; s < SENTENCE_COUNT; s++) {
             sentence = clarkDoc.createElement("s");
             root.appendChild(sentence);
-            for (String l : s) {
+            for (int t = SENTENCES[s]; t < SENTENCES[s + 1]; t++) {
 
-                HashMap<Integer, String> conllLineMap = DataUtils.conllLineAsMap(l, iConllMap);
+                tag = getMappedTag(t, index);
+                lemma = this.getColumn(t, Conll.TOKEN_LEMMA);
                 token = clarkDoc.createElement("tok");
                 sentence.appendChild(token);
-                token.setTextContent(conllLineMap.get(Conll.TOKEN_FORM));
-                if (!conllLineMap.get(Conll.TOKEN_FULLTAG).equals("_")) {
-                    token.setAttribute("svm", conllLineMap.get(Conll.TOKEN_FULLTAG));
+                token.setTextContent(this.getColumn(t, Conll.TOKEN_FORM));
+                if (!tag.equals("_")) {
+                    token.setAttribute("svm", tag);
                 }
-                if (conllLineMap.containsKey(Conll.TOKEN_LEMMA) && !conllLineMap.get(Conll.TOKEN_LEMMA).equals("_")) {
-                    token.setAttribute("lm", conllLineMap.get(Conll.TOKEN_LEMMA));
+                if (lemma != null && !lemma.equals("_")) {
+                    token.setAttribute("lm", lemma);
                 }
 
             }
@@ -367,9 +889,10 @@ public class Conll extends ArrayList<ArrayList<String>> {
      *                      BTB forms.
      * 
      * @return {@link WebLicht}
-     * 
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public WebLicht toWebLicht(Properties iConllMap) {
+    public WebLicht toWebLicht(Properties iConllMap) throws IncorrectInputException {
         return toWebLicht(this, iConllMap);
     }
 
@@ -382,8 +905,10 @@ public class Conll extends ArrayList<ArrayList<String>> {
      *                      BTB forms.
      * 
      * @return  {@link WebLicht}
+     * @throws IncorrectInputException if a token has a tag missing from the 
+     *                  CoNLL map
      */
-    public static WebLicht toWebLicht(Conll conll, Properties iConllMap) {
+    public static WebLicht toWebLicht(Conll conll, Properties iConllMap) throws IncorrectInputException {
 
         WebLicht doc = new WebLicht();
 
@@ -409,6 +934,7 @@ public class Conll extends ArrayList<ArrayList<String>> {
         List<Dependency> dependencyList;
         List<TokenRef> trList;
 
+        ConllTagIndex index = ConllTagIndex.getInstance(iConllMap);
         int charId = 1;
         int tokId = 1;
         int tagId = 1;
@@ -416,13 +942,16 @@ public class Conll extends ArrayList<ArrayList<String>> {
         int sentId = 1;
         int parId = 1;
 
-        for (ArrayList<String> sentenceArray : conll) {
+        for (int s = 0; s < conll.size(); s++) {
+
+            int start = conll.getSentenceStart(s);
+            int end = conll.getSentenceEnd(s);
 
             Sentence sentence = factory.createSentence();
             sentence.setID(String.valueOf(sentId));
             sentId++;
             sentence.setStart(tokId);
-            sentence.setEnd(tokId + sentenceArray.size() - 1);
+            sentence.setEnd(tokId + end - start - 1);
             sentenceList.add(sentence);
             trList = sentence.getTokenRef();
             parse = factory.createDepparsingParse();
@@ -431,23 +960,22 @@ public class Conll extends ArrayList<ArrayList<String>> {
             parseList.add(parse);
             dependencyList = parse.getDependency();
 
-            Token[] tokenRefs = new Token[sentenceArray.size() + 1];
+            Token[] tokenRefs = new Token[end - start + 1];
 
             tokenRefs[0] = null;
 
-            for (int i = 1; i <= sentenceArray.size(); i++) {
+            for (int i = 1; i <= end - start; i++) {
 
                 tokenRefs[i] = factory.createToken();
 
             }
 
-            for (String tokenArrayStr : sentenceArray) {
-
-                HashMap<Integer, String> conllLine = DataUtils.conllLineAsMap(tokenArrayStr, iConllMap);
+            for (int t = start; t < end; t++) {
 
-                String tokenStr = conllLine.get(Conll.TOKEN_FORM);
-                String tagStr = conllLine.get(Conll.TOKEN_FULLTAG);
-                String lemmaStr = conllLine.get(Conll.TOKEN_LEMMA);
+                String tokenStr = conll.getColumn(t, Conll.TOKEN_FORM);
+                String tagStr = conll.getMappedTag(t, index);
+                String lemmaStr = conll.getColumn(t, Conll.TOKEN_LEMMA);
+                String deprelStr = conll.getColumn(t, Conll.TOKEN_DEPREL);
 
                 if (text.length() > 0
                         && (!tokenStr.matches(ServiceConstants.PRE_SPACE_PUNCT_SIGNS_PATTERN)
@@ -457,7 +985,7 @@ public class Conll extends ArrayList<ArrayList<String>> {
 
                 text.append(tokenStr);
 
-                Token token = tokenRefs[Integer.valueOf(conllLine.get(Conll.TOKEN_INDEX))];
+                Token token = tokenRefs[conll.getId(t)];
                 token.setValue(tokenStr);
                 token.setStart(charId);
                 token.setID("tok" + tokId);
@@ -470,19 +998,15 @@ public class Conll extends ArrayList<ArrayList<String>> {
                 tr.setTokID(token);
                 trList.add(tr);
 
-                if (!lemmaStr.equals("_")) {
+                if (lemmaStr != null && !lemmaStr.equals("_")) {
                     Lemma lemma = factory.createLemma();
                     lemma.setID("lem" + lemId);
                     lemma.setTokID(token);
-                    lemma.setValue(conllLine.get(Conll.TOKEN_LEMMA));
+                    lemma.setValue(lemmaStr);
                     lemmaList.add(lemma);
                     lemId++;
                 }
 
-                if (tagStr == null) {
-                    System.out.println(tokenArrayStr);
-                }
-
                 if (!tagStr.equals("_")) {
                     Tag tag = factory.createTag();
                     tag.setValue(tagStr);
@@ -492,12 +1016,16 @@ public class Conll extends ArrayList<ArrayList<String>> {
                     tagId++;
                 }
 
-                if (conllLine.containsKey(Conll.TOKEN_DEPREL)
-                        && !conllLine.get(Conll.TOKEN_DEPREL).equals("_")) {
+                // Tokens without a numeric head get no dependency and heads 
+                // outside the sentence no governor, as in WebLichtStreamWriter
+                int head = conll.getHead(t);
+                if (deprelStr != null && !deprelStr.equals("_") && head >= 0) {
                     Dependency dependency = factory.createDependency();
                     dependency.setDepID(token);
-                    dependency.setGovID(tokenRefs[Integer.valueOf(conllLine.get(Conll.TOKEN_HEAD))]);
-                    dependency.setFunc(conllLine.get(Conll.TOKEN_DEPREL));
+                    if (head < tokenRefs.length) {
+                        dependency.setGovID(tokenRefs[head]);
+                    }
+                    dependency.setFunc(deprelStr);
                     dependencyList.add(dependency);
                 }
 
@@ -0,0 +1,385 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.util.Properties;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
+
+/**
+ * <code>ConllTokenReader</code> is a cursor over a single CoNLL line (token).
+ * After {@link #reset(CharSequence)} the columns of the line are available as 
+ * <code>CharSequence</code> slices of the line itself, so reading a token 
+ * does not create maps, arrays or substrings. The column indices are the 
+ * <code>TOKEN_*</code> constants of {@link Conll}.
+ * <p>
+ * Columns are separated with tabs, or with spaces if the line contains no 
+ * tabs. Empty columns at the end of the line are not counted, the same way 
+ * <code>String.split</code> drops them. The slices returned by 
+ * {@link #getColumn(int)} are reused and are only valid until the next call 
+ * to {@link #reset(CharSequence)}. Instances are not thread-safe.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConllTokenReader {
+
+    private CharSequence LINE;
+    private char SEPARATOR;
+    private int FIELD_COUNT;
+    private int COLUMN_COUNT;
+    private int[] STARTS = new int[16];
+    private int[] ENDS = new int[16];
+    private Slice[] SLICES = new Slice[0];
+
+    /**
+     * Creates a reader which is not yet positioned on a line.
+     */
+    public ConllTokenReader() {
+    }
+
+    /**
+     * Positions the reader on a CoNLL line.
+     * 
+     * @param   line    CoNLL line (token)
+     * 
+     * @return  this reader
+     */
+    public ConllTokenReader reset(CharSequence line) {
+
+        LINE = line;
+        int length = line.length();
+
+        SEPARATOR = ' ';
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == '\t') {
+                SEPARATOR = '\t';
+                break;
+            }
+        }
+
+        FIELD_COUNT = 0;
+        COLUMN_COUNT = 0;
+        int start = 0;
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || line.charAt(i) == SEPARATOR) {
+                if (FIELD_COUNT == STARTS.length) {
+                    int[] starts = new int[STARTS.length * 2];
+                    int[] ends = new int[ENDS.length * 2];
+                    System.arraycopy(STARTS, 0, starts, 0, FIELD_COUNT);
+                    System.arraycopy(ENDS, 0, ends, 0, FIELD_COUNT);
+                    STARTS = starts;
+                    ENDS = ends;
+                }
+                STARTS[FIELD_COUNT] = start;
+                ENDS[FIELD_COUNT] = i;
+                FIELD_COUNT++;
+                if (i > start) {
+                    COLUMN_COUNT = FIELD_COUNT;
+                }
+                start = i + 1;
+            }
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Gets the line the reader is positioned on.
+     * 
+     * @return  CharSequence
+     */
+    public CharSequence getLine() {
+        return LINE;
+    }
+
+    /**
+     * Gets the column separator of the current line: a tab, or a space if the 
+     * line contains no tabs.
+     * 
+     * @return  char
+     */
+    public char getSeparator() {
+        return SEPARATOR;
+    }
+
+    /**
+     * Gets the number of columns in the current line, not counting the empty 
+     * columns at its end.
+     * 
+     * @return  int
+     */
+    public int getColumnCount() {
+        return COLUMN_COUNT;
+    }
+
+    /**
+     * Gets the number of fields between separators in the current line, 
+     * including the empty ones at its end.
+     * 
+     * @return  int
+     */
+    public int getFieldCount() {
+        return FIELD_COUNT;
+    }
+
+    /**
+     * Gets a column of the current line as a slice of the line.
+     * 
+     * @param   column  column index
+     * 
+     * @return  CharSequence - the column or <code>null</code> if the line has 
+     *          fewer columns
+     */
+    public CharSequence getColumn(int column) {
+
+        if (column < 0 || column >= COLUMN_COUNT) {
+            return null;
+        }
+
+        if (SLICES.length < COLUMN_COUNT) {
+            Slice[] slices = new Slice[Math.max(COLUMN_COUNT, 10)];
+            System.arraycopy(SLICES, 0, slices, 0, SLICES.length);
+            for (int i = SLICES.length; i < slices.length; i++) {
+                slices[i] = new Slice();
+            }
+            SLICES = slices;
+        }
+
+        Slice slice = SLICES[column];
+        slice.BASE = LINE;
+        slice.START = STARTS[column];
+        slice.END = ENDS[column];
+
+        return slice;
+
+    }
+
+    /**
+     * Gets the start offset of a field in the current line.
+     * 
+     * @param   field   field index (smaller than {@link #getFieldCount()})
+     * 
+     * @return  int
+     */
+    public int getStart(int field) {
+        checkField(field);
+        return STARTS[field];
+    }
+
+    /**
+     * Gets the end offset (exclusive) of a field in the current line.
+     * 
+     * @param   field   field index (smaller than {@link #getFieldCount()})
+     * 
+     * @return  int
+     */
+    public int getEnd(int field) {
+        checkField(field);
+        return ENDS[field];
+    }
+
+    /**
+     * Gets a column of the current line as a <code>String</code>. Unlike 
+     * {@link #getColumn(int)} this method creates a new object.
+     * 
+     * @param   column  column index
+     * 
+     * @return  String - the column or <code>null</code> if the line has 
+     *          fewer columns
+     */
+    public String getString(int column) {
+
+        if (column < 0 || column >= COLUMN_COUNT) {
+            return null;
+        }
+
+        return LINE.subSequence(STARTS[column], ENDS[column]).toString();
+
+    }
+
+    /**
+     * Checks whether a column of the current line is equal to a value.
+     * 
+     * @param   column  column index
+     * @param   value   value
+     * 
+     * @return  boolean - <code>false</code> if the line has fewer columns
+     */
+    public boolean columnEquals(int column, CharSequence value) {
+
+        if (column < 0 || column >= COLUMN_COUNT) {
+            return false;
+        }
+
+        int start = STARTS[column];
+        int length = ENDS[column] - start;
+
+        if (length != value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (LINE.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Checks whether a column is present and has a value other than the 
+     * CoNLL empty value (<code>_</code>).
+     * 
+     * @param   column  column index
+     * 
+     * @return  boolean
+     */
+    public boolean hasValue(int column) {
+        return column >= 0 && column < COLUMN_COUNT
+                && ENDS[column] > STARTS[column]
+                && !columnEquals(column, "_");
+    }
+
+    /**
+     * Parses a numeric column (e.g. ID or HEAD) of the current line.
+     * 
+     * @param   column  column index
+     * 
+     * @return  int
+     * @throws NumberFormatException    if the column is missing or is not a 
+     *                                  number
+     */
+    public int getInt(int column) {
+
+        if (column < 0 || column >= COLUMN_COUNT || ENDS[column] == STARTS[column]) {
+            throw new NumberFormatException("Missing column " + column + " in: " + LINE);
+        }
+
+        int start = STARTS[column];
+        int end = ENDS[column];
+        boolean negative = LINE.charAt(start) == '-';
+        if (negative || LINE.charAt(start) == '+') {
+            start++;
+        }
+        if (start == end || end - start > 9) {
+            return Integer.parseInt(getString(column));
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = LINE.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("For input string: \"" + getString(column) + "\"");
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return negative ? -value : value;
+
+    }
+
+    /**
+     * Appends a column of the current line to the <code>StringBuilder</code>.
+     * Nothing is appended if the line has fewer columns.
+     * 
+     * @param   column  column index
+     * @param   sb      <code>StringBuilder</code>
+     */
+    public void appendColumn(int column, StringBuilder sb) {
+        if (column >= 0 && column < COLUMN_COUNT) {
+            sb.append(LINE, STARTS[column], ENDS[column]);
+        }
+    }
+
+    /**
+     * Gets the original BTB tag of the current token: the short POS tag if 
+     * the token has no features, or the entry for the POS tag and the features 
+     * in <code>iConllMap</code>.
+     * 
+     * @param   iConllMap   <code>Map</code> containing back connections between
+     *                      POS tags in CoNLL representation and their original 
+     *                      BTB forms.
+     * 
+     * @return  String
+     */
+    public String getFullTag(Properties iConllMap) {
+        return getFullTag(ConllTagIndex.getInstance(iConllMap));
+    }
+
+    /**
+     * Gets the original BTB tag of the current token: the short POS tag if 
+     * the token has no features, or the entry for the POS tag and the features 
+     * in the index. Only the returned POS tag in the first case is a new 
+     * object.
+     * 
+     * @param   index   index of the inverted CoNLL map
+     * 
+     * @return  String
+     */
+    public String getFullTag(ConllTagIndex index) {
+
+        if (!hasValue(Conll.TOKEN_FEATS)) {
+            return getString(Conll.TOKEN_POSTAG);
+        }
+
+        return index.get(getColumn(Conll.TOKEN_POSTAG), getColumn(Conll.TOKEN_FEATS));
+
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= FIELD_COUNT) {
+            throw new IndexOutOfBoundsException("Field: " + field + ", Fields: " + FIELD_COUNT);
+        }
+    }
+
+    /*
+     * A reusable view of a part of the current line.
+     */
+    private static final class Slice implements CharSequence {
+
+        private CharSequence BASE;
+        private int START;
+        private int END;
+
+        public int length() {
+            return END - START;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= END - START) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + (END - START));
+            }
+            return BASE.charAt(START + index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return BASE.subSequence(START + start, START + end);
+        }
+
+        @Override
+        public String toString() {
+            return BASE.subSequence(START, END).toString();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+/**
+ * <code>TokenStore</code> keeps the annotation layers of a document in 
+ * parallel arrays: token text, tag, lemma, head and dependency relation, with 
+ * sentence offsets into them. It is the compact counterpart of a 
+ * {@link WebLicht} document: the memory it needs is proportional to the number 
+ * of tokens rather than to the number of annotation objects.
+ * 
+ * Heads are indices within the sentence starting at 1, <code>0</code> for the 
+ * root and <code>-1</code> for tokens without a dependency. Tags, lemmas and 
+ * relations are <code>null</code> when missing.
+ *
+ * @author Aleksandar Savkov
+ */
+public class TokenStore {
+
+    private String[] FORMS;
+    private String[] TAGS;
+    private String[] LEMMAS;
+    private String[] DEPRELS;
+    private int[] HEADS;
+    private int TOKEN_COUNT = 0;
+    private int[] SENTENCES = new int[64];
+    private int SENTENCE_COUNT = 0;
+    private String TEXT = null;
+
+    public TokenStore() {
+        this(1024);
+    }
+
+    /**
+     * @param   capacity    initial token capacity
+     */
+    public TokenStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        FORMS = new String[capacity];
+        TAGS = new String[capacity];
+        LEMMAS = new String[capacity];
+        DEPRELS = new String[capacity];
+        HEADS = new int[capacity];
+    }
+
+    /**
+     * Adds a token to the current sentence.
+     * 
+     * @param   form    word form
+     * @param   tag     tag or <code>null</code>
+     * @param   lemma   lemma or <code>null</code>
+     * @param   head    head index within the sentence, <code>0</code> for the 
+     *                  root or <code>-1</code> if there is no dependency
+     * @param   deprel  dependency relation or <code>null</code>
+     * @return  index of the new token
+     */
+    public int addToken(String form, String tag, String lemma, int head, String deprel) {
+
+        if (TOKEN_COUNT == FORMS.length) {
+            grow(Math.max(FORMS.length * 2, 16));
+        }
+
+        FORMS[TOKEN_COUNT] = form;
+        TAGS[TOKEN_COUNT] = tag;
+        LEMMAS[TOKEN_COUNT] = lemma;
+        HEADS[TOKEN_COUNT] = head;
+        DEPRELS[TOKEN_COUNT] = deprel;
+
+        return TOKEN_COUNT++;
+
+    }
+
+    /**
+     * Closes the current sentence. Sentences without tokens are kept.
+     */
+    public void endSentence() {
+        if (SENTENCE_COUNT + 1 == SENTENCES.length) {
+            int[] grown = new int[SENTENCES.length * 2];
+            System.arraycopy(SENTENCES, 0, grown, 0, SENTENCES.length);
+            SENTENCES = grown;
+        }
+        SENTENCE_COUNT++;
+        SENTENCES[SENTENCE_COUNT] = TOKEN_COUNT;
+    }
+
+    public void setTag(int token, String tag) {
+        TAGS[token] = tag;
+    }
+
+    public void setLemma(int token, String lemma) {
+        LEMMAS[token] = lemma;
+    }
+
+    public void setDependency(int token, int head, String deprel) {
+        HEADS[token] = head;
+        DEPRELS[token] = deprel;
+    }
+
+    /**
+     * Sets the running text of the document, if it is known.
+     * 
+     * @param   text    document text
+     */
+    public void setText(String text) {
+        TEXT = text;
+    }
+
+    /**
+     * Returns the running text of the document or <code>null</code> if it is 
+     * not known.
+     * 
+     * @return  String
+     */
+    public String getText() {
+        return TEXT;
+    }
+
+    public int getTokenCount() {
+        return TOKEN_COUNT;
+    }
+
+    public int getSentenceCount() {
+        return SENTENCE_COUNT;
+    }
+
+    /**
+     * Returns the index of the first token of sentence <code>s</code>.
+     * 
+     * @param   s   sentence index
+     * @return  int
+     */
+    public int getSentenceStart(int s) {
+        return SENTENCES[s];
+    }
+
+    /**
+     * Returns the index after the last token of sentence <code>s</code>.
+     * 
+     * @param   s   sentence index
+     * @return  int
+     */
+    public int getSentenceEnd(int s) {
+        return SENTENCES[s + 1];
+    }
+
+    public String getForm(int token) {
+        return FORMS[token];
+    }
+
+    public String getTag(int token) {
+        return TAGS[token];
+    }
+
+    public String getLemma(int token) {
+        return LEMMAS[token];
+    }
+
+    public int getHead(int token) {
+        return HEADS[token];
+    }
+
+    public String getDeprel(int token) {
+        return DEPRELS[token];
+    }
+
+    /**
+     * Checks whether any token has a dependency.
+     * 
+     * @return  boolean
+     */
+    public boolean hasDependencies() {
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            if (HEADS[i] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trims the arrays to the number of tokens and sentences.
+     */
+    public void trimToSize() {
+        grow(TOKEN_COUNT);
+        int[] trimmed = new int[SENTENCE_COUNT + 1];
+        System.arraycopy(SENTENCES, 0, trimmed, 0, SENTENCE_COUNT + 1);
+        SENTENCES = trimmed;
+    }
+
+    private void grow(int capacity) {
+        FORMS = copy(FORMS, capacity);
+        TAGS = copy(TAGS, capacity);
+        LEMMAS = copy(LEMMAS, capacity);
+        DEPRELS = copy(DEPRELS, capacity);
+        int[] heads = new int[capacity];
+        System.arraycopy(HEADS, 0, heads, 0, TOKEN_COUNT);
+        HEADS = heads;
+    }
+
+    private String[] copy(String[] array, int capacity) {
+        String[] copy = new String[capacity];
+        System.arraycopy(array, 0, copy, 0, TOKEN_COUNT);
+        return copy;
+    }
+}
@@ -21,6 +21,8 @@
 package org.bultreebank.labpipe.data;
 
 import de.dspin.data.DSpin;
+import de.dspin.data.textcorpus.Dependency;
+import de.dspin.data.textcorpus.Depparsing;
 import de.dspin.data.textcorpus.Lemma;
 import de.dspin.data.textcorpus.Lemmas;
 import de.dspin.data.textcorpus.ObjectFactory;
@@ -42,6 +44,7 @@ import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -72,6 +75,11 @@ import org.xml.sax.ContentHandler;
 public class WebLicht extends DSpin {
 
     private static final Logger logger = Logger.getLogger(WebLicht.class.getName());
+    /* Shared JAXB context of the DSpin classes */
+    private static JAXBContext JAXB_CONTEXT = null;
+    /* Marshallers and unmarshallers are not thread-safe and are kept per thread */
+    private static final ThreadLocal<Marshaller> MARSHALLER = new ThreadLocal<Marshaller>();
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLER = new ThreadLocal<Unmarshaller>();
 
     /**
      * Creates an empty <code>WebLicht</code> object.
@@ -250,6 +258,126 @@ public class WebLicht extends DSpin {
 
     }
 
+    /**
+     * Constructs a WebLicht object from a {@link TokenStore}. The layers,
+     * identifiers and character offsets are the same as those written by
+     * {@link WebLichtStreamWriter}.
+     *
+     * @param   store   {@link TokenStore}
+     */
+    public WebLicht(TokenStore store) {
+
+        ObjectFactory factory = new ObjectFactory();
+        TextCorpus tc = factory.createTextCorpus();
+        this.setTextCorpus(tc);
+        List tcList = tc.getTextOrTokensOrSentences();
+        tcList.clear();
+
+        Tokens tokens = factory.createTokens();
+        Lemmas lemmas = factory.createLemmas();
+        POStags tags = factory.createPOStags();
+        Sentences sentences = factory.createSentences();
+
+        List<Token> tokenList = tokens.getToken();
+        List<Lemma> lemmaList = lemmas.getLemma();
+        List<Tag> tagList = tags.getTag();
+        List<Sentence> sentenceList = sentences.getSentence();
+
+        int tokenCount = store.getTokenCount();
+        Token[] tokenRefs = new Token[tokenCount];
+        int charId = 1;
+
+        for (int t = 0; t < tokenCount; t++) {
+
+            String form = store.getForm(t);
+            Token token = factory.createToken();
+            token.setID("tok" + (t + 1));
+            token.setValue(form);
+            token.setStart(charId);
+            charId += form.length();
+            token.setEnd(charId - 1);
+            tokenList.add(token);
+            tokenRefs[t] = token;
+
+            if (WebLichtStreamWriter.hasValue(store.getLemma(t))) {
+                Lemma lemma = factory.createLemma();
+                lemma.setID("lem" + (lemmaList.size() + 1));
+                lemma.setTokID(token);
+                lemma.setValue(store.getLemma(t));
+                lemmaList.add(lemma);
+            }
+
+            if (WebLichtStreamWriter.hasValue(store.getTag(t))) {
+                Tag tag = factory.createTag();
+                tag.setID("tag" + (tagList.size() + 1));
+                tag.setTokID(token);
+                tag.setValue(store.getTag(t));
+                tagList.add(tag);
+            }
+
+        }
+
+        for (int s = 0; s < store.getSentenceCount(); s++) {
+
+            Sentence sentence = factory.createSentence();
+            sentence.setID("sent" + (s + 1));
+            sentence.setStart(store.getSentenceStart(s) + 1);
+            sentence.setEnd(store.getSentenceEnd(s));
+            List<TokenRef> trList = sentence.getTokenRef();
+            for (int t = store.getSentenceStart(s); t < store.getSentenceEnd(s); t++) {
+                TokenRef tr = factory.createTokenRef();
+                tr.setTokID(tokenRefs[t]);
+                trList.add(tr);
+            }
+            sentenceList.add(sentence);
+
+        }
+
+        tcList.add((store.getText() != null) ? store.getText() : WebLichtStreamWriter.restoreText(store));
+        tcList.add(tokens);
+        if (lemmaList.size() > 0) {
+            tcList.add(lemmas);
+        }
+        if (tagList.size() > 0) {
+            tcList.add(tags);
+        }
+        tcList.add(sentences);
+
+        if (store.hasDependencies()) {
+
+            Depparsing depparsing = factory.createDepparsing();
+
+            for (int s = 0; s < store.getSentenceCount(); s++) {
+
+                int start = store.getSentenceStart(s);
+                int end = store.getSentenceEnd(s);
+                Depparsing.Parse parse = factory.createDepparsingParse();
+                parse.setID("par" + (s + 1));
+
+                for (int t = start; t < end; t++) {
+                    int head = store.getHead(t);
+                    if (head < 0 || !WebLichtStreamWriter.hasValue(store.getDeprel(t))) {
+                        continue;
+                    }
+                    Dependency dependency = factory.createDependency();
+                    dependency.setFunc(store.getDeprel(t));
+                    dependency.setDepID(tokenRefs[t]);
+                    if (head > 0 && head <= end - start) {
+                        dependency.setGovID(tokenRefs[start + head - 1]);
+                    }
+                    parse.getDependency().add(dependency);
+                }
+
+                depparsing.getParse().add(parse);
+
+            }
+
+            tcList.add(depparsing);
+
+        }
+
+    }
+
     /**
      * Imports a DSpin object data into this object.
      * 
@@ -262,6 +390,53 @@ public class WebLicht extends DSpin {
         this.version = doc.getVersion();
     }
 
+    /**
+     * Gets the JAXB context of the DSpin classes. The context is created once 
+     * and shared by all threads.
+     * 
+     * @return  JAXBContext
+     * @throws JAXBException 
+     */
+    public static synchronized JAXBContext getJAXBContext() throws JAXBException {
+        if (JAXB_CONTEXT == null) {
+            JAXB_CONTEXT = JAXBContext.newInstance("de.dspin.data");
+        }
+        return JAXB_CONTEXT;
+    }
+
+    /**
+     * Gets the DSpin <code>Marshaller</code> of the current thread. It 
+     * produces formatted output and must not be used by other threads.
+     * 
+     * @return  Marshaller
+     * @throws JAXBException 
+     */
+    public static Marshaller getMarshaller() throws JAXBException {
+        Marshaller m = MARSHALLER.get();
+        if (m == null) {
+            m = getJAXBContext().createMarshaller();
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            MARSHALLER.set(m);
+        }
+        return m;
+    }
+
+    /**
+     * Gets the DSpin <code>Unmarshaller</code> of the current thread. It must 
+     * not be used by other threads.
+     * 
+     * @return  Unmarshaller
+     * @throws JAXBException 
+     */
+    public static Unmarshaller getUnmarshaller() throws JAXBException {
+        Unmarshaller u = UNMARSHALLER.get();
+        if (u == null) {
+            u = getJAXBContext().createUnmarshaller();
+            UNMARSHALLER.set(u);
+        }
+        return u;
+    }
+
     /**
      * Unmarshalls <code>InputStream</code> into a <code>DSpin</code> object and
      * then imports its content into this object.
@@ -269,8 +444,7 @@ public class WebLicht extends DSpin {
      */
     public final void unmarshall(InputStream is) {
         try {
-            JAXBContext context = JAXBContext.newInstance("de.dspin.data");
-            Unmarshaller u = context.createUnmarshaller();
+            Unmarshaller u = getUnmarshaller();
             importDSpin((DSpin) u.unmarshal(is));
 
         } catch (JAXBException ex) {
@@ -287,8 +461,7 @@ public class WebLicht extends DSpin {
     public final void unmarshall(String dspin) {
 
         try {
-            JAXBContext context = JAXBContext.newInstance("de.dspin.data");
-            Unmarshaller u = context.createUnmarshaller();
+            Unmarshaller u = getUnmarshaller();
             importDSpin((DSpin) u.unmarshal(new ByteArrayInputStream(dspin.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING))));
         } catch (UnsupportedEncodingException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
@@ -359,10 +532,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(Node out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -375,10 +545,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(XMLStreamWriter out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -391,10 +558,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(XMLEventWriter out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -407,10 +571,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(ContentHandler out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -423,10 +584,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(File out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -439,10 +597,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(Writer out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -455,10 +610,7 @@ public class WebLicht extends DSpin {
      */
     public void exportAsXML(OutputStream out) {
         try {
-            JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            m.marshal(this, out);
+            getMarshaller().marshal(this, out);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Problem with exporting to XML.", ex);
         }
@@ -485,16 +637,84 @@ public class WebLicht extends DSpin {
         List<Sentence> sentenceList = ((Sentences) cm.get(Sentences.class)).getSentence();
 
         Conll conllArray = new Conll();
+        AnnotationIndex index = new AnnotationIndex(cm);
 
         for (Sentence sentence : sentenceList) {
 
-            conllArray.add(DataUtils.dspinSentAsConllArray(sentence, cm, conllMap));
+            conllArray.add(DataUtils.dspinSentAsConllArray(sentence, cm, index, conllMap));
 
         }
 
         return conllArray;
     }
 
+    /**
+     * Converts this object to a {@link TokenStore} holding the same data as
+     * the one read by {@link WebLichtStreamReader} from the XML of this
+     * object: tokens are stored in sentence order and tokens which are in no
+     * sentence are left out.
+     *
+     * @return  {@link TokenStore}
+     * @throws MissingContentException if there is no tokens or no sentences
+     *                                 layer
+     */
+    public TokenStore toTokenStore() throws MissingContentException {
+
+        ClassMap cm = new ClassMap(this.getTextCorpus().getTextOrTokensOrSentences());
+
+        if (cm.get(Tokens.class) == null) {
+            throw new MissingContentException("Missing Tokens element in the input file.");
+        } else if (cm.get(Sentences.class) == null) {
+            throw new MissingContentException("Missing Sentences element in the input file.");
+        }
+
+        List<Sentence> sentenceList = ((Sentences) cm.get(Sentences.class)).getSentence();
+        AnnotationIndex index = new AnnotationIndex(cm);
+        TokenStore store = new TokenStore(((Tokens) cm.get(Tokens.class)).getToken().size());
+        if (cm.get(String.class) != null) {
+            store.setText(cm.get(String.class).toString());
+        }
+
+        // Store index of every token, the last one if it is in several sentences
+        IdentityHashMap<Object, Integer> positions = new IdentityHashMap();
+        for (Sentence sentence : sentenceList) {
+            for (TokenRef tr : sentence.getTokenRef()) {
+                Token token = (Token) tr.getTokID();
+                if (token == null) {
+                    continue;
+                }
+                Tag tag = index.getTag(token);
+                Lemma lemma = index.getLemma(token);
+                positions.put(token, store.addToken(token.getValue(),
+                        (tag != null) ? tag.getValue() : null,
+                        (lemma != null) ? lemma.getValue() : null, -1, null));
+            }
+            store.endSentence();
+        }
+
+        if (cm.get(Depparsing.class) != null) {
+            for (int s = 0; s < store.getSentenceCount(); s++) {
+                int start = store.getSentenceStart(s);
+                int end = store.getSentenceEnd(s);
+                List<TokenRef> trList = sentenceList.get(s).getTokenRef();
+                for (TokenRef tr : trList) {
+                    Dependency dep = index.getDependency(tr.getTokID());
+                    Integer t = positions.get(tr.getTokID());
+                    if (dep == null || t == null || t < start || t >= end) {
+                        continue;
+                    }
+                    Integer governor = (dep.getGovID() != null) ? positions.get(dep.getGovID()) : null;
+                    // a governor outside the sentence is taken as the root
+                    int head = (governor == null || governor < start || governor >= end) ? 0 : governor - start + 1;
+                    store.setDependency(t, head, dep.getFunc());
+                }
+            }
+        }
+
+        return store;
+
+    }
+
     /**
      * Exports this objects <code>text</code> element into a XML document 
      * containing only text.
@@ -560,6 +780,7 @@ public class WebLicht extends DSpin {
         List<Tag> tagListXml = (cm.containsKey(POStags.class)) ? ((POStags) cm.get(POStags.class)).getTag() : null;
         List<Lemma> lemmaListXml = (cm.containsKey(Lemmas.class)) ? ((Lemmas) cm.get(Lemmas.class)).getLemma() : null;
         List<Sentence> sentenceListXml = ((Sentences) cm.get(Sentences.class)).getSentence();
+        AnnotationIndex index = new AnnotationIndex(cm);
 
         int tokenIndex = 0;
 
@@ -583,7 +804,7 @@ public class WebLicht extends DSpin {
                 }
 
                 if (lemmaListXml != null) {
-                    Lemma lemma = (Lemma) DataUtils.getBackRef(lemmaListXml, token);
+                    Lemma lemma = index.getLemma(token);
                     if (lemma != null) {
                         t.setAttribute("lm", lemma.getValue());
                     }
@@ -646,6 +867,7 @@ public class WebLicht extends DSpin {
 
         Sentences sentences = (Sentences) cm.get(Sentences.class);
         List<Sentence> sentenceList = sentences.getSentence();
+        AnnotationIndex index = new AnnotationIndex(cm);
 
         OutputStreamWriter osw = new OutputStreamWriter(os);
         try {
@@ -657,8 +879,8 @@ public class WebLicht extends DSpin {
                 for (TokenRef t : tokenRefList) {
                     Token token = (Token) t.getTokID();
                     osw.write(token.getValue());
-                    Tag tag = (Tag) DataUtils.getBackRef(tagList, token);
-                    Lemma lemma = (Lemma) DataUtils.getBackRef(lemmaList, token);
+                    Tag tag = (tagList != null) ? index.getTag(token) : null;
+                    Lemma lemma = (lemmaList != null) ? index.getLemma(token) : null;
                     if (tag != null) {
                         osw.write("\t");
                         osw.write(tag.getValue());
@@ -0,0 +1,257 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>WebLichtStreamReader</code> reads a {@link WebLicht} (D-Spin TCF) 
+ * document into a {@link TokenStore} with a StAX parser instead of 
+ * unmarshalling it into JAXB objects. The text, tokens, sentences, POS tags, 
+ * lemmas and dependency layers are read; other layers are skipped. Elements 
+ * are matched by their local names, so the namespace version of the document 
+ * does not matter.
+ * 
+ * Tokens are stored in sentence order. Tokens which do not belong to any 
+ * sentence are left out, as in the conversions of {@link WebLicht}. The store 
+ * is filled while the sentences layer is read; only the word forms and the 
+ * layers that come before the sentences are kept until then.
+ *
+ * @author Aleksandar Savkov
+ */
+public class WebLichtStreamReader {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+    private static final int ROOT = -2;
+
+    /**
+     * Reads a {@link WebLicht} document from the <code>InputStream</code>.
+     * 
+     * @param   is  <code>InputStream</code> reading a WebLicht document
+     * @return  {@link TokenStore}
+     * @throws IOException
+     * @throws MissingContentException if the document has no tokens or no 
+     *                                 sentences layer
+     */
+    public static TokenStore read(InputStream is) throws IOException, MissingContentException {
+
+        // Document tokens are kept by their index in the tokens layer until 
+        // the sentences layer adds them to the store in sentence order
+        TokenStore store = new TokenStore();
+        HashMap<String, Integer> ids = new HashMap();
+        String[] forms = new String[1024];
+        int formCount = 0;
+        // Store index of every document token, -1 if it is in no sentence
+        int[] positions = null;
+        // Document token of every store token
+        int[] tokens = new int[1024];
+        // Annotation read before the sentences, by document token
+        String[] tags = null;
+        String[] lemmas = null;
+        // Governor (document token or ROOT) and relation, by document token
+        int[] governors = null;
+        String[] relations = null;
+        boolean hasTokens = false;
+        boolean hasSentences = false;
+        String layer = null;
+
+        try {
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(is);
+
+            while (reader.hasNext()) {
+
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("sentence")) {
+                        store.endSentence();
+                    } else if (name.equals(layer)) {
+                        layer = null;
+                    }
+                    continue;
+                } else if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String name = reader.getLocalName();
+
+                if (layer == null) {
+                    if (name.equals("text")) {
+                        store.setText(reader.getElementText());
+                    } else if (name.equals("tokens")) {
+                        layer = name;
+                        hasTokens = true;
+                    } else if (name.equals("sentences")) {
+                        layer = name;
+                        hasSentences = true;
+                    } else if (name.equals("POStags") || name.equals("lemmas") || name.equals("depparsing")) {
+                        layer = name;
+                    }
+                } else if (layer.equals("tokens") && name.equals("token")) {
+                    String id = reader.getAttributeValue(null, "ID");
+                    if (formCount == forms.length) {
+                        forms = grow(forms, formCount * 2);
+                    }
+                    forms[formCount] = reader.getElementText();
+                    if (id != null) {
+                        ids.put(id, formCount);
+                    }
+                    formCount++;
+                } else if (layer.equals("sentences") && name.equals("tokenRef")) {
+                    Integer token = ids.get(reader.getAttributeValue(null, "tokID"));
+                    if (token != null) {
+                        positions = fill(positions, formCount);
+                        int t = store.addToken(forms[token], get(tags, token), get(lemmas, token), -1, null);
+                        if (t == tokens.length) {
+                            tokens = grow(tokens);
+                        }
+                        tokens[t] = token;
+                        positions[token] = t;
+                    }
+                } else if (layer.equals("POStags") && name.equals("tag")) {
+                    Integer token = ids.get(reader.getAttributeValue(null, "tokID"));
+                    String value = reader.getElementText();
+                    if (token != null) {
+                        if (positions == null) {
+                            tags = set(tags, formCount, token, value);
+                        } else if (positions[token] >= 0) {
+                            store.setTag(positions[token], value);
+                        }
+                    }
+                } else if (layer.equals("lemmas") && name.equals("lemma")) {
+                    Integer token = ids.get(reader.getAttributeValue(null, "tokID"));
+                    String value = reader.getElementText();
+                    if (token != null) {
+                        if (positions == null) {
+                            lemmas = set(lemmas, formCount, token, value);
+                        } else if (positions[token] >= 0) {
+                            store.setLemma(positions[token], value);
+                        }
+                    }
+                } else if (layer.equals("depparsing") && name.equals("dependency")) {
+                    Integer token = ids.get(reader.getAttributeValue(null, "depID"));
+                    Integer governor = ids.get(reader.getAttributeValue(null, "govID"));
+                    if (token != null) {
+                        if (governors == null) {
+                            governors = new int[formCount];
+                            Arrays.fill(governors, -1);
+                        }
+                        governors[token] = (governor == null) ? ROOT : governor;
+                        relations = set(relations, formCount, token, reader.getAttributeValue(null, "func"));
+                    }
+                }
+
+            }
+
+            reader.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+
+        if (!hasTokens) {
+            throw new MissingContentException("Missing Tokens element in the input file.");
+        } else if (!hasSentences) {
+            throw new MissingContentException("Missing Sentences element in the input file.");
+        }
+
+        // Heads are known only when all sentences are read
+        if (governors != null) {
+            for (int s = 0; s < store.getSentenceCount(); s++) {
+                int start = store.getSentenceStart(s);
+                int end = store.getSentenceEnd(s);
+                for (int t = start; t < end; t++) {
+                    int governor = governors[tokens[t]];
+                    if (governor == -1) {
+                        continue;
+                    }
+                    int head = (governor == ROOT || positions[governor] < 0) ? 0 : positions[governor] - start + 1;
+                    // a governor outside the sentence is taken as the root
+                    if (head < 1 || head > end - start) {
+                        head = 0;
+                    }
+                    store.setDependency(t, head, relations[tokens[t]]);
+                }
+            }
+        }
+
+        return store;
+
+    }
+
+    /*
+     * Gets a value read before the sentences, if there is one.
+     */
+    private static String get(String[] values, int token) {
+        return (values == null) ? null : values[token];
+    }
+
+    /*
+     * Sets a value of a document token, creating the array on first use.
+     */
+    private static String[] set(String[] values, int count, int token, String value) {
+        if (values == null) {
+            values = new String[count];
+        }
+        values[token] = value;
+        return values;
+    }
+
+    /*
+     * Creates the store positions of the document tokens on first use.
+     */
+    private static int[] fill(int[] positions, int count) {
+        if (positions == null) {
+            positions = new int[count];
+            Arrays.fill(positions, -1);
+        }
+        return positions;
+    }
+
+    private static String[] grow(String[] array, int capacity) {
+        String[] grown = new String[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+}
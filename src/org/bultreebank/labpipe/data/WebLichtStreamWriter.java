@@ -0,0 +1,208 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>WebLichtStreamWriter</code> writes a {@link TokenStore} as a 
+ * {@link WebLicht} (D-Spin TCF) document with a StAX writer, one layer after 
+ * another, without building JAXB objects. Identifiers, character offsets and 
+ * the restored text follow {@link Conll#toWebLicht(Conll, java.util.Properties)}. 
+ * The POS tags, lemmas and dependency layers are only written when the store 
+ * has such annotation.
+ *
+ * @author Aleksandar Savkov
+ */
+public class WebLichtStreamWriter {
+
+    public static final String DSPIN_NAMESPACE = "http://www.dspin.de/data";
+    public static final String TEXTCORPUS_NAMESPACE = "http://www.dspin.de/data/textcorpus";
+    public static final String DSPIN_VERSION = "0.3";
+    
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+    private static final Pattern PRE_SPACE_PUNCT = Pattern.compile(ServiceConstants.PRE_SPACE_PUNCT_SIGNS_PATTERN);
+    private static final Pattern POST_SPACE_PUNCT = Pattern.compile(ServiceConstants.POST_SPACE_PUNCT_SIGNS_PATTERN);
+
+    /**
+     * Writes <code>store</code> into the <code>OutputStream</code>. The stream 
+     * is flushed but not closed.
+     * 
+     * @param   store   {@link TokenStore}
+     * @param   os  WebLicht document <code>OutputStream</code>
+     * @throws IOException 
+     */
+    public static void write(TokenStore store, OutputStream os) throws IOException {
+
+        int tokenCount = store.getTokenCount();
+        boolean hasTags = false;
+        boolean hasLemmas = false;
+        for (int t = 0; t < tokenCount; t++) {
+            hasTags |= hasValue(store.getTag(t));
+            hasLemmas |= hasValue(store.getLemma(t));
+        }
+
+        try {
+            XMLStreamWriter out = FACTORY.createXMLStreamWriter(new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING)));
+            out.writeStartDocument(ServiceConstants.PIPE_CHARACTER_ENCODING, "1.0");
+            out.writeStartElement("D-Spin");
+            out.writeDefaultNamespace(DSPIN_NAMESPACE);
+            out.writeAttribute("version", DSPIN_VERSION);
+            out.writeStartElement("TextCorpus");
+            out.writeDefaultNamespace(TEXTCORPUS_NAMESPACE);
+
+            // Text
+            out.writeStartElement("text");
+            out.writeCharacters((store.getText() != null) ? store.getText() : restoreText(store));
+            out.writeEndElement();
+
+            // Tokens
+            out.writeStartElement("tokens");
+            int charId = 1;
+            for (int t = 0; t < tokenCount; t++) {
+                String form = store.getForm(t);
+                out.writeStartElement("token");
+                out.writeAttribute("ID", "tok" + (t + 1));
+                out.writeAttribute("start", String.valueOf(charId));
+                charId += form.length();
+                out.writeAttribute("end", String.valueOf(charId - 1));
+                out.writeCharacters(form);
+                out.writeEndElement();
+            }
+            out.writeEndElement();
+
+            // Lemmas
+            if (hasLemmas) {
+                out.writeStartElement("lemmas");
+                int lemId = 1;
+                for (int t = 0; t < tokenCount; t++) {
+                    if (hasValue(store.getLemma(t))) {
+                        out.writeStartElement("lemma");
+                        out.writeAttribute("ID", "lem" + lemId++);
+                        out.writeAttribute("tokID", "tok" + (t + 1));
+                        out.writeCharacters(store.getLemma(t));
+                        out.writeEndElement();
+                    }
+                }
+                out.writeEndElement();
+            }
+
+            // POS tags
+            if (hasTags) {
+                out.writeStartElement("POStags");
+                int tagId = 1;
+                for (int t = 0; t < tokenCount; t++) {
+                    if (hasValue(store.getTag(t))) {
+                        out.writeStartElement("tag");
+                        out.writeAttribute("ID", "tag" + tagId++);
+                        out.writeAttribute("tokID", "tok" + (t + 1));
+                        out.writeCharacters(store.getTag(t));
+                        out.writeEndElement();
+                    }
+                }
+                out.writeEndElement();
+            }
+
+            // Sentences
+            out.writeStartElement("sentences");
+            for (int s = 0; s < store.getSentenceCount(); s++) {
+                out.writeStartElement("sentence");
+                out.writeAttribute("ID", "sent" + (s + 1));
+                out.writeAttribute("start", String.valueOf(store.getSentenceStart(s) + 1));
+                out.writeAttribute("end", String.valueOf(store.getSentenceEnd(s)));
+                for (int t = store.getSentenceStart(s); t < store.getSentenceEnd(s); t++) {
+                    out.writeEmptyElement("tokenRef");
+                    out.writeAttribute("tokID", "tok" + (t + 1));
+                }
+                out.writeEndElement();
+            }
+            out.writeEndElement();
+
+            // Dependencies
+            if (store.hasDependencies()) {
+                out.writeStartElement("depparsing");
+                for (int s = 0; s < store.getSentenceCount(); s++) {
+                    int start = store.getSentenceStart(s);
+                    int end = store.getSentenceEnd(s);
+                    out.writeStartElement("parse");
+                    out.writeAttribute("ID", "par" + (s + 1));
+                    for (int t = start; t < end; t++) {
+                        int head = store.getHead(t);
+                        if (head < 0 || !hasValue(store.getDeprel(t))) {
+                            continue;
+                        }
+                        out.writeEmptyElement("dependency");
+                        out.writeAttribute("func", store.getDeprel(t));
+                        out.writeAttribute("depID", "tok" + (t + 1));
+                        if (head > 0 && head <= end - start) {
+                            out.writeAttribute("govID", "tok" + (start + head));
+                        }
+                    }
+                    out.writeEndElement();
+                }
+                out.writeEndElement();
+            }
+
+            out.writeEndElement();
+            out.writeEndElement();
+            out.writeEndDocument();
+            out.flush();
+            out.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ServiceConstants.EXCEPTION_XML_STREAM, ex);
+        }
+
+    }
+
+    /**
+     * Restores the running text from the tokens, placing spaces according to 
+     * the punctuation patterns in {@link ServiceConstants}.
+     */
+    static String restoreText(TokenStore store) {
+
+        StringBuilder text = new StringBuilder();
+
+        for (int t = 0; t < store.getTokenCount(); t++) {
+            String form = store.getForm(t);
+            if (text.length() > 0
+                    && (!PRE_SPACE_PUNCT.matcher(form).matches()
+                    || POST_SPACE_PUNCT.matcher(text.subSequence(text.length() - 1, text.length())).matches())) {
+                text.append(" ");
+            }
+            text.append(form);
+        }
+
+        return text.toString();
+
+    }
+
+    static boolean hasValue(String value) {
+        return value != null && !value.equals("_");
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.bultreebank.labpipe.tools.ProcessingContext;
+import org.bultreebank.labpipe.tools.ProcessingLine;
+import org.bultreebank.labpipe.utils.CommandLineUtils;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * Differential check of the sentence cache of {@link ProcessingLine}. Every 
+ * file in the corpus directory is processed with the pipe commands three 
+ * times: without the cache, with the cache (the sentences not seen before are
+ * misses) and with the cache again (all sentences are hits). The three 
+ * outputs are compared. The configuration has to enable the sentence cache.
+ * 
+ * Usage: <code>CacheDiff conf.xml corpusDir itype otype [commands]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class CacheDiff {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 4) {
+            System.out.println("Usage: CacheDiff conf.xml corpusDir itype otype [commands]");
+            return;
+        }
+
+        Configuration options = new Configuration();
+        options.loadConfigFileFromFS(args[0], Configuration.XML);
+        if (options.getSentenceCacheSize() < 1) {
+            System.out.println("The sentence cache is disabled in " + args[0]);
+            return;
+        }
+        int inputType = CommandLineUtils.parseDataType(args[2]);
+        int outputType = CommandLineUtils.parseDataType(args[3]);
+        List<Integer> commands = (args.length > 4) ? CommandLineUtils.makeCommandsList(args[4]) : options.getDefaultPipe();
+
+        File[] files = new File(args[1]).listFiles();
+        if (files == null) {
+            System.out.println("Missing corpus directory: " + args[1]);
+            return;
+        }
+        Arrays.sort(files);
+
+        ProcessingLine line = new ProcessingLine(options);
+
+        int count = 0;
+        int diff = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+
+            // Reference: every command is executed on the whole document
+            ProcessingContext context = line.newContext();
+            InputStream is = new FileInputStream(file);
+            try {
+                line.importInput(context, is, inputType);
+            } finally {
+                is.close();
+            }
+            for (int command : commands) {
+                line.execute(context, command);
+            }
+            String expected = export(line, context, outputType);
+
+            String miss = process(line, file, inputType, outputType, commands);
+            String hit = process(line, file, inputType, outputType, commands);
+
+            count++;
+            if (!expected.equals(miss) || !expected.equals(hit)) {
+                diff++;
+                System.out.println(file.getName() + ": " + (expected.equals(miss) ? "hit" : "miss") + " output differs");
+            }
+        }
+
+        System.out.println(diff + " of " + count);
+        System.out.println(line.getSentenceCache().getHits() + " hits, " + line.getSentenceCache().getMisses() + " misses");
+        if (diff > 0) {
+            System.exit(1);
+        }
+
+    }
+
+    private static String process(ProcessingLine line, File file, int inputType, int outputType, List<Integer> commands) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        InputStream is = new FileInputStream(file);
+        try {
+            line.process(is, inputType, baos, outputType, commands);
+        } finally {
+            is.close();
+        }
+        return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+    }
+
+    private static String export(ProcessingLine line, ProcessingContext context, int outputType) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        line.exportOutput(context, baos, outputType);
+        return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+    }
+}
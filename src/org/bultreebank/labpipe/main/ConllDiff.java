@@ -0,0 +1,447 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.main;
+
+import de.dspin.data.textcorpus.Dependency;
+import de.dspin.data.textcorpus.Depparsing;
+import de.dspin.data.textcorpus.Lemma;
+import de.dspin.data.textcorpus.Lemmas;
+import de.dspin.data.textcorpus.POStags;
+import de.dspin.data.textcorpus.Sentence;
+import de.dspin.data.textcorpus.Sentences;
+import de.dspin.data.textcorpus.Tag;
+import de.dspin.data.textcorpus.Token;
+import de.dspin.data.textcorpus.TokenRef;
+import de.dspin.data.textcorpus.Tokens;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import org.bultreebank.labpipe.benchmark.CorpusGenerator;
+import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.utils.DataUtils;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.XmlUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Differential check of {@link Conll} against the list of sentence lines it 
+ * used to be. A CoNLL document is read both as an <code>ArrayList</code> of 
+ * sentences holding the token lines and as a <code>Conll</code> object. The 
+ * sentences returned by {@link Conll#get(int)}, the CoNLL text and the Line, 
+ * CLaRK and WebLicht conversions are compared with those the old code made 
+ * from the lines. Where the old code fails on a document (e.g. for a head 
+ * outside the sentence) the conversion is not compared. By default the 
+ * document is generated by {@link CorpusGenerator} and followed by a set of 
+ * edge cases, and the WebLicht conversion is checked on the lines the old 
+ * code failed on: dependencies without a head in the sentence are dropped or 
+ * left without a governor and tags missing from the map are rejected.
+ * 
+ * Usage: <code>ConllDiff [corpus.conll conllMapInv.properties]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConllDiff {
+
+    private static final String EOS_TOKEN = "<eos>";
+    /* Lines the generated corpus does not have */
+    private static final String EDGE_CASES =
+            "1\tа\tа\tC\tCp\t_\t0\tROOT\t_\t_\n"
+            + "2\t,\t,\tPunct\tPunct\t_\t1\tpunct\t_\t_\n"
+            + "3\tи\t_\tC\tCp\t_\t1\tconjarg\n"
+            + "4\t(\t(\tPunct\tPunct\t_\t_\t_\t_\t_\n"
+            + "5 ъ ъ N Nc _ 3 mod _ _\n"
+            + "6\tтук\tтук\tD\tDl\t_\n"
+            + "\n"
+            + "\n"
+            + "# comment\n"
+            + "1\tда\tда\tT\tTa\t_\t0\tROOT\t_\t_\n"
+            + "\n"
+            + "1\tкрай\tкрай\tN\tNc\t_\t0\tROOT\t_\t_";
+
+    public static void main(String[] args) throws Exception {
+
+        String text;
+        Properties iConllMap;
+        int diff = 0;
+        if (args.length > 1) {
+            text = read(args[0]);
+            iConllMap = new Properties();
+            FileInputStream is = new FileInputStream(args[1]);
+            try {
+                iConllMap.load(is);
+            } finally {
+                is.close();
+            }
+        } else {
+            CorpusGenerator generator = new CorpusGenerator(1).generate(2000);
+            text = generator.getConll(generator.getConllMap()) + EDGE_CASES;
+            iConllMap = generator.getConllMapInv();
+            diff += checkInvalidLines(iConllMap);
+        }
+
+        List<ArrayList<String>> lines = readSentences(text);
+        Conll conll = new Conll(new ByteArrayInputStream(text.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING)));
+
+        int skipped = 0;
+
+        String sentences = compareSentences(lines, conll);
+        if (sentences != null) {
+            diff++;
+            System.out.println("get: " + sentences);
+        }
+        if (!toString(lines).equals(conll.toString())) {
+            diff++;
+            System.out.println("toString: output differs");
+        }
+
+        String expected;
+        try {
+            expected = toLine(lines, iConllMap);
+        } catch (RuntimeException ex) {
+            expected = null;
+            skipped++;
+        }
+        if (expected != null && !expected.equals(conll.toLine(EOS_TOKEN, iConllMap))) {
+            diff++;
+            System.out.println("toLine: output differs");
+        }
+
+        try {
+            expected = XmlUtils.printToString(toClark(lines, iConllMap));
+        } catch (RuntimeException ex) {
+            expected = null;
+            skipped++;
+        }
+        if (expected != null && !expected.equals(XmlUtils.printToString(conll.toClark(iConllMap)))) {
+            diff++;
+            System.out.println("toClark: output differs");
+        }
+
+        List<String> expectedItems;
+        try {
+            expectedItems = toWebLicht(lines, iConllMap);
+        } catch (RuntimeException ex) {
+            expectedItems = null;
+            skipped++;
+        }
+        if (expectedItems != null) {
+            List<String> items = describe(conll.toWebLicht(iConllMap));
+            int i = 0;
+            while (i < items.size() && i < expectedItems.size() && items.get(i).equals(expectedItems.get(i))) {
+                i++;
+            }
+            if (i < items.size() || i < expectedItems.size()) {
+                diff++;
+                System.out.println("toWebLicht: " + ((i < expectedItems.size()) ? expectedItems.get(i) : "end") 
+                        + " expected, found " + ((i < items.size()) ? items.get(i) : "end"));
+            }
+        }
+
+        System.out.println(conll.size() + " sentences, " + conll.getTokenCount() + " tokens");
+        System.out.println(diff + " differ, " + skipped + " not compared as the old code fails");
+        if (diff > 0) {
+            System.exit(1);
+        }
+
+    }
+
+    /*
+     * Converts lines the old code failed on into WebLicht and returns the 
+     * number of wrong results.
+     */
+    private static int checkInvalidLines(Properties iConllMap) throws Exception {
+
+        int diff = 0;
+        String[] heads = {
+            "1\tне\tне\tT\tTn\t_\t_\tmod\t_\t_\n",
+            "1\tне\tне\tT\tTn\t_\t7\tmod\t_\t_\n"};
+        String[] expected = {"", "dependency par1 tok1 null mod"};
+        for (int i = 0; i < heads.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (String item : describe(new Conll(heads[i]).toWebLicht(iConllMap))) {
+                if (item.startsWith("dependency")) {
+                    sb.append(item);
+                }
+            }
+            if (!expected[i].equals(sb.toString())) {
+                diff++;
+                System.out.println("toWebLicht: \"" + expected[i] + "\" expected for " + heads[i].trim() + ", found \"" + sb + "\"");
+            }
+        }
+
+        try {
+            new Conll("1\tx\tx\tN\tNc\tunmapped\t0\tROOT\t_\t_\n").toWebLicht(iConllMap);
+            diff++;
+            System.out.println("toWebLicht: an unmapped tag is accepted");
+        } catch (IncorrectInputException ex) {
+            // Expected
+        }
+        return diff;
+
+    }
+
+    /*
+     * Splits the document into sentences as the old Conll did: every line 
+     * which does not start with a number closes a sentence.
+     */
+    private static List<ArrayList<String>> readSentences(String text) throws Exception {
+
+        List<ArrayList<String>> sentences = new ArrayList();
+        BufferedReader br = new BufferedReader(new StringReader(text));
+        ArrayList<String> sentence = new ArrayList();
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (!line.matches("^[0-9]+.+")) {
+                sentences.add(sentence);
+                sentence = new ArrayList();
+            } else {
+                sentence.add(line);
+            }
+        }
+        if (sentence.size() > 0) {
+            sentences.add(sentence);
+        }
+        return sentences;
+
+    }
+
+    private static String compareSentences(List<ArrayList<String>> lines, Conll conll) {
+
+        if (lines.size() != conll.size()) {
+            return lines.size() + " sentences expected, found " + conll.size();
+        }
+        for (int s = 0; s < lines.size(); s++) {
+            if (!lines.get(s).equals(conll.get(s))) {
+                return "sentence " + s + " differs";
+            }
+        }
+        return null;
+
+    }
+
+    private static String toString(List<ArrayList<String>> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (ArrayList<String> sentence : lines) {
+            for (String line : sentence) {
+                sb.append(line);
+                sb.append("\n");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String toLine(List<ArrayList<String>> lines, Properties iConllMap) {
+
+        StringBuilder sb = new StringBuilder();
+        for (ArrayList<String> sentence : lines) {
+            for (String line : sentence) {
+                HashMap<Integer, String> map = DataUtils.conllLineAsMap(line, iConllMap);
+                sb.append(map.get(Conll.TOKEN_FORM));
+                sb.append("\t");
+                sb.append(map.get(Conll.TOKEN_FULLTAG));
+                sb.append("\n");
+            }
+            sb.append(EOS_TOKEN);
+            sb.append("\n");
+        }
+        return sb.toString();
+
+    }
+
+    private static Document toClark(List<ArrayList<String>> lines, Properties iConllMap) {
+
+        Document doc = ClarkDocumentBuilder.buildClarkDocument();
+        Element root = doc.createElement("root");
+        doc.appendChild(root);
+        for (ArrayList<String> sentence : lines) {
+            Element s = doc.createElement("s");
+            root.appendChild(s);
+            for (String line : sentence) {
+                HashMap<Integer, String> map = DataUtils.conllLineAsMap(line, iConllMap);
+                Element token = doc.createElement("tok");
+                s.appendChild(token);
+                token.setTextContent(map.get(Conll.TOKEN_FORM));
+                if (!map.get(Conll.TOKEN_FULLTAG).equals("_")) {
+                    token.setAttribute("svm", map.get(Conll.TOKEN_FULLTAG));
+                }
+                if (map.containsKey(Conll.TOKEN_LEMMA) && !map.get(Conll.TOKEN_LEMMA).equals("_")) {
+                    token.setAttribute("lm", map.get(Conll.TOKEN_LEMMA));
+                }
+            }
+        }
+        return doc;
+
+    }
+
+    /*
+     * Describes the WebLicht document the old Conll made from the lines, one 
+     * item per text, token, lemma, tag, sentence and dependency.
+     */
+    private static List<String> toWebLicht(List<ArrayList<String>> lines, Properties iConllMap) {
+
+        List<String> tokens = new ArrayList();
+        List<String> lemmas = new ArrayList();
+        List<String> tags = new ArrayList();
+        List<String> sentences = new ArrayList();
+        List<String> dependencies = new ArrayList();
+        StringBuilder text = new StringBuilder();
+        int charId = 1;
+        int tokId = 1;
+        int lemId = 1;
+        int tagId = 1;
+        int sentId = 1;
+        int parId = 1;
+
+        for (ArrayList<String> sentence : lines) {
+
+            StringBuilder refs = new StringBuilder();
+            sentences.add("sentence " + sentId + " " + tokId + " " + (tokId + sentence.size() - 1));
+            String[] ids = new String[sentence.size() + 1];
+            int first = sentences.size() - 1;
+            String parse = "par" + parId;
+            parId++;
+            sentId++;
+
+            for (int t = 0; t < sentence.size(); t++) {
+                ids[Integer.valueOf(DataUtils.conllLineAsMap(sentence.get(t), iConllMap).get(Conll.TOKEN_INDEX))] = "tok" + (tokId + t);
+            }
+
+            for (String line : sentence) {
+
+                HashMap<Integer, String> map = DataUtils.conllLineAsMap(line, iConllMap);
+                String form = map.get(Conll.TOKEN_FORM);
+                if (text.length() > 0
+                        && (!form.matches(ServiceConstants.PRE_SPACE_PUNCT_SIGNS_PATTERN)
+                        || Character.toString(text.charAt(text.length() - 1)).matches(ServiceConstants.POST_SPACE_PUNCT_SIGNS_PATTERN))) {
+                    text.append(" ");
+                }
+                text.append(form);
+
+                String id = ids[Integer.valueOf(map.get(Conll.TOKEN_INDEX))];
+                tokens.add("token " + id + " " + form + " " + charId + " " + (charId + form.length() - 1));
+                charId += form.length();
+                tokId++;
+                refs.append(" ");
+                refs.append(id);
+
+                if (!map.get(Conll.TOKEN_LEMMA).equals("_")) {
+                    lemmas.add("lemma lem" + lemId + " " + id + " " + map.get(Conll.TOKEN_LEMMA));
+                    lemId++;
+                }
+                if (!map.get(Conll.TOKEN_FULLTAG).equals("_")) {
+                    tags.add("tag tag" + tagId + " " + id + " " + map.get(Conll.TOKEN_FULLTAG));
+                    tagId++;
+                }
+                if (map.containsKey(Conll.TOKEN_DEPREL) && !map.get(Conll.TOKEN_DEPREL).equals("_")) {
+                    dependencies.add("dependency " + parse + " " + id + " " + ids[Integer.valueOf(map.get(Conll.TOKEN_HEAD))] + " " + map.get(Conll.TOKEN_DEPREL));
+                }
+
+            }
+
+            sentences.set(first, sentences.get(first) + refs);
+
+        }
+
+        List<String> items = new ArrayList();
+        items.add("text " + text);
+        items.addAll(tokens);
+        items.addAll(lemmas);
+        items.addAll(tags);
+        items.addAll(sentences);
+        items.addAll(dependencies);
+        return items;
+
+    }
+
+    /*
+     * Describes a WebLicht document as toWebLicht(List, Properties) does.
+     */
+    private static List<String> describe(WebLicht doc) {
+
+        List<String> items = new ArrayList();
+        List<String> dependencies = new ArrayList();
+        for (Object o : doc.getTextCorpus().getTextOrTokensOrSentences()) {
+            if (o instanceof String) {
+                items.add("text " + o);
+            } else if (o instanceof Tokens) {
+                for (Token token : ((Tokens) o).getToken()) {
+                    items.add("token " + token.getID() + " " + token.getValue() + " " + token.getStart() + " " + token.getEnd());
+                }
+            } else if (o instanceof Lemmas) {
+                for (Lemma lemma : ((Lemmas) o).getLemma()) {
+                    items.add("lemma " + lemma.getID() + " " + id(lemma.getTokID()) + " " + lemma.getValue());
+                }
+            } else if (o instanceof POStags) {
+                for (Tag tag : ((POStags) o).getTag()) {
+                    items.add("tag " + tag.getID() + " " + id(tag.getTokID()) + " " + tag.getValue());
+                }
+            } else if (o instanceof Sentences) {
+                for (Sentence sentence : ((Sentences) o).getSentence()) {
+                    StringBuilder sb = new StringBuilder("sentence " + sentence.getID() + " " + sentence.getStart() + " " + sentence.getEnd());
+                    for (TokenRef ref : sentence.getTokenRef()) {
+                        sb.append(" ");
+                        sb.append(id(ref.getTokID()));
+                    }
+                    items.add(sb.toString());
+                }
+            } else if (o instanceof Depparsing) {
+                for (Depparsing.Parse parse : ((Depparsing) o).getParse()) {
+                    for (Dependency dependency : parse.getDependency()) {
+                        dependencies.add("dependency " + parse.getID() + " " + id(dependency.getDepID()) + " " + id(dependency.getGovID()) + " " + dependency.getFunc());
+                    }
+                }
+            }
+        }
+        items.addAll(dependencies);
+        return items;
+
+    }
+
+    private static String id(Object token) {
+        return (token == null) ? null : ((Token) token).getID();
+    }
+
+    private static String read(String path) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path), ServiceConstants.PIPE_CHARACTER_ENCODING));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line);
+                sb.append("\n");
+            }
+        } finally {
+            br.close();
+        }
+        return sb.toString();
+    }
+}
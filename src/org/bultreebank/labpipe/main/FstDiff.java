@@ -0,0 +1,144 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.main;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import org.bultreebank.labpipe.tools.FstTokenizer;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * Differential check of the transducer engines of {@link FstTokenizer}. Every 
+ * file in the corpus directory is tokenized by the SFST command chain and by 
+ * the in-process engine and the outputs are compared. The corpus directory 
+ * defaults to the fixture corpus in <code>sample/fst</code>.
+ * 
+ * Usage: <code>FstDiff conf.xml [corpusDir [java|java-inverse]]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class FstDiff {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 1) {
+            System.out.println("Usage: FstDiff conf.xml [corpusDir [java|java-inverse]]");
+            return;
+        }
+
+        Configuration processConf = new Configuration();
+        processConf.loadConfigFileFromFS(args[0], Configuration.XML);
+        processConf.setProperty(Configuration.SFST_ENGINE, "process");
+        processConf.remove(Configuration.SFST_POOL_SIZE);
+
+        Configuration javaConf = new Configuration();
+        javaConf.loadConfigFileFromFS(args[0], Configuration.XML);
+        javaConf.setProperty(Configuration.SFST_ENGINE, (args.length > 2) ? args[2] : "java");
+
+        FstTokenizer process = new FstTokenizer(processConf);
+        FstTokenizer java = new FstTokenizer(javaConf);
+        if (!java.isInProcess()) {
+            // Otherwise the process engine would be compared with itself
+            System.out.println("The in-process transducers cannot be loaded.");
+            process.close();
+            java.close();
+            System.exit(1);
+        }
+
+        String corpus = (args.length > 1) ? args[1] : "sample/fst";
+
+        File[] files = new File(corpus).listFiles();
+        if (files == null) {
+            System.out.println("Missing corpus directory: " + corpus);
+            return;
+        }
+        Arrays.sort(files);
+
+        int count = 0;
+        int diff = 0;
+        long processTime = 0;
+        long javaTime = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            String text = readFile(file);
+            long start = System.nanoTime();
+            String expected = process.tokenize(text);
+            processTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            String actual = java.tokenize(text);
+            javaTime += System.nanoTime() - start;
+            count++;
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                diff++;
+                System.out.println(file.getName() + ": " + firstDifference(expected, actual));
+            }
+        }
+
+        java.close();
+        process.close();
+
+        System.out.println(diff + " of " + count);
+        System.out.println("process: " + (processTime / 1000000) + " ms, java: " + (javaTime / 1000000) + " ms");
+        if (diff > 0) {
+            System.exit(1);
+        }
+
+    }
+
+    /**
+     * Reads the file as it is, line endings included.
+     */
+    private static String readFile(File file) throws IOException {
+        Reader r = new InputStreamReader(new FileInputStream(file), ServiceConstants.PIPE_CHARACTER_ENCODING);
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[8192];
+            int n;
+            while ((n = r.read(buf)) > -1) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            r.close();
+        }
+    }
+
+    private static String firstDifference(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return "expected " + (expected == null ? "null" : "output") + ", got " + (actual == null ? "null" : "output");
+        }
+        String[] e = expected.split("\n", -1);
+        String[] a = actual.split("\n", -1);
+        for (int i = 0; i < Math.min(e.length, a.length); i++) {
+            if (!e[i].equals(a[i])) {
+                return "line " + (i + 1) + ": expected '" + e[i] + "', got '" + a[i] + "'";
+            }
+        }
+        return "expected " + e.length + " lines, got " + a.length;
+    }
+}
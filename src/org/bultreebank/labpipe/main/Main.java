@@ -41,6 +41,7 @@ import org.bultreebank.labpipe.exceptions.IncorrectOutputException;
 import org.bultreebank.labpipe.exceptions.IncorrectParameterValueException;
 import org.bultreebank.labpipe.exceptions.MissingContentException;
 import org.bultreebank.labpipe.exceptions.SVMTConnectionExceptoin;
+import org.bultreebank.labpipe.tools.BatchProcessor;
 import org.bultreebank.labpipe.tools.ProcessingLine;
 import org.bultreebank.labpipe.utils.CommandLineUtils;
 import org.bultreebank.labpipe.utils.Configuration;
@@ -119,8 +120,39 @@ public class Main {
         } catch (ClarkConfigurationException ex) {
             logger.log(Level.SEVERE, ex.getMessage(), ex);
         }
+        if (pl == null && !parameterMap.containsKey(CommandLineUtils.CONVERTER_PAR)) {
+            logger.log(Level.SEVERE, "The processing line could not be loaded. No files are processed.");
+            return;
+        }
         Converter converter = new Converter(conf);
 
+        if (parameterMap.containsKey(CommandLineUtils.THREADS_PAR)) {
+            int threads;
+            try {
+                threads = Integer.parseInt(parameterMap.get(CommandLineUtils.THREADS_PAR));
+            } catch (NumberFormatException ex) {
+                CommandLineUtils.throwCommandLineError(CommandLineUtils.ERROR_INVALID_PARAMETER, CommandLineUtils.THREADS_PAR);
+                return;
+            }
+            String[] inputPaths = new String[inputFiles.length];
+            String[] outputPaths = new String[outputFiles.length];
+            for (int i = 0; i < inputFiles.length; i++) {
+                inputPaths[i] = resolvePath(inputFiles[i], workingDir);
+                outputPaths[i] = resolvePath(outputFiles[i], workingDir);
+            }
+            int mode = (parameterMap.containsKey(CommandLineUtils.CONVERTER_PAR))
+                    ? BatchProcessor.MODE_CONVERT
+                    : (Boolean.parseBoolean(parameterMap.get(CommandLineUtils.STREAM_PAR)))
+                    ? BatchProcessor.MODE_STREAM : BatchProcessor.MODE_PROCESS;
+            BatchProcessor batch = new BatchProcessor(pl, converter, commandsList, inputType, outputType, mode, threads);
+            BatchProcessor.Report report = batch.process(inputPaths, outputPaths);
+            System.out.println("-------------------------------------------------------");
+            System.out.print(report.toString());
+            System.out.println("-------------------------------------------------------");
+            System.out.println("Done!");
+            return;
+        }
+
         for (int i = 0; i < inputFiles.length; i++) {
 
             File input = new File(inputFiles[i]);
@@ -136,10 +168,8 @@ public class Main {
             
             System.out.println(sb.toString());
             
-            String inputPath = (inputFiles[i].contains(ServiceConstants.SYSTEM_SEPARATOR))
-                    ? input.getAbsolutePath() : workingDir + input.getName();
-            String outputPath = (outputFiles[i].contains(ServiceConstants.SYSTEM_SEPARATOR))
-                    ? output.getAbsolutePath() : workingDir + output.getName();
+            String inputPath = resolvePath(inputFiles[i], workingDir);
+            String outputPath = resolvePath(outputFiles[i], workingDir);
 //            String inputPath = input.getAbsolutePath();
 //            String outputPath = output.getAbsolutePath();
 
@@ -168,9 +198,17 @@ public class Main {
                 }
             } else {
                 try {
-                    pl.importInput(Misc.readFileInputStream(is), inputType);
-                    pl.run(commandsList);
-                    pl.exportOutput(os, outputType);
+                    if (Boolean.parseBoolean(parameterMap.get(CommandLineUtils.STREAM_PAR))) {
+                        pl.processStream(is, inputType, os, outputType, commandsList);
+                    } else if (inputType == ServiceConstants.DATA_BINARY) {
+                        pl.importInput(is, inputType);
+                        pl.run(commandsList);
+                        pl.exportOutput(os, outputType);
+                    } else {
+                        pl.importInput(Misc.readFileInputStream(is), inputType);
+                        pl.run(commandsList);
+                        pl.exportOutput(os, outputType);
+                    }
                     os.close();
                 } catch (IncorrectParameterValueException ex) {
                     logger.log(Level.SEVERE, ex.getMessage(), ex);
@@ -199,4 +237,13 @@ public class Main {
         System.out.println("Done!");
 
     }
-}
\ No newline at end of file
+
+    /*
+     * Resolves a file name from the command line against the working directory.
+     */
+    private static String resolvePath(String fileName, String workingDir) {
+        File file = new File(fileName);
+        return (fileName.contains(ServiceConstants.SYSTEM_SEPARATOR))
+                ? file.getAbsolutePath() : workingDir + file.getName();
+    }
+}
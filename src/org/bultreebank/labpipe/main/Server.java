@@ -0,0 +1,69 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.main;
+
+import java.io.File;
+import org.bultreebank.labpipe.converters.Converter;
+import org.bultreebank.labpipe.tools.PipelineServer;
+import org.bultreebank.labpipe.tools.ProcessingLine;
+import org.bultreebank.labpipe.utils.CommandLineUtils;
+import org.bultreebank.labpipe.utils.Configuration;
+
+/**
+ * Runs LABPipe as a long-running server. The processing line is built once 
+ * and documents are posted to it over HTTP (see {@link PipelineServer}).
+ * 
+ * <p>Usage: <code>Server [conf.xml] [port]</code>
+ *
+ * @author Aleksandar Savkov
+ */
+public class Server {
+
+    public static void main(String[] args) throws Exception {
+
+        System.out.println(CommandLineUtils.COPYRIGHT_MESSEGE);
+
+        String optionsPath = (args.length > 0) ? args[0] : new File(".").getCanonicalPath() + "/conf/conf.xml";
+
+        Configuration conf = new Configuration();
+        conf.loadConfigFileFromFS(optionsPath, Configuration.XML);
+        if (args.length > 1) {
+            conf.setProperty(Configuration.SERVER_PORT, args[1]);
+        }
+
+        ProcessingLine pl = new ProcessingLine(conf);
+        pl.setVerbose(false);
+        final PipelineServer server = new PipelineServer(conf, pl, new Converter(conf));
+        server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                server.stop(5);
+            }
+        });
+
+        System.out.println("LABPipe server listening on http://" 
+                + server.getAddress().getHostName() + ":" + server.getAddress().getPort() + "/");
+
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.converters.Converter;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>BatchProcessor</code> processes a batch of files concurrently on a 
+ * pool of worker threads sharing one {@link ProcessingLine}. Every file gets 
+ * its own processing context. A file which fails is recorded in the 
+ * {@link Report} with the cause of the failure and does not stop the rest of 
+ * the batch. Every output is written into a temporary file next to the output 
+ * file and renamed to it only when the file is processed successfully, so a 
+ * failed file leaves no partial output behind. At most twice as many files as 
+ * there are workers are submitted at a time.
+ *
+ * @author Aleksandar Savkov
+ */
+public class BatchProcessor {
+
+    /**
+     * Mode: import, process and export every file as a whole
+     */
+    public static final int MODE_PROCESS = 0;
+    /**
+     * Mode: process every file in streaming mode
+     */
+    public static final int MODE_STREAM = 1;
+    /**
+     * Mode: only convert every file
+     */
+    public static final int MODE_CONVERT = 2;
+    private static final Logger logger = Logger.getLogger(BatchProcessor.class.getName());
+    private final ProcessingLine LINE;
+    private final Converter CONVERTER;
+    private final List<Integer> COMMANDS;
+    private final int INPUT_TYPE;
+    private final int OUTPUT_TYPE;
+    private final int MODE;
+    private final int THREADS;
+    private static final String TEMP_SUFFIX = ".part";
+
+    /**
+     * Summary of a processed batch.
+     */
+    public static class Report {
+
+        private final int FILES;
+        private final AtomicInteger DONE = new AtomicInteger();
+        private final AtomicLong BYTES_IN = new AtomicLong();
+        private final AtomicLong BYTES_OUT = new AtomicLong();
+        private final List<String> FAILURES = Collections.synchronizedList(new ArrayList<String>());
+        private final long START = System.nanoTime();
+        private long NANOS = 0;
+
+        private Report(int files) {
+            FILES = files;
+        }
+
+        /**
+         * Gets the number of files in the batch
+         * 
+         * @return  int
+         */
+        public int getFileCount() {
+            return FILES;
+        }
+
+        /**
+         * Gets the number of files processed successfully
+         * 
+         * @return  int
+         */
+        public int getSuccessCount() {
+            return DONE.get();
+        }
+
+        /**
+         * Gets the failed files, each as the input path followed by the cause 
+         * of the failure
+         * 
+         * @return  List&lt;String&gt;
+         */
+        public List<String> getFailures() {
+            synchronized (FAILURES) {
+                return new ArrayList<String>(FAILURES);
+            }
+        }
+
+        /**
+         * Gets the wall time of the batch in seconds
+         * 
+         * @return  double
+         */
+        public double getSeconds() {
+            return NANOS / 1e9;
+        }
+
+        /**
+         * Gets the number of bytes read from the input files
+         * 
+         * @return  long
+         */
+        public long getBytesIn() {
+            return BYTES_IN.get();
+        }
+
+        /**
+         * Gets the number of bytes written to the output files
+         * 
+         * @return  long
+         */
+        public long getBytesOut() {
+            return BYTES_OUT.get();
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(getSeconds(), 1e-9);
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "Files: %d processed, %d failed, %d total%n",
+                    getSuccessCount(), getFailures().size(), FILES));
+            sb.append(String.format(Locale.US, "Time: %.3f s%n", getSeconds()));
+            sb.append(String.format(Locale.US, "Throughput: %.1f files/s, %.2f MB/s in, %.2f MB/s out%n",
+                    getSuccessCount() / seconds,
+                    getBytesIn() / seconds / (1024 * 1024),
+                    getBytesOut() / seconds / (1024 * 1024)));
+            for (String failure : getFailures()) {
+                sb.append("FAILED: ");
+                sb.append(failure);
+                sb.append(String.format("%n"));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Creates a batch processor.
+     * 
+     * @param   line    processing line shared by all workers (not used in 
+     *                  converter mode)
+     * @param   converter   converter used in converter mode
+     * @param   commands    list of processing commands
+     * @param   inputType   input data type
+     * @param   outputType  output data type
+     * @param   mode    {@link #MODE_PROCESS}, {@link #MODE_STREAM} or 
+     *                  {@link #MODE_CONVERT}
+     * @param   threads number of worker threads; values less than 1 stand for
+     *                  the number of available processors
+     * @throws IllegalArgumentException if <code>line</code> is 
+     *                  <code>null</code> outside converter mode
+     */
+    public BatchProcessor(ProcessingLine line, Converter converter, List<Integer> commands, int inputType, int outputType, int mode, int threads) {
+        if (line == null && mode != MODE_CONVERT) {
+            throw new IllegalArgumentException("A processing line is required unless the files are only converted.");
+        }
+        LINE = line;
+        CONVERTER = converter;
+        COMMANDS = commands;
+        INPUT_TYPE = inputType;
+        OUTPUT_TYPE = outputType;
+        MODE = mode;
+        THREADS = (threads < 1) ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Processes every input file into the output file with the same index.
+     * 
+     * @param   inputPaths  input file paths
+     * @param   outputPaths output file paths
+     * 
+     * @return  {@link Report}
+     * @throws InterruptedException  
+     */
+    public Report process(String[] inputPaths, final String[] outputPaths) throws InterruptedException {
+
+        if (inputPaths.length != outputPaths.length) {
+            throw new IllegalArgumentException("Input and output file lists differ in length.");
+        }
+
+        final Report report = new Report(inputPaths.length);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory("batch"));
+        List<Future<?>> futures = new ArrayList(inputPaths.length);
+        final Semaphore slots = new Semaphore(2 * THREADS);
+
+        try {
+            for (int i = 0; i < inputPaths.length; i++) {
+                final String inputPath = inputPaths[i];
+                final String outputPath = outputPaths[i];
+                slots.acquire();
+                futures.add(executor.submit(new Runnable() {
+
+                    public void run() {
+                        try {
+                            processFile(inputPath, outputPath, report);
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    // Failures are recorded by the workers, only errors get here
+                    logger.log(Level.SEVERE, ex.getMessage(), ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            report.NANOS = System.nanoTime() - report.START;
+        }
+
+        return report;
+
+    }
+
+    /*
+     * Processes a single file and records the result in the report.
+     */
+    private void processFile(String inputPath, String outputPath, Report report) {
+
+        InputStream is = null;
+        OutputStream os = null;
+        File output = new File(outputPath);
+        File tmp = new File(outputPath + TEMP_SUFFIX);
+
+        try {
+            is = new FileInputStream(inputPath);
+            os = new FileOutputStream(tmp);
+
+            if (MODE == MODE_CONVERT) {
+                // The registry is used directly as it reports I/O failures
+                CONVERTER.getRegistry().convert(is, os, INPUT_TYPE, OUTPUT_TYPE);
+            } else if (MODE == MODE_STREAM) {
+                LINE.processStream(is, INPUT_TYPE, os, OUTPUT_TYPE, COMMANDS);
+            } else {
+                LINE.process(is, INPUT_TYPE, os, OUTPUT_TYPE, COMMANDS);
+            }
+
+            os.close();
+            os = null;
+            output.delete();
+            if (!tmp.renameTo(output)) {
+                throw new IOException("Output cannot be moved to " + outputPath + ".");
+            }
+            report.BYTES_IN.addAndGet(new File(inputPath).length());
+            report.BYTES_OUT.addAndGet(output.length());
+            report.DONE.incrementAndGet();
+            System.out.println(inputPath + " ...done (" + (report.DONE.get() + report.FAILURES.size()) + " of " + report.FILES + ")");
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, inputPath, ex);
+            report.FAILURES.add(inputPath + "\t" + ex);
+        } finally {
+            close(is);
+            close(os);
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+            }
+        }
+    }
+}
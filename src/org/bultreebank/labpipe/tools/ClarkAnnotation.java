@@ -37,6 +37,9 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.bultreebank.labpipe.exceptions.MissingContentException;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 
 import clark.common.ClarkRuntime;
@@ -48,15 +51,23 @@ import clark.multiApply.ClarkProcessor;
 import clark.multiApply.UniversalProcessor;
 import java.io.FileInputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
 import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
 import org.bultreebank.labpipe.data.WebLicht;
 import org.bultreebank.labpipe.exceptions.ClarkConfigurationException;
 import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
 import org.bultreebank.labpipe.utils.ServiceConstants;
 
 
@@ -64,6 +75,17 @@ import org.bultreebank.labpipe.utils.ServiceConstants;
  * <code>ClarkAnnotation</code> loads a <code>ClarkProcessor</code> and sets it 
  * ready for data processing. This class requires a Multi-Query name to 
  * initialize a processor.
+ * 
+ * The underlying <code>ClarkProcessor</code> keeps the processed document as 
+ * its state, hence the object keeps a pool of processors built from the same 
+ * query (see {@link Configuration#CLARK_THREADS}) and each document is 
+ * processed by one processor at a time. A single object may safely be shared 
+ * between threads.
+ * 
+ * Multi-queries working within the bounds of a sentence may be run in chunked 
+ * mode (see {@link Configuration#CLARK_CHUNK_SIZE}): the document is split into 
+ * chunks of sentences, which are processed on the pool in parallel and joined 
+ * back into one document in their original order.
  *
  * @author Aleksandar Savkov & Aleksandar Simov
  */
@@ -72,7 +94,10 @@ public class ClarkAnnotation {
     private static String CONF_FILE;
     private static final Logger logger = Logger.getLogger(ClarkAnnotation.class.getName());
     private Configuration OPTIONS;
-    ClarkProcessor processor = null;
+    private volatile BlockingQueue<ClarkProcessor> PROCESSORS = null;
+    private int THREADS = 1;
+    private int CHUNK_SIZE = 0;
+    private ExecutorService EXECUTOR = null;
 
     /**
      * Creates a new object based on the LABPipe configuration and a 
@@ -84,8 +109,25 @@ public class ClarkAnnotation {
      * @throws ClarkConfigurationException  
      */
     public ClarkAnnotation(Configuration options, String queryName) throws ClarkConfigurationException {
+        this(options, queryName, 0);
+    }
+
+    /**
+     * Creates a new object based on the LABPipe configuration and a 
+     * Multi-Query name, processing XML documents in chunks of 
+     * <code>chunkSize</code> sentences. Only Multi-Queries which do not look 
+     * beyond the sentence may be run in chunks.
+     * 
+     * @param   options LABPipe configuration
+     * @param   queryName   Multi-Query name
+     * @param   chunkSize   number of sentences in a chunk; 0 processes 
+     *                      documents as a whole
+     * @throws ClarkConfigurationException  
+     */
+    public ClarkAnnotation(Configuration options, String queryName, int chunkSize) throws ClarkConfigurationException {
 
         OPTIONS = options;
+        CHUNK_SIZE = chunkSize;
 
         String clarkPath = null;
         String query = null;
@@ -103,14 +145,14 @@ public class ClarkAnnotation {
         }
 
         if (query != null) {
-            try {
-                this.processor = buildProcessor(query);
-            } catch (Exception ex) {
-                logger.log(Level.SEVERE, ex.getMessage(), ex);
-            }
+            initProcessors(query, OPTIONS.getClarkThreads());
         } else {
             throw new ClarkConfigurationException("No query configuration provided");
         }
+
+        if (THREADS > 1) {
+            EXECUTOR = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory("clark"));
+        }
     }
 
     /**
@@ -159,12 +201,7 @@ public class ClarkAnnotation {
             ClarkRuntime.initRuntime();
         }
         if (query != null) {
-            try {
-                this.processor = buildProcessor(query);
-            } catch (Exception ex) {
-                logger.severe(ex.getMessage());
-                ex.printStackTrace();
-            }
+            initProcessors(query, 1);
         } else {
             throw new ClarkConfigurationException("No query configuration provided");
         }
@@ -180,17 +217,26 @@ public class ClarkAnnotation {
      * @throws MissingContentException  
      */
     public String annotateTextData(String data) throws ClarkConfigurationException, MissingContentException {
-        if (processor == null) {
-            throw new ClarkConfigurationException("CLaRK processor is not initialized!");
-        }
         if (data == null || data.length() == 0) {
             throw new MissingContentException("Empty string or no data provided for CLaRK annotation.");
         }
 
-        Document inDoc = buildInputDoc(decode(data));
-        processor.processDoc(inDoc, ServiceConstants.PIPE_CHARACTER_ENCODING, "laska.dtd");
-        Document result = processor.getResult();
-        return extractResultFragment(result);
+        BlockingQueue<ClarkProcessor> pool = PROCESSORS;
+        ClarkProcessor processor = acquire(pool);
+        if (processor == null) {
+            throw new ClarkConfigurationException("CLaRK processor is not initialized!");
+        }
+
+        try {
+            Document inDoc = buildInputDoc(decode(data));
+            processor.processDoc(inDoc, ServiceConstants.PIPE_CHARACTER_ENCODING, "laska.dtd");
+            // The result is extracted before the processor is back in the pool
+            String resultString = extractResultFragment(processor.getResult());
+            processor.clearData();
+            return resultString;
+        } finally {
+            pool.add(processor);
+        }
 
     }
 
@@ -199,8 +245,11 @@ public class ClarkAnnotation {
      */
     public String annotateTextData(String data, int matherialID, int courceID,
             String language) {
+        BlockingQueue<ClarkProcessor> pool = PROCESSORS;
+        ClarkProcessor processor = acquire(pool);
         if (processor == null) {
             reportError(500, "CLaRK configuration failure");
+            return "";
         }
         if (data == null || data.length() == 0) {
             reportError(400, "No content provided");
@@ -210,15 +259,21 @@ public class ClarkAnnotation {
 //                + ", lang=" + language
 //                + ", content_length=" + ((data == null) ? 0 : data.length()));
 
-        Document inDoc = buildInputDoc(decode(data));
-        //System.out.println("Running processor ...");
-        processor.processDoc(inDoc, "", null);
-        Document result = processor.getResult();
-        if (result == null) {
-            reportError(500, "Internal error - no result doc generated");
+        try {
+            Document inDoc = buildInputDoc(decode(data));
+            //System.out.println("Running processor ...");
+            processor.processDoc(inDoc, "", null);
+            Document result = processor.getResult();
+            if (result == null) {
+                reportError(500, "Internal error - no result doc generated");
+            }
+            //System.out.println("Extracting result");
+            String resultString = extractResultFragment(result);
+            processor.clearData();
+            return resultString;
+        } finally {
+            pool.add(processor);
         }
-        //System.out.println("Extracting result");
-        return extractResultFragment(result);
 
     }
 
@@ -246,23 +301,30 @@ public class ClarkAnnotation {
      * @return  String  - CLaRK XML document
      */
     public String processXmlData(Document doc, String dtd) {
+        BlockingQueue<ClarkProcessor> pool = PROCESSORS;
+        ClarkProcessor processor = acquire(pool);
         if (processor == null) {
             reportError(500, "CLaRK configuration failure");
+            return "";
         }
         if (doc == null) {
             reportError(400, "No content provided");
         }
 
-//        System.out.println("Running processor ...");
-        processor.processDoc(doc, "", dtd);
-        Document result = processor.getResult();
-        if (result == null) {
-            reportError(500, "Internal error - no result doc generated");
+        try {
+//            System.out.println("Running processor ...");
+            processor.processDoc(doc, "", dtd);
+            Document result = processor.getResult();
+            if (result == null) {
+                reportError(500, "Internal error - no result doc generated");
+            }
+//            System.out.println("Extracting result");
+            String resultString = extractResultFragment(doc);
+            processor.clearData();
+            return resultString;
+        } finally {
+            pool.add(processor);
         }
-//        System.out.println("Extracting result");
-        String resultString = extractResultFragment(doc);
-        processor.clearData();
-        return resultString;
     }
 
     /**
@@ -291,21 +353,176 @@ public class ClarkAnnotation {
      * @throws MissingContentException  
      */
     public Document processXmlDocument(Document doc, String dtd) throws ClarkConfigurationException, MissingContentException {
+        if (doc == null) {
+            throw new MissingContentException("No data to process");
+        }
+
+        if (CHUNK_SIZE > 0) {
+            List<Document> chunks = splitDocument(doc);
+            if (chunks != null && chunks.size() > 1) {
+                return processChunks(doc, chunks, dtd);
+            }
+        }
+
+        BlockingQueue<ClarkProcessor> pool = PROCESSORS;
+        ClarkProcessor processor = acquire(pool);
         if (processor == null) {
             throw new ClarkConfigurationException("CLaRK processor is not initialized!");
         }
-        if (doc == null) {
-            throw new MissingContentException("No data to process");
+
+        try {
+//            System.out.println("Running processor ...");
+            processor.processDoc(doc, "", dtd);
+//            System.out.println("Extracting result");
+            return takeResult(processor);
+        } finally {
+            pool.add(processor);
+        }
+    }
+
+    /**
+     * Processes the sentence chunks of a document and joins the results into 
+     * a single document with the root element of the original one.
+     */
+    private Document processChunks(Document doc, List<Document> chunks, final String dtd) throws ClarkConfigurationException, MissingContentException {
+
+        List<Document> results = new ArrayList(chunks.size());
+
+        if (EXECUTOR == null) {
+            for (Document chunk : chunks) {
+                results.add(processChunk(chunk, dtd));
+            }
+        } else {
+            List<Future<Document>> futures = new ArrayList(chunks.size());
+            for (final Document chunk : chunks) {
+                futures.add(EXECUTOR.submit(new Callable<Document>() {
+
+                    public Document call() throws ClarkConfigurationException {
+                        return processChunk(chunk, dtd);
+                    }
+                }));
+            }
+            // Futures are collected in submission order, i.e. the original sentence order
+            try {
+                for (Future<Document> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MissingContentException("Interrupted while processing the document in CLaRK.");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof ClarkConfigurationException) {
+                    throw (ClarkConfigurationException) ex.getCause();
+                } else if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new ClarkConfigurationException(String.valueOf(ex.getCause()));
+            } finally {
+                for (Future<Document> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        Document joined = ClarkDocumentBuilder.buildClarkDocument();
+        Node root = joined.appendChild(joined.importNode(doc.getDocumentElement(), false));
+
+        for (Document result : results) {
+            if (result == null) {
+                return null;
+            }
+            NodeList children = result.getDocumentElement().getChildNodes();
+            while (children.getLength() > 0) {
+                Node child = children.item(0);
+                Node adopted = joined.adoptNode(child);
+                root.appendChild((adopted != null) ? adopted : joined.importNode(child, true));
+                if (adopted == null) {
+                    child.getParentNode().removeChild(child);
+                }
+            }
+        }
+
+        return joined;
+
+    }
+
+    /**
+     * Processes a single chunk on a processor from the pool.
+     */
+    private Document processChunk(Document chunk, String dtd) throws ClarkConfigurationException {
+
+        BlockingQueue<ClarkProcessor> pool = PROCESSORS;
+        ClarkProcessor processor = acquire(pool);
+        if (processor == null) {
+            throw new ClarkConfigurationException("CLaRK processor is not initialized!");
         }
 
-//        System.out.println("Running processor ...");
-        processor.processDoc(doc, "", dtd);
+        try {
+            processor.processDoc(chunk, "", dtd);
+            return takeResult(processor);
+        } finally {
+            pool.add(processor);
+        }
+
+    }
+
+    /**
+     * Copies the result of a processor into a new document and clears the 
+     * processor. This has to be done before the processor is returned to the
+     * pool, since the processor keeps its result as state and the next 
+     * request taking it from the pool would overwrite or clear the result.
+     */
+    private static Document takeResult(ClarkProcessor processor) {
+
         Document result = processor.getResult();
-        if (result == null) {
+        if (result == null || result.getDocumentElement() == null) {
+            processor.clearData();
             reportError(500, "Internal error - no result doc generated");
+            return null;
+        }
+        Document copy = ClarkDocumentBuilder.buildClarkDocument();
+        copy.appendChild(copy.importNode(result.getDocumentElement(), true));
+        processor.clearData();
+        return copy;
+
+    }
+
+    /**
+     * Splits a CLaRK document into documents of at most 
+     * <code>CHUNK_SIZE</code> sentences each. Returns <code>null</code> if 
+     * the root element contains anything but sentences, in which case the 
+     * document is processed as a whole.
+     */
+    private List<Document> splitDocument(Document doc) {
+
+        Element root = doc.getDocumentElement();
+        if (root == null) {
+            return null;
+        }
+
+        List<Document> chunks = new ArrayList();
+        Document chunk = null;
+        Node chunkRoot = null;
+        int sentences = 0;
+
+        for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals("s")) {
+                if (chunk == null || sentences == CHUNK_SIZE) {
+                    chunk = ClarkDocumentBuilder.buildClarkDocument();
+                    chunkRoot = chunk.appendChild(chunk.importNode(root, false));
+                    chunks.add(chunk);
+                    sentences = 0;
+                }
+                chunkRoot.appendChild(chunk.importNode(child, true));
+                sentences++;
+            } else if (child.getNodeType() == Node.ELEMENT_NODE
+                    || (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().length() > 0)) {
+                return null;
+            }
         }
-//        System.out.println("Extracting result");
-        return result;
+
+        return chunks;
+
     }
 
     /**
@@ -320,15 +537,11 @@ public class ClarkAnnotation {
      */
     public void processWebLichtStream(InputStream is, OutputStream os) throws ParserConfigurationException, JAXBException, MissingContentException, ClarkConfigurationException {
 
-        JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-        Marshaller m = jc.createMarshaller();
-        
         WebLicht doc = new WebLicht(is);
 
         processWebLicht(doc);
 
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        m.marshal(doc, os);
+        WebLicht.getMarshaller().marshal(doc, os);
 
     }
 
@@ -397,7 +610,7 @@ public class ClarkAnnotation {
      * to replace the one in this object.
      * @param queryName 
      */
-    public void changeMultiQuery(String queryName) {
+    public synchronized void changeMultiQuery(String queryName) {
 
         String query = null;
 
@@ -409,22 +622,61 @@ public class ClarkAnnotation {
 
         if (query != null) {
 
-            try {
+            // Processors in use are returned to the old pool and dropped with it
+            BlockingQueue<ClarkProcessor> old = PROCESSORS;
+            initProcessors(query, THREADS);
+            if (old != null) {
+                for (ClarkProcessor processor : old) {
+                    processor.clearData();
+                }
+            }
 
-                this.processor.clearData();
-                this.processor = buildProcessor(query);
+        } else {
+
+            logger.severe("No query configuration provided");
+
+        }
 
-            } catch (Exception ex) {
+    }
 
-                logger.severe(ex.getMessage());
-                ex.printStackTrace();
+    /**
+     * Builds the pool of <code>threads</code> processors. The pool is left 
+     * unset if any of them fails to build.
+     */
+    private void initProcessors(String query, int threads) {
 
+        BlockingQueue<ClarkProcessor> pool = new ArrayBlockingQueue<ClarkProcessor>(threads);
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                pool.add(buildProcessor(query));
             }
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, ex.getMessage(), ex);
+            return;
+        }
 
-        } else {
+        THREADS = threads;
+        PROCESSORS = pool;
 
-            logger.severe("No query configuration provided");
+    }
 
+    /**
+     * Takes a processor from <code>pool</code>, waiting for one to be 
+     * returned if all are in use. Returns <code>null</code> if there are no 
+     * processors.
+     */
+    private ClarkProcessor acquire(BlockingQueue<ClarkProcessor> pool) {
+
+        if (pool == null) {
+            return null;
+        }
+
+        try {
+            return pool.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
         }
 
     }
@@ -0,0 +1,512 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>CompactTransducer</code> is an in-process replacement of the SFST 
+ * longest-match transducer command used by {@link FstTokenizer}. The 
+ * transducer is loaded from the AT&amp;T text format printed by 
+ * <code>fst-print</code> for the compiled SFST transducer and is kept in flat
+ * arrays. Arcs are grouped by source state and sorted by input symbol, so the
+ * arcs matching a symbol are found by a binary search.
+ * 
+ * The transducer is applied like the SFST command does it: the input is 
+ * processed line by line, at every position the longest input prefix accepted
+ * by the transducer is replaced by its output and the characters that start 
+ * no match are copied unchanged. Multi-character symbols 
+ * (<code>&lt;...&gt;</code>) known to the transducer are read as single 
+ * symbols.
+ * 
+ * The object is immutable after loading and may be shared between threads.
+ *
+ * @author Aleksandar Savkov
+ */
+public class CompactTransducer {
+
+    private static final int EPSILON = 0;
+    private static final int MC_OFFSET = 0x10000;
+    /* Longest multi-character input symbol, see symbolAt() */
+    private static final int MAX_SYMBOL_LENGTH = 0xFF;
+    private final int[] ARC_START;
+    private final int[] ARC_INPUT;
+    private final int[] ARC_OUTPUT;
+    private final int[] ARC_TARGET;
+    private final boolean[] FINAL;
+    private final String[] MC_SYMBOLS;
+    /* Multi-character input symbols, longest first */
+    private final int[] MC_INPUT;
+
+    /**
+     * Loads a transducer from an AT&amp;T text file. The third column of an 
+     * arc line is the upper (analysis) symbol and the fourth one the lower 
+     * (surface) symbol, as in the SFST <code>upper:lower</code> notation. By 
+     * default the input is matched against the lower symbols.
+     * 
+     * @param   file    AT&amp;T text file
+     * @param   inverse match the input against the upper symbols instead
+     * @throws IOException  
+     */
+    public CompactTransducer(File file, boolean inverse) throws IOException {
+
+        HashMap<String, Integer> mcIds = new HashMap();
+        ArrayList<String> mcSymbols = new ArrayList();
+        IntList src = new IntList();
+        IntList in = new IntList();
+        IntList out = new IntList();
+        IntList trg = new IntList();
+        IntList finals = new IntList();
+        int states = 0;
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), ServiceConstants.PIPE_CHARACTER_ENCODING));
+        try {
+            String line;
+            int lineNo = 0;
+            while ((line = br.readLine()) != null) {
+                lineNo++;
+                if (line.length() == 0) {
+                    continue;
+                }
+                String[] cols = line.split("\t", -1);
+                try {
+                    if (cols.length < 3) {
+                        int state = Integer.parseInt(cols[0].trim());
+                        finals.add(state);
+                        states = Math.max(states, state + 1);
+                    } else {
+                        int s = Integer.parseInt(cols[0].trim());
+                        int t = Integer.parseInt(cols[1].trim());
+                        int upper = symbol(cols[2], mcIds, mcSymbols);
+                        int lower = (cols.length > 3) ? symbol(cols[3], mcIds, mcSymbols) : upper;
+                        src.add(s);
+                        trg.add(t);
+                        in.add(inverse ? upper : lower);
+                        out.add(inverse ? lower : upper);
+                        states = Math.max(states, Math.max(s, t) + 1);
+                    }
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Incorrect transducer line " + lineNo + " in " + file.getPath() + ": " + line);
+                }
+            }
+        } finally {
+            br.close();
+        }
+
+        // An empty transducer has a single start state without arcs
+        states = Math.max(states, 1);
+
+        // Group arcs by source state (counting sort) ...
+        int arcs = src.size();
+        ARC_START = new int[states + 1];
+        for (int i = 0; i < arcs; i++) {
+            ARC_START[src.get(i) + 1]++;
+        }
+        for (int i = 0; i < states; i++) {
+            ARC_START[i + 1] += ARC_START[i];
+        }
+        int[] fill = new int[states];
+        ARC_INPUT = new int[arcs];
+        ARC_OUTPUT = new int[arcs];
+        ARC_TARGET = new int[arcs];
+        for (int i = 0; i < arcs; i++) {
+            int s = src.get(i);
+            int idx = ARC_START[s] + fill[s]++;
+            ARC_INPUT[idx] = in.get(i);
+            ARC_OUTPUT[idx] = out.get(i);
+            ARC_TARGET[idx] = trg.get(i);
+        }
+        // ... and keep them sorted by input symbol (stable, epsilon first)
+        for (int s = 0; s < states; s++) {
+            for (int i = ARC_START[s] + 1; i < ARC_START[s + 1]; i++) {
+                int a = ARC_INPUT[i], b = ARC_OUTPUT[i], c = ARC_TARGET[i];
+                int j = i - 1;
+                while (j >= ARC_START[s] && ARC_INPUT[j] > a) {
+                    ARC_INPUT[j + 1] = ARC_INPUT[j];
+                    ARC_OUTPUT[j + 1] = ARC_OUTPUT[j];
+                    ARC_TARGET[j + 1] = ARC_TARGET[j];
+                    j--;
+                }
+                ARC_INPUT[j + 1] = a;
+                ARC_OUTPUT[j + 1] = b;
+                ARC_TARGET[j + 1] = c;
+            }
+        }
+
+        FINAL = new boolean[states];
+        for (int i = 0; i < finals.size(); i++) {
+            FINAL[finals.get(i)] = true;
+        }
+
+        MC_SYMBOLS = mcSymbols.toArray(new String[0]);
+        IntList mcInput = new IntList();
+        for (int i = 0; i < arcs; i++) {
+            if (ARC_INPUT[i] >= MC_OFFSET && mcInput.indexOf(ARC_INPUT[i]) < 0) {
+                if (MC_SYMBOLS[ARC_INPUT[i] - MC_OFFSET].length() > MAX_SYMBOL_LENGTH) {
+                    throw new IOException("Multi-character input symbol longer than " + MAX_SYMBOL_LENGTH
+                            + " characters in " + file.getPath() + ": " + MC_SYMBOLS[ARC_INPUT[i] - MC_OFFSET]);
+                }
+                mcInput.add(ARC_INPUT[i]);
+            }
+        }
+        MC_INPUT = mcInput.toArray();
+        for (int i = 1; i < MC_INPUT.length; i++) {
+            int a = MC_INPUT[i];
+            int j = i - 1;
+            while (j >= 0 && MC_SYMBOLS[MC_INPUT[j] - MC_OFFSET].length() < MC_SYMBOLS[a - MC_OFFSET].length()) {
+                MC_INPUT[j + 1] = MC_INPUT[j];
+                j--;
+            }
+            MC_INPUT[j + 1] = a;
+        }
+
+    }
+
+    /**
+     * Applies the transducer to <code>text</code> and appends the result to 
+     * <code>result</code>.
+     * 
+     * @param   text    input text
+     * @param   result  output buffer
+     */
+    public void apply(CharSequence text, StringBuilder result) {
+
+        Matcher m = new Matcher();
+        int n = text.length();
+        int lineStart = 0;
+
+        while (lineStart <= n) {
+            int lineEnd = lineStart;
+            while (lineEnd < n && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int pos = lineStart;
+            while (pos < lineEnd) {
+                int end = m.longestMatch(text, pos, lineEnd);
+                if (end > pos) {
+                    for (int i = 0; i < m.bestLength; i++) {
+                        appendSymbol(m.best[i], result);
+                    }
+                    pos = end;
+                } else {
+                    result.append(text.charAt(pos));
+                    pos++;
+                }
+            }
+            if (lineEnd < n) {
+                result.append('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+
+    }
+
+    /**
+     * Applies the transducer to <code>text</code>
+     * 
+     * @param   text    input text
+     * 
+     * @return  String
+     */
+    public String apply(CharSequence text) {
+        StringBuilder sb = new StringBuilder(text.length() + (text.length() >> 2));
+        apply(text, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of states
+     * 
+     * @return  int
+     */
+    public int getStateCount() {
+        return FINAL.length;
+    }
+
+    /**
+     * Gets the number of arcs
+     * 
+     * @return  int
+     */
+    public int getArcCount() {
+        return ARC_INPUT.length;
+    }
+
+    private void appendSymbol(int symbol, StringBuilder sb) {
+        if (symbol == EPSILON) {
+            return;
+        } else if (symbol < MC_OFFSET) {
+            sb.append((char) symbol);
+        } else {
+            sb.append(MC_SYMBOLS[symbol - MC_OFFSET]);
+        }
+    }
+
+    /**
+     * Reads the input symbol at <code>pos</code>. The symbol is kept in the 
+     * lower 24 bits of the result and its length in characters in the upper 
+     * 8 bits, so input symbols are at most 255 characters long 
+     * ({@link #MAX_SYMBOL_LENGTH}, checked when loading).
+     */
+    private int symbolAt(CharSequence text, int pos, int end) {
+        char c = text.charAt(pos);
+        if (c == '<') {
+            for (int id : MC_INPUT) {
+                String mc = MC_SYMBOLS[id - MC_OFFSET];
+                if (pos + mc.length() <= end && regionMatches(text, pos, mc)) {
+                    return id | (mc.length() << 24);
+                }
+            }
+        }
+        return c | (1 << 24);
+    }
+
+    private static boolean regionMatches(CharSequence text, int pos, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (text.charAt(pos + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int symbol(String s, HashMap<String, Integer> mcIds, ArrayList<String> mcSymbols) {
+        if (s.equals("<>") || s.equals("@0@") || s.length() == 0) {
+            return EPSILON;
+        }
+        if (s.length() == 2 && s.charAt(0) == '\\') {
+            char c = s.charAt(1);
+            return (c == 'n') ? '\n' : (c == 't') ? '\t' : c;
+        }
+        if (s.length() == 1) {
+            return s.charAt(0);
+        }
+        Integer id = mcIds.get(s);
+        if (id == null) {
+            id = MC_OFFSET + mcSymbols.size();
+            mcIds.put(s, id);
+            mcSymbols.add(s);
+        }
+        return id;
+    }
+
+    /**
+     * Depth-first search for the longest match from a position. All work 
+     * arrays are reused for the whole text.
+     */
+    private class Matcher {
+
+        private int[] state = new int[64];
+        private int[] pos = new int[64];
+        private int[] outLength = new int[64];
+        private int[] arc = new int[64];
+        private int[] epsHi = new int[64];
+        private int[] symLo = new int[64];
+        private int[] symHi = new int[64];
+        private int[] symLength = new int[64];
+        private int[] output = new int[64];
+        int[] best = new int[64];
+        int bestLength;
+
+        /**
+         * Finds the longest match starting at <code>start</code> and ending 
+         * not after <code>end</code>. Its output is left in 
+         * <code>best</code>.
+         * 
+         * @return  end of the match or <code>start</code> if there is none
+         */
+        int longestMatch(CharSequence text, int start, int end) {
+
+            int bestEnd = start;
+            bestLength = 0;
+            int depth = 0;
+            push(0, 0, start, 0, text, end);
+
+            while (depth >= 0) {
+
+                int a = arc[depth];
+                boolean isEpsilon = a < epsHi[depth];
+                if (!isEpsilon) {
+                    if (a < symLo[depth]) {
+                        a = symLo[depth];
+                    }
+                    if (a >= symHi[depth]) {
+                        depth--;
+                        continue;
+                    }
+                }
+                arc[depth] = a + 1;
+                if (isEpsilon && onPath(depth, ARC_TARGET[a])) {
+                    // epsilon cycle
+                    continue;
+                }
+
+                int nextPos = isEpsilon ? pos[depth] : pos[depth] + symLength[depth];
+                int length = outLength[depth];
+                if (ARC_OUTPUT[a] != EPSILON) {
+                    if (length == output.length) {
+                        output = grow(output);
+                    }
+                    output[length++] = ARC_OUTPUT[a];
+                }
+                int target = ARC_TARGET[a];
+
+                if (FINAL[target] && nextPos > bestEnd) {
+                    bestEnd = nextPos;
+                    if (best.length < length) {
+                        best = new int[output.length];
+                    }
+                    System.arraycopy(output, 0, best, 0, length);
+                    bestLength = length;
+                }
+
+                depth++;
+                push(depth, target, nextPos, length, text, end);
+            }
+
+            return bestEnd;
+
+        }
+
+        /**
+         * Checks whether state <code>s</code> was reached at the current 
+         * position by the epsilon arcs leading to <code>depth</code>.
+         */
+        private boolean onPath(int depth, int s) {
+            for (int d = depth; d >= 0 && pos[d] == pos[depth]; d--) {
+                if (state[d] == s) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void push(int depth, int s, int p, int length, CharSequence text, int end) {
+
+            if (depth == state.length) {
+                state = grow(state);
+                pos = grow(pos);
+                outLength = grow(outLength);
+                arc = grow(arc);
+                epsHi = grow(epsHi);
+                symLo = grow(symLo);
+                symHi = grow(symHi);
+                symLength = grow(symLength);
+            }
+
+            int lo = ARC_START[s];
+            int hi = ARC_START[s + 1];
+            int e = lo;
+            while (e < hi && ARC_INPUT[e] == EPSILON) {
+                e++;
+            }
+
+            state[depth] = s;
+            pos[depth] = p;
+            outLength[depth] = length;
+            arc[depth] = lo;
+            epsHi[depth] = e;
+
+            if (p >= end || e == hi) {
+                symLo[depth] = e;
+                symHi[depth] = e;
+                return;
+            }
+
+            int sym = symbolAt(text, p, end);
+            symLength[depth] = sym >>> 24;
+            sym &= 0xFFFFFF;
+
+            // lower bound of the symbol among the sorted arcs
+            int l = e, h = hi;
+            while (l < h) {
+                int m = (l + h) >>> 1;
+                if (ARC_INPUT[m] < sym) {
+                    l = m + 1;
+                } else {
+                    h = m;
+                }
+            }
+            int u = l;
+            while (u < hi && ARC_INPUT[u] == sym) {
+                u++;
+            }
+            symLo[depth] = l;
+            symHi[depth] = u;
+
+        }
+
+        private int[] grow(int[] a) {
+            int[] b = new int[a.length * 2];
+            System.arraycopy(a, 0, b, 0, a.length);
+            return b;
+        }
+    }
+
+    /**
+     * Growable list of primitive integers used while loading.
+     */
+    private static class IntList {
+
+        private int[] data = new int[1024];
+        private int size = 0;
+
+        void add(int i) {
+            if (size == data.length) {
+                int[] d = new int[size * 2];
+                System.arraycopy(data, 0, d, 0, size);
+                data = d;
+            }
+            data[size++] = i;
+        }
+
+        int get(int i) {
+            return data[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int indexOf(int i) {
+            for (int j = 0; j < size; j++) {
+                if (data[j] == i) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+        int[] toArray() {
+            int[] a = new int[size];
+            System.arraycopy(data, 0, a, 0, size);
+            return a;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>FstPipeline</code> is a long-lived chain of transducer processes 
+ * joined like a shell pipe. Documents are written to the standard input of the
+ * first process and their results are read from the standard output of the 
+ * last one. Each document has to end with the {@link #EOF} marker, which the 
+ * transducers pass through unchanged, so the marker also ends the result of 
+ * the document.
+ * 
+ * A pipeline processes one document at a time and is not thread-safe. See 
+ * {@link FstPipelinePool}.
+ *
+ * @author Aleksandar Savkov
+ */
+public class FstPipeline {
+
+    /**
+     * End of document marker
+     */
+    public static final String EOF = "<eof>";
+    private final Process[] PROCESSES;
+    private final OutputStream INPUT;
+    private final BlockingQueue<Object> RESULTS = new LinkedBlockingQueue<Object>();
+
+    /**
+     * Starts a new pipeline of the processes in <code>commands</code>
+     * 
+     * @param   commands    list of process commands
+     * @throws IOException  
+     */
+    public FstPipeline(List<String[]> commands) throws IOException {
+
+        PROCESSES = new Process[commands.size()];
+        ProcessBuilder pb = new ProcessBuilder();
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                pb.command(commands.get(i));
+                PROCESSES[i] = pb.start();
+                startDaemon(new Copier(PROCESSES[i].getErrorStream(), null), "fst-stderr");
+                if (i > 0) {
+                    startDaemon(new Copier(PROCESSES[i - 1].getInputStream(), PROCESSES[i].getOutputStream()), "fst-pipe");
+                }
+            }
+        } catch (IOException ex) {
+            destroy();
+            throw ex;
+        }
+
+        INPUT = PROCESSES[0].getOutputStream();
+        startDaemon(new FrameReader(PROCESSES[PROCESSES.length - 1].getInputStream()), "fst-reader");
+
+    }
+
+    /**
+     * Processes a single document. The document must not contain line breaks
+     * and must end with {@link #EOF}.
+     * 
+     * @param   document    document
+     * @param   timeout timeout in milliseconds
+     * 
+     * @return  String  - result including the {@link #EOF} marker
+     * @throws IOException  in case the pipeline fails or times out
+     * @throws InterruptedException 
+     */
+    public String process(String document, long timeout) throws IOException, InterruptedException {
+
+        INPUT.write(document.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+        INPUT.write('\n');
+        INPUT.flush();
+
+        Object result = RESULTS.poll(timeout, TimeUnit.MILLISECONDS);
+
+        if (result == null) {
+            throw new IOException("Transducer pipeline did not respond in " + timeout + " ms.");
+        } else if (result instanceof IOException) {
+            throw (IOException) result;
+        }
+
+        return (String) result;
+
+    }
+
+    /**
+     * Checks whether all processes of the pipeline are running.
+     * 
+     * @return  boolean
+     */
+    public boolean isAlive() {
+        for (Process p : PROCESSES) {
+            if (p == null) {
+                return false;
+            }
+            try {
+                p.exitValue();
+                return false;
+            } catch (IllegalThreadStateException ex) {
+                // still running
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Kills all processes of the pipeline.
+     */
+    public final void destroy() {
+        for (Process p : PROCESSES) {
+            if (p != null) {
+                p.destroy();
+            }
+        }
+    }
+
+    private static void startDaemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Reads the output of the last process and splits it into document 
+     * results on the {@link FstPipeline#EOF} marker.
+     */
+    private class FrameReader implements Runnable {
+
+        private final InputStream IS;
+
+        FrameReader(InputStream is) {
+            IS = is;
+        }
+
+        public void run() {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[4096];
+            try {
+                Reader reader = new InputStreamReader(IS, ServiceConstants.PIPE_CHARACTER_ENCODING);
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    int from = Math.max(0, sb.length() - EOF.length());
+                    sb.append(buffer, 0, read);
+                    int idx;
+                    while ((idx = sb.indexOf(EOF, from)) != -1) {
+                        RESULTS.add(sb.substring(0, idx + EOF.length()));
+                        sb.delete(0, idx + EOF.length());
+                        from = 0;
+                    }
+                }
+                RESULTS.add(new IOException("Transducer pipeline terminated."));
+            } catch (IOException ex) {
+                RESULTS.add(ex);
+            }
+        }
+    }
+
+    /**
+     * Copies a process stream into another one, flushing after every read so 
+     * that a document does not get stuck between two processes. Without an 
+     * output stream the input is discarded.
+     */
+    private static class Copier implements Runnable {
+
+        private final InputStream IS;
+        private final OutputStream OS;
+
+        Copier(InputStream is, OutputStream os) {
+            IS = is;
+            OS = os;
+        }
+
+        public void run() {
+            byte[] b = new byte[4096];
+            int read;
+            try {
+                while ((read = IS.read(b)) != -1) {
+                    if (OS != null) {
+                        OS.write(b, 0, read);
+                        OS.flush();
+                    }
+                }
+            } catch (IOException ex) {
+                // the pipeline is being destroyed
+            } finally {
+                try {
+                    IS.close();
+                    if (OS != null) {
+                        OS.close();
+                    }
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+}
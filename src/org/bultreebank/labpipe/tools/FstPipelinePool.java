@@ -0,0 +1,176 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+
+/**
+ * <code>FstPipelinePool</code> keeps a number of pre-started 
+ * {@link FstPipeline} objects, so that documents are tokenized without 
+ * starting new processes. Pipelines that die or stop responding are replaced 
+ * with new ones, both when they are borrowed and by a periodic health check 
+ * probing the idle pipelines with an empty document.
+ *
+ * @author Aleksandar Savkov
+ */
+public class FstPipelinePool {
+
+    private static final Logger logger = Logger.getLogger(FstPipelinePool.class.getName());
+    private static final long HEALTH_CHECK_PERIOD = 60;
+    private static final long HEALTH_CHECK_TIMEOUT = 5000;
+    private final List<String[]> COMMANDS;
+    private final long TIMEOUT;
+    private final BlockingQueue<FstPipeline> IDLE;
+    private final ScheduledExecutorService HEALTH_CHECK;
+
+    /**
+     * Creates a new pool and starts <code>size</code> pipelines
+     * 
+     * @param   commands    transducer commands of a pipeline
+     * @param   size    number of pipelines
+     * @param   timeout maximum processing time per document in milliseconds
+     * @throws IOException  
+     */
+    public FstPipelinePool(List<String[]> commands, int size, long timeout) throws IOException {
+
+        COMMANDS = new ArrayList(commands);
+        TIMEOUT = timeout;
+        IDLE = new ArrayBlockingQueue<FstPipeline>(size);
+
+        for (int i = 0; i < size; i++) {
+            IDLE.add(new FstPipeline(COMMANDS));
+        }
+
+        HEALTH_CHECK = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("fst-health-check"));
+        HEALTH_CHECK.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                checkHealth();
+            }
+        }, HEALTH_CHECK_PERIOD, HEALTH_CHECK_PERIOD, TimeUnit.SECONDS);
+
+    }
+
+    /**
+     * Processes a single document with the first idle pipeline. The document 
+     * must not contain line breaks and must end with {@link FstPipeline#EOF}.
+     * 
+     * @param   document    document
+     * 
+     * @return  String  - result including the {@link FstPipeline#EOF} marker
+     * @throws IOException 
+     * @throws InterruptedException  
+     */
+    public String process(String document) throws IOException, InterruptedException {
+
+        FstPipeline pipeline = IDLE.take();
+        boolean done = false;
+
+        try {
+            if (!pipeline.isAlive()) {
+                logger.warning("Restarting a dead transducer pipeline.");
+                pipeline = restart(pipeline);
+            }
+            String result = pipeline.process(document, TIMEOUT);
+            done = true;
+            return result;
+        } finally {
+            // After a failure, a timeout or an interrupt the result of the 
+            // document may still be pending and would be read by the next one
+            if (!done) {
+                pipeline = restart(pipeline);
+            }
+            IDLE.add(pipeline);
+        }
+
+    }
+
+    /**
+     * Probes every idle pipeline with an empty document and restarts the ones 
+     * that fail to respond.
+     */
+    public void checkHealth() {
+
+        int idle = IDLE.size();
+
+        for (int i = 0; i < idle; i++) {
+
+            FstPipeline pipeline = IDLE.poll();
+            if (pipeline == null) {
+                return;
+            }
+
+            try {
+                if (!pipeline.isAlive()) {
+                    throw new IOException("Transducer pipeline is dead.");
+                }
+                pipeline.process(FstPipeline.EOF, HEALTH_CHECK_TIMEOUT);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Restarting a transducer pipeline that failed the health check.", ex);
+                pipeline = restart(pipeline);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                pipeline = restart(pipeline);
+            } finally {
+                IDLE.add(pipeline);
+            }
+
+        }
+
+    }
+
+    /**
+     * Stops the health check and kills all idle pipelines.
+     */
+    public void close() {
+        HEALTH_CHECK.shutdownNow();
+        FstPipeline pipeline;
+        while ((pipeline = IDLE.poll()) != null) {
+            pipeline.destroy();
+        }
+    }
+
+    /**
+     * Replaces <code>pipeline</code> with a new one. In case the new pipeline 
+     * cannot be started the old one is returned and will be restarted again 
+     * the next time it is used.
+     */
+    private FstPipeline restart(FstPipeline pipeline) {
+        pipeline.destroy();
+        try {
+            return new FstPipeline(COMMANDS);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Transducer pipeline cannot be restarted.", ex);
+            return pipeline;
+        }
+    }
+
+}
@@ -25,12 +25,15 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.bultreebank.labpipe.data.WebLicht;
@@ -43,6 +46,19 @@ import org.bultreebank.labpipe.utils.ServiceConstants;
 /**
  * <code>FstTokenizer</code> is a wrapper class that performs tokenization using 
  * piped finite state transducers.
+ * 
+ * By default the transducer processes are started for every document. When 
+ * {@link Configuration#SFST_POOL_SIZE} is set, documents are passed to a pool 
+ * of pre-started pipelines instead (see {@link FstPipelinePool}). The first 
+ * command of the chain (<code>tr</code>) is then applied in Java and each 
+ * document is sent as a single line ending with the <code>&lt;eof&gt;</code> 
+ * marker, so the transducer commands must flush their output after every 
+ * line (see {@link Configuration#SFST_POOL_COMMAND_PREFIX}).
+ * 
+ * When {@link Configuration#SFST_ENGINE} is <code>java</code>, no processes 
+ * are started at all and the transducers are applied in-process by 
+ * {@link CompactTransducer}. {@link org.bultreebank.labpipe.main.FstDiff} 
+ * compares the output of both engines on a corpus.
  *
  * @author Aleksandar Savkov
  */
@@ -52,6 +68,8 @@ public class FstTokenizer extends Tokenizer {
     private String TRANSDUCER_HOME = null;
     private ArrayList<String[]> COMMANDS = null;
     private String EOS_TOKEN = null;
+    private FstPipelinePool POOL = null;
+    private CompactTransducer[] TRANSDUCERS = null;
     private static final Logger logger = Logger.getLogger(FstTokenizer.class.getName());
 
     /**
@@ -64,6 +82,39 @@ public class FstTokenizer extends Tokenizer {
         TRANSDUCER_HOME = conf.getTransducerHome();
         EOS_TOKEN = conf.getProperty(Configuration.EOS_TOKEN);
         setTransducerCommands(conf.getProperty(Configuration.TRANSDUCER_LIST));
+        
+        String engine = conf.getProperty(Configuration.SFST_ENGINE);
+        if (engine != null && engine.trim().startsWith("java")) {
+            try {
+                loadTransducers(engine.trim().equals("java-inverse"));
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Transducers cannot be loaded, falling back to the SFST command.", ex);
+            }
+        }
+        
+        if (TRANSDUCERS == null && conf.containsKey(Configuration.SFST_POOL_SIZE)
+                && Integer.parseInt(conf.getProperty(Configuration.SFST_POOL_SIZE)) > 0) {
+            int size = Integer.parseInt(conf.getProperty(Configuration.SFST_POOL_SIZE));
+            long timeout = (conf.containsKey(Configuration.SFST_POOL_TIMEOUT)) 
+                    ? Long.parseLong(conf.getProperty(Configuration.SFST_POOL_TIMEOUT)) * 1000 : 60000;
+            String prefix = conf.getProperty(Configuration.SFST_POOL_COMMAND_PREFIX);
+            
+            List<String[]> commands = new ArrayList();
+            for (String[] command : COMMANDS.subList(1, COMMANDS.size())) {
+                if (prefix != null && prefix.trim().length() > 0) {
+                    ArrayList<String> prefixed = new ArrayList(Arrays.asList(prefix.trim().split(" +")));
+                    prefixed.addAll(Arrays.asList(command));
+                    command = prefixed.toArray(new String[0]);
+                }
+                commands.add(command);
+            }
+            
+            try {
+                POOL = new FstPipelinePool(commands, size, timeout);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Transducer pipelines cannot be started, falling back to a process chain per document.", ex);
+            }
+        }
     }
 
     /**
@@ -100,13 +151,105 @@ public class FstTokenizer extends Tokenizer {
         }
     }
     
+    /**
+     * Loads the AT&amp;T form of the transducers in the transducer commands 
+     * for the in-process engine. The AT&amp;T files missing in the transducer
+     * home are printed from the compiled transducers with 
+     * <code>fst-print</code>, which is expected next to the SFST command.
+     * 
+     * @param   inverse match the input against the upper side
+     * @throws IOException  
+     */
+    public final void loadTransducers(boolean inverse) throws IOException {
+        CompactTransducer[] transducers = new CompactTransducer[COMMANDS.size() - 1];
+        for (int i = 1; i < COMMANDS.size(); i++) {
+            String[] command = COMMANDS.get(i);
+            String transducer = command[command.length - 1];
+            File att = new File(transducer + ".att");
+            if (!att.isFile()) {
+                printTransducer(transducer, att);
+            }
+            transducers[i - 1] = new CompactTransducer(att, inverse);
+        }
+        TRANSDUCERS = transducers;
+    }
+    
+    /*
+     * Prints a compiled transducer into an AT&T text file with fst-print. The 
+     * file is written under a temporary name, so a failed run leaves no 
+     * partial transducer behind.
+     */
+    private void printTransducer(String transducer, File att) throws IOException {
+        File dir = new File(FST_COMMAND).getParentFile();
+        String command = (dir == null) ? "fst-print" : new File(dir, "fst-print").getPath();
+        File tmp = new File(att.getPath() + ".tmp");
+        Process p = new ProcessBuilder(command, transducer).start();
+        p.getErrorStream().close();
+        InputStream is = p.getInputStream();
+        OutputStream os = new FileOutputStream(tmp);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+            }
+        } finally {
+            os.close();
+            is.close();
+        }
+        int exit;
+        try {
+            exit = p.waitFor();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            p.destroy();
+            exit = -1;
+        }
+        if (exit != 0 || !tmp.renameTo(att)) {
+            tmp.delete();
+            throw new IOException("Transducer " + transducer + " cannot be printed with " + command + ".");
+        }
+        logger.log(Level.INFO, "Printed transducer {0} into {1}", new Object[]{transducer, att.getPath()});
+    }
+    
+    /**
+     * Checks whether the transducers are applied in-process (see 
+     * {@link #loadTransducers(boolean)}) rather than by SFST processes.
+     * 
+     * @return  boolean
+     */
+    public boolean isInProcess() {
+        return TRANSDUCERS != null;
+    }
+    
     @Override
     public String tokenize(String text) throws InterruptedException {
         
+        if (TRANSDUCERS != null) {
+            String[] tr = COMMANDS.get(0);
+            CharSequence data = translate(text + FstPipeline.EOF, tr[1], tr[2]);
+            for (CompactTransducer transducer : TRANSDUCERS) {
+                StringBuilder sb = new StringBuilder(data.length() + (data.length() >> 2));
+                transducer.apply(data, sb);
+                data = sb;
+            }
+            return postProcess(data.toString());
+        }
+        
+        if (POOL != null) {
+            try {
+                String[] tr = COMMANDS.get(0);
+                return postProcess(POOL.process(translate(text + FstPipeline.EOF, tr[1], tr[2])));
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                return null;
+            }
+        }
+        
         InputStream is = null;
         try {
             is = new ByteArrayInputStream((text + "<eof>").getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
-            return tokenize(is);
+            return tokenizeWithProcesses(is);
         } catch (UnsupportedEncodingException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
         } finally {
@@ -129,6 +272,21 @@ public class FstTokenizer extends Tokenizer {
      * @throws InterruptedException
      */
     public String tokenize(InputStream is) throws InterruptedException {
+        
+        if (TRANSDUCERS != null || POOL != null) {
+            // Line breaks are translated into spaces, so they need not be kept
+            String text = Misc.readFileInputStream(is);
+            return (text == null) ? null : tokenize(text);
+        }
+        
+        return tokenizeWithProcesses(is);
+        
+    }
+    
+    /*
+     * Tokenizes the text from is with a new chain of transducer processes.
+     */
+    private String tokenizeWithProcesses(InputStream is) throws InterruptedException {
         try {
             ProcessBuilder pb = new ProcessBuilder();
             Process[] proc = new Process[COMMANDS.size()];
@@ -142,25 +300,7 @@ public class FstTokenizer extends Tokenizer {
                 proc[i] = pb.start();
             }
             
-            String result = Misc.readInputStream(Piper.pipe(proc));
-            result = result.replaceAll("<eof>", "");
-            result = result.replaceAll(ServiceConstants.SFST_EOS_TOKEN, EOS_TOKEN);
-            result = result.replaceAll("\n+", "\n");
-            result = result.replaceFirst("\n+$", "");
-            result = result.trim();
-            
-            String ending = (result.length() > 100) ? result.substring(result.length() - 100) : result;
-            
-            if (ending.endsWith(EOS_TOKEN)) {
-                return result;
-            } else if (!ending.matches(".+" + EOS_TOKEN + "[\n ]*$")) {
-                if (!ending.endsWith("\n"))
-                    result = result.concat("\n");
-                result = result.concat(EOS_TOKEN);
-                result = result.concat("\n");
-            }
-            
-            return result;
+            return postProcess(Misc.readInputStream(Piper.pipe(proc)));
             
         } catch (IOException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
@@ -169,6 +309,72 @@ public class FstTokenizer extends Tokenizer {
         return null;
         
     }
+    
+    /**
+     * Stops the pooled transducer pipelines, if any.
+     */
+    public void close() {
+        if (POOL != null) {
+            POOL.close();
+            POOL = null;
+        }
+    }
+    
+    /**
+     * Translates the characters of <code>text</code> found in <code>from</code>
+     * into the characters at the same position in <code>to</code> in the same 
+     * way as <code>tr</code> does: <code>to</code> is padded with its last 
+     * character and the last mapping of a repeated character wins. The 
+     * arguments are taken literally, as they are passed to the <code>tr</code>
+     * process without a shell.
+     * 
+     * @param   text    text
+     * @param   from    characters to replace
+     * @param   to  replacement characters
+     * 
+     * @return  String
+     */
+    static String translate(String text, String from, String to) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int idx = from.lastIndexOf(c);
+            if (idx > -1 && to.length() > 0) {
+                c = to.charAt(Math.min(idx, to.length() - 1));
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Cleans up the raw transducer output
+     * 
+     * @param   result  raw transducer output
+     * @return  String  Line encoded tokenized data
+     */
+    private String postProcess(String result) {
+    
+        result = result.replaceAll("<eof>", "");
+        result = result.replaceAll(ServiceConstants.SFST_EOS_TOKEN, EOS_TOKEN);
+        result = result.replaceAll("\n+", "\n");
+        result = result.replaceFirst("\n+$", "");
+        result = result.trim();
+        
+        String ending = (result.length() > 100) ? result.substring(result.length() - 100) : result;
+        
+        if (ending.endsWith(EOS_TOKEN)) {
+            return result;
+        } else if (!ending.matches(".+" + EOS_TOKEN + "[\n ]*$")) {
+            if (!ending.endsWith("\n"))
+                result = result.concat("\n");
+            result = result.concat(EOS_TOKEN);
+            result = result.concat("\n");
+        }
+        
+        return result;
+        
+    }
 
     @Override
     public WebLicht tokenize(File file) throws InterruptedException, IncorrectInputException {
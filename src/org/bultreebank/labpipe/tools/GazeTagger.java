@@ -48,35 +48,72 @@ import org.bultreebank.labpipe.utils.ServiceConstants;
  * <code>GazeTagger</code> is a wrapper around the Gaze project by Georgi 
  * Georgiev. The input of this tagger is line based entries of 
  * <code>token</code>, <code>suggested tag(s)</code> and <code>O</code>.
+ * 
+ * The Gaze word and label libraries are initialized once, when the first 
+ * tagger object is created, and the feature and tag model paths are resolved 
+ * in the constructor, so a single object can tag any number of streams. The 
+ * libraries keep their state in static fields, hence tagging is serialized 
+ * over all objects and an object may safely be shared between threads.
  *
  * @author Aleksandar Savkov
  */
 public class GazeTagger {
     
     private static final Logger logger = Logger.getLogger(GazeTagger.class.getName());
+    
+    private static final Object LOCK = new Object();
+    private static String LOG_CONF = null;
+    
+    private Configuration OPTIONS;
+    private String FEATURES;
+    private String TAGS;
+
+    /**
+     * Creates a new tagger based on the LABPipe configuration. Initializes 
+     * the Gaze libraries unless they have already been initialized.
+     * 
+     * @param   options LABPipe configuration
+     */
+    public GazeTagger(Configuration options) {
+        
+        OPTIONS = options;
+        FEATURES = options.getGazeFeatures();
+        TAGS = options.getGazeTags();
+        
+        synchronized (LOCK) {
+            if (LOG_CONF == null) {
+                LOG_CONF = options.getGazeConf();
+                PropertyConfigurator.configure(LOG_CONF);
+                SWordLib.init();
+                SLabelLib.init();
+            } else if (!LOG_CONF.equals(options.getGazeConf())) {
+                logger.log(Level.WARNING, "Gaze is already initialized with logging configuration {0}", LOG_CONF);
+            }
+        }
+        
+    }
 
     /**
      * Tags the WebLicht document <code>tokens</code> and adds <code>tags</code>
      * entries in the same document.
      * 
      * @param   doc WebLicht document
-     * @param   options LABPipe configuration
      * @throws IncorrectInputException  
      */
-    public static void tagWebLicht(WebLicht doc, Configuration options) throws IncorrectInputException {
+    public void tag(WebLicht doc) throws IncorrectInputException {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
 
-            doc.toLines(baos, options.getProperty(Configuration.EOS_TOKEN), true);
+            doc.toLines(baos, OPTIONS.getProperty(Configuration.EOS_TOKEN), true);
             ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
             baos = new ByteArrayOutputStream(1024);
 
-            tagStream(bais, System.out, options);
+            tag(bais, baos);
 
             LineConverter.toWebLicht(new ByteArrayInputStream(baos.toByteArray()), ServiceConstants.GAZE_EOS_TOKEN, doc);
             
         } catch (MissingContentException ex) {
-            Logger.getLogger(GazeTagger.class.getName()).log(Level.SEVERE, null, ex);
+            logger.log(Level.SEVERE, null, ex);
         }
 
     }
@@ -86,14 +123,12 @@ public class GazeTagger {
      * 
      * @param   is  input stream (Gaze)
      * @param   os  output stream (Line)
-     * @param   options LABPipe configuration
      */
-    public static void tagStream(InputStream is, OutputStream os, Configuration options) {
+    public void tag(InputStream is, OutputStream os) {
 
-        PropertyConfigurator.configure(options.getGazeConf());
-        SWordLib.init();
-        SLabelLib.init();
-        bpos.tagBgWithRules(is, os, options.getGazeFeatures(), options.getGazeTags());
+        synchronized (LOCK) {
+            bpos.tagBgWithRules(is, os, FEATURES, TAGS);
+        }
 
     }
     
@@ -101,22 +136,23 @@ public class GazeTagger {
      * Tags a Gaze data format String.
      * 
      * @param   input   input string
-     * @param   options LABPipe configuration
      * 
      * @return  String  - Line encoded data
      */
-    public static String tagString(String input, Configuration options) {
+    public String tag(String input) {
         ByteArrayInputStream bais = null;
         try {
             bais = new ByteArrayInputStream(input.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
             ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-            tagStream(bais, baos, options);
+            tag(bais, baos);
             return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
         } catch (UnsupportedEncodingException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
         } finally {
             try {
-                bais.close();
+                if (bais != null) {
+                    bais.close();
+                }
             } catch (IOException ex) {
                 logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
             }
@@ -125,6 +161,48 @@ public class GazeTagger {
         return null;
     }
 
+    /**
+     * Tags the WebLicht document <code>tokens</code> and adds <code>tags</code>
+     * entries in the same document.
+     * 
+     * @param   doc WebLicht document
+     * @param   options LABPipe configuration
+     * @throws IncorrectInputException  
+     * @deprecated  use {@link #tag(WebLicht)} on a long-lived object
+     */
+    @Deprecated
+    public static void tagWebLicht(WebLicht doc, Configuration options) throws IncorrectInputException {
+        new GazeTagger(options).tag(doc);
+    }
+
+    /**
+     * Tags a Gaze data format stream and outputs it in another stream.
+     * 
+     * @param   is  input stream (Gaze)
+     * @param   os  output stream (Line)
+     * @param   options LABPipe configuration
+     * @deprecated  use {@link #tag(InputStream, OutputStream)} on a 
+     *              long-lived object
+     */
+    @Deprecated
+    public static void tagStream(InputStream is, OutputStream os, Configuration options) {
+        new GazeTagger(options).tag(is, os);
+    }
+    
+    /**
+     * Tags a Gaze data format String.
+     * 
+     * @param   input   input string
+     * @param   options LABPipe configuration
+     * 
+     * @return  String  - Line encoded data
+     * @deprecated  use {@link #tag(String)} on a long-lived object
+     */
+    @Deprecated
+    public static String tagString(String input, Configuration options) {
+        return new GazeTagger(options).tag(input);
+    }
+
     public static void main(String[] args) throws Exception {
 
         //String input = "Третата	Mofsd	O\nЮгославия	Npfsi	O\n,	punct	O\nсъздадена	Vpptcv--sfi	O\nпрез	R	O\nмай	Ncmsi;Tm;Vpitz--2s	O\n1992	M	O\nг.	Ncfsi;Ncfpi	O\nкато	Cs;R	O\nфедерация	Ncfsi	O\nна	R;Te	O\nдвете	Mc-pd;Mcfpd;Mcnpd	O\nостанали	Vppicao-p-i	O\nрепублики	Ncfpi	O\n-	punct	O\nСърбия	Npfsi	O\nи	Cp	O\nЧерна	Afsi	O\nгора	Ncfsi	O\n-	punct	O\nбеше	Vxitf-t2s;Vxitf-t3s	O\nпродукт	Ncmsi	O\nна	R	O\nпропагандната	Afsd	O\nкампания	Ncfsi	O\nна	R	O\nСлободан	Npmsi	O\nМилошевич	H-pi;Hfsi;Hmsi	O\n.	punct	O\n##sb\nВъпросите	Ncmpd	O\n,	punct	O\nпредизвикващи	Vpitcar-p-i	O\nопасения	Amsh;Ncnpi;Vpptcv--smh	O\n,	punct	O\nса	Vxitf-r3p	O\nпо-скоро	Ansi;Dt	O\nпрактически	A-pi;Amsi;Dm	O\n.	punct	O\n##sb\n";
@@ -132,6 +210,7 @@ public class GazeTagger {
         HashMap<String, String> pars = CommandLineUtils.makeParameterMap(args);
         Configuration conf = new Configuration();
         conf.loadConfigFileFromFS(pars.get("-o"), Configuration.XML);
+        GazeTagger tagger = new GazeTagger(conf);
 
         if (pars.containsKey("-w")) {
 
@@ -140,7 +219,7 @@ public class GazeTagger {
                 InputStream is = new FileInputStream(path);
                 OutputStream os = new FileOutputStream(pars.get("-wo") + new File(path).getName().replaceFirst("\\.[^\\.]+$", ".conll"));
 
-                GazeTagger.tagStream(is, os, conf);
+                tagger.tag(is, os);
 
             }
 
@@ -149,7 +228,7 @@ public class GazeTagger {
             InputStream is = new FileInputStream(pars.get("-in"));
             OutputStream os = new FileOutputStream(pars.get("-out"));
 
-            GazeTagger.tagStream(is, os, conf);
+            tagger.tag(is, os);
 
         }
 
@@ -41,15 +41,23 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
+import org.bultreebank.labpipe.data.AnnotationIndex;
 import org.bultreebank.labpipe.data.Conll;
 import org.bultreebank.labpipe.data.WebLicht;
 import org.bultreebank.labpipe.utils.ClassMap;
 import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
 import org.bultreebank.labpipe.utils.ServiceConstants;
 import org.bultreebank.labpipe.utils.DataUtils;
 import org.maltparser.MaltParserService;
@@ -58,6 +66,12 @@ import org.maltparser.core.exception.MaltChainedException;
 /**
  * <code>MaltParserWrapper</code> uses the MaltParser API to facilitate data 
  * parsing in LABPipe.
+ * 
+ * The <code>MaltParserService</code> is not thread-safe, hence the wrapper 
+ * keeps a pool of parser model instances (see 
+ * {@link Configuration#MALT_PARSER_THREADS}) and each sentence is parsed by 
+ * one instance at a time. With more than one instance the sentences of a 
+ * {@link Conll} document are parsed in parallel.
  *
  * @author Aleksandar Savkov
  */
@@ -65,7 +79,13 @@ public class MaltParserWrapper {
 
     private static Configuration OPTIONS = null;
     private static ObjectFactory FACTORY = new ObjectFactory();
-    private MaltParserService SERVICE = null;
+    /* Seconds terminate() waits for running parses to return their instances */
+    private static final int TERMINATE_TIMEOUT = 60;
+    private BlockingQueue<MaltParserService> SERVICES = null;
+    /* Every created instance, also those borrowed from SERVICES */
+    private List<MaltParserService> ALL_SERVICES = null;
+    private int THREADS = 1;
+    private ExecutorService EXECUTOR = null;
     private static final Logger logger = Logger.getLogger(MaltParserWrapper.class.getName());
 
     /**
@@ -126,10 +146,23 @@ public class MaltParserWrapper {
 
         System.out.println("Command attributes     : " + command.toString());
 
-        SERVICE = new MaltParserService();
-        SERVICE.initializeParserModel(command.toString());
+        THREADS = OPTIONS.getMaltParserThreads();
+        SERVICES = new ArrayBlockingQueue<MaltParserService>(THREADS);
+        ALL_SERVICES = new ArrayList<MaltParserService>(THREADS);
+
+        // Each model instance is kept in its own option container
+        for (int i = 0; i < THREADS; i++) {
+            MaltParserService service = new MaltParserService(i);
+            service.initializeParserModel(command.toString());
+            ALL_SERVICES.add(service);
+            SERVICES.add(service);
+        }
 
-        System.out.println("Parsing model is loaded!");
+        if (THREADS > 1) {
+            EXECUTOR = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory("maltparser"));
+        }
+
+        System.out.println("Parsing model is loaded! (" + THREADS + " instance(s))");
 
     }
 
@@ -143,15 +176,12 @@ public class MaltParserWrapper {
      */
     public void parseWebLichtStream(InputStream is, OutputStream os) throws JAXBException, MaltChainedException {
         
-        JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
-        Marshaller m = jc.createMarshaller();
         WebLicht doc = new WebLicht(is);
 
         System.out.println("Parsing...");
         parseWebLicht(doc);
 
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        m.marshal(doc, os);
+        WebLicht.getMarshaller().marshal(doc, os);
         
     }
 
@@ -165,12 +195,24 @@ public class MaltParserWrapper {
      */
     public ArrayList<String> parseSentence(ArrayList<String> sentence) throws MaltChainedException {
 
-        ArrayList<String> parsedSentence = null;
-        parsedSentence = new ArrayList(
-                Arrays.asList(
-                SERVICE.parseTokens(
-                (String[]) sentence.toArray(new String[0]))));
-        return parsedSentence;
+        MaltParserService service = null;
+        try {
+            service = SERVICES.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MaltChainedException("Interrupted while waiting for a parser instance.", ex);
+        }
+
+        try {
+            ArrayList<String> parsedSentence = null;
+            parsedSentence = new ArrayList(
+                    Arrays.asList(
+                    service.parseTokens(
+                    (String[]) sentence.toArray(new String[0]))));
+            return parsedSentence;
+        } finally {
+            SERVICES.add(service);
+        }
 
     }
     
@@ -183,11 +225,100 @@ public class MaltParserWrapper {
      * @throws MaltChainedException  
      */
     public Conll parseConll(Conll conll) throws MaltChainedException {
+        
+        if (EXECUTOR == null || conll.size() < 2) {
+            Conll parsedConll = new Conll();
+            for (ArrayList<String> sentence : conll) {
+                parsedConll.add(parseSentence(sentence));
+            }
+            return parsedConll;
+        }
+        
+        List<Future<ArrayList<String>>> results = new ArrayList(conll.size());
+        for (final ArrayList<String> sentence : conll) {
+            results.add(EXECUTOR.submit(new Callable<ArrayList<String>>() {
+
+                public ArrayList<String> call() throws MaltChainedException {
+                    return parseSentence(sentence);
+                }
+            }));
+        }
+        
+        // Futures are collected in submission order, i.e. the original sentence order
         Conll parsedConll = new Conll();
-        for (ArrayList<String> sentence : conll) {
-            parsedConll.add(parseSentence(sentence));
+        try {
+            for (Future<ArrayList<String>> result : results) {
+                parsedConll.add(result.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MaltChainedException("Interrupted while parsing.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof MaltChainedException) {
+                throw (MaltChainedException) ex.getCause();
+            }
+            throw new MaltChainedException("Parsing failed.", ex.getCause());
+        } finally {
+            for (Future<ArrayList<String>> result : results) {
+                result.cancel(true);
+            }
         }
+        
         return parsedConll;
+        
+    }
+    
+    /**
+     * Gets the number of parser model instances
+     * 
+     * @return  int
+     */
+    public int getThreadCount() {
+        return THREADS;
+    }
+    
+    /**
+     * Terminates all parser model instances and the parsing threads. The 
+     * instances used by running parses are waited for, up to a minute, so 
+     * that no model is terminated while it parses. The object cannot be used 
+     * after this method is called.
+     * 
+     * @throws MaltChainedException  
+     */
+    public void terminate() throws MaltChainedException {
+        if (EXECUTOR != null) {
+            EXECUTOR.shutdownNow();
+        }
+
+        // Taking the instances out of the queue keeps new parses from using them
+        try {
+            for (int i = 0; i < ALL_SERVICES.size(); i++) {
+                if (SERVICES.poll(TERMINATE_TIMEOUT, TimeUnit.SECONDS) == null) {
+                    logger.log(Level.WARNING, "A parser instance is still in use and is terminated anyway.");
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        MaltChainedException error = null;
+        for (MaltParserService service : ALL_SERVICES) {
+            try {
+                service.terminateParserModel();
+            } catch (MaltChainedException ex) {
+                logger.log(Level.SEVERE, null, ex);
+                if (error == null) {
+                    error = ex;
+                }
+            }
+        }
+        ALL_SERVICES.clear();
+        SERVICES.clear();
+
+        if (error != null) {
+            throw error;
+        }
     }
     
     /**
@@ -256,6 +387,7 @@ public class MaltParserWrapper {
         tcl.add(dp);
         ClassMap cm = new ClassMap(tcl);
         List<Sentence> sentences = ((Sentences) cm.get(Sentences.class)).getSentence();
+        AnnotationIndex annotations = new AnnotationIndex(cm);
         String[] conllLine;
         List<TokenRef> tokenRefs = null;
         int index;
@@ -269,7 +401,7 @@ public class MaltParserWrapper {
                 Depparsing.Parse parse = FACTORY.createDepparsingParse();
                 parse.setID(sentence.getID().replace("sent", "pars"));
                 dp.getParse().add(parse);
-                conllArray = DataUtils.dspinSentAsConllArray(sentence, cm, OPTIONS);
+                conllArray = DataUtils.dspinSentAsConllArray(sentence, cm, annotations, OPTIONS);
 
                 for (String parsedWord : this.parseSentence(conllArray)) {
 
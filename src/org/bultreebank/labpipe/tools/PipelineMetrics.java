@@ -0,0 +1,375 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.bultreebank.labpipe.data.BinaryCorpus;
+import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.TokenStore;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.w3c.dom.Document;
+
+/**
+ * <code>PipelineMetrics</code> keeps the {@link StageMetrics} of the stages 
+ * of a {@link ProcessingLine}: wall time, token and sentence counts of the 
+ * stage output, bytes read and written at the stream boundaries, bytes 
+ * allocated and errors. Stages are named after what they do, e.g. 
+ * <code>tag.svmtool</code>, <code>convert.line.conll</code> or 
+ * <code>export.weblicht</code>.
+ * 
+ * Allocations are measured on the thread running the stage, so work handed 
+ * over to the worker pools of the tools is not included. They are reported as 
+ * 0 on JVMs which cannot measure them.
+ * 
+ * The metrics may be registered as MBeans: one for the whole object and one 
+ * for every stage.
+ *
+ * @author Aleksandar Savkov
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+    private static final Logger logger = Logger.getLogger(PipelineMetrics.class.getName());
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final String[] DATA_TYPE_NAMES = {"", "text", "line", "weblicht", "conll", "clark", "clark-tags", "gaze", "binary"};
+    private final ConcurrentHashMap<String, StageMetrics> STAGES = new ConcurrentHashMap();
+    private volatile String OBJECT_NAME = null;
+
+    /**
+     * A measurement in progress, started by {@link PipelineMetrics#start()}
+     */
+    public static class Sample {
+
+        private final long START;
+        private final long ALLOCATED;
+
+        private Sample() {
+            START = System.nanoTime();
+            ALLOCATED = allocatedBytes();
+        }
+
+        /**
+         * Gets the wall time since the start of the measurement in 
+         * nanoseconds
+         * 
+         * @return  long
+         */
+        public long getNanos() {
+            return System.nanoTime() - START;
+        }
+
+        /**
+         * Gets the number of bytes allocated by the current thread since the 
+         * start of the measurement, or 0 if it cannot be measured
+         * 
+         * @return  long
+         */
+        public long getAllocatedBytes() {
+            long allocated = allocatedBytes();
+            return (allocated < 0 || ALLOCATED < 0) ? 0 : allocated - ALLOCATED;
+        }
+    }
+
+    /**
+     * Starts a measurement on the current thread
+     * 
+     * @return  {@link Sample}
+     */
+    public static Sample start() {
+        return new Sample();
+    }
+
+    /**
+     * Records a stage run measured by <code>sample</code>.
+     * 
+     * @param   stage   stage name
+     * @param   sample  measurement started before the stage
+     * @param   ok  <code>false</code> if the stage failed
+     * @param   counts  tokens and sentences in the stage output (see 
+     *                  {@link #count(Object, int, String)})
+     * @param   bytesIn number of bytes read
+     * @param   bytesOut    number of bytes written
+     */
+    public void record(String stage, Sample sample, boolean ok, long[] counts, long bytesIn, long bytesOut) {
+        record(stage, sample.getNanos(), sample.getAllocatedBytes(), ok, counts, bytesIn, bytesOut);
+    }
+
+    /**
+     * Records a stage run.
+     * 
+     * @param   stage   stage name
+     * @param   nanos   wall time in nanoseconds
+     * @param   allocated   number of bytes allocated
+     * @param   ok  <code>false</code> if the stage failed
+     * @param   counts  tokens and sentences in the stage output (see 
+     *                  {@link #count(Object, int, String)})
+     * @param   bytesIn number of bytes read
+     * @param   bytesOut    number of bytes written
+     */
+    public void record(String stage, long nanos, long allocated, boolean ok, long[] counts, long bytesIn, long bytesOut) {
+        getStage(stage).record(nanos, ok, counts[0], counts[1], bytesIn, bytesOut, allocated);
+    }
+
+    /**
+     * Gets the metrics of a stage, creating them if the stage has not been 
+     * measured yet.
+     * 
+     * @param   name    stage name
+     * 
+     * @return  {@link StageMetrics}
+     */
+    public StageMetrics getStage(String name) {
+
+        StageMetrics stage = STAGES.get(name);
+
+        if (stage == null) {
+            StageMetrics created = new StageMetrics(name);
+            stage = STAGES.putIfAbsent(name, created);
+            if (stage == null) {
+                stage = created;
+                if (OBJECT_NAME != null) {
+                    registerStage(stage);
+                }
+            }
+        }
+
+        return stage;
+
+    }
+
+    public String[] getStageNames() {
+        return new TreeMap<String, StageMetrics>(STAGES).keySet().toArray(new String[0]);
+    }
+
+    public String getSummary() {
+        return toJson();
+    }
+
+    public void reset() {
+        for (StageMetrics stage : STAGES.values()) {
+            stage.reset();
+        }
+    }
+
+    /**
+     * Gets the metrics of all stages as a single line JSON object with the 
+     * stage names as keys.
+     * 
+     * @return  String
+     */
+    public String toJson() {
+
+        StringBuilder sb = new StringBuilder("{\"time\":");
+        sb.append(System.currentTimeMillis());
+        sb.append(",\"stages\":{");
+
+        boolean first = true;
+        for (Map.Entry<String, StageMetrics> entry : new TreeMap<String, StageMetrics>(STAGES).entrySet()) {
+            if (!first) {
+                sb.append(",");
+            }
+            first = false;
+            sb.append("\"").append(entry.getKey()).append("\":");
+            entry.getValue().appendJson(sb);
+        }
+
+        sb.append("}}");
+        return sb.toString();
+
+    }
+
+    /**
+     * Registers this object and the metrics of all stages, including the ones 
+     * measured later, with the platform MBean server. Registration failures 
+     * are logged and do not affect the measurements.
+     * 
+     * @param   objectName  object name of this object, e.g. 
+     *                      <code>org.bultreebank.labpipe:type=ProcessingLine,name=1</code>
+     */
+    public synchronized void register(String objectName) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(objectName));
+            OBJECT_NAME = objectName;
+            for (StageMetrics stage : STAGES.values()) {
+                registerStage(stage);
+            }
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot register metrics MBean " + objectName, ex);
+        }
+
+    }
+
+    /**
+     * Unregisters this object and the metrics of all stages from the platform
+     * MBean server.
+     */
+    public synchronized void unregister() {
+
+        if (OBJECT_NAME == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (StageMetrics stage : STAGES.values()) {
+                ObjectName name = getStageObjectName(stage);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            }
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot unregister metrics MBean " + OBJECT_NAME, ex);
+        }
+        OBJECT_NAME = null;
+
+    }
+
+    private void registerStage(StageMetrics stage) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stage, getStageObjectName(stage));
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot register metrics MBean of stage " + stage.getName(), ex);
+        }
+    }
+
+    private ObjectName getStageObjectName(StageMetrics stage) throws JMException {
+        return new ObjectName(OBJECT_NAME + ",stage=" + stage.getName());
+    }
+
+    /**
+     * Counts the tokens and sentences of pipe data.
+     * 
+     * @param   data    pipe data
+     * @param   dataType    data type (see {@link ServiceConstants})
+     * @param   eosToken    end of sentence token of line data
+     * 
+     * @return  long[]  - number of tokens and number of sentences
+     */
+    public static long[] count(Object data, int dataType, String eosToken) {
+
+        long tokens = 0;
+        long sentences = 0;
+
+        if (data instanceof Conll) {
+            tokens = ((Conll) data).getTokenCount();
+            sentences = ((Conll) data).size();
+        } else if (data instanceof TokenStore) {
+            tokens = ((TokenStore) data).getTokenCount();
+            sentences = ((TokenStore) data).getSentenceCount();
+        } else if (data instanceof BinaryCorpus) {
+            tokens = ((BinaryCorpus) data).getTokenCount();
+            sentences = ((BinaryCorpus) data).getSentenceCount();
+        } else if (data instanceof Document) {
+            tokens = ((Document) data).getElementsByTagName("tok").getLength();
+            sentences = ((Document) data).getElementsByTagName("s").getLength();
+        } else if (data instanceof String && (dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_GAZE)) {
+            String eos = (dataType == ServiceConstants.DATA_GAZE) ? ServiceConstants.GAZE_EOS_TOKEN : eosToken;
+            String lines = (String) data;
+            int start = 0;
+            while (start < lines.length()) {
+                int end = lines.indexOf('\n', start);
+                if (end < 0) {
+                    end = lines.length();
+                }
+                if (end > start) {
+                    if (eos != null && lines.startsWith(eos, start) && end - start == eos.length()) {
+                        sentences++;
+                    } else {
+                        tokens++;
+                    }
+                }
+                start = end + 1;
+            }
+        }
+
+        return new long[]{tokens, sentences};
+
+    }
+
+    /**
+     * Gets the name of a data type as used in the stage names
+     * 
+     * @param   dataType    data type (see {@link ServiceConstants})
+     * 
+     * @return  String
+     */
+    public static String getDataTypeName(int dataType) {
+        return (dataType > 0 && dataType < DATA_TYPE_NAMES.length) ? DATA_TYPE_NAMES[dataType] : String.valueOf(dataType);
+    }
+
+    /**
+     * Gets the stage name of a pipe command
+     * 
+     * @param   command pipe command (see {@link ServiceConstants})
+     * 
+     * @return  String
+     */
+    public static String getCommandName(int command) {
+
+        switch (command) {
+            case ServiceConstants.PIPE_SFST_TOKENIZE:
+                return "tokenize.sfst";
+            case ServiceConstants.PIPE_REGEX_TOKENIZE:
+                return "tokenize.regex";
+            case ServiceConstants.PIPE_CLARK_TOKENIZE:
+                return "tokenize.clark";
+            case ServiceConstants.PIPE_SVMTOOL_TAG:
+                return "tag.svmtool";
+            case ServiceConstants.PIPE_GAZE_TAG:
+                return "tag.gaze";
+            case ServiceConstants.PIPE_CLARK_TAG:
+                return "tag.clark";
+            case ServiceConstants.PIPE_CLARK_LEMMATIZE:
+                return "lemmatize.clark";
+            case ServiceConstants.PIPE_CLARK_CORRECT:
+                return "correct.clark";
+            case ServiceConstants.PIPE_MALTPARSER_PARSE:
+                return "parse.maltparser";
+            default:
+                return "command." + command;
+        }
+
+    }
+
+    /*
+     * Bytes allocated by the current thread so far, or -1 if not supported.
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+/**
+ * Management interface of {@link PipelineMetrics}.
+ *
+ * @author Aleksandar Savkov
+ */
+public interface PipelineMetricsMBean {
+
+    /**
+     * Gets the names of all measured stages
+     * 
+     * @return  String[]
+     */
+    String[] getStageNames();
+
+    /**
+     * Gets the metrics of all stages as a JSON object
+     * 
+     * @return  String
+     */
+    String getSummary();
+
+    /**
+     * Resets the metrics of all stages
+     */
+    void reset();
+}
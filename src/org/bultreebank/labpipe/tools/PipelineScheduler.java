@@ -0,0 +1,389 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bultreebank.labpipe.exceptions.ClarkConfigurationException;
+import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.exceptions.IncorrectOutputException;
+import org.bultreebank.labpipe.exceptions.IncorrectParameterValueException;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+import org.bultreebank.labpipe.exceptions.SVMTConnectionExceptoin;
+import org.bultreebank.labpipe.utils.ChunkReader;
+import org.bultreebank.labpipe.utils.CommandLineUtils;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * <code>PipelineScheduler</code> runs the pipe commands of a 
+ * {@link ProcessingLine} as a pipeline over chunks of sentences. Every command
+ * is a stage with its own worker threads and the stages are joined by bounded
+ * queues, so that all tools work at the same time on different chunks, while 
+ * a fast stage blocks as soon as the queue in front of a slower one is full.
+ * 
+ * Chunks are numbered when read and the results are written in that order, 
+ * whatever order they leave the last stage in. The number of chunks between 
+ * the reader and the writer is bounded, so the chunks waiting for an earlier 
+ * one to be written take no more memory than the full queues would. The end 
+ * of the input is marked by a poison pill passed down the stages.
+ * 
+ * The stages run the commands through 
+ * {@link ProcessingLine#execute(ProcessingContext, List)}. When the sentence 
+ * cache is enabled, the cacheable commands after the tokenizers (see 
+ * {@link ProcessingLine#getCachedStart(List)}) make a single stage with the 
+ * largest number of workers among them, so that they are answered from the 
+ * cache. The commands are measured in the metrics of the processing line 
+ * (see {@link ProcessingLine#getMetrics()}), but no metrics log entry is 
+ * written for a stream, as it is not a single document.
+ *
+ * @author Aleksandar Savkov
+ */
+public class PipelineScheduler {
+
+    /* End of input marker */
+    private static final Batch END = new Batch(-1, null);
+    private ProcessingLine LINE;
+    private List<Integer> COMMANDS;
+    private int[] THREADS;
+    private int QUEUE_SIZE;
+
+    /**
+     * Creates a new scheduler based on the LABPipe configuration. The number 
+     * of workers of each stage is taken from 
+     * {@link Configuration#STREAM_STAGE_THREADS} or, if missing there, from 
+     * {@link Configuration#STREAM_THREADS}. The queue capacity is 
+     * {@link Configuration#STREAM_WINDOW}.
+     * 
+     * @param   line    processing line executing the commands
+     * @param   commands    list of processing commands
+     * @param   conf    LABPipe configuration
+     */
+    public PipelineScheduler(ProcessingLine line, List<Integer> commands, Configuration conf) {
+        this(line, commands, getStageThreads(conf, commands), conf.getStreamWindow());
+    }
+
+    /**
+     * Creates a new scheduler
+     * 
+     * @param   line    processing line executing the commands
+     * @param   commands    list of processing commands
+     * @param   threads number of workers of each stage
+     * @param   queueSize   capacity of the queues between the stages
+     */
+    public PipelineScheduler(ProcessingLine line, List<Integer> commands, int[] threads, int queueSize) {
+        LINE = line;
+        COMMANDS = commands;
+        THREADS = threads;
+        QUEUE_SIZE = Math.max(queueSize, 1);
+    }
+
+    /**
+     * Reads chunks of <code>inputType</code> data from <code>reader</code>, 
+     * runs them through the stages and writes the results as 
+     * <code>outputType</code> data to <code>writer</code> in the input order.
+     * Processing stops at the first chunk that fails and its exception is 
+     * thrown.
+     * 
+     * @param   reader  chunk reader
+     * @param   inputType   input data type
+     * @param   outputType  output data type
+     * @param   writer  output writer
+     * @throws IOException 
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void process(final ChunkReader reader, final int inputType, int outputType, Writer writer) throws IOException, IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        // The cached commands run together, every other command is a stage
+        List<List<Integer>> groups = new ArrayList();
+        List<Integer> threads = new ArrayList();
+        int cached = LINE.getCachedStart(COMMANDS);
+        for (int i = 0; i < COMMANDS.size(); i++) {
+            if (i == cached) {
+                int max = 1;
+                for (int j = i; j < COMMANDS.size(); j++) {
+                    max = Math.max(max, THREADS[j]);
+                }
+                groups.add(COMMANDS.subList(i, COMMANDS.size()));
+                threads.add(max);
+                break;
+            }
+            groups.add(COMMANDS.subList(i, i + 1));
+            threads.add(Math.max(THREADS[i], 1));
+        }
+
+        int stages = groups.size();
+        ExecutorService[] executors = new ExecutorService[stages];
+        BlockingQueue<Batch>[] queues = new BlockingQueue[stages + 1];
+        for (int i = 0; i <= stages; i++) {
+            queues[i] = new ArrayBlockingQueue<Batch>(QUEUE_SIZE);
+        }
+
+        // Chunks in the queues, in the workers and waiting to be written
+        int window = QUEUE_SIZE * (stages + 1);
+        for (int t : threads) {
+            window += t;
+        }
+        final Semaphore permits = new Semaphore(window);
+
+        final BlockingQueue<Batch> first = queues[0];
+        Thread source = new Thread(new Runnable() {
+
+            public void run() {
+                read(reader, inputType, first, permits);
+            }
+        }, "labpipe-stream-reader");
+        source.setDaemon(true);
+
+        try {
+
+            for (int i = 0; i < stages; i++) {
+                AtomicInteger live = new AtomicInteger(threads.get(i));
+                executors[i] = Executors.newFixedThreadPool(threads.get(i), new DaemonThreadFactory("labpipe-stage-" + i));
+                for (int t = 0; t < threads.get(i); t++) {
+                    executors[i].execute(new Stage(groups.get(i), i == cached, queues[i], queues[i + 1], live));
+                }
+            }
+            source.start();
+
+            // A chunk is admitted before every later chunk, so the next chunk 
+            // to write always holds a permit and the window cannot fill up 
+            // with the chunks after it
+            HashMap<Long, Batch> done = new HashMap();
+            long next = 0;
+            Batch batch;
+            while ((batch = queues[stages].take()) != END) {
+                done.put(batch.SEQUENCE, batch);
+                while ((batch = done.remove(next)) != null) {
+                    permits.release();
+                    if (batch.ERROR != null) {
+                        rethrow(batch.ERROR);
+                    }
+                    String text = LINE.exportText(batch.CONTEXT, outputType);
+                    writer.write(text);
+                    // The tokenizer output may end with the end of sentence 
+                    // token without a line break
+                    if (text.length() > 0 && !text.endsWith("\n")) {
+                        writer.write('\n');
+                    }
+                    next++;
+                }
+            }
+            writer.flush();
+
+        } finally {
+            source.interrupt();
+            for (ExecutorService executor : executors) {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Reads the chunks into the first queue and puts the end marker after 
+     * them. Every chunk takes a permit, which is returned when it is written.
+     */
+    private void read(ChunkReader reader, int inputType, BlockingQueue<Batch> queue, Semaphore permits) {
+
+        long sequence = 0;
+        try {
+            try {
+                String chunk;
+                while (true) {
+                    permits.acquire();
+                    if ((chunk = reader.nextChunk()) == null) {
+                        break;
+                    }
+                    Batch batch = new Batch(sequence++, new ProcessingContext());
+                    try {
+                        LINE.importInput(batch.CONTEXT, chunk, inputType);
+                    } catch (Exception ex) {
+                        batch.ERROR = ex;
+                    }
+                    queue.put(batch);
+                }
+            } catch (IOException ex) {
+                Batch batch = new Batch(sequence++, null);
+                batch.ERROR = ex;
+                queue.put(batch);
+            }
+            queue.put(END);
+        } catch (InterruptedException ex) {
+            // processing stopped
+        }
+
+    }
+
+    /**
+     * Parses {@link Configuration#STREAM_STAGE_THREADS} for 
+     * <code>commands</code>.
+     * 
+     * @param   conf    LABPipe configuration
+     * @param   commands    list of processing commands
+     * 
+     * @return  int[]   - number of workers of each stage
+     */
+    public static int[] getStageThreads(Configuration conf, List<Integer> commands) {
+
+        int def = conf.getThreadCount(Configuration.STREAM_THREADS);
+        HashMap<Integer, Integer> map = new HashMap();
+        if (conf.containsKey(Configuration.STREAM_STAGE_THREADS)) {
+            for (String entry : conf.getProperty(Configuration.STREAM_STAGE_THREADS).split(";")) {
+                String[] pair = entry.trim().split("=");
+                if (pair.length != 2) {
+                    throw new NumberFormatException("Incorrect '" + Configuration.STREAM_STAGE_THREADS + "' entry in 'conf.xml'.");
+                }
+                int threads;
+                try {
+                    threads = Integer.parseInt(pair[1].trim());
+                } catch (NumberFormatException ex) {
+                    throw new NumberFormatException("Incorrect '" + Configuration.STREAM_STAGE_THREADS + "' entry in 'conf.xml'.");
+                }
+                map.put(CommandLineUtils.parseProcessCommand(pair[0].trim()), 
+                        (threads < 1) ? Runtime.getRuntime().availableProcessors() : threads);
+            }
+        }
+
+        int[] threads = new int[commands.size()];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = (map.containsKey(commands.get(i))) ? map.get(commands.get(i)) : def;
+        }
+        return threads;
+
+    }
+
+    /**
+     * Rethrows the exception a chunk failed with.
+     */
+    static void rethrow(Throwable t) throws IOException, IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof IncorrectInputException) {
+            throw (IncorrectInputException) t;
+        } else if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof IncorrectParameterValueException) {
+            throw (IncorrectParameterValueException) t;
+        } else if (t instanceof MissingContentException) {
+            throw (MissingContentException) t;
+        } else if (t instanceof SVMTConnectionExceptoin) {
+            throw (SVMTConnectionExceptoin) t;
+        } else if (t instanceof IncorrectOutputException) {
+            throw (IncorrectOutputException) t;
+        } else if (t instanceof MaltChainedException) {
+            throw (MaltChainedException) t;
+        } else if (t instanceof ClarkConfigurationException) {
+            throw (ClarkConfigurationException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IncorrectInputException("Chunk processing failed: " + t);
+
+    }
+
+    /**
+     * A worker of a stage
+     */
+    private class Stage implements Runnable {
+
+        private List<Integer> COMMANDS;
+        private boolean CACHED;
+        private BlockingQueue<Batch> IN;
+        private BlockingQueue<Batch> OUT;
+        private AtomicInteger LIVE;
+
+        Stage(List<Integer> commands, boolean cached, BlockingQueue<Batch> in, BlockingQueue<Batch> out, AtomicInteger live) {
+            COMMANDS = commands;
+            CACHED = cached;
+            IN = in;
+            OUT = out;
+            LIVE = live;
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    Batch batch = IN.take();
+                    if (batch == END) {
+                        // leave the marker to the other workers of the stage
+                        IN.put(END);
+                        if (LIVE.decrementAndGet() == 0) {
+                            OUT.put(END);
+                        }
+                        return;
+                    }
+                    if (batch.ERROR == null) {
+                        try {
+                            if (CACHED) {
+                                LINE.execute(batch.CONTEXT, COMMANDS);
+                            } else {
+                                LINE.execute(batch.CONTEXT, COMMANDS.get(0));
+                            }
+                        } catch (Throwable t) {
+                            batch.ERROR = t;
+                        }
+                    }
+                    OUT.put(batch);
+                }
+            } catch (InterruptedException ex) {
+                // processing stopped
+            }
+        }
+    }
+
+    /**
+     * A numbered chunk on its way through the stages
+     */
+    private static class Batch {
+
+        private final long SEQUENCE;
+        private final ProcessingContext CONTEXT;
+        private Throwable ERROR = null;
+
+        Batch(long sequence, ProcessingContext context) {
+            SEQUENCE = sequence;
+            CONTEXT = context;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.converters.Converter;
+import org.bultreebank.labpipe.utils.CommandLineUtils;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>PipelineServer</code> serves one {@link ProcessingLine} over a local 
+ * HTTP endpoint, so that the pipe resources (CLaRK queries, MaltParser 
+ * models, tagger lexicons) are loaded once and shared by all requests.
+ * 
+ * <p>Endpoints:
+ * <ul>
+ * <li><code>POST /process?itype=txt&amp;otype=conll&amp;p=stok;stag</code> - 
+ * processes the request body and returns the result. The parameters mirror 
+ * the command line keys <code>-itype</code>, <code>-otype</code>, 
+ * <code>-p</code>, <code>-stream</code> and <code>-c</code>; the default pipe 
+ * is used when <code>p</code> is missing.</li>
+ * <li><code>GET /metrics</code> - pipe metrics as JSON</li>
+ * <li><code>GET /status</code> - liveness check</li>
+ * </ul>
+ *
+ * @author Aleksandar Savkov
+ */
+public class PipelineServer {
+
+    private static final Logger logger = Logger.getLogger(PipelineServer.class.getName());
+    private static final String CONTENT_TYPE_TEXT = "text/plain; charset=" + ServiceConstants.PIPE_CHARACTER_ENCODING;
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=" + ServiceConstants.PIPE_CHARACTER_ENCODING;
+    private final ProcessingLine LINE;
+    private final Converter CONVERTER;
+    private final List<Integer> DEFAULT_PIPE;
+    private final String HOST;
+    private final int PORT;
+    private final int THREADS;
+    private HttpServer SERVER = null;
+    private ExecutorService EXECUTOR = null;
+
+    /**
+     * Creates a server for <code>line</code>. Address, port and number of 
+     * request threads are taken from the configuration.
+     * 
+     * @param   options pipe configuration
+     * @param   line    processing line
+     * @param   converter   converter used for conversion requests
+     */
+    public PipelineServer(Configuration options, ProcessingLine line, Converter converter) {
+        LINE = line;
+        CONVERTER = converter;
+        DEFAULT_PIPE = options.getDefaultPipe();
+        HOST = options.getServerHost();
+        PORT = options.getServerPort();
+        THREADS = options.getServerThreads();
+    }
+
+    /**
+     * Starts the server
+     * 
+     * @throws IOException  
+     */
+    public synchronized void start() throws IOException {
+        if (SERVER != null) {
+            return;
+        }
+        EXECUTOR = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory("server"));
+        SERVER = HttpServer.create(new InetSocketAddress(HOST, PORT), 0);
+        SERVER.createContext("/process", new ProcessHandler());
+        SERVER.createContext("/metrics", new MetricsHandler());
+        SERVER.createContext("/status", new StatusHandler());
+        SERVER.setExecutor(EXECUTOR);
+        SERVER.start();
+    }
+
+    /**
+     * Stops the server, waiting at most <code>delay</code> seconds for the 
+     * running requests to complete
+     * 
+     * @param   delay   seconds
+     */
+    public synchronized void stop(int delay) {
+        if (SERVER == null) {
+            return;
+        }
+        SERVER.stop(delay);
+        EXECUTOR.shutdownNow();
+        SERVER = null;
+        EXECUTOR = null;
+    }
+
+    /**
+     * Gets the address the server is bound to
+     * 
+     * @return  InetSocketAddress
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return (SERVER == null) ? new InetSocketAddress(HOST, PORT) : SERVER.getAddress();
+    }
+
+    /*
+     * Handles processing and conversion requests.
+     */
+    private class ProcessHandler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+
+            try {
+                if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    respond(exchange, 405, CONTENT_TYPE_TEXT, "Use POST.\n");
+                    return;
+                }
+
+                HashMap<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                if (!params.containsKey("itype") || !params.containsKey("otype")) {
+                    respond(exchange, 400, CONTENT_TYPE_TEXT, "Missing 'itype' or 'otype' parameter.\n");
+                    return;
+                }
+                int inputType = CommandLineUtils.parseDataType(params.get("itype"));
+                int outputType = CommandLineUtils.parseDataType(params.get("otype"));
+                if (inputType == -1 || outputType == -1) {
+                    respond(exchange, 400, CONTENT_TYPE_TEXT, "Unknown data type.\n");
+                    return;
+                }
+                List<Integer> commands = (params.containsKey("p"))
+                        ? CommandLineUtils.makeCommandsList(params.get("p"))
+                        : DEFAULT_PIPE;
+                if (commands.contains(-1)) {
+                    respond(exchange, 400, CONTENT_TYPE_TEXT, "Unknown pipe command in '" + params.get("p") + "'.\n");
+                    return;
+                }
+
+                InputStream is = exchange.getRequestBody();
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                try {
+                    if (Boolean.parseBoolean(params.get("c"))) {
+                        CONVERTER.convert(is, os, inputType, outputType);
+                    } else if (Boolean.parseBoolean(params.get("stream"))) {
+                        LINE.processStream(is, inputType, os, outputType, commands);
+                    } else {
+                        LINE.process(is, inputType, os, outputType, commands);
+                    }
+                } catch (Exception ex) {
+                    logger.log(Level.SEVERE, ex.getMessage(), ex);
+                    respond(exchange, 500, CONTENT_TYPE_TEXT, ex.toString() + "\n");
+                    return;
+                } finally {
+                    is.close();
+                }
+
+                respond(exchange, 200, CONTENT_TYPE_TEXT, os.toByteArray());
+            } finally {
+                exchange.close();
+            }
+
+        }
+    }
+
+    /*
+     * Returns the pipe metrics as JSON.
+     */
+    private class MetricsHandler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                respond(exchange, 200, CONTENT_TYPE_JSON, LINE.getMetrics().toJson());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /*
+     * Liveness check.
+     */
+    private class StatusHandler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                respond(exchange, 200, CONTENT_TYPE_TEXT, "OK\n");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /*
+     * Parses URL query parameters.
+     */
+    private static HashMap<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        HashMap<String, String> params = new HashMap();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.length() == 0) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = (eq == -1) ? pair : pair.substring(0, eq);
+            String value = (eq == -1) ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, ServiceConstants.PIPE_CHARACTER_ENCODING),
+                    URLDecoder.decode(value, ServiceConstants.PIPE_CHARACTER_ENCODING));
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        respond(exchange, code, contentType, body.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, (body.length == 0) ? -1 : body.length);
+        if (body.length > 0) {
+            OutputStream os = exchange.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import org.bultreebank.labpipe.data.WebLicht;
+
+/**
+ * <code>ProcessingContext</code> holds the working data of a single document 
+ * that is being processed by a {@link ProcessingLine}. The processing tools 
+ * are kept by the <code>ProcessingLine</code> and are shared between all 
+ * contexts, while each context carries only its own data and data type. This 
+ * allows one <code>ProcessingLine</code> to import, process and export an 
+ * arbitrary number of documents at the same time, each from its own thread.
+ * 
+ * A context is not meant to be shared between threads.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ProcessingContext {
+
+    private WebLicht DOC = new WebLicht();
+    private Object DATA = null;
+    private int DATA_TYPE;
+    private PipelineMetrics METRICS = new PipelineMetrics();
+
+    /**
+     * Creates a new empty context
+     */
+    public ProcessingContext() {
+    }
+
+    /**
+     * Creates a new context containing <code>data</code> of type <code>dataType</code>
+     * 
+     * @param   data    working data
+     * @param   dataType    working data type
+     */
+    public ProcessingContext(Object data, int dataType) {
+        DATA = data;
+        DATA_TYPE = dataType;
+    }
+
+    /**
+     * Creates a new context containing <code>data</code> of type 
+     * <code>dataType</code>, which records its metrics in the metrics of 
+     * <code>parent</code>
+     * 
+     * @param   parent  context sharing its metrics
+     * @param   data    working data
+     * @param   dataType    working data type
+     */
+    ProcessingContext(ProcessingContext parent, Object data, int dataType) {
+        DATA = data;
+        DATA_TYPE = dataType;
+        METRICS = parent.METRICS;
+    }
+
+    /**
+     * Gets the current working data
+     * 
+     * @return  Object
+     */
+    public Object getData() {
+        return DATA;
+    }
+
+    /**
+     * Sets the current working data
+     * 
+     * @param   data    working data
+     */
+    public void setData(Object data) {
+        DATA = data;
+    }
+
+    /**
+     * Gets the type of the current working data
+     * 
+     * @return  int - data type (see {@link org.bultreebank.labpipe.utils.ServiceConstants})
+     */
+    public int getDataType() {
+        return DATA_TYPE;
+    }
+
+    /**
+     * Sets the type of the current working data
+     * 
+     * @param   dataType    data type (see {@link org.bultreebank.labpipe.utils.ServiceConstants})
+     */
+    public void setDataType(int dataType) {
+        DATA_TYPE = dataType;
+    }
+
+    /**
+     * Gets the WebLicht document of this context
+     * 
+     * @return  {@link WebLicht}
+     */
+    public WebLicht getDocument() {
+        return DOC;
+    }
+
+    /**
+     * Sets the WebLicht document of this context
+     * 
+     * @param   doc WebLicht document
+     */
+    public void setDocument(WebLicht doc) {
+        DOC = doc;
+    }
+
+    /**
+     * Gets the metrics of the stages run on this context
+     * 
+     * @return  {@link PipelineMetrics}
+     */
+    public PipelineMetrics getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Clears the working data and the metrics of this context.
+     */
+    public void clear() {
+        DOC = new WebLicht();
+        DATA = null;
+        METRICS = new PipelineMetrics();
+    }
+
+}
@@ -21,32 +21,52 @@
 package org.bultreebank.labpipe.tools;
 
 import de.dspin.data.textcorpus.Token;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
 import org.bultreebank.labpipe.converters.Converter;
+import org.bultreebank.labpipe.data.BinaryCorpus;
 import org.bultreebank.labpipe.data.ClarkDocumentBuilder;
 import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.TokenStore;
 import org.bultreebank.labpipe.data.WebLicht;
+import org.bultreebank.labpipe.data.WebLichtStreamReader;
+import org.bultreebank.labpipe.data.WebLichtStreamWriter;
 import org.bultreebank.labpipe.exceptions.ClarkConfigurationException;
 import org.bultreebank.labpipe.exceptions.IncorrectInputException;
 import org.bultreebank.labpipe.exceptions.IncorrectOutputException;
 import org.bultreebank.labpipe.exceptions.IncorrectParameterValueException;
 import org.bultreebank.labpipe.exceptions.MissingContentException;
 import org.bultreebank.labpipe.exceptions.SVMTConnectionExceptoin;
+import org.bultreebank.labpipe.utils.ChunkReader;
 import org.bultreebank.labpipe.utils.ClassMap;
 import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.ConllTagIndex;
+import org.bultreebank.labpipe.utils.CountingInputStream;
+import org.bultreebank.labpipe.utils.CountingOutputStream;
 import org.bultreebank.labpipe.utils.Misc;
+import org.bultreebank.labpipe.utils.RegExDictionary;
 import org.bultreebank.labpipe.utils.ServiceConstants;
+import org.bultreebank.labpipe.utils.TagDecomposer;
 import org.bultreebank.labpipe.utils.XmlUtils;
 import org.maltparser.core.exception.MaltChainedException;
 import org.w3c.dom.Document;
@@ -58,6 +78,15 @@ import org.xml.sax.SAXException;
  * processing commands. An instance of this class may import, process (with a 
  * given list of pipe commands) and export data an arbitrary number of times, 
  * while keeping the same processing tools in the memory.
+ * 
+ * The working data of each document is kept in a {@link ProcessingContext}. 
+ * All methods taking a context as a first argument may be called from several 
+ * threads at the same time, as long as each thread works with its own context.
+ * The methods without a context argument work with the default context of 
+ * this object and are not meant for concurrent use.
+ * 
+ * Documents too large to be kept in the memory may be processed in streaming
+ * mode with {@link #processStream(InputStream, int, OutputStream, int, List)}.
  *
  * @author Aleksandar Savkov
  */
@@ -65,15 +94,16 @@ public class ProcessingLine {
 
     /* Logger */
     private static final Logger logger = Logger.getLogger(ProcessingLine.class.getName());
-    private WebLicht DOC = new WebLicht();
-    private Object DATA;
-    private int DATA_TYPE;
+    /* Default working context */
+    private ProcessingContext CONTEXT = new ProcessingContext();
     /* Tokenizers */
     private FstTokenizer FST_TOKENIZER;
     /**
      * @deprecated since v1.0
      */
     private RegExTokenizer RE_TOKENIZER;
+    /* Tokenization exceptions, which do not end sentences in streaming mode */
+    private List<String> ABBREVIATIONS = new ArrayList();
     /* --Escape sequences-- */
     /* 
      * Escape sequences need to be marked during tokenization or data input for
@@ -95,6 +125,8 @@ public class ProcessingLine {
     private ClarkAnnotation LEMMA;
     /* Malt Parser */
     private MaltParserWrapper MALT_PARSER;
+    /* Gaze tagger */
+    private GazeTagger GAZE_TAGGER;
     /* Commands List */
     private List<Integer> COMMANDS = null;
     /* Data Format Converter */
@@ -102,6 +134,11 @@ public class ProcessingLine {
     
     private boolean VERBOSE = false;
     private OutputStream DEFAULT_OUTPUT_STREAM = System.out;
+    /* Metrics of all processed documents */
+    private PipelineMetrics METRICS = new PipelineMetrics();
+    /* Annotated sentences (null if the cache is disabled) */
+    private SentenceCache SENTENCE_CACHE = null;
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
     private int DEFAULT_OUTPUT_FORMAT = ServiceConstants.DATA_CONLL;
 
     /**
@@ -146,22 +183,42 @@ public class ProcessingLine {
         CONVERTER = new Converter(OPTIONS);
 
         RE_TOKENIZER = new RegExTokenizer(OPTIONS);
+        ABBREVIATIONS = new RegExDictionary(OPTIONS).getEntries();
 
         FST_TOKENIZER = new FstTokenizer(OPTIONS);
 
         CONLL_MAP.loadConfigFileFromFS(OPTIONS.getConllMapPath(), Configuration.PROPS);
         CONLL_MAP_INV.loadConfigFileFromFS(OPTIONS.getConllMapInvPath(), Configuration.PROPS);
+        // The maps are indexed once here and not on the first conversion
+        TagDecomposer.getInstance(CONLL_MAP);
+        ConllTagIndex.getInstance(CONLL_MAP_INV);
 
         // Initiating CLaRK Constraints
         System.out.println("Loading CLaRK processors...");
-        CONSTRAINTS = new ClarkAnnotation(OPTIONS, "constraintsQuery");
+        CONSTRAINTS = new ClarkAnnotation(OPTIONS, "constraintsQuery", OPTIONS.getClarkChunkSize());
         TOK_AND_SENT = new ClarkAnnotation(OPTIONS, "tokAndSentQuery");
-        TAG = new ClarkAnnotation(OPTIONS, "tagQuery");
-        LEMMA = new ClarkAnnotation(OPTIONS, "lemmaQuery");
+        TAG = new ClarkAnnotation(OPTIONS, "tagQuery", OPTIONS.getClarkChunkSize());
+        LEMMA = new ClarkAnnotation(OPTIONS, "lemmaQuery", OPTIONS.getClarkChunkSize());
+
+        // Initiating Gaze tagger
+        System.out.println("Loading Gaze tagger...");
+        GAZE_TAGGER = new GazeTagger(OPTIONS);
 
         // Initilizing MaltParser Service
         System.out.println("Loading MaltParser service...");
         MALT_PARSER = new MaltParserWrapper(OPTIONS);
+
+        int instance = INSTANCES.incrementAndGet();
+        if (OPTIONS.isMetricsJmx()) {
+            METRICS.register("org.bultreebank.labpipe:type=ProcessingLine,name=" + instance);
+        }
+
+        if (OPTIONS.getSentenceCacheSize() > 0) {
+            SENTENCE_CACHE = new SentenceCache(OPTIONS.getSentenceCacheSize(), OPTIONS.getSentenceCacheDir());
+            if (OPTIONS.isMetricsJmx()) {
+                SENTENCE_CACHE.register("org.bultreebank.labpipe:type=SentenceCache,name=" + instance);
+            }
+        }
         
         COMMANDS = OPTIONS.getDefaultPipe();
         
@@ -202,21 +259,59 @@ public class ProcessingLine {
      */
     public void importInput(InputStream is, int dataType) throws IncorrectInputException {
 
+        importInput(CONTEXT, is, dataType);
+
+    }
+
+    /**
+     * Imports input data from stream into <code>context</code>
+     * 
+     * @param   context processing context
+     * @param   is  input stream
+     * @param   dataType    input data type
+     * @throws IncorrectInputException  
+     */
+    public void importInput(ProcessingContext context, InputStream is, int dataType) throws IncorrectInputException {
+
         System.out.print("Importing data...");
-        if (dataType == ServiceConstants.DATA_TEXT || dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_GAZE) {
-            DATA = (is instanceof FileInputStream) ? Misc.readFileInputStream(is) : Misc.readInputStream(is);
-        } else if (dataType == ServiceConstants.DATA_CONLL) {
-            DATA = new Conll(is);
-        } else if (dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS) {
-            DATA = ClarkDocumentBuilder.buildClarkDocument(is);
-        } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
-            DOC.unmarshall(is);
-            DATA = DOC;
-        } else {
-            throw new IncorrectInputException("The provided data type is not supported by the system. Data cannot be imported.");
-        }
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        CountingInputStream cis = new CountingInputStream(is);
+        long mapped = 0;
+        boolean ok = false;
+        try {
+            if (dataType == ServiceConstants.DATA_TEXT || dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_GAZE) {
+                context.setData((is instanceof FileInputStream) ? Misc.readFileInputStream(cis) : Misc.readInputStream(cis));
+            } else if (dataType == ServiceConstants.DATA_CONLL) {
+                context.setData(new Conll(cis));
+            } else if (dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS) {
+                context.setData(ClarkDocumentBuilder.buildClarkDocument(cis));
+            } else if (dataType == ServiceConstants.DATA_BINARY) {
+                try {
+                    // File streams are mapped, not read through the counting stream
+                    BinaryCorpus corpus = BinaryCorpus.read((is instanceof FileInputStream) ? is : cis);
+                    mapped = corpus.getByteSize() - cis.getCount();
+                    context.setData(corpus);
+                } catch (IOException ex) {
+                    throw new IncorrectInputException(ex.getMessage());
+                }
+            } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
+                try {
+                    context.setData(WebLichtStreamReader.read(cis));
+                } catch (MissingContentException ex) {
+                    throw new IncorrectInputException(ex.getMessage());
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                    throw new IncorrectInputException(ex.getMessage());
+                }
+            } else {
+                throw new IncorrectInputException("The provided data type is not supported by the system. Data cannot be imported.");
+            }
 
-        DATA_TYPE = dataType;
+            context.setDataType(dataType);
+            ok = true;
+        } finally {
+            record(context, "import." + PipelineMetrics.getDataTypeName(dataType), sample, ok, context.getData(), dataType, cis.getCount() + mapped, 0);
+        }
         
         System.out.println("done");
 
@@ -236,21 +331,46 @@ public class ProcessingLine {
      */
     public void importInput(String input, int dataType) throws IOException, ParserConfigurationException, SAXException, JAXBException, IncorrectInputException, MissingContentException {
 
+        importInput(CONTEXT, input, dataType);
+
+    }
+
+    /**
+     * Inputs data from <code>String</code> into <code>context</code>
+     * 
+     * @param   context processing context
+     * @param   input   input String
+     * @param   dataType    input data type
+     * @throws IOException 
+     * @throws MissingContentException
+     * @throws ParserConfigurationException
+     * @throws JAXBException 
+     * @throws IncorrectInputException 
+     * @throws SAXException  
+     */
+    public void importInput(ProcessingContext context, String input, int dataType) throws IOException, ParserConfigurationException, SAXException, JAXBException, IncorrectInputException, MissingContentException {
+
         System.out.print("Importing data...");
-        if (dataType == ServiceConstants.DATA_TEXT || dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_GAZE) {
-            DATA = input;
-        } else if (dataType == ServiceConstants.DATA_CONLL) {
-            DATA = new Conll(input);
-        } else if (dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS) {
-            DATA = ClarkDocumentBuilder.buildClarkDocument(input);
-        } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
-            DOC.unmarshall(input);
-            DATA = DOC;
-        } else {
-            throw new IncorrectInputException("The provided data type is not supported by the system. Data cannot be imported.");
-        }
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        boolean ok = false;
+        try {
+            if (dataType == ServiceConstants.DATA_TEXT || dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_GAZE) {
+                context.setData(input);
+            } else if (dataType == ServiceConstants.DATA_CONLL) {
+                context.setData(new Conll(input));
+            } else if (dataType == ServiceConstants.DATA_CLARK_TOKENS || dataType == ServiceConstants.DATA_CLARK_TAGS) {
+                context.setData(ClarkDocumentBuilder.buildClarkDocument(input));
+            } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
+                context.setData(WebLichtStreamReader.read(new ByteArrayInputStream(input.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING))));
+            } else {
+                throw new IncorrectInputException("The provided data type is not supported by the system. Data cannot be imported.");
+            }
 
-        DATA_TYPE = dataType;
+            context.setDataType(dataType);
+            ok = true;
+        } finally {
+            record(context, "import." + PipelineMetrics.getDataTypeName(dataType), sample, ok, context.getData(), dataType, 0, 0);
+        }
         System.out.println("done");
 
     }
@@ -281,22 +401,40 @@ public class ProcessingLine {
      */
     public void tokenize(int tokenizer) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, ClarkConfigurationException {
 
-        if (DATA_TYPE != ServiceConstants.DATA_TEXT) {
+        tokenize(CONTEXT, tokenizer);
+
+    }
+
+    /**
+     * Tokenize the working data of <code>context</code> using a selected 
+     * tokenizer identified by <code>tokenizer</code>.
+     * 
+     * @param   context processing context
+     * @param   tokenizer   tokenizer
+     * @throws IncorrectInputException
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException
+     * @throws ClarkConfigurationException
+     * @throws MissingContentException  
+     */
+    public void tokenize(ProcessingContext context, int tokenizer) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, ClarkConfigurationException {
+
+        if (context.getDataType() != ServiceConstants.DATA_TEXT) {
             throw new IncorrectInputException("Incorrect input suppied to tokenizer.");
         }
 
         if (tokenizer == ServiceConstants.PIPE_SFST_TOKENIZE) {
             System.out.print("Tokenizing with SFST...");
-            DATA = FST_TOKENIZER.tokenize((String) DATA);
-            DATA_TYPE = ServiceConstants.DATA_LINE;
+            context.setData(FST_TOKENIZER.tokenize((String) context.getData()));
+            context.setDataType(ServiceConstants.DATA_LINE);
         } else if (tokenizer == ServiceConstants.PIPE_CLARK_TOKENIZE) {
             System.out.print("Tokenizing with CLaRK (deprecated)...");
-            DATA = ClarkDocumentBuilder.buildClarkDocument(TOK_AND_SENT.annotateTextData((String) DATA));
-            DATA_TYPE = ServiceConstants.DATA_CLARK_TOKENS;
+            context.setData(ClarkDocumentBuilder.buildClarkDocument(TOK_AND_SENT.annotateTextData((String) context.getData())));
+            context.setDataType(ServiceConstants.DATA_CLARK_TOKENS);
         } else if (tokenizer == ServiceConstants.PIPE_REGEX_TOKENIZE) {
             System.out.print("Tokenizing with RegEx (deprecated)...");
-            DATA = RE_TOKENIZER.tokenize((String) DATA);
-            DATA_TYPE = ServiceConstants.DATA_LINE;
+            context.setData(RE_TOKENIZER.tokenize((String) context.getData()));
+            context.setDataType(ServiceConstants.DATA_LINE);
         } else {
             throw new IncorrectParameterValueException(String.valueOf(tokenizer));
         }
@@ -321,7 +459,7 @@ public class ProcessingLine {
     public void splitSentences(int splitter) throws IncorrectInputException {
 
         if (splitter == 1) {
-            SENT_DETECTOR.detectSentenceBoundaries(DOC);
+            SENT_DETECTOR.detectSentenceBoundaries(CONTEXT.getDocument());
         }
 
 
@@ -355,40 +493,59 @@ public class ProcessingLine {
      */
     public void tag(int tagger) throws IncorrectInputException, SVMTConnectionExceptoin, MissingContentException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
 
-        if (DATA == null) {
+        tag(CONTEXT, tagger);
+
+    }
+
+    /**
+     * POS-tags the working data of <code>context</code> using a selected POS 
+     * tagger identified by <code>tagger</code>
+     * 
+     * @param   context processing context
+     * @param   tagger  selected POS tagger
+     * @throws IncorrectInputException
+     * @throws SVMTConnectionExceptoin 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws ClarkConfigurationException
+     * @throws IncorrectParameterValueException  
+     */
+    public void tag(ProcessingContext context, int tagger) throws IncorrectInputException, SVMTConnectionExceptoin, MissingContentException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
+
+        if (context.getData() == null) {
             throw new IncorrectInputException("Pipe failed to supply LINE data format to the tagger.");
         }
 
         if (tagger == ServiceConstants.PIPE_SVMTOOL_TAG) {
             System.out.print("Tagging with SVMTool...");
-            DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_LINE);
-            if (DATA == null) {
+            context.setData(convert(context, ServiceConstants.DATA_LINE));
+            if (context.getData() == null) {
                 throw new IncorrectInputException("Pipe failed to supply LINE data format to the tagger.");
             } else {
-                DATA_TYPE = ServiceConstants.DATA_LINE;
+                context.setDataType(ServiceConstants.DATA_LINE);
             }
-            DATA = SVMTagger.tagLinesString((String) DATA, OPTIONS);
-            DATA_TYPE = ServiceConstants.DATA_LINE;
+            context.setData(SVMTagger.tagLinesString((String) context.getData(), OPTIONS));
+            context.setDataType(ServiceConstants.DATA_LINE);
         } else if (tagger == ServiceConstants.PIPE_GAZE_TAG) {
             System.out.print("Tagging with Gaze...");
-            DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_GAZE);
-            if (DATA == null) {
+            context.setData(convert(context, ServiceConstants.DATA_GAZE));
+            if (context.getData() == null) {
                 throw new IncorrectInputException("Pipe failed to supply GAZE data format to the tagger.");
             } else {
-                DATA_TYPE = ServiceConstants.DATA_LINE;
+                context.setDataType(ServiceConstants.DATA_LINE);
             }
-            DATA = GazeTagger.tagString((String) DATA, OPTIONS);
-            DATA_TYPE = ServiceConstants.DATA_LINE;
+            context.setData(GAZE_TAGGER.tag((String) context.getData()));
+            context.setDataType(ServiceConstants.DATA_LINE);
         } else if (tagger == ServiceConstants.PIPE_CLARK_TAG) {
             System.out.print("Tagging with CLaRK...");
-            DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_CLARK_TOKENS);
-            if (DATA == null) {
+            context.setData(convert(context, ServiceConstants.DATA_CLARK_TOKENS));
+            if (context.getData() == null) {
                 throw new IncorrectInputException("Pipe failed to supply CLARK_TOKENS data format to the tagger.");
             } else {
-                DATA_TYPE = ServiceConstants.DATA_LINE;
+                context.setDataType(ServiceConstants.DATA_LINE);
             }
-            DATA = TAG.processXmlDocument((Document) DATA);
-            DATA_TYPE = ServiceConstants.DATA_CLARK_TAGS;
+            context.setData(TAG.processXmlDocument((Document) context.getData()));
+            context.setDataType(ServiceConstants.DATA_CLARK_TAGS);
         } else {
             throw new IncorrectParameterValueException("Incorrect tagger: " + tagger);
         }
@@ -423,18 +580,36 @@ public class ProcessingLine {
      */
     public void lemmatize(int lemmatizer) throws MissingContentException, IncorrectInputException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
 
-        DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_CLARK_TAGS);
+        lemmatize(CONTEXT, lemmatizer);
 
-        if (DATA == null) {
+    }
+
+    /**
+     * Lemmatizes the working data of <code>context</code> with a selected 
+     * lemmatizer identified by <code>lemmatizer</code>.
+     * 
+     * @param   context processing context
+     * @param   lemmatizer  selected lemmatizer
+     * @throws MissingContentException 
+     * @throws IncorrectInputException
+     * @throws IncorrectParameterValueException
+     * @throws IncorrectOutputException
+     * @throws ClarkConfigurationException  
+     */
+    public void lemmatize(ProcessingContext context, int lemmatizer) throws MissingContentException, IncorrectInputException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
+
+        context.setData(convert(context, ServiceConstants.DATA_CLARK_TAGS));
+
+        if (context.getData() == null) {
             throw new IncorrectInputException("Pipe failed to supply CLARK_TAGS data format to the lemmatizer.");
         } else {
-            DATA_TYPE = ServiceConstants.DATA_CLARK_TAGS;
+            context.setDataType(ServiceConstants.DATA_CLARK_TAGS);
         }
 
         if (lemmatizer == ServiceConstants.PIPE_CLARK_LEMMATIZE) {
 
             System.out.print("Lemmatizing with CLaRK...");
-            DATA = LEMMA.processXmlDocument((Document) DATA, "laska.dtd");
+            context.setData(LEMMA.processXmlDocument((Document) context.getData(), "laska.dtd"));
 
         } else {
 
@@ -442,7 +617,7 @@ public class ProcessingLine {
 
         }
 
-        DATA_TYPE = ServiceConstants.DATA_CLARK_TAGS;
+        context.setDataType(ServiceConstants.DATA_CLARK_TAGS);
         System.out.println("done");
 
     }
@@ -472,18 +647,36 @@ public class ProcessingLine {
      */
     public void correct(int corrector) throws MissingContentException, IncorrectInputException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
 
-        DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_CLARK_TAGS);
+        correct(CONTEXT, corrector);
+
+    }
 
-        if (DATA == null) {
+    /**
+     * Corrects POS tags in the working data of <code>context</code> with a 
+     * selected corrector
+     * 
+     * @param   context processing context
+     * @param   corrector   selected corrector
+     * @throws MissingContentException 
+     * @throws IncorrectInputException 
+     * @throws IncorrectOutputException
+     * @throws IncorrectParameterValueException 
+     * @throws ClarkConfigurationException  
+     */
+    public void correct(ProcessingContext context, int corrector) throws MissingContentException, IncorrectInputException, IncorrectOutputException, IncorrectParameterValueException, ClarkConfigurationException {
+
+        context.setData(convert(context, ServiceConstants.DATA_CLARK_TAGS));
+
+        if (context.getData() == null) {
             throw new IncorrectInputException("Pipe failed to supply CLARK_TAGS data format to the morphological corrector.");
         } else {
-            DATA_TYPE = ServiceConstants.DATA_CLARK_TAGS;
+            context.setDataType(ServiceConstants.DATA_CLARK_TAGS);
         }
 
         if (corrector == ServiceConstants.PIPE_CLARK_CORRECT) {
 
             System.out.print("Applying morphological rules...");
-            DATA = CONSTRAINTS.processXmlDocument((Document) DATA, "laska.dtd");
+            context.setData(CONSTRAINTS.processXmlDocument((Document) context.getData(), "laska.dtd"));
 
         } else {
 
@@ -491,7 +684,7 @@ public class ProcessingLine {
 
         }
 
-        DATA_TYPE = ServiceConstants.DATA_CLARK_TAGS;
+        context.setDataType(ServiceConstants.DATA_CLARK_TAGS);
         System.out.println("done");
 
     }
@@ -519,21 +712,38 @@ public class ProcessingLine {
      */
     public void parse(int parser) throws MaltChainedException, IncorrectInputException, MissingContentException, IncorrectOutputException {
 
-        DATA = CONVERTER.convert(DATA, DATA_TYPE, ServiceConstants.DATA_CONLL);
+        parse(CONTEXT, parser);
+
+    }
 
-        if (DATA == null) {
+    /**
+     * Dependency parsing of the working data of <code>context</code> with a 
+     * selected dependency parser <code>parser</code>
+     * 
+     * @param   context processing context
+     * @param   parser  selected parser
+     * @throws MaltChainedException 
+     * @throws IncorrectInputException 
+     * @throws MissingContentException
+     * @throws IncorrectOutputException  
+     */
+    public void parse(ProcessingContext context, int parser) throws MaltChainedException, IncorrectInputException, MissingContentException, IncorrectOutputException {
+
+        context.setData(convert(context, ServiceConstants.DATA_CONLL));
+
+        if (context.getData() == null) {
             throw new IncorrectInputException("Pipe failed to supply CONLL data format to the morphological corrector.");
         } else {
-            DATA_TYPE = ServiceConstants.DATA_CONLL;
+            context.setDataType(ServiceConstants.DATA_CONLL);
         }
 
         if (parser == ServiceConstants.PIPE_MALTPARSER_PARSE) {
             System.out.print("Dependency parsing with MaltParser...");
-            DATA = MALT_PARSER.parseConll((Conll) DATA);
+            context.setData(MALT_PARSER.parseConll((Conll) context.getData()));
 
         }
 
-        DATA_TYPE = ServiceConstants.DATA_CONLL;
+        context.setDataType(ServiceConstants.DATA_CONLL);
         System.out.println("done");
 
     }
@@ -573,52 +783,597 @@ public class ProcessingLine {
      */
     public void run() throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
 
-        if (COMMANDS == null) {
+        run(CONTEXT, COMMANDS);
+
+    }
+
+    /**
+     * Runs the processing line on the working data of <code>context</code> 
+     * with the specified <code>commands</code>. The metrics of the document 
+     * are logged when it is exported, or here if the commands fail.
+     * 
+     * @param   context processing context
+     * @param   commands    list of processing commands
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void run(ProcessingContext context, List<Integer> commands) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        boolean ok = false;
+        try {
+            runCommands(context, commands);
+            ok = true;
+        } finally {
+            // The metrics of a processed document are logged once it is exported
+            if (!ok) {
+                writeMetrics(context);
+            }
+        }
+
+    }
+
+    /*
+     * Runs the commands on the working data of context and measures the whole 
+     * run as the 'run' stage.
+     */
+    private void runCommands(ProcessingContext context, List<Integer> commands) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        if (commands == null) {
             throw new NullPointerException("Processing commands list is empty or not initilized.");
         }
         
         System.out.println("Running LABPipe commands...");
         System.out.println("-------------------------------------------------------");
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        boolean ok = false;
+        try {
+            execute(context, commands);
+            ok = true;
+        } finally {
+            record(context, "run", sample, ok, context.getData(), context.getDataType(), 0, 0);
+        }
         
-        for (int c : COMMANDS) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("LABPipe commands: complete.");
+
+    }
+
+    /**
+     * Executes the pipe <code>commands</code> one after the other on the 
+     * working data of <code>context</code>. The commands after the 
+     * tokenizers are answered from the sentence cache, if it is enabled and 
+     * they are cacheable (see {@link #getCachedStart(List)}).
+     * 
+     * @param   context processing context
+     * @param   commands    list of processing commands
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void execute(ProcessingContext context, List<Integer> commands) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        int cached = getCachedStart(commands);
+
+        for (int i = 0; i < commands.size(); i++) {
+
+            if (i == cached && isSentenceData(context.getDataType())) {
+                runCached(context, commands.subList(cached, commands.size()));
+                break;
+            }
+
+            execute(context, commands.get(i));
+
+            if (VERBOSE) {
+                this.exportOutput(context, DEFAULT_OUTPUT_STREAM, DEFAULT_OUTPUT_FORMAT);
+            }
+
+        }
+
+    }
+
+    /**
+     * Gets the index of the first command answered from the sentence cache: 
+     * the commands after the tokenizers are, if the cache is enabled and they 
+     * all are cacheable.
+     * 
+     * @param   commands    list of processing commands
+     * 
+     * @return  int - index of the first cached command or -1
+     */
+    public int getCachedStart(List<Integer> commands) {
+
+        if (SENTENCE_CACHE == null) {
+            return -1;
+        }
+
+        int tokenizers = 0;
+        while (tokenizers < commands.size() && isTokenizer(commands.get(tokenizers))) {
+            tokenizers++;
+        }
+
+        return isCacheable(commands.subList(tokenizers, commands.size())) ? tokenizers : -1;
+
+    }
+
+    /*
+     * Runs the annotation commands sentence by sentence through the sentence 
+     * cache. The working data of context is line or CoNLL encoded, so it can 
+     * be split into sentences without a loss. The sentences found in the 
+     * cache are not annotated again, the rest are annotated together in one 
+     * context and their results are added to the cache in the output data 
+     * type of the commands, which is the data type of context afterwards.
+     */
+    private void runCached(ProcessingContext context, List<Integer> commands) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        int inputType = context.getDataType();
+        int outputType = getOutputType(commands.get(commands.size() - 1));
+        List<String> sentences = splitSentences(context.getData(), inputType);
+        if (sentences.isEmpty()) {
+            for (int c : commands) {
+                execute(context, c);
+            }
+            return;
+        }
+
+        String modelId = getModelId(commands);
+        String[] keys = new String[sentences.size()];
+        String[] values = new String[sentences.size()];
+        List<Integer> missing = new ArrayList();
+        StringBuilder hits = new StringBuilder();
+        StringBuilder misses = new StringBuilder();
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SentenceCache.key(sentences.get(i), commands, modelId);
+            values[i] = SENTENCE_CACHE.get(keys[i]);
+            if (values[i] == null) {
+                missing.add(i);
+                misses.append(sentences.get(i));
+            } else {
+                hits.append(sentences.get(i));
+            }
+        }
+        record(context, "cache.hit", sample, true, hits.toString(), ServiceConstants.DATA_LINE, 0, 0);
+        record(context, "cache.miss", PipelineMetrics.start(), true, misses.toString(), ServiceConstants.DATA_LINE, 0, 0);
+
+        if (!missing.isEmpty()) {
+
+            List<String> missed = new ArrayList(missing.size());
+            for (int i : missing) {
+                missed.add(sentences.get(i));
+            }
+            List<String> results = annotate(context, missed, inputType, commands, outputType);
+            if (results.size() != missing.size()) {
+                // The sentences cannot be matched with their results
+                logger.log(Level.WARNING, "Sentence count changed during annotation, sentences are annotated one by one.");
+                results = new ArrayList(missing.size());
+                for (String sentence : missed) {
+                    StringBuilder sb = new StringBuilder();
+                    for (String result : annotate(context, Arrays.asList(sentence), inputType, commands, outputType)) {
+                        sb.append(result);
+                    }
+                    results.add(sb.toString());
+                }
+            }
+
+            for (int i = 0; i < missing.size(); i++) {
+                values[missing.get(i)] = results.get(i);
+                SENTENCE_CACHE.put(keys[missing.get(i)], results.get(i));
+            }
+
+        }
+
+        context.setData(joinSentences(Arrays.asList(values), outputType));
+        context.setDataType(outputType);
+
+    }
+
+    /*
+     * Annotates sentences with the commands in a context of their own and 
+     * splits the result into sentences of outputType.
+     */
+    private List<String> annotate(ProcessingContext context, List<String> sentences, int inputType, List<Integer> commands, int outputType) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        ProcessingContext annotated = new ProcessingContext(context, joinSentences(sentences, inputType), inputType);
+        for (int c : commands) {
+
+            execute(annotated, c);
+
+            if (VERBOSE) {
+                this.exportOutput(annotated, DEFAULT_OUTPUT_STREAM, DEFAULT_OUTPUT_FORMAT);
+            }
+
+        }
+
+        Object data = convert(annotated, outputType);
+        if (data == null) {
+            throw new IncorrectOutputException("Pipe failed to produce the output data format of the sentence cache.");
+        }
+        return splitSentences(data, outputType);
+
+    }
+
+    /*
+     * Splits line or CoNLL data into sentences encoded as text. The sentences 
+     * of line data end with their end of sentence line. The lines of a 
+     * sentence without tokens stay with the previous sentence (or the next, 
+     * if there is no previous one), so that nothing is dropped.
+     */
+    private List<String> splitSentences(Object data, int dataType) {
+
+        List<String> sentences = new ArrayList();
+
+        if (dataType == ServiceConstants.DATA_CONLL) {
+            Conll conll = (Conll) data;
+            for (int i = 0; i < conll.size(); i++) {
+                StringBuilder sb = new StringBuilder();
+                for (String line : conll.get(i)) {
+                    sb.append(line);
+                    sb.append("\n");
+                }
+                sentences.add(sb.toString());
+            }
+            return sentences;
+        }
+
+        String text = (String) data;
+        if (text.length() == 0) {
+            return sentences;
+        }
+
+        String eos = OPTIONS.getProperty(Configuration.EOS_TOKEN);
+        StringBuilder sb = new StringBuilder();
+        boolean content = false;
+
+        for (String line : text.split("\n")) {
+            sb.append(line);
+            sb.append("\n");
+            if (line.trim().equals(eos) || line.startsWith(eos + "\t")) {
+                if (content) {
+                    sentences.add(sb.toString());
+                    sb.setLength(0);
+                    content = false;
+                } else if (!sentences.isEmpty()) {
+                    sentences.set(sentences.size() - 1, sentences.get(sentences.size() - 1) + sb);
+                    sb.setLength(0);
+                }
+            } else if (line.trim().length() > 0) {
+                content = true;
+            }
+        }
+        if (sb.length() > 0) {
+            if (content || sentences.isEmpty()) {
+                sentences.add(sb.toString());
+            } else {
+                sentences.set(sentences.size() - 1, sentences.get(sentences.size() - 1) + sb);
+            }
+        }
+
+        return sentences;
+
+    }
+
+    /*
+     * Joins sentences made by splitSentences into line or CoNLL data.
+     */
+    private static Object joinSentences(List<String> sentences, int dataType) {
+
+        if (dataType == ServiceConstants.DATA_CONLL) {
+            Conll conll = new Conll();
+            for (String sentence : sentences) {
+                conll.add(new ArrayList(Arrays.asList(sentence.split("\n"))));
+            }
+            return conll;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String sentence : sentences) {
+            sb.append(sentence);
+        }
+        return sb.toString();
+
+    }
+
+    /*
+     * Builds the part of the sentence cache keys identifying the models: the 
+     * model label, the options used by the commands and by the conversions 
+     * between them and the size and modification time of the model files. A 
+     * retrained model therefore does not hit the results of the old one, 
+     * while the options the results do not depend on (threads, metrics, 
+     * etc.) do not change the keys. The SVMTool model is on the server, so 
+     * its changes are only seen through the model label.
+     */
+    private String getModelId(List<Integer> commands) {
+
+        StringBuilder sb = new StringBuilder();
+        appendOption(sb, Configuration.SENTENCE_CACHE_MODEL);
+        appendOption(sb, Configuration.EOS_TOKEN);
+        appendFile(sb, OPTIONS.getConllMapPath());
+        appendFile(sb, OPTIONS.getConllMapInvPath());
+
+        for (int c : new TreeSet<Integer>(commands)) {
+            sb.append(PipelineMetrics.getCommandName(c));
+            sb.append('\n');
             switch (c) {
-                case ServiceConstants.PIPE_SFST_TOKENIZE:
-                    this.tokenize();
-                    break;
-                case ServiceConstants.PIPE_REGEX_TOKENIZE:
-                    this.tokenize(ServiceConstants.PIPE_REGEX_TOKENIZE);
-                    break;
-                case ServiceConstants.PIPE_CLARK_TOKENIZE:
-                    this.tokenize(ServiceConstants.PIPE_CLARK_TOKENIZE);
-                    break;
                 case ServiceConstants.PIPE_SVMTOOL_TAG:
-                    this.tag();
+                    appendOption(sb, Configuration.SVMT_URL);
                     break;
                 case ServiceConstants.PIPE_GAZE_TAG:
-                    this.tag(ServiceConstants.PIPE_GAZE_TAG);
+                    appendFile(sb, OPTIONS.getGazeFeatures());
+                    appendFile(sb, OPTIONS.getGazeTags());
                     break;
                 case ServiceConstants.PIPE_CLARK_TAG:
-                    this.tag(ServiceConstants.PIPE_CLARK_TAG);
-                    break;
                 case ServiceConstants.PIPE_CLARK_LEMMATIZE:
-                    this.lemmatize();
-                    break;
                 case ServiceConstants.PIPE_CLARK_CORRECT:
-                    this.correct();
+                    appendOption(sb, Configuration.CLARK_TAGS_QUERY_NAME);
+                    appendOption(sb, Configuration.CLARK_LEMMAS_QUERY_NAME);
+                    appendOption(sb, Configuration.CLARK_CONSTRAINTS_QUERY_NAME);
+                    // The queries are kept in the CLaRK system files
+                    File[] files = new File(OPTIONS.getClarkHome()).listFiles();
+                    if (files != null) {
+                        Arrays.sort(files);
+                        for (File file : files) {
+                            if (file.isFile()) {
+                                appendFile(sb, file.getPath());
+                            }
+                        }
+                    }
                     break;
                 case ServiceConstants.PIPE_MALTPARSER_PARSE:
-                    this.parse();
+                    String[] malt = {Configuration.MALT_PARSER_MODEL, Configuration.MALT_PARSING_ALGORITHM,
+                        Configuration.MALT_ROOT, Configuration.MALT_LIBLINEAR_OPTIONS, Configuration.MALT_FEATURE_MODEL,
+                        Configuration.MALT_DS_COL, Configuration.MALT_DS_DATA_STRUC, Configuration.MALT_DS_THRESHOLD,
+                        Configuration.MALT_MARKING_STRATEGY};
+                    for (String key : malt) {
+                        appendOption(sb, key);
+                    }
+                    String dir = OPTIONS.getMaltWorkingDir().replace("\\ ", " ");
+                    appendFile(sb, new File(dir, OPTIONS.getProperty(Configuration.MALT_PARSER_MODEL) + ".mco").getPath());
                     break;
             }
-            
-            if (VERBOSE) {
-                this.exportOutput(DEFAULT_OUTPUT_STREAM, DEFAULT_OUTPUT_FORMAT);
+        }
+
+        return SentenceCache.digest(sb.toString());
+
+    }
+
+    private void appendOption(StringBuilder sb, String key) {
+        sb.append(key);
+        sb.append('=');
+        sb.append(OPTIONS.getProperty(key));
+        sb.append('\n');
+    }
+
+    private static void appendFile(StringBuilder sb, String path) {
+        File file = new File(path);
+        sb.append(path);
+        sb.append('=');
+        sb.append(file.length());
+        sb.append(',');
+        sb.append(file.lastModified());
+        sb.append('\n');
+    }
+
+    /*
+     * Checks whether the results of the commands can be kept in the sentence 
+     * cache: the commands annotate tokens (they do not tokenize) and produce 
+     * line or CoNLL data, which can be split into sentences without a loss.
+     */
+    private static boolean isCacheable(List<Integer> commands) {
+        if (commands.isEmpty()) {
+            return false;
+        }
+        for (int c : commands) {
+            if (isTokenizer(c)) {
+                return false;
             }
-            
+        }
+        return isSentenceData(getOutputType(commands.get(commands.size() - 1)));
+    }
+
+    private static boolean isSentenceData(int dataType) {
+        return dataType == ServiceConstants.DATA_LINE || dataType == ServiceConstants.DATA_CONLL;
+    }
+
+    /*
+     * Gets the data type produced by an annotation command.
+     */
+    private static int getOutputType(int command) {
+        switch (command) {
+            case ServiceConstants.PIPE_SVMTOOL_TAG:
+            case ServiceConstants.PIPE_GAZE_TAG:
+                return ServiceConstants.DATA_LINE;
+            case ServiceConstants.PIPE_MALTPARSER_PARSE:
+                return ServiceConstants.DATA_CONLL;
+            default:
+                return ServiceConstants.DATA_CLARK_TAGS;
+        }
+    }
+
+    private static boolean isTokenizer(int command) {
+        return command == ServiceConstants.PIPE_SFST_TOKENIZE
+                || command == ServiceConstants.PIPE_REGEX_TOKENIZE
+                || command == ServiceConstants.PIPE_CLARK_TOKENIZE;
+    }
+
+    /**
+     * Executes a single pipe <code>command</code> on the working data of 
+     * <code>context</code>
+     * 
+     * @param   context processing context
+     * @param   command pipe command (see {@link ServiceConstants})
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void execute(ProcessingContext context, int command) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        boolean ok = false;
+        try {
+            executeCommand(context, command);
+            ok = true;
+        } finally {
+            record(context, PipelineMetrics.getCommandName(command), sample, ok, context.getData(), context.getDataType(), 0, 0);
+        }
+
+    }
+
+    /*
+     * Dispatches a pipe command to the tool running it.
+     */
+    private void executeCommand(ProcessingContext context, int command) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        switch (command) {
+            case ServiceConstants.PIPE_SFST_TOKENIZE:
+                this.tokenize(context, ServiceConstants.PIPE_SFST_TOKENIZE);
+                break;
+            case ServiceConstants.PIPE_REGEX_TOKENIZE:
+                this.tokenize(context, ServiceConstants.PIPE_REGEX_TOKENIZE);
+                break;
+            case ServiceConstants.PIPE_CLARK_TOKENIZE:
+                this.tokenize(context, ServiceConstants.PIPE_CLARK_TOKENIZE);
+                break;
+            case ServiceConstants.PIPE_SVMTOOL_TAG:
+                this.tag(context, ServiceConstants.PIPE_SVMTOOL_TAG);
+                break;
+            case ServiceConstants.PIPE_GAZE_TAG:
+                this.tag(context, ServiceConstants.PIPE_GAZE_TAG);
+                break;
+            case ServiceConstants.PIPE_CLARK_TAG:
+                this.tag(context, ServiceConstants.PIPE_CLARK_TAG);
+                break;
+            case ServiceConstants.PIPE_CLARK_LEMMATIZE:
+                this.lemmatize(context, ServiceConstants.PIPE_CLARK_LEMMATIZE);
+                break;
+            case ServiceConstants.PIPE_CLARK_CORRECT:
+                this.correct(context, ServiceConstants.PIPE_CLARK_CORRECT);
+                break;
+            case ServiceConstants.PIPE_MALTPARSER_PARSE:
+                this.parse(context, ServiceConstants.PIPE_MALTPARSER_PARSE);
+                break;
+        }
+
+    }
+
+    /**
+     * Processes a single document: imports it from <code>is</code> into a new 
+     * context, runs <code>commands</code> on it and exports the result into 
+     * <code>os</code>. This method may be called from several threads at the 
+     * same time.
+     * 
+     * @param   is  input stream
+     * @param   inputType   input data type
+     * @param   os  output stream
+     * @param   outputType  output data type
+     * @param   commands    list of processing commands
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void process(InputStream is, int inputType, OutputStream os, int outputType, List<Integer> commands) throws IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        ProcessingContext context = new ProcessingContext();
+        try {
+            importInput(context, is, inputType);
+            runCommands(context, commands);
+            export(context, os, outputType);
+        } finally {
+            writeMetrics(context);
+        }
+
+    }
+
+    /**
+     * Processes a document in streaming mode. The input is read in chunks of 
+     * whole sentences (see {@link ChunkReader}), every chunk is run through 
+     * <code>commands</code> in its own context and the results are written to
+     * <code>os</code> in the input order as soon as they are ready. The 
+     * commands run as the stages of a pipeline (see {@link PipelineScheduler}),
+     * so the memory used is bounded by the queues between the stages and not 
+     * by the document size.
+     * 
+     * Only text, line, Gaze and CoNLL input and line, Gaze and CoNLL output 
+     * are supported, as these can be split and concatenated by sentences.
+     * 
+     * @param   is  input stream
+     * @param   inputType   input data type
+     * @param   os  output stream
+     * @param   outputType  output data type
+     * @param   commands    list of processing commands
+     * @throws IOException 
+     * @throws IncorrectInputException 
+     * @throws InterruptedException 
+     * @throws IncorrectParameterValueException 
+     * @throws MissingContentException 
+     * @throws IncorrectOutputException
+     * @throws MaltChainedException
+     * @throws SVMTConnectionExceptoin
+     * @throws ClarkConfigurationException  
+     */
+    public void processStream(InputStream is, int inputType, OutputStream os, int outputType, List<Integer> commands) throws IOException, IncorrectInputException, InterruptedException, IncorrectParameterValueException, MissingContentException, SVMTConnectionExceptoin, IncorrectOutputException, MaltChainedException, ClarkConfigurationException {
+
+        if (commands == null) {
+            throw new NullPointerException("Processing commands list is empty or not initilized.");
+        }
+        if (outputType != ServiceConstants.DATA_LINE
+                && outputType != ServiceConstants.DATA_GAZE
+                && outputType != ServiceConstants.DATA_CONLL) {
+            throw new IncorrectOutputException("The output data type is not supported in streaming mode.");
         }
         
-        System.out.println("-------------------------------------------------------");
-        System.out.println("LABPipe commands: complete.");
+        ChunkReader reader;
+        try {
+            reader = new ChunkReader(is, inputType, OPTIONS.getProperty(Configuration.EOS_TOKEN), OPTIONS.getStreamChunkSize(), ABBREVIATIONS);
+        } catch (IllegalArgumentException ex) {
+            throw new IncorrectInputException("The input data type is not supported in streaming mode.");
+        }
+        
+        Writer writer = new BufferedWriter(new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING));
+        new PipelineScheduler(this, commands, OPTIONS).process(reader, inputType, outputType, writer);
+
+    }
+
+    /**
+     * Exports the working data of <code>context</code> as line, Gaze or CoNLL
+     * encoded text
+     * 
+     * @param   context processing context
+     * @param   dataType    output data type
+     * @return  String
+     * @throws IncorrectOutputException
+     * @throws IncorrectInputException
+     * @throws MissingContentException
+     */
+    String exportText(ProcessingContext context, int dataType) throws IncorrectOutputException, IncorrectInputException, MissingContentException {
+
+        Object data = convert(context, dataType);
+        if (data == null) {
+            throw new IncorrectOutputException("Pipe failed to produce the output data format.");
+        }
+        return data.toString();
 
     }
 
@@ -633,13 +1388,47 @@ public class ProcessingLine {
      */
     public void exportOutput(OutputStream os, int dataType) throws IncorrectOutputException, IncorrectInputException, MissingContentException {
         
-        Object data = CONVERTER.convert(DATA, DATA_TYPE, dataType);
+        exportOutput(CONTEXT, os, dataType);
+
+    }
+
+    /**
+     * Exports the working data of <code>context</code> into <code>os</code>
+     * 
+     * @param   context processing context
+     * @param   os  output stream
+     * @param   dataType    output data type
+     * @throws IncorrectOutputException
+     * @throws IncorrectInputException 
+     * @throws MissingContentException  
+     */
+    public void exportOutput(ProcessingContext context, OutputStream os, int dataType) throws IncorrectOutputException, IncorrectInputException, MissingContentException {
+
+        try {
+            export(context, os, dataType);
+        } finally {
+            writeMetrics(context);
+        }
+
+    }
+
+    /*
+     * Exports the working data of the context into the stream and records 
+     * the export stage.
+     */
+    private void export(ProcessingContext context, OutputStream os, int dataType) throws IncorrectOutputException, IncorrectInputException, MissingContentException {
+        
+        Object data = (dataType == ServiceConstants.DATA_WEBLICHT) ? convertToStore(context) : convert(context, dataType);
         
         System.out.print("Exporting data...");
 
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        CountingOutputStream cos = new CountingOutputStream(os);
+        boolean ok = false;
+
         try {
             
-            OutputStreamWriter osw = new OutputStreamWriter(os, ServiceConstants.PIPE_CHARACTER_ENCODING);
+            OutputStreamWriter osw = new OutputStreamWriter(cos, ServiceConstants.PIPE_CHARACTER_ENCODING);
             
             if (dataType == ServiceConstants.DATA_LINE) {
                 osw.write(((String) data));
@@ -647,20 +1436,36 @@ public class ProcessingLine {
                 osw.write(((Conll) data).toString());
             } else if (dataType == ServiceConstants.DATA_CLARK_TAGS
                     || dataType == ServiceConstants.DATA_CLARK_TOKENS) {
-                XmlUtils.print(((Document) data), os);
+                XmlUtils.print(((Document) data), cos);
+            } else if (dataType == ServiceConstants.DATA_BINARY) {
+                ((BinaryCorpus) data).writeTo(cos);
             } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
-                ((WebLicht) data).exportAsXML(os);
+                if (data instanceof TokenStore) {
+                    WebLichtStreamWriter.write((TokenStore) data, cos);
+                } else {
+                    ((WebLicht) data).exportAsXML(cos);
+                }
             }
             
             osw.flush();
+            // the CLaRK and JAXB writers log write failures instead of throwing them
+            if (cos.getError() != null) {
+                throw cos.getError();
+            }
+            ok = true;
             
         } catch (ClassCastException ex) {
             logger.log(Level.WARNING, "ClassCastException during output conversion.", ex);
             throw new IncorrectInputException("Unacceptable data format contained in the pipe. Data cannot be extracted.");
         } catch (UnsupportedEncodingException ex) {
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
+            throw new IncorrectOutputException("Pipe failed to write the output data: " + ex.getMessage());
         } catch (IOException ex) {
+            // e.g. a full disk; the output is incomplete and must not be used
             logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+            throw new IncorrectOutputException("Pipe failed to write the output data: " + ex.getMessage());
+        } finally {
+            record(context, "export." + PipelineMetrics.getDataTypeName(dataType), sample, ok, data, dataType, 0, cos.getCount());
         }
         
         System.out.println("done");
@@ -674,7 +1479,34 @@ public class ProcessingLine {
      * @throws IncorrectOutputException
      */
     public String exportOutput(int dataType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
-        Object data = CONVERTER.convert(DATA, DATA_TYPE, dataType);
+        return exportOutput(CONTEXT, dataType);
+    }
+
+    /**
+     * Exports the working data of <code>context</code> as a <code>String</code>
+     * 
+     * @param   context processing context
+     * @param   dataType    output data type
+     * @return  String
+     * @throws MissingContentException
+     * @throws IncorrectInputException
+     * @throws IncorrectOutputException
+     */
+    public String exportOutput(ProcessingContext context, int dataType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
+
+        try {
+            return export(context, dataType);
+        } finally {
+            writeMetrics(context);
+        }
+
+    }
+
+    /*
+     * Exports the working data of the context as a String.
+     */
+    private String export(ProcessingContext context, int dataType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
+        Object data = (dataType == ServiceConstants.DATA_WEBLICHT) ? convertToStore(context) : convert(context, dataType);
         
         System.out.print("Exporting data...");
 
@@ -688,6 +1520,11 @@ public class ProcessingLine {
                     || dataType == ServiceConstants.DATA_CLARK_TOKENS) {
                 XmlUtils.printToString(((Document) data));
             } else if (dataType == ServiceConstants.DATA_WEBLICHT) {
+                if (data instanceof TokenStore) {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    WebLichtStreamWriter.write((TokenStore) data, baos);
+                    return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+                }
                 return ((WebLicht) data).toString();
             }
             
@@ -703,6 +1540,123 @@ public class ProcessingLine {
         return null;
     }
 
+    /**
+     * Gets the metrics of all documents processed by this object
+     * 
+     * @return  {@link PipelineMetrics}
+     */
+    public PipelineMetrics getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Gets the sentence cache of this object
+     * 
+     * @return  {@link SentenceCache} or <code>null</code> if the cache is 
+     *          disabled
+     */
+    public SentenceCache getSentenceCache() {
+        return SENTENCE_CACHE;
+    }
+
+    /*
+     * Converts the working data of context into outputType and measures the 
+     * conversion as a 'convert' stage.
+     */
+    private Object convert(ProcessingContext context, int outputType) throws MissingContentException, IncorrectInputException, IncorrectOutputException {
+
+        int inputType = context.getDataType();
+        if (inputType == outputType) {
+            return CONVERTER.convert(context.getData(), inputType, outputType);
+        }
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        Object data = null;
+        try {
+            data = CONVERTER.convert(context.getData(), inputType, outputType);
+            return data;
+        } finally {
+            record(context, "convert." + PipelineMetrics.getDataTypeName(inputType) + "." + PipelineMetrics.getDataTypeName(outputType),
+                    sample, data != null, data, outputType, 0, 0);
+        }
+
+    }
+
+    /*
+     * Gets the working data of context for a WebLicht export. Data of other 
+     * types is read into a TokenStore, which is streamed without building a 
+     * WebLicht object, and the conversion is measured as a 'convert' stage.
+     */
+    private Object convertToStore(ProcessingContext context) throws MissingContentException, IncorrectInputException {
+
+        int inputType = context.getDataType();
+        if (inputType == ServiceConstants.DATA_WEBLICHT) {
+            return context.getData();
+        }
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start();
+        TokenStore store = null;
+        try {
+            store = CONVERTER.toTokenStore(context.getData(), inputType);
+            return store;
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+            throw new IncorrectInputException("Working data cannot be converted into WebLicht.");
+        } finally {
+            record(context, "convert." + PipelineMetrics.getDataTypeName(inputType) + "." + PipelineMetrics.getDataTypeName(ServiceConstants.DATA_WEBLICHT),
+                    sample, store != null, store, ServiceConstants.DATA_WEBLICHT, 0, 0);
+        }
+
+    }
+
+    /*
+     * Records a stage run in the metrics of this object and of the context. 
+     * The output is counted only when the metrics are logged or registered.
+     */
+    private void record(ProcessingContext context, String stage, PipelineMetrics.Sample sample, boolean ok, Object data, int dataType, long bytesIn, long bytesOut) {
+
+        long nanos = sample.getNanos();
+        long allocated = sample.getAllocatedBytes();
+        long[] counts = (ok && OPTIONS.isMetricsEnabled()) ? PipelineMetrics.count(data, dataType, OPTIONS.getProperty(Configuration.EOS_TOKEN)) : new long[2];
+
+        METRICS.record(stage, nanos, allocated, ok, counts, bytesIn, bytesOut);
+        context.getMetrics().record(stage, nanos, allocated, ok, counts, bytesIn, bytesOut);
+
+    }
+
+    /*
+     * Appends the metrics of a processed document to the metrics log, if 
+     * there is one.
+     */
+    private void writeMetrics(ProcessingContext context) {
+
+        String path = OPTIONS.getMetricsLog();
+        if (path == null) {
+            return;
+        }
+
+        String summary = context.getMetrics().toJson();
+        synchronized (METRICS) {
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(path, true), ServiceConstants.PIPE_CHARACTER_ENCODING);
+                writer.write(summary);
+                writer.write("\n");
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException ex) {
+                        logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                    }
+                }
+            }
+        }
+
+    }
+
     /**
      * Gets the list of commands
      * 
@@ -726,7 +1680,7 @@ public class ProcessingLine {
      */
     public WebLicht getData() {
 
-        return DOC;
+        return CONTEXT.getDocument();
 
     }
 
@@ -736,7 +1690,7 @@ public class ProcessingLine {
      */
     public void setData(WebLicht doc) {
 
-        DOC = doc;
+        CONTEXT.setDocument(doc);
 
     }
 
@@ -745,7 +1699,7 @@ public class ProcessingLine {
      */
     public boolean containsData(Class c) {
 
-        ClassMap cm = new ClassMap(DOC.getTextCorpus().getTextOrTokensOrSentences());
+        ClassMap cm = new ClassMap(CONTEXT.getDocument().getTextCorpus().getTextOrTokensOrSentences());
 
         if (cm.containsKey(c)) {
             return true;
@@ -759,8 +1713,16 @@ public class ProcessingLine {
      * Clears current working data.
      */
     public void clear() {
-        DOC = new WebLicht();
-        DATA = null;
+        CONTEXT.clear();
+    }
+
+    /**
+     * Creates a new empty processing context for this processing line.
+     * 
+     * @return  {@link ProcessingContext}
+     */
+    public ProcessingContext newContext() {
+        return new ProcessingContext();
     }
     
     /**
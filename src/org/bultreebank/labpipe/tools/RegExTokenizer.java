@@ -36,7 +36,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.bultreebank.labpipe.data.WebLicht;
 import org.bultreebank.labpipe.exceptions.IncorrectInputException;
+import org.bultreebank.labpipe.utils.CharacterClass;
 import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.ExceptionTrie;
 import org.bultreebank.labpipe.utils.Misc;
 import org.bultreebank.labpipe.utils.RegExDictionary;
 import org.bultreebank.labpipe.utils.ServiceConstants;
@@ -53,6 +55,10 @@ public class RegExTokenizer extends Tokenizer {
     private Configuration OPTIONS;
     private RegExDictionary RED;
     private Pattern TOKEN_PATTERN;
+    /* Scanner equivalent to TOKEN_PATTERN (null if the patterns do not allow it) */
+    private ExceptionTrie EXCEPTIONS;
+    private CharacterClass TOKEN_CLASS;
+    private CharacterClass PUNCT_CLASS;
     private static final Logger logger = Logger.getLogger(RegExTokenizer.class.getName());
 
     /**
@@ -83,6 +89,30 @@ public class RegExTokenizer extends Tokenizer {
                 + OPTIONS.getProperty(Configuration.TOKEN_PATTERN) + "+|"
                 + OPTIONS.getProperty(Configuration.PUNCT_PATTERN)
                 + ")");
+        setScanner();
+    }
+
+    /*
+     * The alternation of the exceptions makes the regular expression slower 
+     * with every exception, as it is tried at every position. When the token 
+     * and punctuation patterns match single characters, the same tokens are 
+     * found by the exception trie and two cached character classes in one 
+     * pass over the line.
+     */
+    private void setScanner() {
+        String token = OPTIONS.getProperty(Configuration.TOKEN_PATTERN);
+        String punct = OPTIONS.getProperty(Configuration.PUNCT_PATTERN);
+        if (OPTIONS.isRegexScanner()
+                && CharacterClass.isSingleCharacter(token)
+                && CharacterClass.isSingleCharacter(punct)) {
+            EXCEPTIONS = RED.getExceptionTrie();
+            TOKEN_CLASS = new CharacterClass(token);
+            PUNCT_CLASS = new CharacterClass(punct);
+        } else {
+            EXCEPTIONS = null;
+            TOKEN_CLASS = null;
+            PUNCT_CLASS = null;
+        }
     }
 
     @Override
@@ -142,6 +172,9 @@ public class RegExTokenizer extends Tokenizer {
     }
 
     private List<String> tokenizeLine(String text) {
+        if (TOKEN_CLASS != null) {
+            return scanLine(text);
+        }
         List<String> tokens = new ArrayList();
         Matcher m = TOKEN_PATTERN.matcher(text);
         while (m.find()) {
@@ -149,4 +182,37 @@ public class RegExTokenizer extends Tokenizer {
         }
         return tokens;
     }
+
+    /*
+     * Finds the same tokens as TOKEN_PATTERN: a run of exceptions, a run of 
+     * token characters or a single punctuation sign, in this order of 
+     * preference. Other characters are skipped.
+     */
+    private List<String> scanLine(String text) {
+        List<String> tokens = new ArrayList();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int end = i;
+            int match;
+            while ((match = EXCEPTIONS.match(text, end)) > 0) {
+                end += match;
+            }
+            int cp = text.codePointAt(i);
+            if (end == i && TOKEN_CLASS.contains(cp)) {
+                while (end < length && TOKEN_CLASS.contains(cp = text.codePointAt(end))) {
+                    end += Character.charCount(cp);
+                }
+            } else if (end == i && PUNCT_CLASS.contains(cp)) {
+                end += Character.charCount(cp);
+            }
+            if (end > i) {
+                tokens.add(text.substring(i, end));
+                i = end;
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
 }
@@ -0,0 +1,426 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bultreebank.labpipe.exceptions.MissingContentException;
+import org.bultreebank.labpipe.exceptions.SVMTConnectionExceptoin;
+import org.bultreebank.labpipe.utils.Configuration;
+import org.bultreebank.labpipe.utils.DaemonThreadFactory;
+import org.bultreebank.labpipe.utils.Misc;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>SVMTClient</code> is the HTTP client of the SVMTool tagger server. 
+ * The sentences are split into batches of {@link Configuration#SVMT_BATCH_SIZE} 
+ * sentences and every batch is sent with one of two protocols:
+ * 
+ * <ul>
+ * <li>GET (default): the protocol of the SVMTool HTTP server. One request is 
+ * sent per sentence, the sentence is passed in the <code>input</code> query 
+ * parameter and the tags are returned in the response message. The requests 
+ * of a batch are sent one after the other over the same kept-alive 
+ * connection.</li>
+ * <li>POST (when {@link Configuration#SVMT_POST} is <code>true</code>): the 
+ * whole batch is sent in the request body, one sentence per line with tokens 
+ * separated by spaces. The response body contains one line of space 
+ * separated tags per input sentence. The SVMTool HTTP server does not support 
+ * this protocol, it is served by 
+ * {@link org.bultreebank.labpipe.benchmark.SVMTStubServer} and by servers 
+ * extended in the same way.</li>
+ * </ul>
+ * 
+ * Batches are sent by a pool of {@link Configuration#SVMT_MAX_REQUESTS} 
+ * threads over as many kept-alive connections. The next batch is sent as 
+ * soon as a request slot is free, so that the requests to the server overlap 
+ * while the earlier responses are read. <code>HttpURLConnection</code> keeps 
+ * at most 5 idle connections per server, so more requests in flight need 
+ * <code>-Dhttp.maxConnections=n</code> on the command line. The responses are 
+ * always read to the end so that the connections are reused. The results are 
+ * returned in the order of the input sentences.
+ *
+ * @author Aleksandar Savkov
+ */
+public class SVMTClient {
+
+    private static final Logger logger = Logger.getLogger(SVMTClient.class.getName());
+    private static final HashMap<String, SVMTClient> CLIENTS = new HashMap();
+    private static final String CONNECTION_ERROR = "SVMT Connection Exception during tagging. Check if the SVMT HTTP server is accessible.";
+    private static final int READ_TIMEOUT = 1000000;
+    private final String URL_STRING;
+    private final int BATCH_SIZE;
+    private final boolean POST;
+    private final int MAX_REQUESTS;
+    private final Semaphore IN_FLIGHT;
+    private ExecutorService EXECUTOR = null;
+
+    /**
+     * Creates a new client
+     * 
+     * @param   url SVMTool HTTP server URL
+     * @param   batchSize   number of sentences per batch
+     * @param   post    send each batch in a single POST request
+     * @param   maxRequests maximum number of requests in flight
+     */
+    public SVMTClient(String url, int batchSize, boolean post, int maxRequests) {
+        URL_STRING = url;
+        BATCH_SIZE = Math.max(1, batchSize);
+        POST = post;
+        MAX_REQUESTS = Math.max(1, maxRequests);
+        IN_FLIGHT = new Semaphore(MAX_REQUESTS);
+        if (MAX_REQUESTS > 1) {
+            EXECUTOR = Executors.newFixedThreadPool(MAX_REQUESTS, new DaemonThreadFactory("svmt-client"));
+        }
+    }
+
+    /**
+     * Gets a shared client for the SVMTool server configured in 
+     * <code>options</code>. Clients are cached by URL, batch size, protocol 
+     * and number of requests in flight.
+     * 
+     * @param   options LABPipe configuration
+     * 
+     * @return  {@link SVMTClient}
+     */
+    public static SVMTClient getInstance(Properties options) {
+
+        String url = options.getProperty(Configuration.SVMT_URL);
+        int batchSize = readInt(options, Configuration.SVMT_BATCH_SIZE, 0);
+        boolean post = Boolean.parseBoolean(options.getProperty(Configuration.SVMT_POST));
+        int maxRequests = readInt(options, Configuration.SVMT_MAX_REQUESTS, 1);
+        if (maxRequests < 1) {
+            maxRequests = Runtime.getRuntime().availableProcessors();
+        }
+        String key = url + "|" + batchSize + "|" + post + "|" + maxRequests;
+
+        synchronized (CLIENTS) {
+            SVMTClient client = CLIENTS.get(key);
+            if (client == null) {
+                client = new SVMTClient(url, batchSize, post, maxRequests);
+                CLIENTS.put(key, client);
+            }
+            return client;
+        }
+
+    }
+
+    /**
+     * Tags a list of sentences.
+     * 
+     * @param   sentences   list of sentences, each being a list of words
+     * 
+     * @return  List&lt;String[]&gt;   - tags of each sentence in the original order
+     * @throws SVMTConnectionExceptoin
+     * @throws MissingContentException  
+     */
+    public List<String[]> tag(List<? extends List<String>> sentences) throws SVMTConnectionExceptoin, MissingContentException {
+
+        for (List<String> sentence : sentences) {
+            if (sentence.isEmpty()) {
+                throw new MissingContentException("No input provided to the SVMTool tagger.");
+            }
+        }
+
+        List<Request> requests = new ArrayList();
+        for (int i = 0; i < sentences.size(); i += BATCH_SIZE) {
+            requests.add(new Request(sentences.subList(i, Math.min(i + BATCH_SIZE, sentences.size()))));
+        }
+
+        List<String[]> tags = new ArrayList(sentences.size());
+
+        if (EXECUTOR == null || requests.size() < 2) {
+            for (Request request : requests) {
+                try {
+                    request.acquire();
+                    tags.addAll(request.call());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SVMTConnectionExceptoin("Interrupted while waiting for the SVMTool tagger.");
+                }
+            }
+            return tags;
+        }
+
+        List<Future<List<String[]>>> results = new ArrayList(requests.size());
+
+        try {
+            // The request slots are shared by all callers of this client, a 
+            // batch is sent as soon as one of them is free
+            for (Request request : requests) {
+                request.acquire();
+                results.add(EXECUTOR.submit(request));
+            }
+            for (Future<List<String[]>> result : results) {
+                tags.addAll(result.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SVMTConnectionExceptoin("Interrupted while waiting for the SVMTool tagger.");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SVMTConnectionExceptoin) {
+                throw (SVMTConnectionExceptoin) ex.getCause();
+            }
+            logger.log(Level.SEVERE, CONNECTION_ERROR, ex.getCause());
+            throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+        } finally {
+            for (Future<List<String[]>> result : results) {
+                result.cancel(true);
+            }
+            // Cancelled requests that never ran still hold their slots
+            for (Request request : requests) {
+                request.release();
+            }
+        }
+
+        return tags;
+
+    }
+
+    /**
+     * Tags a single sentence.
+     * 
+     * @param   sentence    list of words
+     * 
+     * @return  String[]    - list of tags in the original word order
+     * @throws SVMTConnectionExceptoin
+     * @throws MissingContentException  
+     */
+    public String[] tagSentence(List<String> sentence) throws SVMTConnectionExceptoin, MissingContentException {
+        List<List<String>> sentences = new ArrayList(1);
+        sentences.add(sentence);
+        return tag(sentences).get(0);
+    }
+
+    /**
+     * Shuts down the request threads of this client.
+     */
+    public void close() {
+        if (EXECUTOR != null) {
+            EXECUTOR.shutdownNow();
+        }
+    }
+
+    /*
+     * A batch of sentences sent in a request slot. The slot is released once, 
+     * either when the request is done or when it is cancelled.
+     */
+    private class Request implements Callable<List<String[]>> {
+
+        private final List<? extends List<String>> BATCH;
+        private final AtomicBoolean HELD = new AtomicBoolean(false);
+
+        Request(List<? extends List<String>> batch) {
+            BATCH = batch;
+        }
+
+        void acquire() throws InterruptedException {
+            IN_FLIGHT.acquire();
+            HELD.set(true);
+        }
+
+        void release() {
+            if (HELD.compareAndSet(true, false)) {
+                IN_FLIGHT.release();
+            }
+        }
+
+        public List<String[]> call() throws SVMTConnectionExceptoin {
+            try {
+                return POST ? post(BATCH) : get(BATCH);
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Tags each sentence with a separate GET request over the same connection.
+     */
+    private List<String[]> get(List<? extends List<String>> sentences) throws SVMTConnectionExceptoin {
+
+        List<String[]> tags = new ArrayList(sentences.size());
+
+        for (List<String> sentence : sentences) {
+
+            HttpURLConnection connection = null;
+
+            try {
+
+                // The dummy word handles a bug in the SVMT HTTP server
+                String inputStr = "Дъми " + Misc.join(sentence, " ");
+                URL serverAddress = new URL(URL_STRING
+                        + "?input=" + URLEncoder.encode(inputStr, ServiceConstants.PIPE_CHARACTER_ENCODING));
+
+                connection = (HttpURLConnection) serverAddress.openConnection();
+                connection.setRequestMethod("GET");
+                connection.setReadTimeout(READ_TIMEOUT);
+
+                String response = connection.getResponseMessage();
+                drain(connection);
+
+                if (response == null) {
+                    throw new SVMTConnectionExceptoin("No response from the SVMTool tagger.");
+                }
+
+                tags.add(splitTags(response));
+
+            } catch (MalformedURLException ex) {
+                throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+            } catch (UnsupportedEncodingException ex) {
+                logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
+                throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, CONNECTION_ERROR, ex);
+                throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+            }
+
+        }
+
+        return tags;
+
+    }
+
+    /**
+     * Tags a batch of sentences with a single POST request.
+     */
+    private List<String[]> post(List<? extends List<String>> sentences) throws SVMTConnectionExceptoin {
+
+        HttpURLConnection connection = null;
+
+        try {
+
+            StringBuilder sb = new StringBuilder();
+            for (List<String> sentence : sentences) {
+                sb.append(Misc.join(sentence, " "));
+                sb.append("\n");
+            }
+            byte[] body = sb.toString().getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING);
+
+            connection = (HttpURLConnection) new URL(URL_STRING).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=" + ServiceConstants.PIPE_CHARACTER_ENCODING);
+
+            OutputStream os = connection.getOutputStream();
+            os.write(body);
+            os.close();
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                drain(connection);
+                throw new SVMTConnectionExceptoin("SVMTool tagger responded with: " + connection.getResponseCode() + " " + connection.getResponseMessage());
+            }
+
+            List<String[]> tags = new ArrayList(sentences.size());
+            BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), ServiceConstants.PIPE_CHARACTER_ENCODING));
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (tags.size() < sentences.size()) {
+                    tags.add(splitTags(line));
+                }
+            }
+            br.close();
+
+            if (tags.size() != sentences.size()) {
+                throw new SVMTConnectionExceptoin("SVMTool tagger returned " + tags.size() + " tagged sentences instead of " + sentences.size() + ".");
+            }
+            for (int i = 0; i < tags.size(); i++) {
+                if (tags.get(i).length != sentences.get(i).size()) {
+                    throw new SVMTConnectionExceptoin("SVMTool tagger returned " + tags.get(i).length + " tags for a sentence of " + sentences.get(i).size() + " words.");
+                }
+            }
+
+            return tags;
+
+        } catch (MalformedURLException ex) {
+            throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+        } catch (UnsupportedEncodingException ex) {
+            logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_UNSUPPORTED_ENCODING, ex);
+            throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, CONNECTION_ERROR, ex);
+            throw new SVMTConnectionExceptoin(CONNECTION_ERROR);
+        }
+
+    }
+
+    /**
+     * Reads the response body to the end, so that the connection may be 
+     * reused for the next request.
+     */
+    private static void drain(HttpURLConnection connection) {
+        try {
+            InputStream is = connection.getErrorStream();
+            if (is == null) {
+                is = connection.getInputStream();
+            }
+            byte[] b = new byte[512];
+            while (is.read(b) > -1) {
+            }
+            is.close();
+        } catch (IOException ex) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Splits a line of space separated tags. A blank line has no tags.
+     */
+    private static String[] splitTags(String line) {
+        String trimmed = line.trim();
+        if (trimmed.length() == 0) {
+            return new String[0];
+        }
+        return trimmed.split(" +");
+    }
+
+    private static int readInt(Properties options, String key, int defaultValue) {
+        String value = options.getProperty(key);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+}
@@ -36,11 +36,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -92,15 +87,15 @@ public class SVMTagger {
             
             String eos = options.getProperty(Configuration.EOS_TOKEN);
             
+            ArrayList<ArrayList<String>> sentences = new ArrayList();
+            
             while ((line = br.readLine()) != null) {
 
                 if (line.startsWith(eos)) {
                     if (sentence.isEmpty()) {
                         continue;
                     }
-                    sb.append(Misc.joinColumns(sentence.toArray((String[]) new String[0]), SVMTagger.tagList(sentence, options), " "));
-                    sb.append(eos);
-                    sb.append("\n");
+                    sentences.add(sentence);
                     sentence = new ArrayList();
                     sentence.ensureCapacity(100);
                 } else {
@@ -112,7 +107,14 @@ public class SVMTagger {
             }
 
             if (sentence.size() > 0) {
-                sb.append(Misc.joinColumns(sentence.toArray((String[]) new String[0]), SVMTagger.tagList(sentence, options), " "));
+                sentences.add(sentence);
+            }
+            
+            // All sentences are tagged at once, so that they may be batched
+            List<String[]> tags = SVMTClient.getInstance(options).tag(sentences);
+            
+            for (int i = 0; i < sentences.size(); i++) {
+                sb.append(Misc.joinColumns(sentences.get(i).toArray((String[]) new String[0]), tags.get(i), " "));
                 sb.append(eos);
                 sb.append("\n");
             }
@@ -192,16 +194,22 @@ public class SVMTagger {
         tc.getTextOrTokensOrSentences().add(tagListObj);
 
         int tagIdx = 1;
-
+        
+        List<List<String>> sentenceListStr = new ArrayList(sentenceList.size());
         for (Sentence sentence : sentenceList) {
             List<String> tokenListStr = new ArrayList();
-            String[] tagArray;
-            List<TokenRef> trList = sentence.getTokenRef();
             //tokenListStr.add("Dummie"); // this handles a bug in the SVMT HTTP server or at least I think it is a bug.
-            for (TokenRef tr : trList) {
+            for (TokenRef tr : sentence.getTokenRef()) {
                 tokenListStr.add(((Token) tr.getTokID()).getValue().replaceAll(" ", "_"));
             }
-            tagArray = tagList(tokenListStr, options);
+            sentenceListStr.add(tokenListStr);
+        }
+        
+        List<String[]> tags = SVMTClient.getInstance(options).tag(sentenceListStr);
+
+        for (int s = 0; s < sentenceList.size(); s++) {
+            String[] tagArray = tags.get(s);
+            List<TokenRef> trList = sentenceList.get(s).getTokenRef();
 
             if (trList.size() != tagArray.length) {
                 logger.severe("tokens: " + trList.size() + " tags: " + tagArray.length);
@@ -222,69 +230,4 @@ public class SVMTagger {
         }
 
     }
-
-    /**
-     * Tags a list of strings (ordered usually as a sentence).
-     * 
-     * @param   input   list of words
-     * @param   options LABPipe configuration
-     * 
-     * @return  String[]    - list of tags in the original word order
-     */
-    private static String[] tagList(List<String> input, Properties options)
-            throws SVMTConnectionExceptoin, UnsupportedEncodingException, IOException, MissingContentException {
-        HttpURLConnection connection = null;
-
-        URL serverAddress = null;
-        
-        if (input.isEmpty()) {
-            throw new MissingContentException("No input provided to the SVMTool tagger.");
-        }
-
-        String inputStr = "Дъми " + Misc.join(input, " ");
-        String response;
-
-        try {
-            
-            serverAddress = new URL(options.get("svmtUrl")
-                    + "?input=" + URLEncoder.encode(inputStr, ServiceConstants.PIPE_CHARACTER_ENCODING));
-
-            //Set up the initial connection
-            connection = (HttpURLConnection) serverAddress.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setDoOutput(true);
-            connection.setReadTimeout(1000000);
-
-            connection.connect();
-
-            response = connection.getResponseMessage();
-
-            if (response == null) {
-                throw new SVMTConnectionExceptoin("No response from the SVMTool tagger.");
-            }
-            
-            //read the result from the server
-            return response.split(" ");
-
-        } catch (MalformedURLException e) {
-            throw new SVMTConnectionExceptoin(
-                    "SVMT Connection Exception during tagging. "
-                    + "Check if the SVMT HTTP server is accessible.");
-        } catch (ProtocolException e) {
-            throw new SVMTConnectionExceptoin(
-                    "SVMT Connection Exception during tagging. "
-                    + "Check if the SVMT HTTP server is accessible.");
-        } catch (java.net.ConnectException e) {
-            throw new SVMTConnectionExceptoin(
-                    "SVMT Connection Exception during tagging. "
-                    + "Check if the SVMT HTTP server is accessible.");
-        } finally {
-            //close the connection, set all objects to null
-            try {
-                connection.disconnect();
-            } catch (NullPointerException ex) {
-            }
-            connection = null;
-        }
-    }
 }
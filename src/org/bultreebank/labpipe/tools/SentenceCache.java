@@ -0,0 +1,363 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.bultreebank.labpipe.utils.ServiceConstants;
+
+/**
+ * <code>SentenceCache</code> keeps the results of the annotation commands for 
+ * single sentences, so that sentences repeated across documents (boilerplate, 
+ * headlines, legal formulas) are annotated only once. The entries are content 
+ * addressed: the key is a digest of the sentence tokens, the pipe commands 
+ * run on it and the identity of the models used (see 
+ * {@link #key(String, List, String)}), and the value is the resulting lines 
+ * of the sentence in the output data type of the commands (line or CoNLL).
+ * 
+ * The cache has a memory tier of limited size, from which the least recently 
+ * used sentences are evicted, and an optional disk tier which keeps every 
+ * sentence as a file in a directory and survives restarts. The disk tier is 
+ * consulted only on memory misses.
+ * 
+ * All methods may be called from several threads at the same time.
+ *
+ * @author Aleksandar Savkov
+ */
+public class SentenceCache implements SentenceCacheMBean {
+
+    private static final Logger logger = Logger.getLogger(SentenceCache.class.getName());
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String FILE_EXT = ".txt";
+    private final int CAPACITY;
+    private final File DIR;
+    private final LinkedHashMap<String, String> ENTRIES;
+    private final AtomicLong HITS = new AtomicLong();
+    private final AtomicLong DISK_HITS = new AtomicLong();
+    private final AtomicLong MISSES = new AtomicLong();
+    private final AtomicLong EVICTIONS = new AtomicLong();
+    private String OBJECT_NAME = null;
+
+    /**
+     * Creates a new cache
+     * 
+     * @param   capacity    maximum number of sentences in the memory tier
+     * @param   dir directory of the disk tier (<code>null</code> for no disk 
+     *              tier)
+     */
+    public SentenceCache(int capacity, String dir) {
+        CAPACITY = Math.max(capacity, 1);
+        DIR = (dir == null) ? null : new File(dir);
+        if (DIR != null && !DIR.isDirectory() && !DIR.mkdirs()) {
+            logger.log(Level.WARNING, "Cannot create sentence cache directory {0}", DIR);
+        }
+        ENTRIES = new LinkedHashMap<String, String>(Math.min(CAPACITY, 1 << 16), 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > CAPACITY) {
+                    EVICTIONS.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Builds the key of a sentence
+     * 
+     * @param   sentence    sentence data (the tokens and any annotation they 
+     *                      carry before <code>commands</code> are run)
+     * @param   commands    pipe commands run on the sentence
+     * @param   modelId identity of the models and resources used by the 
+     *                  commands
+     * 
+     * @return  String  - hexadecimal SHA-1 digest
+     */
+    public static String key(String sentence, List<Integer> commands, String modelId) {
+
+        StringBuilder sb = new StringBuilder(sentence.length() + 64);
+        sb.append(commands);
+        sb.append('\u0000');
+        sb.append(modelId);
+        sb.append('\u0000');
+        sb.append(sentence);
+        return digest(sb.toString());
+
+    }
+
+    /**
+     * Builds the hexadecimal SHA-1 digest of a <code>String</code>
+     * 
+     * @param   s   string
+     * 
+     * @return  String
+     */
+    public static String digest(String s) {
+
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+
+    }
+
+    /**
+     * Gets the cached CoNLL lines of a sentence
+     * 
+     * @param   key sentence key
+     * 
+     * @return  String  - CoNLL lines or <code>null</code> if the sentence is 
+     *                  not in the cache
+     */
+    public String get(String key) {
+
+        String value;
+        synchronized (ENTRIES) {
+            value = ENTRIES.get(key);
+        }
+        if (value != null) {
+            HITS.incrementAndGet();
+            return value;
+        }
+
+        value = readFile(key);
+        if (value != null) {
+            synchronized (ENTRIES) {
+                ENTRIES.put(key, value);
+            }
+            HITS.incrementAndGet();
+            DISK_HITS.incrementAndGet();
+            return value;
+        }
+
+        MISSES.incrementAndGet();
+        return null;
+
+    }
+
+    /**
+     * Stores the CoNLL lines of a sentence
+     * 
+     * @param   key sentence key
+     * @param   value   CoNLL lines
+     */
+    public void put(String key, String value) {
+
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, value);
+        }
+        writeFile(key, value);
+
+    }
+
+    public long getHits() {
+        return HITS.get();
+    }
+
+    public long getDiskHits() {
+        return DISK_HITS.get();
+    }
+
+    public long getMisses() {
+        return MISSES.get();
+    }
+
+    public long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    public double getHitRatio() {
+        long hits = HITS.get();
+        long lookups = hits + MISSES.get();
+        return (lookups == 0) ? 0 : (double) hits / lookups;
+    }
+
+    public int getSize() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    public int getCapacity() {
+        return CAPACITY;
+    }
+
+    public void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+        HITS.set(0);
+        DISK_HITS.set(0);
+        MISSES.set(0);
+        EVICTIONS.set(0);
+    }
+
+    /**
+     * Registers this object with the platform MBean server. Registration 
+     * failures are logged and do not affect the cache.
+     * 
+     * @param   objectName  object name, e.g. 
+     *                      <code>org.bultreebank.labpipe:type=SentenceCache,name=1</code>
+     */
+    public synchronized void register(String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+            OBJECT_NAME = objectName;
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot register sentence cache MBean " + objectName, ex);
+        }
+    }
+
+    /**
+     * Unregisters this object from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        if (OBJECT_NAME == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot unregister sentence cache MBean " + OBJECT_NAME, ex);
+        }
+        OBJECT_NAME = null;
+    }
+
+    /*
+     * Gets the file of a key in the disk tier: the first two digits of the 
+     * key name a subdirectory, so that no directory gets too large.
+     */
+    private File getFile(String key) {
+        return new File(new File(DIR, key.substring(0, 2)), key + FILE_EXT);
+    }
+
+    private String readFile(String key) {
+
+        if (DIR == null) {
+            return null;
+        }
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, read);
+            }
+            return baos.toString(ServiceConstants.PIPE_CHARACTER_ENCODING);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, ServiceConstants.EXCEPTION_IO, ex);
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                }
+            }
+        }
+
+    }
+
+    /*
+     * Writes an entry into a temporary file which is then renamed, so that 
+     * concurrent readers never see a partly written entry.
+     */
+    private void writeFile(String key, String value) {
+
+        if (DIR == null) {
+            return;
+        }
+        File file = getFile(key);
+        if (file.isFile()) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            logger.log(Level.WARNING, "Cannot create sentence cache directory {0}", parent);
+            return;
+        }
+
+        OutputStream os = null;
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(key, ".tmp", parent);
+            os = new FileOutputStream(tmp);
+            os.write(value.getBytes(ServiceConstants.PIPE_CHARACTER_ENCODING));
+            os.close();
+            os = null;
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, ServiceConstants.EXCEPTION_IO, ex);
+            if (tmp != null) {
+                tmp.delete();
+            }
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, ServiceConstants.EXCEPTION_IO, ex);
+                }
+            }
+        }
+
+    }
+}
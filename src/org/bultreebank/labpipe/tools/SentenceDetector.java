@@ -40,9 +40,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import org.bultreebank.labpipe.data.WebLicht;
 import org.bultreebank.labpipe.tools.options.SentenceBoundaryOptions;
 import org.bultreebank.labpipe.exceptions.EmptyConfigFileException;
@@ -166,7 +164,6 @@ public class SentenceDetector {
 
     public void detectSentenceBoundaries(InputStream is, OutputStream os) throws JAXBException, IncorrectInputException {
 
-        JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
         WebLicht doc = new WebLicht(is);
         TextCorpus tc = doc.getTextCorpus();
         List tcList = tc.getTextOrTokensOrSentences();
@@ -186,9 +183,7 @@ public class SentenceDetector {
                         + "element.");
             }
         }
-        Marshaller m = jc.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        m.marshal(doc, os);
+        WebLicht.getMarshaller().marshal(doc, os);
         
     }
 
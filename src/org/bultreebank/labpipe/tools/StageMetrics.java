@@ -0,0 +1,185 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>StageMetrics</code> accumulates the measurements of a single stage of 
+ * a {@link ProcessingLine}: a pipe command, a conversion between two data 
+ * types, an import or an export. The counters are updated without locking, 
+ * so one object may be shared by all threads running the stage.
+ *
+ * @author Aleksandar Savkov
+ */
+public class StageMetrics implements StageMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private final String NAME;
+    private final AtomicLong COUNT = new AtomicLong();
+    private final AtomicLong ERRORS = new AtomicLong();
+    private final AtomicLong NANOS = new AtomicLong();
+    private final AtomicLong MAX_NANOS = new AtomicLong();
+    private final AtomicLong LAST_NANOS = new AtomicLong();
+    private final AtomicLong TOKENS = new AtomicLong();
+    private final AtomicLong SENTENCES = new AtomicLong();
+    private final AtomicLong BYTES_IN = new AtomicLong();
+    private final AtomicLong BYTES_OUT = new AtomicLong();
+    private final AtomicLong ALLOCATED = new AtomicLong();
+
+    /**
+     * Creates empty metrics of the stage <code>name</code>
+     * 
+     * @param   name    stage name
+     */
+    public StageMetrics(String name) {
+        NAME = name;
+    }
+
+    /**
+     * Records a run of the stage.
+     * 
+     * @param   nanos   wall time in nanoseconds
+     * @param   ok  <code>false</code> if the run failed
+     * @param   tokens  number of tokens in the output
+     * @param   sentences   number of sentences in the output
+     * @param   bytesIn number of bytes read
+     * @param   bytesOut    number of bytes written
+     * @param   allocated   number of bytes allocated
+     */
+    public void record(long nanos, boolean ok, long tokens, long sentences, long bytesIn, long bytesOut, long allocated) {
+
+        COUNT.incrementAndGet();
+        if (!ok) {
+            ERRORS.incrementAndGet();
+        }
+        NANOS.addAndGet(nanos);
+        LAST_NANOS.set(nanos);
+        long max = MAX_NANOS.get();
+        while (nanos > max && !MAX_NANOS.compareAndSet(max, nanos)) {
+            max = MAX_NANOS.get();
+        }
+        TOKENS.addAndGet(tokens);
+        SENTENCES.addAndGet(sentences);
+        BYTES_IN.addAndGet(bytesIn);
+        BYTES_OUT.addAndGet(bytesOut);
+        if (allocated > 0) {
+            ALLOCATED.addAndGet(allocated);
+        }
+
+    }
+
+    /**
+     * Gets the stage name
+     * 
+     * @return  String
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    public long getCount() {
+        return COUNT.get();
+    }
+
+    public long getErrors() {
+        return ERRORS.get();
+    }
+
+    public double getTotalMillis() {
+        return NANOS.get() / NANOS_PER_MILLI;
+    }
+
+    public double getMeanMillis() {
+        long count = COUNT.get();
+        return (count == 0) ? 0 : NANOS.get() / NANOS_PER_MILLI / count;
+    }
+
+    public double getMaxMillis() {
+        return MAX_NANOS.get() / NANOS_PER_MILLI;
+    }
+
+    public double getLastMillis() {
+        return LAST_NANOS.get() / NANOS_PER_MILLI;
+    }
+
+    public long getTokens() {
+        return TOKENS.get();
+    }
+
+    public long getSentences() {
+        return SENTENCES.get();
+    }
+
+    public long getBytesIn() {
+        return BYTES_IN.get();
+    }
+
+    public long getBytesOut() {
+        return BYTES_OUT.get();
+    }
+
+    public long getAllocatedBytes() {
+        return ALLOCATED.get();
+    }
+
+    public double getTokensPerSecond() {
+        long nanos = NANOS.get();
+        return (nanos == 0) ? 0 : TOKENS.get() * 1e9 / nanos;
+    }
+
+    public double getAllocationRate() {
+        long nanos = NANOS.get();
+        return (nanos == 0) ? 0 : ALLOCATED.get() * 1e9 / nanos / (1024 * 1024);
+    }
+
+    public void reset() {
+        COUNT.set(0);
+        ERRORS.set(0);
+        NANOS.set(0);
+        MAX_NANOS.set(0);
+        LAST_NANOS.set(0);
+        TOKENS.set(0);
+        SENTENCES.set(0);
+        BYTES_IN.set(0);
+        BYTES_OUT.set(0);
+        ALLOCATED.set(0);
+    }
+
+    /**
+     * Appends the metrics as a JSON object to <code>sb</code>
+     * 
+     * @param   sb  <code>StringBuilder</code>
+     */
+    public void appendJson(StringBuilder sb) {
+        sb.append("{\"count\":").append(getCount());
+        sb.append(",\"errors\":").append(getErrors());
+        sb.append(",\"totalMillis\":").append(String.format(Locale.US, "%.3f", getTotalMillis()));
+        sb.append(",\"maxMillis\":").append(String.format(Locale.US, "%.3f", getMaxMillis()));
+        sb.append(",\"tokens\":").append(getTokens());
+        sb.append(",\"sentences\":").append(getSentences());
+        sb.append(",\"bytesIn\":").append(getBytesIn());
+        sb.append(",\"bytesOut\":").append(getBytesOut());
+        sb.append(",\"allocatedBytes\":").append(getAllocatedBytes());
+        sb.append("}");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.tools;
+
+/**
+ * Management interface of {@link StageMetrics}.
+ *
+ * @author Aleksandar Savkov
+ */
+public interface StageMetricsMBean {
+
+    /**
+     * Gets the number of times the stage was run
+     * 
+     * @return  long
+     */
+    long getCount();
+
+    /**
+     * Gets the number of failed runs
+     * 
+     * @return  long
+     */
+    long getErrors();
+
+    /**
+     * Gets the total wall time in milliseconds
+     * 
+     * @return  double
+     */
+    double getTotalMillis();
+
+    /**
+     * Gets the mean wall time of a run in milliseconds
+     * 
+     * @return  double
+     */
+    double getMeanMillis();
+
+    /**
+     * Gets the longest wall time of a run in milliseconds
+     * 
+     * @return  double
+     */
+    double getMaxMillis();
+
+    /**
+     * Gets the wall time of the last run in milliseconds
+     * 
+     * @return  double
+     */
+    double getLastMillis();
+
+    /**
+     * Gets the number of tokens in the stage output
+     * 
+     * @return  long
+     */
+    long getTokens();
+
+    /**
+     * Gets the number of sentences in the stage output
+     * 
+     * @return  long
+     */
+    long getSentences();
+
+    /**
+     * Gets the number of bytes read by the stage
+     * 
+     * @return  long
+     */
+    long getBytesIn();
+
+    /**
+     * Gets the number of bytes written by the stage
+     * 
+     * @return  long
+     */
+    long getBytesOut();
+
+    /**
+     * Gets the number of bytes allocated by the thread running the stage
+     * 
+     * @return  long
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Gets the throughput in tokens per second of wall time
+     * 
+     * @return  double
+     */
+    double getTokensPerSecond();
+
+    /**
+     * Gets the allocation rate in MB per second of wall time
+     * 
+     * @return  double
+     */
+    double getAllocationRate();
+
+    /**
+     * Resets all counters
+     */
+    void reset();
+}
@@ -38,9 +38,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import org.bultreebank.labpipe.data.WebLicht;
 import org.bultreebank.labpipe.exceptions.IncorrectInputException;
 import org.bultreebank.labpipe.utils.ClassMap;
@@ -172,14 +170,11 @@ public abstract class Tokenizer {
      */
     public WebLicht tokenize(InputStream is, OutputStream os) throws JAXBException, IncorrectInputException, InterruptedException, IOException {
         
-        JAXBContext jc = JAXBContext.newInstance("de.dspin.data");
         WebLicht doc = new WebLicht(is);
         
         tokenize(doc);
         
-        Marshaller m = jc.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        m.marshal(doc, os);
+        WebLicht.getMarshaller().marshal(doc, os);
         
         return doc;
         
@@ -0,0 +1,121 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.util.BitSet;
+import java.util.regex.Pattern;
+
+/**
+ * <code>CharacterClass</code> is a regular expression matching a single 
+ * character (e.g. <code>[\p{L}\p{N}]</code> or <code>\p{P}</code>) with the 
+ * result cached for every character of the Basic Multilingual Plane, so that 
+ * testing a character is a look-up in a <code>BitSet</code>. Supplementary 
+ * characters are tested with the regular expression.
+ * <p>
+ * The cache is filled when the object is created and is not changed 
+ * afterwards, so the object may be shared between threads.
+ *
+ * @author Aleksandar Savkov
+ */
+public class CharacterClass {
+
+    private static final int BMP_SIZE = Character.MAX_VALUE + 1;
+    private final Pattern PATTERN;
+    private final BitSet MEMBERS = new BitSet(BMP_SIZE);
+
+    /**
+     * Creates a character class of <code>regex</code>
+     * 
+     * @param   regex   regular expression matching a single character (see 
+     *                  {@link #isSingleCharacter(String)})
+     */
+    public CharacterClass(String regex) {
+
+        if (!isSingleCharacter(regex)) {
+            throw new IllegalArgumentException("Not a single character expression: " + regex);
+        }
+        PATTERN = Pattern.compile(regex);
+        char[] c = new char[1];
+        for (int i = 0; i < BMP_SIZE; i++) {
+            c[0] = (char) i;
+            if (PATTERN.matcher(new String(c)).matches()) {
+                MEMBERS.set(i);
+            }
+        }
+
+    }
+
+    /**
+     * Tests whether a code point belongs to the class
+     * 
+     * @param   codePoint   code point
+     * 
+     * @return  boolean
+     */
+    public boolean contains(int codePoint) {
+        if (codePoint < BMP_SIZE) {
+            return MEMBERS.get(codePoint);
+        }
+        return PATTERN.matcher(new String(Character.toChars(codePoint))).matches();
+    }
+
+    /**
+     * Checks whether a regular expression is a single character class, 
+     * character property, predefined class, dot or literal character, i.e. 
+     * whether each of its matches is a single character.
+     * 
+     * @param   regex   regular expression
+     * 
+     * @return  boolean
+     */
+    public static boolean isSingleCharacter(String regex) {
+
+        if (regex == null || regex.length() == 0) {
+            return false;
+        }
+
+        if (regex.charAt(0) == '[') {
+            // The bracket opened first has to be closed by the last character
+            int depth = 0;
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i == regex.length() - 1;
+                    }
+                }
+            }
+            return false;
+        }
+
+        if (regex.matches("\\\\[pP](\\{[\\w =]+\\}|[A-Z])|\\\\[wWdDsShHvV]|\\\\[^\\p{Alnum}]|[^\\\\\\[\\](){}*+?|^$]")) {
+            return true;
+        }
+
+        return false;
+
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <code>ChunkReader</code> reads an input stream in chunks of whole sentences,
+ * so that large documents can be processed without being loaded in the memory 
+ * at once. The sentence boundaries depend on the data type:
+ * <ul>
+ * <li>line data: a line containing the end of sentence token</li>
+ * <li>Gaze data: a line starting with {@link ServiceConstants#GAZE_EOS_TOKEN}</li>
+ * <li>CoNLL data: an empty line</li>
+ * <li>text: an empty line or a line ending with a sentence final punctuation 
+ * sign, unless the last word of the line is an abbreviation (e.g. 
+ * <code>т.</code> or <code>проф.</code>) from the tokenization exceptions</li>
+ * </ul>
+ * A chunk is also closed at the end of a line when it grows over 
+ * {@link #MAX_CHUNK_LENGTH} characters without reaching a boundary.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ChunkReader {
+
+    /**
+     * Maximum length of a chunk in characters before it is closed at the next
+     * line end regardless of the sentence boundaries
+     */
+    public static final int MAX_CHUNK_LENGTH = 1 << 20;
+    private static final Pattern TEXT_BOUNDARY = Pattern.compile(".*[.!?…]['\"“”»)]*\\s*$");
+    private static final Pattern CLOSING_MARKS = Pattern.compile("['\"“”»)]+$");
+    private BufferedReader READER;
+    private int DATA_TYPE;
+    private String EOS_TOKEN;
+    private int SENTENCES;
+    private Set<String> ABBREVIATIONS;
+
+    /**
+     * Creates a new reader of <code>dataType</code> data from <code>is</code>
+     * 
+     * @param   is  input stream
+     * @param   dataType    data type (text, line, Gaze or CoNLL)
+     * @param   eosToken    end of sentence token of line data
+     * @param   sentences   number of sentences in a chunk
+     * @throws IOException  
+     */
+    public ChunkReader(InputStream is, int dataType, String eosToken, int sentences) throws IOException {
+        this(is, dataType, eosToken, sentences, Collections.<String>emptySet());
+    }
+
+    /**
+     * Creates a new reader of <code>dataType</code> data from <code>is</code>
+     * which does not end text sentences at the abbreviations in 
+     * <code>abbreviations</code>
+     * 
+     * @param   is  input stream
+     * @param   dataType    data type (text, line, Gaze or CoNLL)
+     * @param   eosToken    end of sentence token of line data
+     * @param   sentences   number of sentences in a chunk
+     * @param   abbreviations   abbreviations ending with a full stop
+     * @throws IOException  
+     */
+    public ChunkReader(InputStream is, int dataType, String eosToken, int sentences, Collection<String> abbreviations) throws IOException {
+        if (dataType != ServiceConstants.DATA_TEXT 
+                && dataType != ServiceConstants.DATA_LINE
+                && dataType != ServiceConstants.DATA_GAZE 
+                && dataType != ServiceConstants.DATA_CONLL) {
+            throw new IllegalArgumentException("Data type cannot be read in chunks: " + dataType);
+        }
+        READER = new BufferedReader(new InputStreamReader(is, ServiceConstants.PIPE_CHARACTER_ENCODING));
+        DATA_TYPE = dataType;
+        EOS_TOKEN = eosToken;
+        SENTENCES = Math.max(sentences, 1);
+        ABBREVIATIONS = new HashSet<String>(abbreviations);
+    }
+
+    /**
+     * Reads the next chunk
+     * 
+     * @return  String  - the next chunk or <code>null</code> at the end of the
+     *                  stream
+     * @throws IOException 
+     */
+    public String nextChunk() throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+        int sentences = 0;
+        boolean content = false;
+        String line;
+
+        while ((line = READER.readLine()) != null) {
+
+            sb.append(line);
+            sb.append("\n");
+
+            if (isBoundary(line)) {
+                if (content) {
+                    sentences++;
+                    content = false;
+                }
+            } else if (line.trim().length() > 0) {
+                content = true;
+                if (DATA_TYPE == ServiceConstants.DATA_TEXT && isTextBoundary(line)) {
+                    sentences++;
+                    content = false;
+                }
+            }
+
+            if (sentences >= SENTENCES || sb.length() > MAX_CHUNK_LENGTH) {
+                break;
+            }
+
+        }
+
+        return (sb.length() == 0) ? null : sb.toString();
+
+    }
+
+    /**
+     * Closes the underlying stream
+     * 
+     * @throws IOException 
+     */
+    public void close() throws IOException {
+        READER.close();
+    }
+
+    /*
+     * A line ending with a sentence final punctuation sign ends a sentence, 
+     * unless its last word is an abbreviation.
+     */
+    private boolean isTextBoundary(String line) {
+        if (!TEXT_BOUNDARY.matcher(line).matches()) {
+            return false;
+        }
+        String[] words = line.trim().split("\\s+");
+        String word = CLOSING_MARKS.matcher(words[words.length - 1]).replaceFirst("");
+        return !ABBREVIATIONS.contains(word) && !ABBREVIATIONS.contains(word.toLowerCase());
+    }
+
+    private boolean isBoundary(String line) {
+        switch (DATA_TYPE) {
+            case ServiceConstants.DATA_LINE:
+                return line.trim().equals(EOS_TOKEN) || line.startsWith(EOS_TOKEN + "\t");
+            case ServiceConstants.DATA_GAZE:
+                return line.startsWith(ServiceConstants.GAZE_EOS_TOKEN);
+            default:
+                return line.trim().length() == 0;
+        }
+    }
+}
@@ -73,12 +73,21 @@ public class CommandLineUtils {
      * Command line parameter key: working output directory
      */
     public static final String OUTPUT_DIR_PAR = "-wo";
+    /**
+     * Command line parameter key: streaming mode
+     */
+    public static final String STREAM_PAR = "-stream";
+    /**
+     * Command line parameter key: number of files processed in parallel
+     */
+    public static final String THREADS_PAR = "-threads";
     /**
      * Command line parameters list
      */
     public static final List<String> PARAMETERS = Arrays.asList(new String[]{OPTIONS_PATH_PAR,
                 INPUT_PAR, OUTPUT_PAR, INPUT_TYPE_PAR, OUTPUT_TYPE_PAR,
-                PIPE_COMMANDS_PAR, CONVERTER_PAR, WORKING_DIR_PAR, OUTPUT_DIR_PAR});
+                PIPE_COMMANDS_PAR, CONVERTER_PAR, WORKING_DIR_PAR, OUTPUT_DIR_PAR,
+                STREAM_PAR, THREADS_PAR});
     /**
      * Error code: invalid parameter map.
      * 
@@ -143,6 +152,12 @@ public class CommandLineUtils {
      * WebLicht data
      */
     public static final String XML_EXT = "xml";
+    /**
+     * Extension: binary
+     * 
+     * Binary annotated corpus
+     */
+    public static final String BIN_EXT = "bin";
     /**
      * Extension: out
      * 
@@ -168,7 +183,8 @@ public class CommandLineUtils {
             + "\t\t\tctok, ctokens, clark_tokens:\tclark XML-based entries (root->s->tok)\n"
             + "\t\t\tctag, clark_tags:\t\tclark XML-based entries (root->s->tok)\n"
             + "\t\t\tconll:\t\t\t\tCoNLL Data Type\n"
-            + "\t\t\twl, weblicht, xml:\t\tWebLicht XML stand-off format\n\n"
+            + "\t\t\twl, weblicht, xml:\t\tWebLicht XML stand-off format\n"
+            + "\t\t\tbin, binary:\t\t\tbinary annotated corpus\n\n"
             + " -otype	output type.\n"
             + "\tData types:\ttxt, text:\t\t\ttext format\n"
             + "\t\t\tline:\t\t\t\tline-based entries (tokenized)\n"
@@ -177,6 +193,7 @@ public class CommandLineUtils {
             + "\t\t\tctag, clark_tags:\t\tclark XML-based entries (root->s->tok)\n"
             + "\t\t\tconll:\t\t\t\tCoNLL Data Type\n"
             + "\t\t\twl, weblicht, xml:\t\tWebLicht XML stand-off format\n"
+            + "\t\t\tbin, binary:\t\t\tbinary annotated corpus\n"
             + " -p\tpipe commands.\n"
             + "\tCommands:\tstok:\tSFST tokenize\n"
             + "\t\t\trtok:\tRegEx tokenize\n"
@@ -190,6 +207,10 @@ public class CommandLineUtils {
             + " -c	run as a converter\n"
             + "	-w	working directory. Processes all files in the directory. Collides with -in\n"
             + "	-wo	output directory. Collides with -out\n"
+            + "	-stream	process the input in chunks of sentences (needs value 'true' to work).\n"
+            + "\t\tInput: txt, line, gaze, conll; output: line, gaze, conll\n"
+            + "	-threads	number of files processed in parallel (0 for all processors).\n"
+            + "\t\tFailed files are reported at the end without stopping the batch\n"
             + "For testing the functionality use:\n"
             + "> java -classpath LABPipe.jar:lib/* org.bultreebank.labpipe.main.Test\n";
     /**
@@ -365,6 +386,8 @@ public class CommandLineUtils {
                 return CONLL_EXT;
             case (ServiceConstants.DATA_WEBLICHT):
                 return XML_EXT;
+            case (ServiceConstants.DATA_BINARY):
+                return BIN_EXT;
             default:
                 return DEFAULT_EXT;
 
@@ -403,6 +426,9 @@ public class CommandLineUtils {
         if (type.equals("wl") || type.equals("xml") || type.endsWith("weblicht")) {
             return ServiceConstants.DATA_WEBLICHT;
         }
+        if (type.equals("bin") || type.equals("binary")) {
+            return ServiceConstants.DATA_BINARY;
+        }
 
         return -1;
 
@@ -71,6 +71,96 @@ public class Configuration extends Properties {
      * List of pipe commands to be executed in case of empty commands list
      */
     public static final String DEFAULT_PIPE = "defaultPipe";
+    /**
+     * Configuration parameter: streamChunkSize
+     * 
+     * Number of sentences (paragraphs of text) in a chunk processed in 
+     * streaming mode (default is 100)
+     */
+    public static final String STREAM_CHUNK_SIZE = "streamChunkSize";
+    /**
+     * Configuration parameter: streamThreads
+     * 
+     * Number of worker threads of each pipe command in streaming mode; values 
+     * less than 1 stand for the number of available processors (default is 1)
+     */
+    public static final String STREAM_THREADS = "streamThreads";
+    /**
+     * Configuration parameter: streamStageThreads
+     * 
+     * Number of worker threads of single pipe commands in streaming mode, 
+     * overriding <code>streamThreads</code>, e.g. <code>stag=2;mpar=4</code>
+     */
+    public static final String STREAM_STAGE_THREADS = "streamStageThreads";
+    /**
+     * Configuration parameter: streamWindow
+     * 
+     * Capacity of the queues of chunks between the pipe commands in streaming
+     * mode. This bounds the memory used for a document (default is twice the 
+     * number of stream threads)
+     */
+    public static final String STREAM_WINDOW = "streamWindow";
+    /**
+     * Configuration parameter: metricsLog
+     * 
+     * File to which the metrics of every processed document are appended as 
+     * a line of JSON after its output is exported (no log is written when 
+     * the parameter is missing)
+     */
+    public static final String METRICS_LOG = "metricsLog";
+    /**
+     * Configuration parameter: metricsJmx
+     * 
+     * Whether the pipe metrics are registered as MBeans (default is false). 
+     * Tokens and sentences are counted at each stage only when the metrics 
+     * are registered or logged
+     */
+    public static final String METRICS_JMX = "metricsJmx";
+    /**
+     * Configuration parameter: sentenceCacheSize
+     * 
+     * Number of annotated sentences kept in the memory tier of the sentence 
+     * cache (the cache is disabled when the parameter is missing or 0). Only 
+     * the commands following the tokenizers are cached, when they are run on 
+     * line or CoNLL data and the last of them produces line or CoNLL data 
+     * (SVMTool, Gaze or MaltParser); pipes ending with a CLaRK command are 
+     * always run without the cache.
+     */
+    public static final String SENTENCE_CACHE_SIZE = "sentenceCacheSize";
+    /**
+     * Configuration parameter: sentenceCacheDir
+     * 
+     * Directory of the disk tier of the sentence cache (no disk tier is used 
+     * when the parameter is missing)
+     */
+    public static final String SENTENCE_CACHE_DIR = "sentenceCacheDir";
+    /**
+     * Configuration parameter: sentenceCacheModel
+     * 
+     * Version label of the models, added to the sentence cache keys. The 
+     * local model files are recognized by their size and modification time, 
+     * change the label when the model of the SVMTool server is replaced.
+     */
+    public static final String SENTENCE_CACHE_MODEL = "sentenceCacheModel";
+    /**
+     * Configuration parameter: serverHost
+     * 
+     * Address the pipe server binds to (default is 127.0.0.1)
+     */
+    public static final String SERVER_HOST = "serverHost";
+    /**
+     * Configuration parameter: serverPort
+     * 
+     * Port of the pipe server (default is 8555)
+     */
+    public static final String SERVER_PORT = "serverPort";
+    /**
+     * Configuration parameter: serverThreads
+     * 
+     * Number of requests the pipe server handles concurrently (0 for the 
+     * number of processors)
+     */
+    public static final String SERVER_THREADS = "serverThreads";
     /**
      * Configuration parameter: baseUrl
      * 
@@ -119,6 +209,15 @@ public class Configuration extends Properties {
      * RegEx definition of a punctuation sign used in the {@link org.bultreebank.labpipe.tools.RegExTokenizer}
      */
     public static final String PUNCT_PATTERN = "punctPattern";
+    /**
+     * Configuration parameter: regexScanner
+     * 
+     * Whether the {@link org.bultreebank.labpipe.tools.RegExTokenizer} uses 
+     * the exception trie and a character scanner instead of one regular 
+     * expression, when the token and punctuation patterns allow it (default 
+     * is true)
+     */
+    public static final String REGEX_SCANNER = "regexScanner";
     /**
      * Configuration parameter: tokenizationExceptionsList
      * 
@@ -150,6 +249,42 @@ public class Configuration extends Properties {
      * List of transducers used in {@link org.bultreebank.labpipe.tools.FstTokenizer}
      */
     public static final String TRANSDUCER_LIST = "transducerList";
+    /**
+     * Configuration parameter: sfstPoolSize
+     * 
+     * Number of pre-started transducer pipelines kept alive by 
+     * {@link org.bultreebank.labpipe.tools.FstTokenizer} (default is 0, i.e. 
+     * new processes are started for every document)
+     */
+    public static final String SFST_POOL_SIZE = "sfstPoolSize";
+    /**
+     * Configuration parameter: sfstPoolTimeout
+     * 
+     * Time in seconds a pooled transducer pipeline may spend on a single 
+     * document before it is considered dead and restarted (default is 60)
+     */
+    public static final String SFST_POOL_TIMEOUT = "sfstPoolTimeout";
+    /**
+     * Configuration parameter: sfstPoolCommandPrefix
+     * 
+     * Command prepended to every pooled transducer command, e.g. 
+     * <code>stdbuf -oL</code> for transducer builds that do not flush their 
+     * output after each line (default is none)
+     */
+    public static final String SFST_POOL_COMMAND_PREFIX = "sfstPoolCommandPrefix";
+    /**
+     * Configuration parameter: sfstEngine
+     * 
+     * Transducer engine used by 
+     * {@link org.bultreebank.labpipe.tools.FstTokenizer}: <code>process</code>
+     * runs the SFST command (default), <code>java</code> applies the 
+     * transducers in-process and <code>java-inverse</code> does the same 
+     * matching the input against the upper side of the transducers. The Java
+     * engines read the AT&amp;T text form of each transducer 
+     * (<code>&lt;transducer&gt;.att</code>, printed by <code>fst-print</code>)
+     * from the transducer home.
+     */
+    public static final String SFST_ENGINE = "sfstEngine";
     /**
      * Configuration parameter: clarkDir
      * 
@@ -162,6 +297,22 @@ public class Configuration extends Properties {
      * CLaRK default DTD
      */
     public static final String CLARK_DTD = "clarkDtd";
+    /**
+     * Configuration parameter: clarkThreads
+     * 
+     * Number of CLaRK processors built for each multi-query; documents and 
+     * sentence chunks are processed in parallel on them (default is 1; 0 
+     * stands for the number of available processors)
+     */
+    public static final String CLARK_THREADS = "clarkThreads";
+    /**
+     * Configuration parameter: clarkChunkSize
+     * 
+     * Number of sentences in a chunk processed by the sentence level CLaRK 
+     * multi-queries (tagging, lemmatization and constraints); documents are 
+     * processed as a whole when the parameter is missing
+     */
+    public static final String CLARK_CHUNK_SIZE = "clarkChunkSize";
     /**
      * Configuration parameter: tokAndSentQuery
      * 
@@ -192,6 +343,32 @@ public class Configuration extends Properties {
      * SVMTool HTTP server URL (including port)
      */
     public static final String SVMT_URL = "svmtUrl";
+    /**
+     * Configuration parameter: svmtBatchSize
+     * 
+     * Number of sentences sent to the SVMTool HTTP server by one request 
+     * thread, either one after the other or in a single POST request (see 
+     * {@link #SVMT_POST}; default is 0, i.e. one sentence per batch)
+     */
+    public static final String SVMT_BATCH_SIZE = "svmtBatchSize";
+    /**
+     * Configuration parameter: svmtPost
+     * 
+     * Whether batches are sent in a single POST request (default is false). 
+     * The SVMTool HTTP server only serves GET requests, so POST needs a server 
+     * extended to read a sentence per line of the request body.
+     */
+    public static final String SVMT_POST = "svmtPost";
+    /**
+     * Configuration parameter: svmtMaxRequests
+     * 
+     * Maximum number of requests to the SVMTool HTTP server in flight at the 
+     * same time (default is 1; 0 stands for the number of available 
+     * processors). More than 5 requests also need the 
+     * <code>-Dhttp.maxConnections=n</code> JVM option to keep the connections 
+     * alive.
+     */
+    public static final String SVMT_MAX_REQUESTS = "svmtMaxRequests";
     /**
      * @deprecated since v1.0
      */
@@ -244,6 +421,13 @@ public class Configuration extends Properties {
      * Path to MaltParser model file
      */
     public static final String MALT_PARSER_MODEL = "maltParserModel";
+    /**
+     * Configuration parameter: maltParserThreads
+     * 
+     * Number of MaltParser model instances used for parsing sentences in 
+     * parallel (default is 1; 0 stands for the number of available processors)
+     */
+    public static final String MALT_PARSER_THREADS = "maltParserThreads";
     /**
      * Configuration parameter: maltWorkingDir
      * 
@@ -865,6 +1049,185 @@ public class Configuration extends Properties {
         return DIR_MALT_WORKING_DIR_PATH.replaceAll(" ", "\\\\ ");
     }
 
+    /**
+     * Gets the number of MaltParser model instances used for parallel parsing
+     * 
+     * @return  int - number of parser instances (at least 1)
+     */
+    public int getMaltParserThreads() {
+        return getThreadCount(Configuration.MALT_PARSER_THREADS);
+    }
+
+    /**
+     * Gets the number of CLaRK processors built for each multi-query
+     * 
+     * @return  int - number of processors (at least 1)
+     */
+    public int getClarkThreads() {
+        return getThreadCount(Configuration.CLARK_THREADS);
+    }
+
+    /**
+     * Gets the number of sentences in a chunk processed by the sentence level 
+     * CLaRK multi-queries
+     * 
+     * @return  int - number of sentences or 0 if documents are not split
+     */
+    public int getClarkChunkSize() {
+        return this.containsKey(Configuration.CLARK_CHUNK_SIZE) ? getIntProperty(Configuration.CLARK_CHUNK_SIZE, 1) : 0;
+    }
+
+    /**
+     * Gets the number of sentences in a chunk processed in streaming mode
+     * 
+     * @return  int - number of sentences (at least 1)
+     */
+    public int getStreamChunkSize() {
+        return getIntProperty(Configuration.STREAM_CHUNK_SIZE, 100);
+    }
+
+    /**
+     * Gets the capacity of the queues between the pipe commands in streaming 
+     * mode
+     * 
+     * @return  int - queue capacity (at least 1)
+     */
+    public int getStreamWindow() {
+        return getIntProperty(Configuration.STREAM_WINDOW, 2 * getThreadCount(Configuration.STREAM_THREADS));
+    }
+
+    /**
+     * Gets the path of the metrics log
+     * 
+     * @return  String  - file path or <code>null</code> if no log is written
+     */
+    public String getMetricsLog() {
+        return this.getProperty(Configuration.METRICS_LOG);
+    }
+
+    /**
+     * Checks whether the pipe metrics are registered as MBeans
+     * 
+     * @return  boolean
+     */
+    public boolean isMetricsJmx() {
+        return "true".equals(this.getProperty(Configuration.METRICS_JMX, "false").trim());
+    }
+
+    /**
+     * Checks whether the pipe metrics are logged or registered as MBeans
+     * 
+     * @return  boolean
+     */
+    public boolean isMetricsEnabled() {
+        return getMetricsLog() != null || isMetricsJmx();
+    }
+
+    /**
+     * Checks whether the RegEx tokenizer may use the exception trie and the 
+     * character scanner
+     * 
+     * @return  boolean
+     */
+    public boolean isRegexScanner() {
+        return !"false".equals(this.getProperty(Configuration.REGEX_SCANNER, "true").trim());
+    }
+
+    /**
+     * Gets the number of sentences in the memory tier of the sentence cache
+     * 
+     * @return  int - number of sentences (0 if the cache is disabled)
+     */
+    public int getSentenceCacheSize() {
+        if (!this.containsKey(Configuration.SENTENCE_CACHE_SIZE)) {
+            return 0;
+        }
+        try {
+            return Math.max(Integer.parseInt(this.getProperty(Configuration.SENTENCE_CACHE_SIZE).trim()), 0);
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Incorrect '" + Configuration.SENTENCE_CACHE_SIZE + "' entry in 'conf.xml'.");
+        }
+    }
+
+    /**
+     * Gets the directory of the disk tier of the sentence cache
+     * 
+     * @return  String  - directory path or <code>null</code> if there is no 
+     *                  disk tier
+     */
+    public String getSentenceCacheDir() {
+        return this.getProperty(Configuration.SENTENCE_CACHE_DIR);
+    }
+
+    /**
+     * Gets the address the pipe server binds to
+     * 
+     * @return  String
+     */
+    public String getServerHost() {
+        return this.getProperty(Configuration.SERVER_HOST, "127.0.0.1").trim();
+    }
+
+    /**
+     * Gets the port of the pipe server
+     * 
+     * @return  int
+     */
+    public int getServerPort() {
+        return getIntProperty(Configuration.SERVER_PORT, 8555);
+    }
+
+    /**
+     * Gets the number of requests the pipe server handles concurrently
+     * 
+     * @return  int
+     */
+    public int getServerThreads() {
+        return this.containsKey(Configuration.SERVER_THREADS)
+                ? getThreadCount(Configuration.SERVER_THREADS)
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Reads a positive integer parameter
+     * 
+     * @param   key configuration parameter name
+     * @param   def default value used when the parameter is missing
+     * 
+     * @return  int - parameter value (at least 1)
+     */
+    public int getIntProperty(String key, int def) {
+        if (!this.containsKey(key)) {
+            return Math.max(def, 1);
+        }
+        try {
+            return Math.max(Integer.parseInt(this.getProperty(key).trim()), 1);
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Incorrect '" + key + "' entry in 'conf.xml'.");
+        }
+    }
+
+    /**
+     * Reads a thread count parameter. Missing parameters default to 1, while 
+     * values less than 1 stand for the number of available processors.
+     * 
+     * @param   key configuration parameter name
+     * 
+     * @return  int - thread count (at least 1)
+     */
+    public int getThreadCount(String key) {
+        if (!this.containsKey(key)) {
+            return 1;
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(this.getProperty(key).trim());
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Incorrect '" + key + "' entry in 'conf.xml'.");
+        }
+        return (threads < 1) ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
     /**
      * Gets default pipe commands
      * 
@@ -0,0 +1,188 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.util.IdentityHashMap;
+import java.util.Properties;
+
+/**
+ * <code>ConllTagIndex</code> is an immutable index of the inverted CoNLL map 
+ * (<code>conllMapInvPath</code>), which links CoNLL POS tags and features to 
+ * the original BTB tags. The keys of the map are the POS tag followed by the 
+ * features; the index looks them up from the two parts directly, without 
+ * concatenating them into a new <code>String</code> and without the locking of 
+ * <code>Properties</code>, so it can be shared by any number of threads.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ConllTagIndex {
+
+    private static final int MAX_INSTANCES = 16;
+    // Replaced, never modified, when a new map is indexed
+    private static volatile IdentityHashMap<Properties, ConllTagIndex> INSTANCES = new IdentityHashMap();
+    private final String[] KEYS;
+    private final String[] VALUES;
+    // Open addressing table of entry indices (index + 1, 0 for free slots)
+    private final int[] SLOTS;
+
+    /**
+     * Builds an index of the inverted CoNLL map.
+     * 
+     * @param   iConllMap   <code>Map</code> containing back connections between
+     *                      POS tags in CoNLL representation and their original 
+     *                      BTB forms.
+     */
+    public ConllTagIndex(Properties iConllMap) {
+
+        int size = iConllMap.stringPropertyNames().size();
+        KEYS = new String[size];
+        VALUES = new String[size];
+        SLOTS = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+
+        int mask = SLOTS.length - 1;
+        int entry = 0;
+
+        for (String key : iConllMap.stringPropertyNames()) {
+            KEYS[entry] = key;
+            VALUES[entry] = iConllMap.getProperty(key);
+            int slot = mix(key.hashCode()) & mask;
+            while (SLOTS[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            SLOTS[slot] = entry + 1;
+            entry++;
+        }
+
+    }
+
+    /**
+     * Gets the index of the inverted CoNLL map. Indices are built once for 
+     * each <code>Properties</code> object, so the map should not be changed 
+     * after it has been passed to this method.
+     * 
+     * @param   iConllMap   <code>Map</code> containing back connections between
+     *                      POS tags in CoNLL representation and their original 
+     *                      BTB forms.
+     * 
+     * @return  ConllTagIndex
+     */
+    public static ConllTagIndex getInstance(Properties iConllMap) {
+
+        ConllTagIndex index = INSTANCES.get(iConllMap);
+
+        if (index == null) {
+            index = new ConllTagIndex(iConllMap);
+            synchronized (ConllTagIndex.class) {
+                IdentityHashMap<Properties, ConllTagIndex> instances = (INSTANCES.size() < MAX_INSTANCES)
+                        ? new IdentityHashMap(INSTANCES)
+                        : new IdentityHashMap();
+                instances.put(iConllMap, index);
+                INSTANCES = instances;
+            }
+        }
+
+        return index;
+
+    }
+
+    /**
+     * Gets the BTB tag of a POS tag and features pair.
+     * 
+     * @param   postag  CoNLL POS tag
+     * @param   feats   CoNLL features
+     * 
+     * @return  String - BTB tag or <code>null</code> if the pair is not in 
+     *          the map
+     */
+    public String get(CharSequence postag, CharSequence feats) {
+
+        int postagLength = postag.length();
+        int length = postagLength + feats.length();
+
+        int hash = 0;
+        for (int i = 0; i < postagLength; i++) {
+            hash = 31 * hash + postag.charAt(i);
+        }
+        for (int i = postagLength; i < length; i++) {
+            hash = 31 * hash + feats.charAt(i - postagLength);
+        }
+
+        int mask = SLOTS.length - 1;
+        int slot = mix(hash) & mask;
+
+        entries:
+        while (SLOTS[slot] != 0) {
+            String key = KEYS[SLOTS[slot] - 1];
+            if (key.length() == length) {
+                for (int i = 0; i < postagLength; i++) {
+                    if (key.charAt(i) != postag.charAt(i)) {
+                        slot = (slot + 1) & mask;
+                        continue entries;
+                    }
+                }
+                for (int i = postagLength; i < length; i++) {
+                    if (key.charAt(i) != feats.charAt(i - postagLength)) {
+                        slot = (slot + 1) & mask;
+                        continue entries;
+                    }
+                }
+                return VALUES[SLOTS[slot] - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Gets the original BTB tag of a token: the POS tag if the token has no 
+     * features (<code>null</code> or <code>_</code>), or the entry for the POS 
+     * tag and the features.
+     * 
+     * @param   postag  CoNLL POS tag
+     * @param   feats   CoNLL features
+     * 
+     * @return  String
+     */
+    public String getFullTag(CharSequence postag, CharSequence feats) {
+
+        if (feats == null || (feats.length() == 1 && feats.charAt(0) == '_')) {
+            return (postag == null) ? null : postag.toString();
+        }
+
+        return get((postag == null) ? "" : postag, feats);
+
+    }
+
+    /**
+     * Gets the number of entries in the index.
+     * 
+     * @return  int
+     */
+    public int size() {
+        return KEYS.length;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
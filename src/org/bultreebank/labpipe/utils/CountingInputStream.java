@@ -0,0 +1,92 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <code>CountingInputStream</code> counts the bytes read from the underlying 
+ * stream.
+ *
+ * @author Aleksandar Savkov
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private long COUNT = 0;
+    private long MARK = 0;
+
+    /**
+     * Creates a counting stream reading from <code>is</code>
+     * 
+     * @param   is  input stream
+     */
+    public CountingInputStream(InputStream is) {
+        super(is);
+    }
+
+    /**
+     * Gets the number of bytes read so far
+     * 
+     * @return  long
+     */
+    public long getCount() {
+        return COUNT;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            COUNT++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            COUNT += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        COUNT += skipped;
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        super.mark(readlimit);
+        MARK = COUNT;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        super.reset();
+        COUNT = MARK;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <code>CountingOutputStream</code> counts the bytes written to the 
+ * underlying stream. It also keeps the first write failure, so that it can 
+ * be reported even when a writer in between logs and ignores it.
+ *
+ * @author Aleksandar Savkov
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private long COUNT = 0;
+    private IOException ERROR = null;
+
+    /**
+     * Creates a counting stream writing to <code>os</code>
+     * 
+     * @param   os  output stream
+     */
+    public CountingOutputStream(OutputStream os) {
+        super(os);
+    }
+
+    /**
+     * Gets the number of bytes written so far
+     * 
+     * @return  long
+     */
+    public long getCount() {
+        return COUNT;
+    }
+
+    /**
+     * Gets the first exception thrown by the underlying stream
+     * 
+     * @return  IOException or <code>null</code> if all writes succeeded
+     */
+    public IOException getError() {
+        return ERROR;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            out.write(b);
+        } catch (IOException ex) {
+            throw fail(ex);
+        }
+        COUNT++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            out.write(b, off, len);
+        } catch (IOException ex) {
+            throw fail(ex);
+        }
+        COUNT += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw fail(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } catch (IOException ex) {
+            throw fail(ex);
+        }
+    }
+
+    private IOException fail(IOException ex) {
+        if (ERROR == null) {
+            ERROR = ex;
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>DaemonThreadFactory</code> creates named daemon threads for the worker
+ * pools of LABPipe tools, so that an idle pool never keeps the JVM alive.
+ *
+ * @author Aleksandar Savkov
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String NAME;
+    private final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * Creates a new factory naming its threads <code>name-N</code>
+     * 
+     * @param   name    thread name prefix
+     */
+    public DaemonThreadFactory(String name) {
+        NAME = name;
+    }
+
+    /**
+     * Creates a new daemon thread running <code>r</code>
+     * 
+     * @param   r   runnable
+     * 
+     * @return  Thread
+     */
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, NAME + "-" + COUNTER.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+
+}
@@ -36,8 +36,9 @@ import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.commons.lang.StringUtils;
+import org.bultreebank.labpipe.data.AnnotationIndex;
 import org.bultreebank.labpipe.data.Conll;
+import org.bultreebank.labpipe.data.ConllTokenReader;
 
 /**
  * <code>DataUtils</code> utilizes processes related to data the formats and object in LABPipe.
@@ -53,6 +54,9 @@ public class DataUtils {
      * data objects used in DSpin objects. For example, finds a <code>Tag</code>
      * referencing  a <code>Token</code> in a <code>List&lt;Token&gt;</code>.
      * 
+     * Each call scans the whole list; conversions looking up the annotations 
+     * of many tokens should use an {@link AnnotationIndex} instead.
+     * 
      * @param   list    data objects list
      * @param   ref     reference object
      * 
@@ -66,37 +70,37 @@ public class DataUtils {
 
         for (Object item : list) {
 
-            if (item.getClass().getName().equals(TokenRef.class.getName())) {
+            if (item instanceof TokenRef) {
                 TokenRef tr = (TokenRef) item;
                 if (tr != null && tr.getTokID() != null
                         && tr.getTokID().equals(ref)) {
                     return item;
                 }
-            } else if (item.getClass().getName().equals(Lemma.class.getName())) {
+            } else if (item instanceof Lemma) {
                 Lemma lemma = (Lemma) item;
                 if (lemma != null && lemma.getTokID() != null
                         && lemma.getTokID().equals(ref)) {
                     return item;
                 }
-            } else if (item.getClass().getName().equals(Tag.class.getName())) {
+            } else if (item instanceof Tag) {
                 Tag tag = (Tag) item;
                 if (tag != null && tag.getTokID() != null
                         && tag.getTokID().equals(ref)) {
                     return item;
                 }
-            } else if (item.getClass().getName().equals(Analysis.class.getName())) {
+            } else if (item instanceof Analysis) {
                 Analysis analysis = (Analysis) item;
                 if (analysis != null && analysis.getTokID() != null
                         && analysis.getTokID().equals(ref)) {
                     return item;
                 }
-            } else if (item.getClass().getName().equals(Dependency.class.getName())) {
+            } else if (item instanceof Dependency) {
                 Dependency dep = ((Dependency) item);
                 if (dep != null && dep.getDepID() != null
                         && dep.getDepID().equals(ref)) {
                     return item;
                 }
-            } else if (item.getClass().getName().equals(Depparsing.Parse.class.getName())) {
+            } else if (item instanceof Depparsing.Parse) {
                 List parseList = ((Depparsing.Parse) item).getDependency();
                 Dependency dependency = (Dependency) getBackRef(parseList, ref);
                 if (dependency != null) {
@@ -123,6 +127,26 @@ public class DataUtils {
      */
     public static ArrayList<String> dspinSentAsConllArray(Sentence sentence, ClassMap cm, Properties conllMap) {
         
+        return dspinSentAsConllArray(sentence, cm, new AnnotationIndex(cm), conllMap);
+        
+    }
+    
+    /**
+     * Converts a <code>DSpin Sentence</code> object into a 
+     * <code>ArrayList&lt;String&gt;</code> that can be used in constructing 
+     * {@link Conll} objects. The annotations of the tokens are looked up in 
+     * <code>index</code>, which should be built once for all sentences of a 
+     * document.
+     * 
+     * @param   sentence    <code>DSpin Sentence</code> object
+     * @param   cm          {@link ClassMap} object
+     * @param   index       {@link AnnotationIndex} of the document
+     * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL representation forms (features)
+     * 
+     * @return  ArrayList&lt;String&gt;
+     */
+    public static ArrayList<String> dspinSentAsConllArray(Sentence sentence, ClassMap cm, AnnotationIndex index, Properties conllMap) {
+        
         ArrayList<String> conllSentence = new ArrayList();
         
         List<TokenRef> tokRefs = sentence.getTokenRef();
@@ -139,6 +163,7 @@ public class DataUtils {
         Depparsing.Parse parse = null;
         Dependency dependency = null;
         HashMap tokenIndex = new HashMap();
+        TagDecomposer decomposer = TagDecomposer.getInstance(conllMap);
 
         try {
             for (TokenRef tokRef : tokRefs) {
@@ -158,7 +183,7 @@ public class DataUtils {
 
                 // Lemma
                 if (lemmas != null) {
-                    lemma = (Lemma) DataUtils.getBackRef(lemmas.getLemma(), token);
+                    lemma = index.getLemma(token);
                     if (lemma != null && lemma.getValue().length() > 0) {
                         conllLine.append(lemma.getValue().replaceAll(" ", "_"));
                     } else {
@@ -172,50 +197,11 @@ public class DataUtils {
 
                 if (cm.get(POStags.class) != null) {
 
-                    tagXml = (Tag) DataUtils.getBackRef(((POStags) cm.get(POStags.class)).getTag(), token);
+                    tagXml = index.getTag(token);
                     tag = tagXml.getValue();
 
-                    // Short tag (BTB first letter)
-                    if (tag.contains("punct")) {
-                        conllLine.append("Punct");
-                    } else {
-                        conllLine.append(tag.charAt(0));
-                    }
-                    conllLine.append("\t");
-
-                    // Long tag
-                    if (tag.contains("punct") || tag.contains("Punct")) {
-                        conllLine.append("Punct");
-                    } else if (tag.startsWith("V")) {
-                        conllLine.append(tag.substring(0, 3));
-                    } else if (tag.length() > 2 && tag.charAt(1) != '-') {
-                        conllLine.append(tag.substring(0, 2));
-                    } else if (tag.length() >= 2 && tag.charAt(1) == '-') {
-                        conllLine.append(tag.charAt(0));
-                    } else {
-                        conllLine.append(tag);
-                    }
-                    conllLine.append("\t");
-
-
-                    // Features (rest of the tag separated with pipe signs)
-                    if (conllMap.containsKey(tag)) { // using the map configuration
-
-                        conllLine.append(conllMap.getProperty(tag));
-
-                    } else { // tags not listed in the map -- failsafe
-
-                        if (tag.length() > 2 && !tag.contains("unct")) {
-
-                            conllLine.append(StringUtils.join(tag.substring(2).split(""), "|").substring(1));
-
-                        } else {
-
-                            conllLine.append("_");
-
-                        }
-
-                    }
+                    // Short tag, long tag and features
+                    decomposer.appendColumns(tag, conllLine);
 
                 } else {
                     conllLine.append("_\t_\t_");
@@ -230,12 +216,12 @@ public class DataUtils {
 
                     if (!parseList.isEmpty()) {
 
-                        parse = (Depparsing.Parse) DataUtils.getBackRef(parseList, token);
+                        parse = index.getParse(token);
 
                         if (parse != null
                                 && parse.getID().substring(3).equals(sentence.getID().substring(3))) {
 
-                            dependency = (Dependency) DataUtils.getBackRef(parse.getDependency(), token);
+                            dependency = index.getDependency(token);
 
                             conllLine.append(tokenIndex.get(dependency.getGovID()));
                             conllLine.append("\t");
@@ -271,7 +257,7 @@ public class DataUtils {
     public static String lineTokenToConllToken(String line, int id, Properties conllMap)
             throws ArrayIndexOutOfBoundsException {
 
-        ArrayList<String> conll = new ArrayList(10);
+        StringBuilder conll = new StringBuilder();
 
         line = line.replaceAll(" ", "\t");
 
@@ -285,60 +271,25 @@ public class DataUtils {
         }
 
         // ID number
-        conll.add(String.valueOf(id));
+        conll.append(id);
+        conll.append("\t");
 
         // Token
-        conll.add(token);
+        conll.append(token);
+        conll.append("\t");
 
         // Lemma
         if (lemma != null) {
-            conll.add(lemma);
-        } else {
-            conll.add("_");
-        }
-
-        // Short tag (BTB first letter)
-        if (tag.contains("punct")) {
-            conll.add("Punct");
-        } else {
-            conll.add(String.valueOf(tag.charAt(0)));
-        }
-
-        // Long tag
-        if (tag.contains("punct") || tag.contains("Punct")) {
-            conll.add("Punct");
-        } else if (tag.length() > 2 && tag.charAt(1) != '-') {
-            if (tag.startsWith("V")) {
-                conll.add(tag.substring(0, 3));
-            } else {
-                conll.add(tag.substring(0, 2));
-            }
-        } else if (tag.length() > 2 && tag.charAt(1) == '-') {
-            conll.add(String.valueOf(tag.charAt(0)));
+            conll.append(lemma);
         } else {
-            conll.add(tag);
+            conll.append("_");
         }
+        conll.append("\t");
 
-        // Features (rest of the tag separated with pipe signs)
-        if (conllMap.containsKey(tag)) { // using the map configuration
-
-            conll.add(conllMap.getProperty(tag));
-
-        } else { // tags not listed in the map -- failsafe
-
-            if (tag.length() > 2 && !tag.contains("unct")) {
-
-                conll.add(Misc.join(tag.substring(2).split(""), "|").substring(1));
-
-            } else {
-
-                conll.add("_");
-
-            }
-
-        }
+        // Short tag, long tag and features
+        TagDecomposer.getInstance(conllMap).appendColumns(tag, conll);
 
-        return Misc.join(conll, "\t");
+        return conll.toString();
 
     }
     
@@ -350,7 +301,10 @@ public class DataUtils {
      *                      tags and features to original BTB tags.
      * 
      * @return HashMap&ltInteger, String&gt;
+     * @deprecated use {@link ConllTokenReader}, which reads the columns 
+     *              without building a map for each token
      */
+    @Deprecated
     public static HashMap<Integer, String> conllLineAsMap(String line, Properties iConllMap) {
 
         String splitter = (line.contains("\t")) ? "\t" : " ";
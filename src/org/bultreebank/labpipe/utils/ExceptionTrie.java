@@ -0,0 +1,138 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <code>ExceptionTrie</code> is a character trie of the tokenization 
+ * exceptions. It finds the exception at a position of a text in time 
+ * proportional to the length of the longest exception, regardless of the 
+ * size of the dictionary.
+ * <p>
+ * When several exceptions start at the same position, the one listed first 
+ * in the dictionary is chosen, as the alternation built by 
+ * {@link RegExDictionary} would choose it. Empty entries are ignored.
+ *
+ * @author Aleksandar Savkov
+ */
+public class ExceptionTrie {
+
+    /* Children of the nodes, keyed by node and character */
+    private final HashMap<Long, Integer> EDGES = new HashMap();
+    /* Dictionary position of the exception ending at each node, -1 for none */
+    private int[] RANKS = new int[64];
+    private int NODE_COUNT = 1;
+    private int SIZE = 0;
+
+    /**
+     * Builds a trie of <code>entries</code>
+     * 
+     * @param   entries exceptions in dictionary order
+     */
+    public ExceptionTrie(List<String> entries) {
+
+        RANKS[0] = -1;
+        for (int i = 0; i < entries.size(); i++) {
+            add(entries.get(i), i);
+        }
+
+    }
+
+    /**
+     * Gets the number of exceptions in the trie
+     * 
+     * @return  int
+     */
+    public int size() {
+        return SIZE;
+    }
+
+    /**
+     * Finds the first exception in dictionary order which occurs in 
+     * <code>text</code> at <code>start</code>
+     * 
+     * @param   text    text
+     * @param   start   position in the text
+     * 
+     * @return  int - length of the exception or 0 if there is none
+     */
+    public int match(CharSequence text, int start) {
+
+        int node = 0;
+        int bestRank = Integer.MAX_VALUE;
+        int bestLength = 0;
+
+        for (int i = start; i < text.length(); i++) {
+            Integer child = EDGES.get(key(node, text.charAt(i)));
+            if (child == null) {
+                break;
+            }
+            node = child;
+            int rank = RANKS[node];
+            if (rank >= 0 && rank < bestRank) {
+                bestRank = rank;
+                bestLength = i + 1 - start;
+            }
+        }
+
+        return bestLength;
+
+    }
+
+    /*
+     * Adds an exception, keeping the rank of an earlier duplicate.
+     */
+    private void add(String entry, int rank) {
+
+        if (entry.length() == 0) {
+            return;
+        }
+
+        int node = 0;
+        for (int i = 0; i < entry.length(); i++) {
+            Long key = key(node, entry.charAt(i));
+            Integer child = EDGES.get(key);
+            if (child == null) {
+                if (NODE_COUNT == RANKS.length) {
+                    int[] grown = new int[RANKS.length * 2];
+                    System.arraycopy(RANKS, 0, grown, 0, RANKS.length);
+                    RANKS = grown;
+                }
+                child = NODE_COUNT++;
+                RANKS[child] = -1;
+                EDGES.put(key, child);
+            }
+            node = child;
+        }
+
+        if (RANKS[node] < 0) {
+            RANKS[node] = rank;
+            SIZE++;
+        }
+
+    }
+
+    private static Long key(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+}
@@ -25,6 +25,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,13 +34,16 @@ import java.util.logging.Logger;
  * <code>RegExDictionary</code> builds a Regular Expression <code>String</code> 
  * representation of dictionary stored in a text file. For example, 
  * <code>apple</code>, <code>banana</code>, <code>orange</code> will be 
- * represented as <code>(apple|banana|orange)</code>.
+ * represented as <code>(apple|banana|orange)</code>. The entries are also 
+ * available as an {@link ExceptionTrie}, which matches them without a 
+ * regular expression.
  * 
  * @author Aleksandar Savkov
  */
 public class RegExDictionary {
 
     private static String EXCEPTIONS;
+    private List<String> ENTRIES = new ArrayList();
     private Configuration OPTIONS;
     private static final Logger logger = Logger.getLogger(RegExDictionary.class.getName());
 
@@ -72,6 +77,7 @@ public class RegExDictionary {
         } catch (IOException ex) {
             logger.log(Level.SEVERE, ex.getMessage(), ex);
         }
+        ENTRIES = dict;
         return buildRegExDictionary(dict);
     }
 
@@ -82,7 +88,7 @@ public class RegExDictionary {
         StringBuilder re = new StringBuilder();
         re.append("(?:");
         for (String w : dict) {
-            re.append(w.replaceAll("([\\.|()$\\^*+?{}\\[\\[-])", "\\\\$1")).append("|");
+            re.append(w.replaceAll("([\\\\.|()$^*+?{}\\[\\]-])", "\\\\$1")).append("|");
         }
         re.deleteCharAt(re.length() - 1);
         re.append(")");
@@ -99,6 +105,24 @@ public class RegExDictionary {
         EXCEPTIONS = dict;
     }
 
+    /**
+     * Retrieves the dictionary entries in the order of the dictionary file.
+     * 
+     * @return  List&lt;String&gt;
+     */
+    public List<String> getEntries() {
+        return Collections.unmodifiableList(ENTRIES);
+    }
+
+    /**
+     * Builds an {@link ExceptionTrie} of the dictionary entries.
+     * 
+     * @return  ExceptionTrie
+     */
+    public ExceptionTrie getExceptionTrie() {
+        return new ExceptionTrie(ENTRIES);
+    }
+
     /**
      * Retrieves a <code>String</code> containing the RegEx representation of the dictionary.
      * 
@@ -61,6 +61,7 @@ public class ServiceConstants {
     public final static int DATA_CLARK_TOKENS = 5;
     public final static int DATA_CLARK_TAGS = 6;
     public final static int DATA_GAZE = 7;
+    public final static int DATA_BINARY = 8;
     
     /* Pipe Commands */
     public final static int PIPE_SFST_TOKENIZE = 1;
@@ -82,6 +83,7 @@ public class ServiceConstants {
     public final static String EXCEPTION_PARSER_CONFIGURATION = "This should not be happening! Check parsing XML files (mainly CLaRK XML format).";
     public final static String EXCEPTION_IO = "Check the few places where actual file writing occurs.";
     public final static String EXCEPTION_SAX_PARSER = "Check the few places where actual file writing occurs.";
+    public final static String EXCEPTION_XML_STREAM = "Check the CLaRK XML input: it could not be read as a stream.";
     public final static String EXCEPTION_FILE_NOT_FOUND = "File not found: ";
     
     /* Properties */
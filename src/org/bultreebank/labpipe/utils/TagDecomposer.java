@@ -0,0 +1,218 @@
+/*
+ * LABPipe - Natural Language Processing Pipeline for Bulgarian
+ * Copyright (C) 2011 Institute for Information and Communication Technologies 
+ *
+ * The development of this program was funded by the EuroMatrixPlus Project as
+ * part of the Seventh Framework Program of the European Commission.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bultreebank.labpipe.utils;
+
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>TagDecomposer</code> converts BTB tags into the three CoNLL tag 
+ * columns: short tag (first letter of the BTB tag), long tag and features. 
+ * The columns of every tag in the CoNLL map (<code>conllMapPath</code>) are 
+ * computed once when the object is created and the columns of other tags are 
+ * computed with the failsafe rule and cached on first use, so converting a 
+ * token costs a single hash lookup.
+ * <p>
+ * Instances are immutable apart from the cache and can be shared between 
+ * threads. The CoNLL map should not be changed after it has been passed to 
+ * this class.
+ *
+ * @author Aleksandar Savkov
+ */
+public class TagDecomposer {
+
+    /*
+     * Maximum number of cached tags which are not in the CoNLL map. The BTB 
+     * tagset is closed, so this only guards against broken input.
+     */
+    private static final int MAX_CACHED_TAGS = 4096;
+    private static final int MAX_INSTANCES = 16;
+    // Replaced, never modified, when a new map is used
+    private static volatile IdentityHashMap<Properties, TagDecomposer> INSTANCES = new IdentityHashMap();
+    private final Properties CONLL_MAP;
+    private final ConcurrentHashMap<String, String[]> COLUMNS = new ConcurrentHashMap();
+
+    /**
+     * Creates a decomposer and computes the columns of all tags in the CoNLL 
+     * map.
+     * 
+     * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+     *                      representation forms (features)
+     */
+    public TagDecomposer(Properties conllMap) {
+
+        CONLL_MAP = conllMap;
+
+        for (String tag : conllMap.stringPropertyNames()) {
+            COLUMNS.put(tag, decompose(tag));
+        }
+
+    }
+
+    /**
+     * Gets a decomposer for the CoNLL map. Decomposers are created once for 
+     * each <code>Properties</code> object.
+     * 
+     * @param   conllMap    <code>Map</code> linking BTB tags to their CoNLL 
+     *                      representation forms (features)
+     * 
+     * @return  TagDecomposer
+     */
+    public static TagDecomposer getInstance(Properties conllMap) {
+
+        TagDecomposer decomposer = INSTANCES.get(conllMap);
+
+        if (decomposer == null) {
+            decomposer = new TagDecomposer(conllMap);
+            synchronized (TagDecomposer.class) {
+                IdentityHashMap<Properties, TagDecomposer> instances = (INSTANCES.size() < MAX_INSTANCES)
+                        ? new IdentityHashMap(INSTANCES)
+                        : new IdentityHashMap();
+                instances.put(conllMap, decomposer);
+                INSTANCES = instances;
+            }
+        }
+
+        return decomposer;
+
+    }
+
+    /**
+     * Gets the short tag (first letter of the BTB tag or <code>Punct</code>).
+     * 
+     * @param   tag BTB tag
+     * 
+     * @return  String
+     */
+    public String getShortTag(String tag) {
+        return getEntry(tag)[0];
+    }
+
+    /**
+     * Gets the long tag (first two letters of the BTB tag, three for verbs).
+     * 
+     * @param   tag BTB tag
+     * 
+     * @return  String
+     */
+    public String getLongTag(String tag) {
+        return getEntry(tag)[1];
+    }
+
+    /**
+     * Gets the features (the rest of the tag separated with pipe signs, or 
+     * the entry in the CoNLL map).
+     * 
+     * @param   tag BTB tag
+     * 
+     * @return  String
+     */
+    public String getFeatures(String tag) {
+        return getEntry(tag)[2];
+    }
+
+    /**
+     * Gets the short tag, the long tag and the features of a BTB tag 
+     * separated with tabs, as they appear in a CoNLL line.
+     * 
+     * @param   tag BTB tag
+     * 
+     * @return  String
+     */
+    public String getColumns(String tag) {
+        return getEntry(tag)[3];
+    }
+
+    /**
+     * Appends the short tag, the long tag and the features of a BTB tag 
+     * separated with tabs to the <code>StringBuilder</code>.
+     * 
+     * @param   tag BTB tag
+     * @param   sb  <code>StringBuilder</code>
+     */
+    public void appendColumns(String tag, StringBuilder sb) {
+        sb.append(getEntry(tag)[3]);
+    }
+
+    private String[] getEntry(String tag) {
+
+        String[] entry = COLUMNS.get(tag);
+
+        if (entry == null) {
+            entry = decompose(tag);
+            if (COLUMNS.size() < CONLL_MAP.size() + MAX_CACHED_TAGS) {
+                COLUMNS.putIfAbsent(tag, entry);
+            }
+        }
+
+        return entry;
+
+    }
+
+    /*
+     * Computes the CoNLL columns of a tag.
+     */
+    private String[] decompose(String tag) {
+
+        String shortTag;
+        String longTag;
+        String features;
+
+        // Short tag (BTB first letter)
+        if (tag.contains("punct")) {
+            shortTag = "Punct";
+        } else {
+            shortTag = (tag.length() > 0) ? tag.substring(0, 1) : tag;
+        }
+
+        // Long tag
+        if (tag.contains("punct") || tag.contains("Punct")) {
+            longTag = "Punct";
+        } else if (tag.length() > 2 && tag.charAt(1) != '-') {
+            longTag = tag.substring(0, tag.startsWith("V") ? 3 : 2);
+        } else if (tag.length() > 2 && tag.charAt(1) == '-') {
+            longTag = tag.substring(0, 1);
+        } else {
+            longTag = tag;
+        }
+
+        // Features (rest of the tag separated with pipe signs)
+        if (CONLL_MAP.containsKey(tag)) { // using the map configuration
+            features = CONLL_MAP.getProperty(tag);
+        } else if (tag.length() > 2 && !tag.contains("unct")) { // failsafe
+            StringBuilder sb = new StringBuilder();
+            for (int i = 2; i < tag.length(); i++) {
+                if (i > 2) {
+                    sb.append('|');
+                }
+                sb.append(tag.charAt(i));
+            }
+            features = sb.toString();
+        } else {
+            features = "_";
+        }
+
+        return new String[]{shortTag, longTag, features,
+                    shortTag + "\t" + longTag + "\t" + features};
+
+    }
+}